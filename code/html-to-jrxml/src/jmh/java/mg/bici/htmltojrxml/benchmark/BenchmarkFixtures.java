@@ -0,0 +1,136 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+/**
+ * Generates deterministic payslip-like HTML and CSS fixtures of a requested size.
+ */
+final class BenchmarkFixtures {
+    static final int CLASS_VARIANTS = 50;
+    private static final int CELLS_PER_ROW = 4;
+    private static final int ROWS_PER_TABLE = 25;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Generates a document of sections holding tables of rows and cells.
+     *
+     * @param elementCount the exact number of elements inside the body
+     * @return HTML document
+     */
+    static String generateHtml(int elementCount) {
+        StringBuilder html = new StringBuilder(elementCount * 48);
+        html.append("<!DOCTYPE html><html><head><title>Fixture</title></head><body>");
+        int remaining = elementCount;
+        int section = 0;
+        while (remaining > 0) {
+            if (remaining == 1) {
+                // an empty section would not be reported
+                html.append("<p class=\"note\">Total</p>");
+                break;
+            }
+            html.append("<div class=\"section s").append(section % 10).append("\" id=\"section-").append(section).append("\">");
+            remaining--;
+            if (remaining >= 4) {
+                // tbody is written explicitly since the parser would add it anyway
+                html.append("<table class=\"grid\"><tbody>");
+                remaining -= 2;
+                // rows are only started with room for a cell, empty rows are not reported
+                for (int row = 0; row < ROWS_PER_TABLE && remaining >= 2; row++) {
+                    html.append("<tr class=\"row").append(row % 2 == 0 ? " even" : "").append("\">");
+                    remaining--;
+                    for (int cell = 0; cell < CELLS_PER_ROW && remaining > 0; cell++) {
+                        int variant = (row * CELLS_PER_ROW + cell) % CLASS_VARIANTS;
+                        html.append("<td class=\"cell c").append(variant).append("\" data-col=\"").append(cell)
+                                .append("\">").append(row * 100 + cell).append(",00</td>");
+                        remaining--;
+                    }
+                    html.append("</tr>");
+                }
+                html.append("</tbody></table>");
+            }
+            for (; remaining > 0 && remaining < 4; remaining--) {
+                html.append("<p class=\"note\">Total</p>");
+            }
+            html.append("</div>");
+            section++;
+        }
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    /**
+     * Generates a stylesheet mixing the selector shapes found in report templates.
+     *
+     * @param ruleCount the number of rules
+     * @return CSS content
+     */
+    static String generateCss(int ruleCount) {
+        StringBuilder css = new StringBuilder(ruleCount * 64);
+        for (int i = 0; i < ruleCount; i++) {
+            int variant = i % CLASS_VARIANTS;
+            switch (i % 8) {
+                case 0:
+                    css.append(".c").append(variant);
+                    break;
+                case 1:
+                    css.append("td.c").append(variant);
+                    break;
+                case 2:
+                    css.append("div.s").append(i % 10).append(" td");
+                    break;
+                case 3:
+                    css.append("tr.even > td.c").append(variant);
+                    break;
+                case 4:
+                    css.append("#section-").append(i % 100).append(" .cell");
+                    break;
+                case 5:
+                    css.append("td[data-col=\"").append(i % 4).append("\"]");
+                    break;
+                case 6:
+                    css.append("table.grid tr");
+                    break;
+                default:
+                    css.append("div");
+                    break;
+            }
+            css.append(" { color: #").append(String.format("%06x", (i * 2654435761L) & 0xFFFFFFL))
+                    .append("; font-size: ").append(8 + i % 6).append("pt")
+                    .append("; padding: ").append(i % 4).append("px ").append(i % 3).append("px")
+                    .append("; text-align: ").append(i % 2 == 0 ? "left" : "right")
+                    .append(i % 5 == 0 ? "; font-weight: bold" : "")
+                    .append("; }\n");
+        }
+        return css.toString();
+    }
+
+    /**
+     * Lists every element of a tree in document order.
+     *
+     * @param roots the root elements
+     * @return all elements
+     */
+    static List<HtmlElement> flatten(List<HtmlElement> roots) {
+        List<HtmlElement> elements = new ArrayList<>();
+        Deque<HtmlElement> stack = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(roots.get(i));
+        }
+        while (!stack.isEmpty()) {
+            HtmlElement element = stack.pop();
+            elements.add(element);
+            List<HtmlElement> children = element.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return elements;
+    }
+}
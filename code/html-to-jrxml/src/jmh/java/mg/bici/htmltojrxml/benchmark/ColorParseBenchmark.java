@@ -0,0 +1,36 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mg.bici.htmltojrxml.utils.Color;
+import mg.bici.htmltojrxml.utils.ColorUtils;
+
+/**
+ * Measures color parsing for each color notation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorParseBenchmark {
+    @Param({"#1a2b3c", "#fff", "rgb(12, 34, 56)", "red", "darkslategray", "not-a-color"})
+    public String color;
+
+    @Benchmark
+    public Color parseColor() {
+        return ColorUtils.parseColor(color);
+    }
+}
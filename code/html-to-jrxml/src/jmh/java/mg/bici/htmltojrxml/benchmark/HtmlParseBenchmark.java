@@ -0,0 +1,52 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mg.bici.htmltojrxml.html.CompactDocument;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.ParsedDocument;
+
+/**
+ * Measures HTML parsing and element tree construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HtmlParseBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int elementCount;
+
+    private HtmlDocumentParser parser;
+    private String html;
+
+    @Setup
+    public void setUp() {
+        parser = new HtmlDocumentParser();
+        html = BenchmarkFixtures.generateHtml(elementCount);
+    }
+
+    @Benchmark
+    public ParsedDocument parseHtml() {
+        return parser.parseHtml(html);
+    }
+
+    @Benchmark
+    public CompactDocument parseCompactHtml() {
+        return parser.parseCompactHtml(html);
+    }
+}
@@ -0,0 +1,57 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.layout.LayoutCalculationEngine;
+import mg.bici.htmltojrxml.layout.LayoutResult;
+
+/**
+ * Measures the layout of styled documents; the time per element should stay flat as
+ * documents grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int elementCount;
+
+    private LayoutCalculationEngine engine;
+    private List<HtmlElement> roots;
+    private Map<HtmlElement, ImmutableComputedStyle> styles;
+
+    @Setup
+    public void setUp() {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        roots = new HtmlDocumentParser().parseHtml(BenchmarkFixtures.generateHtml(elementCount)).getElements();
+        styles = analyzer.computeStyles(roots, analyzer.compileStylesheet(BenchmarkFixtures.generateCss(500)));
+        engine = new LayoutCalculationEngine(new ConversionConfig());
+    }
+
+    @Benchmark
+    public LayoutResult calculateLayout() {
+        return engine.calculateLayout(roots, styles);
+    }
+}
@@ -0,0 +1,58 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mg.bici.htmltojrxml.css.SelectorMatcher;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+/**
+ * Measures selector matching of one selector shape against every element of a document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectorMatchBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int elementCount;
+
+    @Param({"td", ".c7", "td.cell.c7", "div.s3 td", "tr.even > td.c7", "td[data-col=\"2\"]"})
+    public String selector;
+
+    private SelectorMatcher matcher;
+    private List<HtmlElement> elements;
+
+    @Setup
+    public void setUp() {
+        matcher = new SelectorMatcher();
+        List<HtmlElement> roots = new HtmlDocumentParser().parseHtml(BenchmarkFixtures.generateHtml(elementCount)).getElements();
+        elements = BenchmarkFixtures.flatten(roots);
+    }
+
+    @Benchmark
+    public int matches() {
+        int matched = 0;
+        for (HtmlElement element : elements) {
+            if (matcher.matches(element, selector)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,66 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mg.bici.htmltojrxml.css.CompiledStylesheet;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+/**
+ * Measures the style cascade over a whole document, element by element and tree-wide.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StyleCascadeBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int elementCount;
+
+    @Param({"10", "500", "5000"})
+    public int ruleCount;
+
+    private CssStyleAnalyzer analyzer;
+    private CompiledStylesheet stylesheet;
+    private List<HtmlElement> roots;
+    private List<HtmlElement> elements;
+
+    @Setup
+    public void setUp() {
+        analyzer = new CssStyleAnalyzer();
+        stylesheet = analyzer.compileStylesheet(BenchmarkFixtures.generateCss(ruleCount));
+        roots = new HtmlDocumentParser().parseHtml(BenchmarkFixtures.generateHtml(elementCount)).getElements();
+        elements = BenchmarkFixtures.flatten(roots);
+    }
+
+    @Benchmark
+    public void computeStyle(Blackhole blackhole) {
+        for (HtmlElement element : elements) {
+            blackhole.consume(analyzer.computeStyle(element, stylesheet));
+        }
+    }
+
+    @Benchmark
+    public Map<HtmlElement, ImmutableComputedStyle> computeStyles() {
+        return analyzer.computeStyles(roots, stylesheet);
+    }
+}
@@ -0,0 +1,54 @@
+package mg.bici.htmltojrxml.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.css.CSSStyleSheet;
+
+import mg.bici.htmltojrxml.css.CompiledStylesheet;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+
+/**
+ * Measures stylesheet parsing and compilation, bypassing the stylesheet cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StylesheetParseBenchmark {
+    @Param({"10", "100", "1000", "5000"})
+    public int ruleCount;
+
+    private CssStyleAnalyzer analyzer;
+    private String css;
+    private CSSStyleSheet parsed;
+
+    @Setup
+    public void setUp() {
+        analyzer = new CssStyleAnalyzer();
+        css = BenchmarkFixtures.generateCss(ruleCount);
+        parsed = analyzer.parseStylesheet(css);
+    }
+
+    @Benchmark
+    public CSSStyleSheet parseStylesheet() {
+        return analyzer.parseStylesheet(css);
+    }
+
+    @Benchmark
+    public CompiledStylesheet compileParsedStylesheet() {
+        return CompiledStylesheet.compile(parsed);
+    }
+}
@@ -2,6 +2,9 @@ package mg.bici.htmltojrxml.config;
 
 import java.io.IOException;
 import java.util.Properties;
+import java.util.TreeSet;
+
+import mg.bici.htmltojrxml.utils.HashUtils;
 
 /**
  * Manages conversion configuration settings loaded from properties file.
@@ -19,6 +22,15 @@ public class ConversionConfig {
         }
     }
 
+    /**
+     * Creates a configuration from the given properties; missing keys take their defaults.
+     *
+     * @param properties the configuration properties
+     */
+    public ConversionConfig(Properties properties) {
+        this.properties = properties;
+    }
+
     /**
      * Gets page dimensions in points (width, height).
      */
@@ -35,6 +47,13 @@ public class ConversionConfig {
         return properties.getProperty("font.default.family", "Arial");
     }
 
+    /**
+     * Gets the default font size in points.
+     */
+    public float getDefaultFontSize() {
+        return Float.parseFloat(properties.getProperty("font.default.size", "10"));
+    }
+
     /**
      * Gets page margins in points (top, right, bottom, left).
      */
@@ -46,6 +65,26 @@ public class ConversionConfig {
         return new int[]{top, right, bottom, left};
     }
 
+    /**
+     * Gets the subtree size (in elements) above which the style cascade is split
+     * into parallel tasks.
+     */
+    public int getParallelCascadeThreshold() {
+        return Integer.parseInt(properties.getProperty("cascade.parallel.threshold", "2048"));
+    }
+
+    /**
+     * Gets a SHA-256 hash of every property, so that cached conversions are not reused
+     * under another configuration.
+     */
+    public String getFingerprint() {
+        StringBuilder content = new StringBuilder();
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            content.append(name).append('=').append(properties.getProperty(name)).append('\n');
+        }
+        return HashUtils.sha256Hex(content.toString());
+    }
+
     /**
      * Loads configuration (called during initialization).
      */
@@ -5,6 +5,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+
+import mg.bici.htmltojrxml.utils.HashUtils;
 
 /**
  * Manages font mappings from CSS to JasperReports fonts.
@@ -49,4 +52,15 @@ public class FontMappingConfig {
     public Map<String, String> getAvailableFonts() {
         return Collections.unmodifiableMap(fontMappings);
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets a SHA-256 hash of the mappings, for cache keys.
+     */
+    public String getFingerprint() {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> mapping : new TreeMap<>(fontMappings).entrySet()) {
+            content.append(mapping.getKey()).append('=').append(mapping.getValue()).append('\n');
+        }
+        return HashUtils.sha256Hex(content.toString());
+    }
+}
@@ -0,0 +1,26 @@
+package mg.bici.htmltojrxml.core;
+
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+
+/**
+ * Receives batch results as documents complete. Methods are called from worker
+ * threads, possibly concurrently, so implementations must be thread-safe.
+ */
+public interface BatchCallback {
+
+    /**
+     * Called when a document has been converted.
+     *
+     * @param id       the input id
+     * @param document the styled document
+     */
+    void onSuccess(String id, StyledDocument document);
+
+    /**
+     * Called when a document failed; other documents of the batch are not affected.
+     *
+     * @param id    the input id
+     * @param error the conversion error
+     */
+    void onFailure(String id, ConversionException error);
+}
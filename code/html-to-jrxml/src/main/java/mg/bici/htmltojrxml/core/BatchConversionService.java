@@ -0,0 +1,149 @@
+package mg.bici.htmltojrxml.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mg.bici.htmltojrxml.css.CompiledStylesheet;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.ParsedDocument;
+
+/**
+ * Converts many HTML documents sharing one stylesheet (e.g., month-end payslips)
+ * on a bounded worker pool. The stylesheet is compiled once per batch, at most
+ * {@code maxPendingDocuments} documents are in flight (submission blocks beyond that),
+ * and a failing document never affects the others.
+ */
+public class BatchConversionService implements AutoCloseable {
+    private final HtmlDocumentParser htmlParser;
+    private final CssStyleAnalyzer cssAnalyzer;
+    private final ExecutorService executor;
+    private final int maxPendingDocuments;
+
+    public BatchConversionService(int workerCount, int maxPendingDocuments) {
+        this(new HtmlDocumentParser(), new CssStyleAnalyzer(), workerCount, maxPendingDocuments);
+    }
+
+    public BatchConversionService(HtmlDocumentParser htmlParser, CssStyleAnalyzer cssAnalyzer,
+                                  int workerCount, int maxPendingDocuments) {
+        if (workerCount <= 0 || maxPendingDocuments <= 0) {
+            throw new IllegalArgumentException("workerCount and maxPendingDocuments must be positive");
+        }
+        this.htmlParser = htmlParser;
+        this.cssAnalyzer = cssAnalyzer;
+        this.maxPendingDocuments = maxPendingDocuments;
+        this.executor = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new BatchThreadFactory());
+    }
+
+    /**
+     * Converts every input, reporting each document to the callback as soon as it completes.
+     * Returns once all documents have been reported.
+     *
+     * @param inputs     the documents to convert
+     * @param cssContent the stylesheet shared by all documents
+     * @param callback   receives results in completion order
+     * @throws ConversionException if the stylesheet cannot be parsed or the caller is interrupted
+     */
+    public void convertAll(Iterator<ConversionInput> inputs, String cssContent, BatchCallback callback) {
+        CompiledStylesheet stylesheet = cssAnalyzer.compileStylesheet(cssContent);
+        Semaphore slots = new Semaphore(maxPendingDocuments);
+        try {
+            while (inputs.hasNext()) {
+                ConversionInput input = inputs.next();
+                // back-pressure: wait for a slot before pulling more work into memory
+                slots.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            convertOne(input, stylesheet, callback);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+            // all slots free means every submitted document has been reported
+            slots.acquire(maxPendingDocuments);
+            slots.release(maxPendingDocuments);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConversionException("Batch conversion interrupted", ConversionException.ErrorCode.GENERATION_ERROR, e);
+        }
+    }
+
+    /**
+     * Converts every input and collects the results.
+     *
+     * @param inputs     the documents to convert
+     * @param cssContent the stylesheet shared by all documents
+     * @return results in completion order
+     */
+    public List<BatchResult> convertAll(Iterator<ConversionInput> inputs, String cssContent) {
+        List<BatchResult> results = Collections.synchronizedList(new ArrayList<>());
+        convertAll(inputs, cssContent, new BatchCallback() {
+            @Override
+            public void onSuccess(String id, StyledDocument document) {
+                results.add(BatchResult.success(id, document));
+            }
+
+            @Override
+            public void onFailure(String id, ConversionException error) {
+                results.add(BatchResult.failure(id, error));
+            }
+        });
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Stops the worker pool once submitted documents are done.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // converts one document, isolating its errors from the rest of the batch
+    private void convertOne(ConversionInput input, CompiledStylesheet stylesheet, BatchCallback callback) {
+        StyledDocument document;
+        try {
+            ParsedDocument parsed = htmlParser.parseHtml(input.getHtml());
+            document = new StyledDocument(parsed, cssAnalyzer.computeStyles(parsed.getElements(), stylesheet));
+        } catch (ConversionException e) {
+            callback.onFailure(input.getId(), e);
+            return;
+        } catch (RuntimeException e) {
+            callback.onFailure(input.getId(), new ConversionException("Failed to convert document " + input.getId(),
+                    ConversionException.ErrorCode.GENERATION_ERROR, e));
+            return;
+        }
+        callback.onSuccess(input.getId(), document);
+    }
+
+    /**
+     * Creates named daemon worker threads.
+     */
+    private static class BatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "html-to-jrxml-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
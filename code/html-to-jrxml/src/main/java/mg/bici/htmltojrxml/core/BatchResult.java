@@ -0,0 +1,42 @@
+package mg.bici.htmltojrxml.core;
+
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+
+/**
+ * Outcome of one document of a batch: either a styled document or an error.
+ */
+public class BatchResult {
+    private final String id;
+    private final StyledDocument document;
+    private final ConversionException error;
+
+    private BatchResult(String id, StyledDocument document, ConversionException error) {
+        this.id = id;
+        this.document = document;
+        this.error = error;
+    }
+
+    public static BatchResult success(String id, StyledDocument document) {
+        return new BatchResult(id, document, null);
+    }
+
+    public static BatchResult failure(String id, ConversionException error) {
+        return new BatchResult(id, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public StyledDocument getDocument() {
+        return document;
+    }
+
+    public ConversionException getError() {
+        return error;
+    }
+}
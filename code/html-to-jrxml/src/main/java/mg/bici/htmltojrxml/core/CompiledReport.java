@@ -0,0 +1,54 @@
+package mg.bici.htmltojrxml.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.sf.jasperreports.engine.JasperReport;
+
+/**
+ * The result of a conversion: the generated JRXML and the report JasperReports compiled
+ * from it. Instances are immutable and shared by every caller that hits the cache.
+ */
+public final class CompiledReport {
+    private final String key;
+    private final byte[] jrxml;
+    private final JasperReport jasperReport;
+
+    public CompiledReport(String key, byte[] jrxml, JasperReport jasperReport) {
+        this.key = key;
+        this.jrxml = jrxml.clone();
+        this.jasperReport = jasperReport;
+    }
+
+    /**
+     * Gets the cache key of the conversion inputs this report was made from.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets a copy of the UTF-8 encoded JRXML.
+     */
+    public byte[] getJrxml() {
+        return jrxml.clone();
+    }
+
+    public int getJrxmlLength() {
+        return jrxml.length;
+    }
+
+    /**
+     * Writes the JRXML without copying it.
+     *
+     * @param out the target stream, not closed
+     * @throws IOException if the stream fails
+     */
+    public void writeJrxml(OutputStream out) throws IOException {
+        out.write(jrxml);
+    }
+
+    public JasperReport getJasperReport() {
+        return jasperReport;
+    }
+}
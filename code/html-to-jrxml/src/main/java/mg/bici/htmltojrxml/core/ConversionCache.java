@@ -0,0 +1,286 @@
+package mg.bici.htmltojrxml.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.utils.HashUtils;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+
+/**
+ * Two-tier cache of compiled reports keyed by a SHA-256 hash of the conversion inputs:
+ * report name, HTML, CSS and the configuration fingerprints. A bounded LRU tier in memory
+ * holds the most recent reports; an optional directory tier keeps every report as
+ * {@code <key>.jrxml} and {@code <key>.jasper} files, so they survive restarts and are
+ * promoted back to memory on a hit.
+ * <p>
+ * Files are written to a temporary name and moved into place, so a reader never sees a
+ * partial entry; an unreadable entry counts as a miss and is removed. The cache is
+ * thread-safe. Two threads missing on the same key both convert, and the last to
+ * store wins.
+ * <p>
+ * A {@code .jasper} file is a serialized Java object, and loading one from a directory
+ * others can write to would let them run code in this process (so would a tampered
+ * JRXML, whose expressions run when the report is filled). The directory must therefore
+ * be trusted: it is created accessible to its owner only, and an existing directory is
+ * refused unless it belongs to the user running the process and is not writable by its
+ * group or others. Each file is checked the same way before it is loaded, and one that
+ * fails counts as a miss.
+ */
+public class ConversionCache {
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static final Logger LOGGER = Logger.getLogger(ConversionCache.class);
+    private static final String JRXML_SUFFIX = ".jrxml";
+    private static final String JASPER_SUFFIX = ".jasper";
+    private static final Set<PosixFilePermission> SHARED_WRITE =
+            EnumSet.of(PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+    private final int maxEntries;
+    private final Path directory;
+    private final UserPrincipal owner;
+    private final Map<String, CompiledReport> entries;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries the number of reports kept in memory
+     * @param directory  the directory tier, created if needed, or null for memory only
+     * @throws IOException if the directory cannot be created, or is not trusted
+     */
+    public ConversionCache(int maxEntries, Path directory) throws IOException {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        if (directory != null) {
+            this.owner = directory.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (isPosix(directory)) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+            checkTrusted(directory);
+        } else {
+            this.owner = null;
+        }
+        // access-ordered map gives LRU eviction
+        this.entries = new LinkedHashMap<String, CompiledReport>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledReport> eldest) {
+                return size() > ConversionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Computes the cache key of a conversion. Parts are length-prefixed so that moving
+     * text from one part to the next changes the key.
+     *
+     * @param reportName   the report name
+     * @param html         the HTML content
+     * @param cssContent   the stylesheet
+     * @param config       the conversion configuration
+     * @param fontMappings the font mappings
+     * @return hex encoded SHA-256 key
+     */
+    public static String key(String reportName, String html, String cssContent,
+                             ConversionConfig config, FontMappingConfig fontMappings) {
+        MessageDigest digest = HashUtils.newSha256();
+        update(digest, reportName);
+        update(digest, html);
+        update(digest, cssContent);
+        update(digest, config.getFingerprint());
+        update(digest, fontMappings.getFingerprint());
+        return HashUtils.toHex(digest.digest());
+    }
+
+    /**
+     * Gets a cached report from memory, then from the directory tier.
+     *
+     * @param key the conversion key
+     * @return cached report, or null on a miss
+     */
+    public CompiledReport get(String key) {
+        CompiledReport report;
+        synchronized (entries) {
+            report = entries.get(key);
+        }
+        if (report != null) {
+            memoryHits.incrementAndGet();
+            return report;
+        }
+        report = load(key);
+        if (report == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        synchronized (entries) {
+            entries.put(key, report);
+        }
+        return report;
+    }
+
+    /**
+     * Stores a report in memory and in the directory tier. A failure to write the files
+     * is logged; the report stays cached in memory.
+     *
+     * @param report the compiled report
+     */
+    public void put(CompiledReport report) {
+        synchronized (entries) {
+            entries.put(report.getKey(), report);
+        }
+        if (directory == null) {
+            return;
+        }
+        Path jrxmlTemp = null;
+        Path jasperTemp = null;
+        try {
+            jrxmlTemp = Files.createTempFile(directory, report.getKey(), JRXML_SUFFIX + ".tmp");
+            Files.write(jrxmlTemp, report.getJrxml());
+            jasperTemp = Files.createTempFile(directory, report.getKey(), JASPER_SUFFIX + ".tmp");
+            JRSaver.saveObject(report.getJasperReport(), jasperTemp.toFile());
+            // the .jasper file is moved last: its presence marks a complete entry
+            moveIntoPlace(jrxmlTemp, file(report.getKey(), JRXML_SUFFIX));
+            moveIntoPlace(jasperTemp, file(report.getKey(), JASPER_SUFFIX));
+        } catch (IOException | JRException e) {
+            LOGGER.warn("Failed to store report " + report.getKey() + " in " + directory, e);
+        } finally {
+            // moved files are gone, only leftovers of a failure are deleted
+            if (jrxmlTemp != null) {
+                deleteQuietly(jrxmlTemp);
+            }
+            if (jasperTemp != null) {
+                deleteQuietly(jasperTemp);
+            }
+        }
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all reports from memory. The directory tier is kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // reads an entry of the directory tier, null if absent or unreadable
+    private CompiledReport load(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path jasper = file(key, JASPER_SUFFIX);
+        Path jrxml = file(key, JRXML_SUFFIX);
+        if (!Files.exists(jasper)) {
+            return null;
+        }
+        try {
+            checkTrusted(jasper);
+            checkTrusted(jrxml);
+            JasperReport report = (JasperReport) JRLoader.loadObject(jasper.toFile());
+            return new CompiledReport(key, Files.readAllBytes(jrxml), report);
+        } catch (IOException | JRException | ClassCastException e) {
+            LOGGER.warn("Discarding unreadable cached report " + key, e);
+            deleteQuietly(jasper);
+            deleteQuietly(jrxml);
+            return null;
+        }
+    }
+
+    // fails unless the path belongs to the process user and only its owner can write it
+    private void checkTrusted(Path path) throws IOException {
+        if (!owner.equals(Files.getOwner(path))) {
+            throw new IOException(path + " is not owned by " + owner.getName());
+        }
+        PosixFileAttributeView posix = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (posix != null) {
+            Set<PosixFilePermission> permissions = posix.readAttributes().permissions();
+            permissions.retainAll(SHARED_WRITE);
+            if (!permissions.isEmpty()) {
+                throw new IOException(path + " is writable by users other than its owner");
+            }
+        }
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private Path file(String key, String suffix) {
+        return directory.resolve(key + suffix);
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete " + path, e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+        int length = part == null ? -1 : bytes.length;
+        digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+}
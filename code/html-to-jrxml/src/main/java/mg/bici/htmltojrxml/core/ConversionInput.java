@@ -0,0 +1,23 @@
+package mg.bici.htmltojrxml.core;
+
+/**
+ * One HTML document submitted for conversion, identified by a caller-defined id
+ * (e.g., the payslip file name).
+ */
+public class ConversionInput {
+    private final String id;
+    private final String html;
+
+    public ConversionInput(String id, String html) {
+        this.id = id;
+        this.html = html;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getHtml() {
+        return html;
+    }
+}
@@ -0,0 +1,207 @@
+package mg.bici.htmltojrxml.core;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+/**
+ * Structural hashes of an element tree, and the diff of a new version of the tree
+ * against them. Each element has two 64-bit hashes: the self hash covers what selectors
+ * can see (tag, id, classes, attributes, inline styles), the subtree hash adds the text
+ * and the subtree hashes of the children.
+ * <p>
+ * The diff pairs new elements with old ones top-down. Children of two paired elements
+ * are paired in place when both lists have the same length, otherwise unchanged
+ * subtrees are found by their subtree hash and the remaining children by their self
+ * hash. Two elements are only paired when their self hashes are equal and their parents
+ * are paired, so a paired element looks the same to every selector as its old
+ * counterpart and may keep its style.
+ */
+final class DocumentDiff {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int SELF = 0;
+    private static final int SUBTREE = 1;
+
+    private final List<HtmlElement> roots;
+    private final Map<HtmlElement, long[]> hashes;
+
+    private DocumentDiff(List<HtmlElement> roots, Map<HtmlElement, long[]> hashes) {
+        this.roots = roots;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Hashes element trees.
+     *
+     * @param roots the root elements
+     * @return hashes of every element
+     */
+    static DocumentDiff hash(List<HtmlElement> roots) {
+        Map<HtmlElement, long[]> hashes = new IdentityHashMap<>();
+        // children are hashed before their parent: an element is seen twice, the
+        // second time once its children are done
+        Deque<HtmlElement> pending = new ArrayDeque<>();
+        Deque<Boolean> expanded = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            pending.push(roots.get(i));
+            expanded.push(Boolean.FALSE);
+        }
+        while (!pending.isEmpty()) {
+            HtmlElement element = pending.pop();
+            if (!expanded.pop() && element.hasChildren()) {
+                pending.push(element);
+                expanded.push(Boolean.TRUE);
+                List<HtmlElement> children = element.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                    expanded.push(Boolean.FALSE);
+                }
+                continue;
+            }
+            long self = selfHash(element);
+            long subtree = hash(combine(FNV_OFFSET, self), element.getText());
+            if (element.hasChildren()) {
+                for (HtmlElement child : element.getChildren()) {
+                    subtree = combine(subtree, hashes.get(child)[SUBTREE]);
+                }
+            }
+            hashes.put(element, new long[]{self, subtree});
+        }
+        return new DocumentDiff(roots, hashes);
+    }
+
+    int size() {
+        return hashes.size();
+    }
+
+    /**
+     * Diffs a new version of the trees against these ones and hands over the styles
+     * of the old elements to the new elements paired with them.
+     *
+     * @param next      the hashes of the new version
+     * @param oldStyles the computed styles of the old elements
+     * @return styles of the paired new elements, keyed by element identity
+     */
+    Map<HtmlElement, ImmutableComputedStyle> carryStyles(DocumentDiff next,
+                                                         Map<HtmlElement, ImmutableComputedStyle> oldStyles) {
+        Map<HtmlElement, ImmutableComputedStyle> carried = new IdentityHashMap<>();
+        // pairs of old and new elements whose children are still to be paired
+        Deque<HtmlElement[]> pending = new ArrayDeque<>();
+        pairChildren(roots, next.roots, next, oldStyles, carried, pending);
+        while (!pending.isEmpty()) {
+            HtmlElement[] pair = pending.pop();
+            if (pair[0].hasChildren() && pair[1].hasChildren()) {
+                pairChildren(pair[0].getChildren(), pair[1].getChildren(), next, oldStyles, carried, pending);
+            }
+        }
+        return carried;
+    }
+
+    private void pairChildren(List<HtmlElement> oldChildren, List<HtmlElement> newChildren, DocumentDiff next,
+                              Map<HtmlElement, ImmutableComputedStyle> oldStyles,
+                              Map<HtmlElement, ImmutableComputedStyle> carried, Deque<HtmlElement[]> pending) {
+        if (oldChildren.size() == newChildren.size()) {
+            // edits in place, the common case
+            for (int i = 0; i < newChildren.size(); i++) {
+                HtmlElement oldChild = oldChildren.get(i);
+                HtmlElement newChild = newChildren.get(i);
+                if (hashes.get(oldChild)[SELF] == next.hashes.get(newChild)[SELF]) {
+                    pair(oldChild, newChild, oldStyles, carried, pending);
+                }
+            }
+            return;
+        }
+        // children were inserted or removed: whole subtrees first, then single elements
+        Map<Long, Deque<HtmlElement>> bySubtree = new HashMap<>();
+        for (HtmlElement oldChild : oldChildren) {
+            bySubtree.computeIfAbsent(hashes.get(oldChild)[SUBTREE], h -> new ArrayDeque<>()).add(oldChild);
+        }
+        HtmlElement[] partners = new HtmlElement[newChildren.size()];
+        Set<HtmlElement> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < partners.length; i++) {
+            partners[i] = take(bySubtree, next.hashes.get(newChildren.get(i))[SUBTREE]);
+            if (partners[i] != null) {
+                taken.add(partners[i]);
+            }
+        }
+        Map<Long, Deque<HtmlElement>> bySelf = new HashMap<>();
+        for (HtmlElement oldChild : oldChildren) {
+            if (!taken.contains(oldChild)) {
+                bySelf.computeIfAbsent(hashes.get(oldChild)[SELF], h -> new ArrayDeque<>()).add(oldChild);
+            }
+        }
+        for (int i = 0; i < partners.length; i++) {
+            HtmlElement newChild = newChildren.get(i);
+            if (partners[i] == null) {
+                partners[i] = take(bySelf, next.hashes.get(newChild)[SELF]);
+            }
+            if (partners[i] != null) {
+                pair(partners[i], newChild, oldStyles, carried, pending);
+            }
+        }
+    }
+
+    private static void pair(HtmlElement oldElement, HtmlElement newElement,
+                             Map<HtmlElement, ImmutableComputedStyle> oldStyles,
+                             Map<HtmlElement, ImmutableComputedStyle> carried, Deque<HtmlElement[]> pending) {
+        ImmutableComputedStyle style = oldStyles.get(oldElement);
+        if (style == null) {
+            return;
+        }
+        carried.put(newElement, style);
+        pending.push(new HtmlElement[]{oldElement, newElement});
+    }
+
+    // takes the first unused element with a hash, keeping document order among equals
+    private static HtmlElement take(Map<Long, Deque<HtmlElement>> index, long hash) {
+        Deque<HtmlElement> candidates = index.get(hash);
+        return candidates == null ? null : candidates.poll();
+    }
+
+    // hashes what selectors can match on; maps are hashed regardless of entry order
+    private static long selfHash(HtmlElement element) {
+        long h = hash(FNV_OFFSET, element.getTagName());
+        h = hash(h, element.getId());
+        if (element.hasClasses()) {
+            for (String className : element.getClasses()) {
+                h = hash(h, className);
+            }
+        }
+        h = combine(h, element.hasAttributes() ? hash(element.getAttributes()) : 0);
+        return combine(h, element.hasInlineStyles() ? hash(element.getInlineStyles()) : 0);
+    }
+
+    private static long hash(Map<String, String> map) {
+        long sum = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            sum += hash(hash(FNV_OFFSET, entry.getKey()), entry.getValue());
+        }
+        return sum;
+    }
+
+    // FNV-1a over the characters, then a terminator so that "ab","c" and "a","bc" differ
+    private static long hash(long h, String value) {
+        if (value == null) {
+            return (h ^ 0xFFFF) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ 0x10000) * FNV_PRIME;
+    }
+
+    private static long combine(long h, long value) {
+        h ^= value + 0x9E3779B97F4A7C15L + (h << 6) + (h >>> 2);
+        return h * FNV_PRIME;
+    }
+}
@@ -0,0 +1,125 @@
+package mg.bici.htmltojrxml.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.css.CompiledStylesheet;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.jrxml.JrxmlStreamWriter;
+import mg.bici.htmltojrxml.layout.LayoutCalculationEngine;
+import mg.bici.htmltojrxml.layout.LayoutResult;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+
+/**
+ * Converts an HTML document and its stylesheet into a JRXML report: parse, cascade,
+ * layout, then stream the boxes to the output as JRXML. The first three stages cover the
+ * whole document before anything is written (the styles head the report), so only the
+ * XML output is streamed: the element tree, styles and boxes of a document are held in
+ * memory while it is converted. {@link #compile} also compiles
+ * the JRXML and, given a {@link ConversionCache}, serves repeated inputs from the cache
+ * without running any stage. The converter can be shared between threads; each thread
+ * lays out with its own engine.
+ */
+public class HtmlToJrxmlConverter {
+    private final HtmlDocumentParser htmlParser;
+    private final CssStyleAnalyzer cssAnalyzer;
+    private final ConversionConfig config;
+    private final FontMappingConfig fontMappings;
+    private final ConversionCache cache;
+    private final ThreadLocal<LayoutCalculationEngine> layoutEngines;
+
+    public HtmlToJrxmlConverter() {
+        this(new HtmlDocumentParser(), new CssStyleAnalyzer(), new ConversionConfig(), new FontMappingConfig(), null);
+    }
+
+    public HtmlToJrxmlConverter(ConversionCache cache) {
+        this(new HtmlDocumentParser(), new CssStyleAnalyzer(), new ConversionConfig(), new FontMappingConfig(), cache);
+    }
+
+    public HtmlToJrxmlConverter(HtmlDocumentParser htmlParser, CssStyleAnalyzer cssAnalyzer,
+                                ConversionConfig config, FontMappingConfig fontMappings, ConversionCache cache) {
+        this.htmlParser = htmlParser;
+        this.cssAnalyzer = cssAnalyzer;
+        this.config = config;
+        this.fontMappings = fontMappings;
+        this.cache = cache;
+        this.layoutEngines = ThreadLocal.withInitial(() -> new LayoutCalculationEngine(config));
+    }
+
+    /**
+     * Converts a document and compiles the JRXML, or gets both from the cache when the
+     * same inputs were converted before under the same configuration.
+     *
+     * @param reportName the name of the report
+     * @param html       the HTML content
+     * @param cssContent the stylesheet
+     * @return generated JRXML and compiled report
+     * @throws ConversionException if a stage or the compilation fails
+     */
+    public CompiledReport compile(String reportName, String html, String cssContent) {
+        String key = ConversionCache.key(reportName, html, cssContent, config, fontMappings);
+        CompiledReport report = cache != null ? cache.get(key) : null;
+        if (report != null) {
+            return report;
+        }
+        ByteArrayOutputStream jrxml = new ByteArrayOutputStream();
+        convert(reportName, html, cssContent, jrxml);
+        JasperReport jasperReport;
+        try {
+            jasperReport = JasperCompileManager.compileReport(new ByteArrayInputStream(jrxml.toByteArray()));
+        } catch (JRException e) {
+            throw new ConversionException("Failed to compile report " + reportName,
+                    ConversionException.ErrorCode.GENERATION_ERROR, e);
+        }
+        report = new CompiledReport(key, jrxml.toByteArray(), jasperReport);
+        if (cache != null) {
+            cache.put(report);
+        }
+        return report;
+    }
+
+    /**
+     * Converts a document and writes the JRXML to a stream.
+     *
+     * @param reportName the name of the report
+     * @param html       the HTML content
+     * @param cssContent the stylesheet
+     * @param out        receives the JRXML, flushed but not closed
+     * @throws ConversionException if a stage fails
+     */
+    public void convert(String reportName, String html, String cssContent, OutputStream out) {
+        convert(reportName, html, cssAnalyzer.compileStylesheet(cssContent), out);
+    }
+
+    /**
+     * Converts a document with an already compiled stylesheet.
+     *
+     * @param reportName the name of the report
+     * @param html       the HTML content
+     * @param stylesheet the compiled stylesheet
+     * @param out        receives the JRXML, flushed but not closed
+     */
+    public void convert(String reportName, String html, CompiledStylesheet stylesheet, OutputStream out) {
+        List<HtmlElement> roots = htmlParser.parseHtml(html).getElements();
+        Map<HtmlElement, ImmutableComputedStyle> styles = cssAnalyzer.computeStyles(roots, stylesheet);
+        LayoutCalculationEngine layoutEngine = layoutEngines.get();
+        LayoutResult layout = layoutEngine.calculateLayout(roots, styles);
+        try (JrxmlStreamWriter writer = new JrxmlStreamWriter(out, fontMappings)) {
+            writer.writeReport(reportName, layout);
+        } finally {
+            // the engine outlives the request in its thread, do not let it pin the document
+            layoutEngine.release();
+        }
+    }
+}
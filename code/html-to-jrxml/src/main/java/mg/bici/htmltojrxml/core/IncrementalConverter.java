@@ -0,0 +1,125 @@
+package mg.bici.htmltojrxml.core;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.css.CompiledStylesheet;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.jrxml.JrxmlBandCache;
+import mg.bici.htmltojrxml.jrxml.JrxmlStreamWriter;
+import mg.bici.htmltojrxml.jrxml.JrxmlStyleRegistry;
+import mg.bici.htmltojrxml.layout.LayoutCalculationEngine;
+import mg.bici.htmltojrxml.layout.LayoutResult;
+
+/**
+ * Converts successive versions of one document, redoing only the work a version
+ * changes. The element tree and computed styles of the last version are kept; a new
+ * version is diffed against them by structural hashes (see {@link DocumentDiff}), and
+ * only new or changed elements, and elements whose parent style changed, are cascaded
+ * again. Layout is recomputed, then bands that come out the same as in the last version
+ * are copied from a {@link JrxmlBandCache} instead of being written again.
+ * <p>
+ * Styles keep their names across versions for as long as each version uses them; a style
+ * a version does not use is dropped from the registry and the output, so the registry
+ * follows the current version. A different stylesheet restyles everything.
+ * <p>
+ * One instance follows one document and is not thread-safe.
+ */
+public class IncrementalConverter {
+    private final HtmlDocumentParser htmlParser;
+    private final CssStyleAnalyzer cssAnalyzer;
+    private final FontMappingConfig fontMappings;
+    private final LayoutCalculationEngine layoutEngine;
+    private final JrxmlBandCache bandCache = new JrxmlBandCache();
+    private JrxmlStyleRegistry styleRegistry;
+    private CompiledStylesheet stylesheet;
+    private DocumentDiff document;
+    private Map<HtmlElement, ImmutableComputedStyle> styles = Collections.emptyMap();
+    private int carriedCount;
+
+    public IncrementalConverter() {
+        this(new HtmlDocumentParser(), new CssStyleAnalyzer(), new ConversionConfig(), new FontMappingConfig());
+    }
+
+    public IncrementalConverter(HtmlDocumentParser htmlParser, CssStyleAnalyzer cssAnalyzer,
+                                ConversionConfig config, FontMappingConfig fontMappings) {
+        this.htmlParser = htmlParser;
+        this.cssAnalyzer = cssAnalyzer;
+        this.fontMappings = fontMappings;
+        this.layoutEngine = new LayoutCalculationEngine(config);
+        this.styleRegistry = new JrxmlStyleRegistry(fontMappings);
+    }
+
+    /**
+     * Converts the next version of the document and writes the JRXML to a stream.
+     *
+     * @param reportName the name of the report
+     * @param html       the HTML content
+     * @param cssContent the stylesheet
+     * @param out        receives the JRXML, flushed but not closed
+     * @throws mg.bici.htmltojrxml.exceptions.ConversionException if a stage fails
+     */
+    public void convert(String reportName, String html, String cssContent, OutputStream out) {
+        CompiledStylesheet nextStylesheet = cssAnalyzer.compileStylesheet(cssContent);
+        List<HtmlElement> roots = htmlParser.parseHtml(html).getElements();
+        DocumentDiff next = DocumentDiff.hash(roots);
+        // compiled stylesheets are cached, so the same CSS gives the same instance
+        Map<HtmlElement, ImmutableComputedStyle> carried = document == null || nextStylesheet != stylesheet
+                ? Collections.<HtmlElement, ImmutableComputedStyle>emptyMap()
+                : document.carryStyles(next, styles);
+        Map<HtmlElement, ImmutableComputedStyle> nextStyles = cssAnalyzer.computeStyles(roots, nextStylesheet, carried);
+        LayoutResult layout = layoutEngine.calculateLayout(roots, nextStyles);
+        try (JrxmlStreamWriter writer = new JrxmlStreamWriter(out, fontMappings)) {
+            writer.setBandCache(bandCache);
+            writer.writeReport(reportName, layout, styleRegistry);
+        } finally {
+            layoutEngine.release();
+        }
+        stylesheet = nextStylesheet;
+        document = next;
+        styles = nextStyles;
+        carriedCount = carried.size();
+    }
+
+    /**
+     * Gets the number of elements of the last version paired with an element of the
+     * version before, whose style was carried over unless its parent style changed.
+     */
+    public int getCarriedElementCount() {
+        return carriedCount;
+    }
+
+    /**
+     * Gets the number of elements of the last version that were new or changed.
+     */
+    public int getChangedElementCount() {
+        return document == null ? 0 : document.size() - carriedCount;
+    }
+
+    public int getReusedBandCount() {
+        return bandCache.getReusedBandCount();
+    }
+
+    public int getWrittenBandCount() {
+        return bandCache.getWrittenBandCount();
+    }
+
+    /**
+     * Forgets the previous version, so that the next one is converted from scratch.
+     */
+    public void reset() {
+        stylesheet = null;
+        document = null;
+        styles = Collections.emptyMap();
+        carriedCount = 0;
+        styleRegistry = new JrxmlStyleRegistry(fontMappings);
+        bandCache.clear();
+    }
+}
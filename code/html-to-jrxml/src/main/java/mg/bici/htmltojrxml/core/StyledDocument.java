@@ -0,0 +1,32 @@
+package mg.bici.htmltojrxml.core;
+
+import java.util.Map;
+
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.html.ParsedDocument;
+
+/**
+ * A parsed HTML document together with the computed style of each element.
+ */
+public class StyledDocument {
+    private final ParsedDocument document;
+    private final Map<HtmlElement, ImmutableComputedStyle> styles;
+
+    public StyledDocument(ParsedDocument document, Map<HtmlElement, ImmutableComputedStyle> styles) {
+        this.document = document;
+        this.styles = styles;
+    }
+
+    public ParsedDocument getDocument() {
+        return document;
+    }
+
+    public Map<HtmlElement, ImmutableComputedStyle> getStyles() {
+        return styles;
+    }
+
+    public ImmutableComputedStyle getStyle(HtmlElement element) {
+        return styles.get(element);
+    }
+}
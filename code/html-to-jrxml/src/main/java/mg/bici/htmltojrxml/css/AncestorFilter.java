@@ -0,0 +1,168 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.html.SymbolTable;
+
+/**
+ * Counting Bloom filter over the tag, id and class names of the current ancestors,
+ * maintained while the cascade walks a tree. A selector whose ancestor compounds need a
+ * name the filter has never seen cannot match, so it is rejected without walking up the
+ * parents. False positives only cost the regular match.
+ * <p>
+ * Each name sets two 8-bit counters out of 4096; a counter that reaches 255 stays there,
+ * which keeps the filter conservative. A filter belongs to one traversal and is not
+ * thread-safe.
+ */
+final class AncestorFilter {
+    private static final int BITS = 12;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int SATURATED = 0xFF;
+
+    private static final int TAG_SALT = 0x2F6B1E4D;
+    private static final int CLASS_SALT = 0x5A3C9B17;
+    private static final int ID_SALT = 0x71D0A3C5;
+
+    private final byte[] counters = new byte[1 << BITS];
+    // hashes added by each pushed element, elements[i] owns hashes[offsets[i]..offsets[i + 1])
+    private HtmlElement[] elements = new HtmlElement[32];
+    private int[] offsets = new int[33];
+    private int[] hashes = new int[128];
+    private int depth;
+
+    /**
+     * Creates a filter for a cascade pass over a stylesheet.
+     *
+     * @param stylesheet the compiled stylesheet
+     * @return new filter, or null if no selector looks at ancestors
+     */
+    static AncestorFilter forStylesheet(CompiledStylesheet stylesheet) {
+        return stylesheet.hasCombinators() ? new AncestorFilter() : null;
+    }
+
+    /**
+     * Creates a filter holding the same ancestors, for a subtree styled by another task.
+     *
+     * @return independent copy of this filter
+     */
+    AncestorFilter copy() {
+        AncestorFilter copy = new AncestorFilter();
+        System.arraycopy(counters, 0, copy.counters, 0, counters.length);
+        copy.elements = Arrays.copyOf(elements, elements.length);
+        copy.offsets = Arrays.copyOf(offsets, offsets.length);
+        copy.hashes = Arrays.copyOf(hashes, hashes.length);
+        copy.depth = depth;
+        return copy;
+    }
+
+    /**
+     * Makes the filter describe the ancestors of a child of the given element: pops
+     * elements that are not on its ancestor chain, and when nothing is left seeds the
+     * filter with the whole chain (as for a subtree handed to another task).
+     *
+     * @param parent the parent of the next element to style, or null for a root
+     */
+    void moveTo(HtmlElement parent) {
+        while (depth > 0 && elements[depth - 1] != parent) {
+            pop();
+        }
+        if (depth == 0 && parent != null) {
+            Deque<HtmlElement> chain = new ArrayDeque<>();
+            for (HtmlElement ancestor = parent; ancestor != null; ancestor = ancestor.getParent()) {
+                chain.push(ancestor);
+            }
+            for (HtmlElement ancestor : chain) {
+                push(ancestor);
+            }
+        }
+    }
+
+    // adds an element whose descendants are styled next
+    void push(HtmlElement element) {
+        if (depth == elements.length) {
+            elements = Arrays.copyOf(elements, depth * 2);
+            offsets = Arrays.copyOf(offsets, depth * 2 + 1);
+        }
+        int end = offsets[depth];
+        List<String> classes = element.getClasses();
+        if (end + classes.size() + 2 > hashes.length) {
+            hashes = Arrays.copyOf(hashes, Math.max(hashes.length * 2, end + classes.size() + 2));
+        }
+        if (element.getTagSymbol() != SymbolTable.NO_SYMBOL) {
+            hashes[end++] = tagHash(element.getTagSymbol());
+        }
+        String id = element.getId();
+        if (id != null && !id.isEmpty()) {
+            hashes[end++] = idHash(id);
+        }
+        for (int i = 0; i < classes.size(); i++) {
+            hashes[end++] = classHash(classes.get(i));
+        }
+        for (int i = offsets[depth]; i < end; i++) {
+            increment(hashes[i] & MASK);
+            increment((hashes[i] >>> BITS) & MASK);
+        }
+        elements[depth++] = element;
+        offsets[depth] = end;
+    }
+
+    // removes the most recently pushed element
+    void pop() {
+        depth--;
+        for (int i = offsets[depth]; i < offsets[depth + 1]; i++) {
+            decrement(hashes[i] & MASK);
+            decrement((hashes[i] >>> BITS) & MASK);
+        }
+        elements[depth] = null;
+    }
+
+    // checks if every hash may belong to an ancestor; false means some name is certainly absent
+    boolean mightContainAll(int[] selectorHashes) {
+        for (int hash : selectorHashes) {
+            if (counters[hash & MASK] == 0 || counters[(hash >>> BITS) & MASK] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    static int tagHash(int tagSymbol) {
+        return mix(tagSymbol ^ TAG_SALT);
+    }
+
+    static int classHash(String className) {
+        return mix(className.hashCode() ^ CLASS_SALT);
+    }
+
+    static int idHash(String id) {
+        return mix(id.hashCode() ^ ID_SALT);
+    }
+
+    private void increment(int index) {
+        int count = counters[index] & 0xFF;
+        if (count != SATURATED) {
+            counters[index] = (byte) (count + 1);
+        }
+    }
+
+    private void decrement(int index) {
+        int count = counters[index] & 0xFF;
+        if (count != SATURATED) {
+            counters[index] = (byte) (count - 1);
+        }
+    }
+
+    // spreads the key over all bits (Fibonacci hashing)
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+}
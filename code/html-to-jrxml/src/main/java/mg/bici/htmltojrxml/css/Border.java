@@ -0,0 +1,69 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.Objects;
+
+import mg.bici.htmltojrxml.utils.Color;
+import mg.bici.htmltojrxml.utils.InternPool;
+
+/**
+ * Represents border properties. The width keeps its unit like the sides of
+ * {@link Margin}: pixels, or {@code em} resolved by the layout.
+ */
+public class Border {
+    private static final InternPool<Border> POOL = new InternPool<>(1024);
+
+    static final Border NONE = of(0, "none", Color.BLACK);
+
+    private final float width;
+    private final CssLength.Unit widthUnit;
+    private final String style;
+    private final int colorArgb;
+
+    public Border(float width, String style, Color color) {
+        this(width, CssLength.Unit.PX, style, color.getArgb());
+    }
+
+    private Border(float width, CssLength.Unit widthUnit, String style, int colorArgb) {
+        this.width = width;
+        this.widthUnit = widthUnit;
+        this.style = style;
+        this.colorArgb = colorArgb;
+    }
+
+    // gets the canonical instance of a border
+    static Border of(float width, String style, Color color) {
+        return POOL.intern(new Border(width, CssLength.Unit.PX, style, color.getArgb()));
+    }
+
+    // gets the canonical instance of a border with a packed ARGB color
+    static Border of(float width, String style, int colorArgb) {
+        return POOL.intern(new Border(width, CssLength.Unit.PX, style, colorArgb));
+    }
+
+    // gets the canonical instance of a border with a width in any unit
+    static Border of(float width, CssLength.Unit widthUnit, String style, int colorArgb) {
+        return POOL.intern(new Border(width, widthUnit, style, colorArgb));
+    }
+
+    public float getWidth() { return width; }
+    public CssLength.Unit getWidthUnit() { return widthUnit; }
+    public String getStyle() { return style; }
+    public Color getColor() { return Color.fromArgb(colorArgb); }
+    public int getColorArgb() { return colorArgb; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Border other = (Border) o;
+        return Float.compare(width, other.width) == 0 && widthUnit == other.widthUnit
+                && Objects.equals(style, other.style)
+                && colorArgb == other.colorArgb;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 31 * Float.floatToIntBits(width) + widthUnit.ordinal();
+        return 31 * (31 * h + Objects.hashCode(style)) + colorArgb;
+    }
+}
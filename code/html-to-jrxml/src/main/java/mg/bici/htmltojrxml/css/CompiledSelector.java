@@ -0,0 +1,244 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.Arrays;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.html.HtmlSymbols;
+import mg.bici.htmltojrxml.html.SymbolTable;
+
+/**
+ * Immutable matcher tree for a single CSS selector.
+ * Compound selectors are stored right to left and matched against the
+ * element and its ancestors without allocating.
+ */
+public final class CompiledSelector {
+    // like browser selector filters, a few hashes reject most selectors
+    private static final int MAX_ANCESTOR_HASHES = 4;
+
+    private final String text;
+    private final CompoundSelector[] compounds;
+    private final Combinator[] combinators;
+    private final boolean supported;
+    private final int[] ancestorHashes;
+    private final int specificity;
+
+    CompiledSelector(String text, CompoundSelector[] compounds, Combinator[] combinators, boolean supported) {
+        this.text = text;
+        this.compounds = compounds;
+        this.combinators = combinators;
+        this.supported = supported;
+        this.ancestorHashes = collectAncestorHashes(compounds);
+        this.specificity = computeSpecificity(compounds);
+    }
+
+    /**
+     * Checks if an element matches this selector.
+     *
+     * @param element the HTML element
+     * @return true if matches
+     */
+    public boolean matches(HtmlElement element) {
+        return supported && element != null && matchesFrom(0, element);
+    }
+
+    // matches compound at index against element, then walks up for the remaining compounds
+    private boolean matchesFrom(int index, HtmlElement element) {
+        if (!compounds[index].matches(element)) {
+            return false;
+        }
+        if (index == compounds.length - 1) {
+            return true;
+        }
+        HtmlElement parent = element.getParent();
+        if (combinators[index] == Combinator.CHILD) {
+            return parent != null && matchesFrom(index + 1, parent);
+        }
+        for (HtmlElement ancestor = parent; ancestor != null; ancestor = ancestor.getParent()) {
+            if (matchesFrom(index + 1, ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // checks the ancestor compounds against a filter of the element's ancestors;
+    // false means the selector cannot match, true that it still has to be matched
+    boolean mightMatchAncestors(AncestorFilter filter) {
+        return filter.mightContainAll(ancestorHashes);
+    }
+
+    // gets the filter hashes of names required on ancestors, most specific first
+    private static int[] collectAncestorHashes(CompoundSelector[] compounds) {
+        int[] hashes = new int[MAX_ANCESTOR_HASHES];
+        int count = 0;
+        for (int i = 1; i < compounds.length && count < MAX_ANCESTOR_HASHES; i++) {
+            CompoundSelector compound = compounds[i];
+            if (compound.getId() != null) {
+                hashes[count++] = AncestorFilter.idHash(compound.getId());
+            }
+            for (String className : compound.getClasses()) {
+                if (count < MAX_ANCESTOR_HASHES) {
+                    hashes[count++] = AncestorFilter.classHash(className);
+                }
+            }
+            if (compound.getTagSymbol() != SymbolTable.NO_SYMBOL && count < MAX_ANCESTOR_HASHES) {
+                hashes[count++] = AncestorFilter.tagHash(compound.getTagSymbol());
+            }
+        }
+        return Arrays.copyOf(hashes, count);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the specificity (a, b, c) packed into one int as {@code a << 20 | b << 10 | c},
+     * so that packed values compare like the triples: a counts id selectors, b class and
+     * attribute selectors, c type selectors. Each count saturates at 1023.
+     *
+     * @return packed specificity
+     */
+    public int getSpecificity() {
+        return specificity;
+    }
+
+    /**
+     * Packs a specificity triple the way {@link #getSpecificity()} does.
+     *
+     * @param ids        number of id selectors
+     * @param classes    number of class and attribute selectors
+     * @param types      number of type selectors
+     * @return packed specificity
+     */
+    public static int packSpecificity(int ids, int classes, int types) {
+        return Math.min(ids, 1023) << 20 | Math.min(classes, 1023) << 10 | Math.min(types, 1023);
+    }
+
+    private static int computeSpecificity(CompoundSelector[] compounds) {
+        int ids = 0;
+        int classes = 0;
+        int types = 0;
+        for (CompoundSelector compound : compounds) {
+            if (compound.getId() != null) {
+                ids++;
+            }
+            classes += compound.getClasses().length + compound.getAttributeNames().length;
+            if (compound.getTag() != null) {
+                types++;
+            }
+        }
+        return packSpecificity(ids, classes, types);
+    }
+
+    /**
+     * Checks if the selector only uses syntax the matcher understands
+     * (pseudo-classes and sibling combinators are not supported).
+     *
+     * @return true if supported
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    // gets the rightmost compound selector, used for rule bucketing
+    CompoundSelector getRightmost() {
+        return compounds[0];
+    }
+
+    // gets compound selectors from right to left
+    CompoundSelector[] getCompounds() {
+        return compounds;
+    }
+
+    // gets the combinator between compound i and compound i + 1
+    Combinator[] getCombinators() {
+        return combinators;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
+
+/**
+ * Combinator between two compound selectors.
+ */
+enum Combinator {
+    DESCENDANT, CHILD
+}
+
+/**
+ * A sequence of simple selectors applying to one element (e.g., "td.amount[data-x]").
+ * Tag names are interned in {@link HtmlSymbols} and compared by id, falling back to the
+ * string when the tag could not be interned; class and attribute names are compared as
+ * strings.
+ */
+final class CompoundSelector {
+    private final String tag;
+    private final int tagSymbol;
+    private final String id;
+    private final String[] classes;
+    private final String[] attributeNames;
+    private final String[] attributeValues;
+
+    CompoundSelector(String tag, String id, String[] classes, String[] attributeNames, String[] attributeValues) {
+        this.tag = tag;
+        this.tagSymbol = HtmlSymbols.internTag(tag);
+        this.id = id;
+        this.classes = classes;
+        this.attributeNames = attributeNames;
+        this.attributeValues = attributeValues;
+    }
+
+    // checks if the element satisfies every simple selector of the compound
+    boolean matches(HtmlElement element) {
+        if (tag != null && !matchesTag(element)) {
+            return false;
+        }
+        if (id != null && !id.equals(element.getId())) {
+            return false;
+        }
+        for (String className : classes) {
+            if (!element.hasClass(className)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < attributeNames.length; i++) {
+            String value = element.getAttribute(attributeNames[i], null);
+            if (value == null || (attributeValues[i] != null && !attributeValues[i].equals(value))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesTag(HtmlElement element) {
+        int elementTag = element.getTagSymbol();
+        if (tagSymbol != SymbolTable.NO_SYMBOL && elementTag != SymbolTable.NO_SYMBOL) {
+            return tagSymbol == elementTag;
+        }
+        return tag.equalsIgnoreCase(element.getTagName());
+    }
+
+    String getTag() {
+        return tag;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    int getTagSymbol() {
+        return tagSymbol;
+    }
+
+    String[] getClasses() {
+        return classes;
+    }
+
+    String[] getAttributeNames() {
+        return attributeNames;
+    }
+}
@@ -0,0 +1,248 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.html.SymbolTable;
+
+/**
+ * Indexed form of a parsed stylesheet, built once and reused for every element.
+ * Rules are bucketed by the rightmost compound selector (id, class, tag or universal)
+ * so that only candidate rules are tested against an element. Tag buckets are indexed by
+ * the {@link mg.bici.htmltojrxml.html.HtmlSymbols} id of the tag, which elements carry.
+ * <p>
+ * Every rule gets its cascade position once at compile time: rules are ranked by
+ * specificity, then source order, and each bucket is kept in rank order. Candidates
+ * for an element are a merge of a few sorted buckets, which yields them already in
+ * cascade order without comparing rules per element.
+ * <p>
+ * A compiled stylesheet is immutable: declarations are copied out of the parser DOM,
+ * so one instance can be shared by concurrent conversions.
+ */
+public class CompiledStylesheet {
+    private final List<StyleRule> rules;
+    private final Map<String, List<StyleRule>> idRules = new HashMap<>();
+    private final Map<String, List<StyleRule>> classRules = new HashMap<>();
+    private final List<StyleRule>[] tagRules;
+    // tags that got no symbol because the HtmlSymbols table was full
+    private final Map<String, List<StyleRule>> unsymbolizedTagRules = new HashMap<>();
+    private final List<StyleRule> universalRules = new ArrayList<>();
+    private final String[] attributeDependencies;
+    private final boolean combinators;
+
+    @SuppressWarnings("unchecked")
+    private CompiledStylesheet(List<CompiledSelector> selectors, List<List<StyleDeclaration>> declarations) {
+        int[] cascadeOrders = rankCascadeOrders(selectors);
+        rules = new ArrayList<>(selectors.size());
+        Map<Integer, List<StyleRule>> tagBuckets = new HashMap<>();
+        Set<String> attributeNames = new LinkedHashSet<>();
+        boolean anyCombinators = false;
+        for (int i = 0; i < selectors.size(); i++) {
+            CompiledSelector selector = selectors.get(i);
+            StyleRule rule = new StyleRule(selector, declarations.get(i), selector.getSpecificity(), i,
+                    cascadeOrders[i]);
+            rules.add(rule);
+            anyCombinators |= selector.getCombinators().length > 0;
+            for (CompoundSelector compound : selector.getCompounds()) {
+                attributeNames.addAll(Arrays.asList(compound.getAttributeNames()));
+            }
+            addRule(rule, tagBuckets);
+        }
+        int tagCount = 0;
+        for (Integer symbol : tagBuckets.keySet()) {
+            tagCount = Math.max(tagCount, symbol + 1);
+        }
+        tagRules = new List[tagCount];
+        for (Map.Entry<Integer, List<StyleRule>> entry : tagBuckets.entrySet()) {
+            tagRules[entry.getKey()] = entry.getValue();
+        }
+        attributeDependencies = attributeNames.toArray(new String[0]);
+        combinators = anyCombinators;
+        sortBuckets(idRules.values());
+        sortBuckets(classRules.values());
+        sortBuckets(tagBuckets.values());
+        sortBuckets(unsymbolizedTagRules.values());
+        universalRules.sort((a, b) -> Integer.compare(a.getCascadeOrder(), b.getCascadeOrder()));
+    }
+
+    /**
+     * Compiles a parsed stylesheet into rule buckets.
+     *
+     * @param stylesheet the CSS stylesheet
+     * @return compiled stylesheet
+     */
+    public static CompiledStylesheet compile(CSSStyleSheet stylesheet) {
+        SelectorCompiler compiler = new SelectorCompiler();
+        List<CompiledSelector> selectors = new ArrayList<>();
+        List<List<StyleDeclaration>> declarations = new ArrayList<>();
+        CSSRuleList ruleList = stylesheet.getCssRules();
+        for (int i = 0; i < ruleList.getLength(); i++) {
+            if (ruleList.item(i) instanceof CSSStyleRule) {
+                CSSStyleRule cssRule = (CSSStyleRule) ruleList.item(i);
+                List<StyleDeclaration> copied = StyleDeclaration.copyOf(cssRule.getStyle());
+                for (CompiledSelector selector : compiler.compileList(cssRule.getSelectorText())) {
+                    // unsupported selectors can never match, so they are left out of the index
+                    if (selector.isSupported()) {
+                        selectors.add(selector);
+                        declarations.add(copied);
+                    }
+                }
+            }
+        }
+        return new CompiledStylesheet(selectors, declarations);
+    }
+
+    /**
+     * Gets the rules that may match an element in cascade order: ascending specificity,
+     * then source order, so that later rules win. The buckets are merged in one pass.
+     *
+     * @param element the HTML element
+     * @return candidate rules in cascade order
+     */
+    List<StyleRule> getCascadeCandidates(HtmlElement element) {
+        List<StyleRule>[] buckets = collectBuckets(element);
+        int[] positions = new int[buckets.length];
+        List<StyleRule> candidates = new ArrayList<>();
+        int lastOrder = -1;
+        while (true) {
+            int next = -1;
+            int nextOrder = Integer.MAX_VALUE;
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] != null && positions[i] < buckets[i].size()) {
+                    int order = buckets[i].get(positions[i]).getCascadeOrder();
+                    if (order < nextOrder) {
+                        next = i;
+                        nextOrder = order;
+                    }
+                }
+            }
+            if (next < 0) {
+                return candidates;
+            }
+            positions[next]++;
+            // an element listing a class twice would bring its bucket twice
+            if (nextOrder != lastOrder) {
+                candidates.add(buckets[next].get(positions[next] - 1));
+                lastOrder = nextOrder;
+            }
+        }
+    }
+
+    /**
+     * Gets all rules in source order.
+     *
+     * @return unmodifiable list of rules
+     */
+    public List<StyleRule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    /**
+     * Checks if a rule targets the given id with its rightmost compound.
+     *
+     * @param id the element id
+     * @return true if an id rule exists
+     */
+    public boolean hasIdRule(String id) {
+        return idRules.containsKey(id);
+    }
+
+    /**
+     * Checks if any selector uses a descendant or child combinator,
+     * meaning ancestors can affect which rules match.
+     *
+     * @return true if combinators are used
+     */
+    public boolean hasCombinators() {
+        return combinators;
+    }
+
+    // gets the attribute names tested by selectors
+    String[] getAttributeDependencies() {
+        return attributeDependencies;
+    }
+
+    // adds a rule to the bucket of its rightmost compound selector
+    private void addRule(StyleRule rule, Map<Integer, List<StyleRule>> tagBuckets) {
+        CompoundSelector rightmost = rule.getCompiledSelector().getRightmost();
+        if (rightmost.getId() != null) {
+            bucket(idRules, rightmost.getId()).add(rule);
+        } else if (rightmost.getClasses().length > 0) {
+            bucket(classRules, rightmost.getClasses()[0]).add(rule);
+        } else if (rightmost.getTagSymbol() != SymbolTable.NO_SYMBOL) {
+            bucket(tagBuckets, rightmost.getTagSymbol()).add(rule);
+        } else if (rightmost.getTag() != null) {
+            bucket(unsymbolizedTagRules, rightmost.getTag()).add(rule);
+        } else {
+            universalRules.add(rule);
+        }
+    }
+
+    // gets the buckets an element can draw rules from, some of them null
+    @SuppressWarnings("unchecked")
+    private List<StyleRule>[] collectBuckets(HtmlElement element) {
+        List<String> classes = element.hasClasses() ? element.getClasses() : Collections.<String>emptyList();
+        List<StyleRule>[] buckets = new List[3 + classes.size()];
+        buckets[0] = universalRules;
+        String id = element.getId();
+        if (id != null && !id.isEmpty()) {
+            buckets[1] = idRules.get(id);
+        }
+        int tagSymbol = element.getTagSymbol();
+        if (tagSymbol != SymbolTable.NO_SYMBOL) {
+            buckets[2] = tagSymbol < tagRules.length ? tagRules[tagSymbol] : null;
+        } else if (element.getTagName() != null && !unsymbolizedTagRules.isEmpty()) {
+            buckets[2] = unsymbolizedTagRules.get(element.getTagName().toLowerCase(Locale.ROOT));
+        }
+        for (int i = 0; i < classes.size(); i++) {
+            buckets[3 + i] = classRules.get(classes.get(i));
+        }
+        return buckets;
+    }
+
+    // ranks rules by specificity then source order; the result is indexed by source order
+    private static int[] rankCascadeOrders(List<CompiledSelector> selectors) {
+        Integer[] ranked = new Integer[selectors.size()];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, (a, b) -> {
+            int specificityA = selectors.get(a).getSpecificity();
+            int specificityB = selectors.get(b).getSpecificity();
+            return specificityA != specificityB ? Integer.compare(specificityA, specificityB)
+                    : Integer.compare(a, b);
+        });
+        int[] cascadeOrders = new int[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            cascadeOrders[ranked[i]] = i;
+        }
+        return cascadeOrders;
+    }
+
+    private static void sortBuckets(Collection<List<StyleRule>> buckets) {
+        for (List<StyleRule> bucket : buckets) {
+            bucket.sort((a, b) -> Integer.compare(a.getCascadeOrder(), b.getCascadeOrder()));
+        }
+    }
+
+    private static <K> List<StyleRule> bucket(Map<K, List<StyleRule>> buckets, K key) {
+        return buckets.computeIfAbsent(key, k -> new ArrayList<>());
+    }
+}
@@ -1,100 +1,160 @@
 package mg.bici.htmltojrxml.css;
 
+import java.util.Objects;
+
 import mg.bici.htmltojrxml.utils.Color;
 
 /**
  * Represents the computed CSS style for an element.
+ * <p>
+ * Colors are kept as packed ARGB ints and lengths as a float value plus a unit code,
+ * so a style holds no per-element value objects; the {@link Color} and {@link CssLength}
+ * returned by getters are shared, cached views.
  */
-public class ComputedStyle {
-    
+public class ComputedStyle implements ComputedStyleView {
+    private static final CssLength.Unit[] UNITS = CssLength.Unit.values();
+    private static final byte NO_UNIT = -1; // the length is null
+
     // dimensions
-    private CssLength width;
-    private CssLength height;
-    private CssLength minWidth;
-    private CssLength maxWidth;
+    private float widthValue, heightValue, minWidthValue, maxWidthValue;
+    private byte widthUnit, heightUnit, minWidthUnit, maxWidthUnit;
 
     // positioning
     private PositionType position;
-    private CssLength top, right, bottom, left;
-    private CssLength zIndex;
+    private float topValue, rightValue, bottomValue, leftValue, zIndexValue;
+    private byte topUnit, rightUnit, bottomUnit, leftUnit, zIndexUnit;
 
     // typography
     private String fontFamily;
-    private CssLength fontSize;
+    private float fontSizeValue;
+    private byte fontSizeUnit;
     private FontWeight fontWeight;
     private FontStyle fontStyle;
-    private Color color;
+    private int colorArgb;
 
     // box model
     private Padding padding;
     private Margin margin;
     private Border border;
-    private Color backgroundColor;
+    private int backgroundColorArgb;
 
     // text
     private TextAlign textAlign;
     private TextDecoration textDecoration;
-    private CssLength lineHeight;
+    private float lineHeightValue;
+    private byte lineHeightUnit;
 
     // display
     private String display;
 
     public ComputedStyle() {
-        // initialize defaults
-        width = height = minWidth = maxWidth = new CssLength(0, CssLength.Unit.PX);
         position = PositionType.STATIC;
-        top = right = bottom = left = zIndex = new CssLength(0, CssLength.Unit.PX);
         fontFamily = "Arial";
-        fontSize = new CssLength(10, CssLength.Unit.PT);
-        color = new Color(0, 0, 0); // black
-        padding = new Padding(0, 0, 0, 0);
-        margin = new Margin(0, 0, 0, 0);
-        border = new Border(0, "none", new Color(0, 0, 0));
-        backgroundColor = new Color(255, 255, 255); // white
+        fontSizeValue = CssLength.DEFAULT_FONT_SIZE.getValue();
+        fontSizeUnit = unitCode(CssLength.DEFAULT_FONT_SIZE);
+        colorArgb = Color.OPAQUE_BLACK_ARGB;
+        padding = Padding.NONE;
+        margin = Margin.NONE;
+        border = Border.NONE;
+        backgroundColorArgb = Color.OPAQUE_WHITE_ARGB;
         textAlign = TextAlign.LEFT;
         textDecoration = TextDecoration.NONE;
-        lineHeight = new CssLength(1.2f, CssLength.Unit.EM);
+        lineHeightValue = CssLength.DEFAULT_LINE_HEIGHT.getValue();
+        lineHeightUnit = unitCode(CssLength.DEFAULT_LINE_HEIGHT);
         fontWeight = FontWeight.NORMAL;
         fontStyle = FontStyle.NORMAL;
         display = "inline";
+        // other lengths keep the field defaults: 0 with unit code 0 (px)
+    }
+
+    // copies every property of another style
+    ComputedStyle(ComputedStyle source) {
+        widthValue = source.widthValue;
+        widthUnit = source.widthUnit;
+        heightValue = source.heightValue;
+        heightUnit = source.heightUnit;
+        minWidthValue = source.minWidthValue;
+        minWidthUnit = source.minWidthUnit;
+        maxWidthValue = source.maxWidthValue;
+        maxWidthUnit = source.maxWidthUnit;
+        topValue = source.topValue;
+        topUnit = source.topUnit;
+        rightValue = source.rightValue;
+        rightUnit = source.rightUnit;
+        bottomValue = source.bottomValue;
+        bottomUnit = source.bottomUnit;
+        leftValue = source.leftValue;
+        leftUnit = source.leftUnit;
+        zIndexValue = source.zIndexValue;
+        zIndexUnit = source.zIndexUnit;
+        fontSizeValue = source.fontSizeValue;
+        fontSizeUnit = source.fontSizeUnit;
+        lineHeightValue = source.lineHeightValue;
+        lineHeightUnit = source.lineHeightUnit;
+        position = source.position;
+        fontFamily = source.fontFamily;
+        fontWeight = source.fontWeight;
+        fontStyle = source.fontStyle;
+        colorArgb = source.colorArgb;
+        padding = source.padding;
+        margin = source.margin;
+        border = source.border;
+        backgroundColorArgb = source.backgroundColorArgb;
+        textAlign = source.textAlign;
+        textDecoration = source.textDecoration;
+        display = source.display;
+    }
+
+    /**
+     * Creates a builder for immutable styles, starting from the default values.
+     *
+     * @return style builder
+     */
+    public static Builder builder() {
+        return new Builder(new ComputedStyle());
+    }
+
+    @Override
+    public ImmutableComputedStyle toImmutable() {
+        return ImmutableComputedStyle.intern(this);
     }
 
     // getters and setters
-    public CssLength getWidth() { return width; }
-    public void setWidth(CssLength width) { this.width = width; }
+    public CssLength getWidth() { return length(widthValue, widthUnit); }
+    public void setWidth(CssLength width) { widthValue = value(width); widthUnit = unitCode(width); }
 
-    public CssLength getHeight() { return height; }
-    public void setHeight(CssLength height) { this.height = height; }
+    public CssLength getHeight() { return length(heightValue, heightUnit); }
+    public void setHeight(CssLength height) { heightValue = value(height); heightUnit = unitCode(height); }
 
-    public CssLength getMinWidth() { return minWidth; }
-    public void setMinWidth(CssLength minWidth) { this.minWidth = minWidth; }
+    public CssLength getMinWidth() { return length(minWidthValue, minWidthUnit); }
+    public void setMinWidth(CssLength minWidth) { minWidthValue = value(minWidth); minWidthUnit = unitCode(minWidth); }
 
-    public CssLength getMaxWidth() { return maxWidth; }
-    public void setMaxWidth(CssLength maxWidth) { this.maxWidth = maxWidth; }
+    public CssLength getMaxWidth() { return length(maxWidthValue, maxWidthUnit); }
+    public void setMaxWidth(CssLength maxWidth) { maxWidthValue = value(maxWidth); maxWidthUnit = unitCode(maxWidth); }
 
     public PositionType getPosition() { return position; }
     public void setPosition(PositionType position) { this.position = position; }
 
-    public CssLength getTop() { return top; }
-    public void setTop(CssLength top) { this.top = top; }
+    public CssLength getTop() { return length(topValue, topUnit); }
+    public void setTop(CssLength top) { topValue = value(top); topUnit = unitCode(top); }
 
-    public CssLength getRight() { return right; }
-    public void setRight(CssLength right) { this.right = right; }
+    public CssLength getRight() { return length(rightValue, rightUnit); }
+    public void setRight(CssLength right) { rightValue = value(right); rightUnit = unitCode(right); }
 
-    public CssLength getBottom() { return bottom; }
-    public void setBottom(CssLength bottom) { this.bottom = bottom; }
+    public CssLength getBottom() { return length(bottomValue, bottomUnit); }
+    public void setBottom(CssLength bottom) { bottomValue = value(bottom); bottomUnit = unitCode(bottom); }
 
-    public CssLength getLeft() { return left; }
-    public void setLeft(CssLength left) { this.left = left; }
+    public CssLength getLeft() { return length(leftValue, leftUnit); }
+    public void setLeft(CssLength left) { leftValue = value(left); leftUnit = unitCode(left); }
 
-    public CssLength getZIndex() { return zIndex; }
-    public void setZIndex(CssLength zIndex) { this.zIndex = zIndex; }
+    public CssLength getZIndex() { return length(zIndexValue, zIndexUnit); }
+    public void setZIndex(CssLength zIndex) { zIndexValue = value(zIndex); zIndexUnit = unitCode(zIndex); }
 
     public String getFontFamily() { return fontFamily; }
     public void setFontFamily(String fontFamily) { this.fontFamily = fontFamily; }
 
-    public CssLength getFontSize() { return fontSize; }
-    public void setFontSize(CssLength fontSize) { this.fontSize = fontSize; }
+    public CssLength getFontSize() { return length(fontSizeValue, fontSizeUnit); }
+    public void setFontSize(CssLength fontSize) { fontSizeValue = value(fontSize); fontSizeUnit = unitCode(fontSize); }
 
     public FontWeight getFontWeight() { return fontWeight; }
     public void setFontWeight(FontWeight fontWeight) { this.fontWeight = fontWeight; }
@@ -102,8 +162,10 @@ public class ComputedStyle {
     public FontStyle getFontStyle() { return fontStyle; }
     public void setFontStyle(FontStyle fontStyle) { this.fontStyle = fontStyle; }
 
-    public Color getColor() { return color; }
-    public void setColor(Color color) { this.color = color; }
+    public Color getColor() { return Color.fromArgb(colorArgb); }
+    public void setColor(Color color) { setColorArgb(color.getArgb()); }
+    public int getColorArgb() { return colorArgb; }
+    public void setColorArgb(int colorArgb) { this.colorArgb = colorArgb; }
 
     public Padding getPadding() { return padding; }
     public void setPadding(Padding padding) { this.padding = padding; }
@@ -114,8 +176,10 @@ public class ComputedStyle {
     public Border getBorder() { return border; }
     public void setBorder(Border border) { this.border = border; }
 
-    public Color getBackgroundColor() { return backgroundColor; }
-    public void setBackgroundColor(Color backgroundColor) { this.backgroundColor = backgroundColor; }
+    public Color getBackgroundColor() { return Color.fromArgb(backgroundColorArgb); }
+    public void setBackgroundColor(Color backgroundColor) { setBackgroundColorArgb(backgroundColor.getArgb()); }
+    public int getBackgroundColorArgb() { return backgroundColorArgb; }
+    public void setBackgroundColorArgb(int backgroundColorArgb) { this.backgroundColorArgb = backgroundColorArgb; }
 
     public TextAlign getTextAlign() { return textAlign; }
     public void setTextAlign(TextAlign textAlign) { this.textAlign = textAlign; }
@@ -123,127 +187,121 @@ public class ComputedStyle {
     public TextDecoration getTextDecoration() { return textDecoration; }
     public void setTextDecoration(TextDecoration textDecoration) { this.textDecoration = textDecoration; }
 
-    public CssLength getLineHeight() { return lineHeight; }
-    public void setLineHeight(CssLength lineHeight) { this.lineHeight = lineHeight; }
+    public CssLength getLineHeight() { return length(lineHeightValue, lineHeightUnit); }
+    public void setLineHeight(CssLength lineHeight) { lineHeightValue = value(lineHeight); lineHeightUnit = unitCode(lineHeight); }
 
     public String getDisplay() { return display; }
     public void setDisplay(String display) { this.display = display; }
-}
-
-/**
- * Represents a CSS length value with unit.
- */
-class CssLength {
-    private final float value;
-    private final Unit unit;
-
-    public enum Unit { PX, PT, EM, PERCENT, CM, MM, INCH }
 
-    public CssLength(float value, Unit unit) {
-        this.value = value;
-        this.unit = unit;
+    // compares every property with another style, for value-based equality of immutable styles
+    boolean hasSameValues(ComputedStyle other) {
+        return colorArgb == other.colorArgb
+                && backgroundColorArgb == other.backgroundColorArgb
+                && position == other.position
+                && fontWeight == other.fontWeight
+                && fontStyle == other.fontStyle
+                && textAlign == other.textAlign
+                && textDecoration == other.textDecoration
+                && Float.compare(widthValue, other.widthValue) == 0 && widthUnit == other.widthUnit
+                && Float.compare(heightValue, other.heightValue) == 0 && heightUnit == other.heightUnit
+                && Float.compare(minWidthValue, other.minWidthValue) == 0 && minWidthUnit == other.minWidthUnit
+                && Float.compare(maxWidthValue, other.maxWidthValue) == 0 && maxWidthUnit == other.maxWidthUnit
+                && Float.compare(topValue, other.topValue) == 0 && topUnit == other.topUnit
+                && Float.compare(rightValue, other.rightValue) == 0 && rightUnit == other.rightUnit
+                && Float.compare(bottomValue, other.bottomValue) == 0 && bottomUnit == other.bottomUnit
+                && Float.compare(leftValue, other.leftValue) == 0 && leftUnit == other.leftUnit
+                && Float.compare(zIndexValue, other.zIndexValue) == 0 && zIndexUnit == other.zIndexUnit
+                && Float.compare(fontSizeValue, other.fontSizeValue) == 0 && fontSizeUnit == other.fontSizeUnit
+                && Float.compare(lineHeightValue, other.lineHeightValue) == 0 && lineHeightUnit == other.lineHeightUnit
+                && Objects.equals(fontFamily, other.fontFamily)
+                && Objects.equals(padding, other.padding)
+                && Objects.equals(margin, other.margin)
+                && Objects.equals(border, other.border)
+                && Objects.equals(display, other.display);
     }
 
-    public float getValue() { return value; }
-    public Unit getUnit() { return unit; }
-}
-
-/**
- * Represents a position type.
- */
-enum PositionType {
-    STATIC, RELATIVE, ABSOLUTE, FIXED
-}
-
-/**
- * Represents font weight.
- */
-enum FontWeight {
-    NORMAL, BOLD, LIGHTER, BOLDER
-}
-
-/**
- * Represents font style.
- */
-enum FontStyle {
-    NORMAL, ITALIC, OBLIQUE
-}
-
-/**
- * Represents text alignment.
- */
-enum TextAlign {
-    LEFT, RIGHT, CENTER, JUSTIFY;
-
-    public static TextAlign fromString(String value) {
-        try {
-            return TextAlign.valueOf(value.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            return LEFT; // default
-        }
+    // hashes every property, consistent with hasSameValues
+    int valuesHash() {
+        int h = colorArgb;
+        h = 31 * h + backgroundColorArgb;
+        h = 31 * h + Objects.hashCode(position);
+        h = 31 * h + Objects.hashCode(fontWeight);
+        h = 31 * h + Objects.hashCode(fontStyle);
+        h = 31 * h + Objects.hashCode(textAlign);
+        h = 31 * h + Objects.hashCode(textDecoration);
+        h = 31 * h + Float.floatToIntBits(widthValue) * 8 + widthUnit;
+        h = 31 * h + Float.floatToIntBits(heightValue) * 8 + heightUnit;
+        h = 31 * h + Float.floatToIntBits(minWidthValue) * 8 + minWidthUnit;
+        h = 31 * h + Float.floatToIntBits(maxWidthValue) * 8 + maxWidthUnit;
+        h = 31 * h + Float.floatToIntBits(topValue) * 8 + topUnit;
+        h = 31 * h + Float.floatToIntBits(rightValue) * 8 + rightUnit;
+        h = 31 * h + Float.floatToIntBits(bottomValue) * 8 + bottomUnit;
+        h = 31 * h + Float.floatToIntBits(leftValue) * 8 + leftUnit;
+        h = 31 * h + Float.floatToIntBits(zIndexValue) * 8 + zIndexUnit;
+        h = 31 * h + Float.floatToIntBits(fontSizeValue) * 8 + fontSizeUnit;
+        h = 31 * h + Float.floatToIntBits(lineHeightValue) * 8 + lineHeightUnit;
+        h = 31 * h + Objects.hashCode(fontFamily);
+        h = 31 * h + Objects.hashCode(padding);
+        h = 31 * h + Objects.hashCode(margin);
+        h = 31 * h + Objects.hashCode(border);
+        return 31 * h + Objects.hashCode(display);
     }
-}
 
-/**
- * Represents text decoration.
- */
-enum TextDecoration {
-    NONE, UNDERLINE, OVERLINE, LINE_THROUGH
-}
-
-/**
- * Represents padding box model.
- */
-class Padding {
-    private final float top, right, bottom, left;
-
-    public Padding(float top, float right, float bottom, float left) {
-        this.top = top;
-        this.right = right;
-        this.bottom = bottom;
-        this.left = left;
+    private static float value(CssLength length) {
+        return length == null ? 0 : length.getValue();
     }
 
-    public float getTop() { return top; }
-    public float getRight() { return right; }
-    public float getBottom() { return bottom; }
-    public float getLeft() { return left; }
-}
+    private static byte unitCode(CssLength length) {
+        return length == null ? NO_UNIT : (byte) length.getUnit().ordinal();
+    }
 
-/**
- * Represents margin box model.
- */
-class Margin {
-    private final float top, right, bottom, left;
-
-    public Margin(float top, float right, float bottom, float left) {
-        this.top = top;
-        this.right = right;
-        this.bottom = bottom;
-        this.left = left;
+    private static CssLength length(float value, byte unit) {
+        return unit == NO_UNIT ? null : CssLength.of(value, UNITS[unit]);
     }
 
-    public float getTop() { return top; }
-    public float getRight() { return right; }
-    public float getBottom() { return bottom; }
-    public float getLeft() { return left; }
-}
+    /**
+     * Builds interned immutable styles.
+     */
+    public static class Builder {
+        private final ComputedStyle draft;
 
-/**
- * Represents border properties.
- */
-class Border {
-    private final float width;
-    private final String style;
-    private final Color color;
-
-    public Border(float width, String style, Color color) {
-        this.width = width;
-        this.style = style;
-        this.color = color;
-    }
+        Builder(ComputedStyle draft) {
+            this.draft = draft;
+        }
 
-    public float getWidth() { return width; }
-    public String getStyle() { return style; }
-    public Color getColor() { return color; }
-}
\ No newline at end of file
+        public Builder width(CssLength width) { draft.setWidth(width); return this; }
+        public Builder height(CssLength height) { draft.setHeight(height); return this; }
+        public Builder minWidth(CssLength minWidth) { draft.setMinWidth(minWidth); return this; }
+        public Builder maxWidth(CssLength maxWidth) { draft.setMaxWidth(maxWidth); return this; }
+        public Builder position(PositionType position) { draft.setPosition(position); return this; }
+        public Builder top(CssLength top) { draft.setTop(top); return this; }
+        public Builder right(CssLength right) { draft.setRight(right); return this; }
+        public Builder bottom(CssLength bottom) { draft.setBottom(bottom); return this; }
+        public Builder left(CssLength left) { draft.setLeft(left); return this; }
+        public Builder zIndex(CssLength zIndex) { draft.setZIndex(zIndex); return this; }
+        public Builder fontFamily(String fontFamily) { draft.setFontFamily(fontFamily); return this; }
+        public Builder fontSize(CssLength fontSize) { draft.setFontSize(fontSize); return this; }
+        public Builder fontWeight(FontWeight fontWeight) { draft.setFontWeight(fontWeight); return this; }
+        public Builder fontStyle(FontStyle fontStyle) { draft.setFontStyle(fontStyle); return this; }
+        public Builder color(Color color) { draft.setColor(color); return this; }
+        public Builder colorArgb(int colorArgb) { draft.setColorArgb(colorArgb); return this; }
+        public Builder padding(Padding padding) { draft.setPadding(padding); return this; }
+        public Builder margin(Margin margin) { draft.setMargin(margin); return this; }
+        public Builder border(Border border) { draft.setBorder(border); return this; }
+        public Builder backgroundColor(Color backgroundColor) { draft.setBackgroundColor(backgroundColor); return this; }
+        public Builder backgroundColorArgb(int backgroundColorArgb) { draft.setBackgroundColorArgb(backgroundColorArgb); return this; }
+        public Builder textAlign(TextAlign textAlign) { draft.setTextAlign(textAlign); return this; }
+        public Builder textDecoration(TextDecoration textDecoration) { draft.setTextDecoration(textDecoration); return this; }
+        public Builder lineHeight(CssLength lineHeight) { draft.setLineHeight(lineHeight); return this; }
+        public Builder display(String display) { draft.setDisplay(display); return this; }
+
+        /**
+         * Gets the immutable style for the values set so far.
+         *
+         * @return interned immutable style
+         */
+        public ImmutableComputedStyle build() {
+            return ImmutableComputedStyle.intern(draft);
+        }
+    }
+}
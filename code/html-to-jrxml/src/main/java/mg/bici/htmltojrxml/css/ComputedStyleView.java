@@ -0,0 +1,68 @@
+package mg.bici.htmltojrxml.css;
+
+import mg.bici.htmltojrxml.utils.Color;
+
+/**
+ * Read access to a computed style, implemented by the mutable {@link ComputedStyle}
+ * and the immutable {@link ImmutableComputedStyle}. Code that only reads styles, like
+ * the layout and the JRXML writers, takes this type so it accepts both.
+ */
+public interface ComputedStyleView {
+
+    CssLength getWidth();
+
+    CssLength getHeight();
+
+    CssLength getMinWidth();
+
+    CssLength getMaxWidth();
+
+    PositionType getPosition();
+
+    CssLength getTop();
+
+    CssLength getRight();
+
+    CssLength getBottom();
+
+    CssLength getLeft();
+
+    CssLength getZIndex();
+
+    String getFontFamily();
+
+    CssLength getFontSize();
+
+    FontWeight getFontWeight();
+
+    FontStyle getFontStyle();
+
+    Color getColor();
+
+    int getColorArgb();
+
+    Padding getPadding();
+
+    Margin getMargin();
+
+    Border getBorder();
+
+    Color getBackgroundColor();
+
+    int getBackgroundColorArgb();
+
+    TextAlign getTextAlign();
+
+    TextDecoration getTextDecoration();
+
+    CssLength getLineHeight();
+
+    String getDisplay();
+
+    /**
+     * Gets the immutable style with the same values as this style.
+     *
+     * @return interned immutable style
+     */
+    ImmutableComputedStyle toImmutable();
+}
@@ -0,0 +1,66 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.Locale;
+
+import mg.bici.htmltojrxml.utils.InternPool;
+
+/**
+ * Represents a CSS length value with unit.
+ */
+public class CssLength {
+    private static final InternPool<CssLength> POOL = new InternPool<>(4096);
+    private static final int VIEW_CACHE_SIZE = 512;
+    private static final CssLength[] VIEW_CACHE = new CssLength[VIEW_CACHE_SIZE];
+
+    static final CssLength ZERO = of(0, Unit.PX);
+    static final CssLength DEFAULT_FONT_SIZE = of(10, Unit.PT);
+    static final CssLength DEFAULT_LINE_HEIGHT = of(1.2f, Unit.EM);
+
+    private final float value;
+    private final Unit unit;
+
+    public enum Unit { PX, PT, EM, PERCENT, CM, MM, INCH }
+
+    public CssLength(float value, Unit unit) {
+        this.value = value;
+        this.unit = unit;
+    }
+
+    // gets the canonical instance of a length, recently used lengths without allocating
+    static CssLength of(float value, Unit unit) {
+        int slot = hash(value, unit) & (VIEW_CACHE_SIZE - 1);
+        CssLength cached = VIEW_CACHE[slot];
+        if (cached != null && cached.unit == unit && Float.compare(cached.value, value) == 0) {
+            return cached;
+        }
+        CssLength length = POOL.intern(new CssLength(value, unit));
+        VIEW_CACHE[slot] = length;
+        return length;
+    }
+
+    private static int hash(float value, Unit unit) {
+        int h = (31 * Float.floatToIntBits(value) + unit.ordinal()) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public float getValue() { return value; }
+    public Unit getUnit() { return unit; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CssLength other = (CssLength) o;
+        return Float.compare(value, other.value) == 0 && unit == other.unit;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(value, unit);
+    }
+
+    @Override
+    public String toString() {
+        return value + unit.name().toLowerCase(Locale.ROOT);
+    }
+}
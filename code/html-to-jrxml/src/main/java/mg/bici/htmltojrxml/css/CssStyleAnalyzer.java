@@ -1,34 +1,46 @@
 package mg.bici.htmltojrxml.css;
 
 import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.w3c.css.sac.CSSParseException;
 import org.w3c.css.sac.ErrorHandler;
 import org.w3c.css.sac.InputSource;
-import org.w3c.dom.css.CSSRuleList;
 import org.w3c.dom.css.CSSStyleDeclaration;
-import org.w3c.dom.css.CSSStyleRule;
 import org.w3c.dom.css.CSSStyleSheet;
 
 import com.steadystate.css.parser.CSSOMParser;
 import com.steadystate.css.parser.SACParserCSS3;
 
+import mg.bici.htmltojrxml.config.ConversionConfig;
 import mg.bici.htmltojrxml.exceptions.ParsingException;
 import mg.bici.htmltojrxml.html.HtmlElement;
 import mg.bici.htmltojrxml.utils.Color;
-import mg.bici.htmltojrxml.utils.ColorUtils;
 
 /**
  * Analyzes CSS styles and computes styles for HTML elements.
  */
 public class CssStyleAnalyzer {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+
     private final SelectorMatcher selectorMatcher;
+    private final StylesheetCache stylesheetCache;
+    private volatile CompiledEntry lastCompiled;
 
     public CssStyleAnalyzer() {
+        this(StylesheetCache.getShared());
+    }
+
+    public CssStyleAnalyzer(StylesheetCache stylesheetCache) {
         this.selectorMatcher = new SelectorMatcher();
+        this.stylesheetCache = stylesheetCache;
     }
 
     /**
@@ -67,13 +79,227 @@ public class CssStyleAnalyzer {
      * @return computed style
      */
     public ComputedStyle computeStyle(HtmlElement element, CSSStyleSheet stylesheet) {
+        return computeStyle(element, compileStylesheet(stylesheet));
+    }
+
+    /**
+     * Computes the final style for an HTML element against a compiled stylesheet.
+     *
+     * @param element    the HTML element
+     * @param stylesheet the compiled stylesheet
+     * @return computed style
+     */
+    public ComputedStyle computeStyle(HtmlElement element, CompiledStylesheet stylesheet) {
+        return computeStyle(element, null, stylesheet);
+    }
+
+    /**
+     * Computes the final style for an HTML element, inheriting from its parent's style.
+     *
+     * @param element     the HTML element
+     * @param parentStyle the computed style of the parent, or null for a root element
+     * @param stylesheet  the compiled stylesheet
+     * @return computed style
+     */
+    public ComputedStyle computeStyle(HtmlElement element, ComputedStyleView parentStyle,
+                                      CompiledStylesheet stylesheet) {
+        return computeStyle(element, parentStyle, stylesheet, null);
+    }
+
+    // computes a style; a filter, when given, must hold the ancestors of element
+    private ComputedStyle computeStyle(HtmlElement element, ComputedStyleView parentStyle,
+                                       CompiledStylesheet stylesheet, AncestorFilter filter) {
         ComputedStyle result = new ComputedStyle();
-        applyDefaultStyles(element, result);
-        applyAuthorStyles(element, stylesheet, result);
-        applyInlineStyles(element, result);
+        applyDefaultStyles(element, parentStyle, result);
+        applyAuthorAndInlineStyles(element, getMatchingRules(element, stylesheet, filter), result);
+        resolveFontSize(parentStyle, result);
         return result;
     }
 
+    /**
+     * Computes styles for whole element trees. Children inherit from their parent's
+     * style, and identically styled elements (e.g., table cells of one row) share a
+     * single {@link ImmutableComputedStyle}.
+     *
+     * @param roots      the root elements
+     * @param stylesheet the compiled stylesheet
+     * @return computed style of every element, keyed by element identity
+     */
+    public Map<HtmlElement, ImmutableComputedStyle> computeStyles(List<HtmlElement> roots,
+                                                                  CompiledStylesheet stylesheet) {
+        Map<HtmlElement, ImmutableComputedStyle> styles = new IdentityHashMap<>();
+        StyleSharingCache sharingCache = new StyleSharingCache(stylesheet);
+        AncestorFilter filter = AncestorFilter.forStylesheet(stylesheet);
+        for (HtmlElement root : roots) {
+            cascadeSubtree(root, stylesheet, sharingCache, styles, filter);
+        }
+        return styles;
+    }
+
+    /**
+     * Computes styles for element trees that were styled before, recomputing only what
+     * may have changed. An element keeps its style from {@code previous} as long as its
+     * parent's style came out the same; other elements, and those missing from
+     * {@code previous}, are cascaded again. Since selectors only look at an element and
+     * its ancestors, an element may only be given a previous style if its tag, id,
+     * classes, attributes and inline styles, and those of all its ancestors, are the
+     * same as when that style was computed against the same stylesheet.
+     *
+     * @param roots      the root elements
+     * @param stylesheet the compiled stylesheet
+     * @param previous   styles still valid for their element, keyed by element identity
+     * @return computed style of every element, keyed by element identity
+     */
+    public Map<HtmlElement, ImmutableComputedStyle> computeStyles(List<HtmlElement> roots,
+                                                                  CompiledStylesheet stylesheet,
+                                                                  Map<HtmlElement, ImmutableComputedStyle> previous) {
+        Map<HtmlElement, ImmutableComputedStyle> styles = new IdentityHashMap<>();
+        StyleSharingCache sharingCache = new StyleSharingCache(stylesheet);
+        AncestorFilter filter = AncestorFilter.forStylesheet(stylesheet);
+        Deque<HtmlElement> pending = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            pending.push(roots.get(i));
+        }
+        while (!pending.isEmpty()) {
+            HtmlElement element = pending.pop();
+            HtmlElement parent = element.getParent();
+            ImmutableComputedStyle parentStyle = parent == null ? null : styles.get(parent);
+            if (filter != null) {
+                filter.moveTo(parent);
+            }
+            ImmutableComputedStyle style = previous.get(element);
+            if (style == null || (parent != null && !ImmutableComputedStyle.same(parentStyle, previous.get(parent)))) {
+                style = computeSharedStyle(element, parentStyle, stylesheet, sharingCache, filter);
+            }
+            styles.put(element, style);
+            if (!element.hasChildren()) {
+                continue;
+            }
+            if (filter != null) {
+                filter.push(element);
+            }
+            List<HtmlElement> children = element.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+        return styles;
+    }
+
+    /**
+     * Computes styles for whole element trees on the common fork/join pool,
+     * splitting subtrees larger than {@link #DEFAULT_PARALLEL_THRESHOLD} elements.
+     *
+     * @param roots      the root elements
+     * @param stylesheet the compiled stylesheet
+     * @return computed style of every element, keyed by element identity
+     */
+    public Map<HtmlElement, ImmutableComputedStyle> computeStylesParallel(List<HtmlElement> roots,
+                                                                          CompiledStylesheet stylesheet) {
+        return computeStylesParallel(roots, stylesheet, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Computes styles for whole element trees on the common fork/join pool, splitting
+     * subtrees larger than the configured {@code cascade.parallel.threshold}.
+     *
+     * @param roots      the root elements
+     * @param stylesheet the compiled stylesheet
+     * @param config     the conversion configuration
+     * @return computed style of every element, keyed by element identity
+     */
+    public Map<HtmlElement, ImmutableComputedStyle> computeStylesParallel(List<HtmlElement> roots,
+                                                                          CompiledStylesheet stylesheet,
+                                                                          ConversionConfig config) {
+        return computeStylesParallel(roots, stylesheet, ForkJoinPool.commonPool(),
+                config.getParallelCascadeThreshold());
+    }
+
+    /**
+     * Computes styles for whole element trees on a fork/join pool. Subtrees larger than
+     * the threshold are split into separate tasks. The result holds styles equal to
+     * those of {@link #computeStyles(List, CompiledStylesheet)}.
+     *
+     * @param roots      the root elements
+     * @param stylesheet the compiled stylesheet
+     * @param pool       the pool running the cascade
+     * @param threshold  subtree size (in elements) under which a task runs sequentially
+     * @return computed style of every element, keyed by element identity
+     */
+    public Map<HtmlElement, ImmutableComputedStyle> computeStylesParallel(List<HtmlElement> roots,
+                                                                          CompiledStylesheet stylesheet,
+                                                                          ForkJoinPool pool, int threshold) {
+        return new ParallelStyleCascade(this, stylesheet, threshold).run(roots, pool);
+    }
+
+    // computes styles of a subtree in document order; the parent style of root, if any, must be in styles.
+    // The filter is null, or holds the ancestors of root or of an element styled before (it is then
+    // moved, or reseeded when empty); it is left holding ancestors of the last styled element
+    void cascadeSubtree(HtmlElement root, CompiledStylesheet stylesheet, StyleSharingCache sharingCache,
+                        Map<HtmlElement, ImmutableComputedStyle> styles, AncestorFilter filter) {
+        Deque<HtmlElement> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            HtmlElement element = pending.pop();
+            ImmutableComputedStyle parentStyle = element.getParent() == null ? null : styles.get(element.getParent());
+            if (filter != null) {
+                filter.moveTo(element.getParent());
+            }
+            styles.put(element, computeSharedStyle(element, parentStyle, stylesheet, sharingCache, filter));
+            if (!element.hasChildren()) {
+                continue;
+            }
+            if (filter != null) {
+                filter.push(element);
+            }
+            List<HtmlElement> children = element.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+    }
+
+    // computes a style, reusing the one of an identically styled element when possible;
+    // the filter is null or holds the ancestors of element
+    ImmutableComputedStyle computeSharedStyle(HtmlElement element, ImmutableComputedStyle parentStyle,
+                                              CompiledStylesheet stylesheet, StyleSharingCache sharingCache,
+                                              AncestorFilter filter) {
+        SharingKey key = sharingCache.keyFor(element, parentStyle);
+        ImmutableComputedStyle style = sharingCache.get(key);
+        if (style == null) {
+            style = computeStyle(element, parentStyle, stylesheet, filter).toImmutable();
+            sharingCache.put(key, style);
+        }
+        return style;
+    }
+
+    /**
+     * Parses and compiles CSS content, reusing the cached result when the same
+     * content was compiled before. The result is immutable and safe to share.
+     *
+     * @param cssContent the CSS content
+     * @return compiled stylesheet
+     */
+    public CompiledStylesheet compileStylesheet(String cssContent) {
+        return stylesheetCache.get(cssContent, css -> CompiledStylesheet.compile(parseStylesheet(css)));
+    }
+
+    /**
+     * Compiles a parsed stylesheet into an indexed form. The last compiled stylesheet
+     * is remembered so repeated calls with the same stylesheet are not recompiled.
+     *
+     * @param stylesheet the CSS stylesheet
+     * @return compiled stylesheet
+     */
+    public CompiledStylesheet compileStylesheet(CSSStyleSheet stylesheet) {
+        CompiledEntry entry = lastCompiled;
+        if (entry == null || entry.source != stylesheet) {
+            entry = new CompiledEntry(stylesheet, CompiledStylesheet.compile(stylesheet));
+            lastCompiled = entry;
+        }
+        return entry.compiled;
+    }
+
     /**
      * Applies cascading rules to compute styles.
      *
@@ -82,18 +308,22 @@ public class CssStyleAnalyzer {
      * @param result     the computed style
      */
     public void applyCascade(HtmlElement element, CSSStyleSheet stylesheet, ComputedStyle result) {
-        // cascade is handled by applying styles in order: default, author, inline
-        applyDefaultStyles(element, result);
-        applyAuthorStyles(element, stylesheet, result);
-        applyInlineStyles(element, result);
-    }
-
-    // applies default styles based on element type
-    private void applyDefaultStyles(HtmlElement element, ComputedStyle result) {
-        // set basic defaults
-        result.setFontFamily("Arial");
-        result.setFontSize(new CssLength(10, CssLength.Unit.PT));
-        result.setColor(new Color(0, 0, 0)); // black
+        // cascade is handled by applying styles in order: default, author, inline, then !important
+        applyDefaultStyles(element, null, result);
+        applyAuthorAndInlineStyles(element, getMatchingRules(element, compileStylesheet(stylesheet), null), result);
+        resolveFontSize(null, result);
+    }
+
+    // applies default styles based on element type, inherited properties come from the parent
+    private void applyDefaultStyles(HtmlElement element, ComputedStyleView parentStyle, ComputedStyle result) {
+        if (parentStyle != null) {
+            inheritStyles(parentStyle, result);
+        } else {
+            // set basic defaults
+            result.setFontFamily("Arial");
+            result.setFontSize(CssLength.DEFAULT_FONT_SIZE);
+            result.setColorArgb(Color.OPAQUE_BLACK_ARGB);
+        }
         if (element.isBlock()) {
             result.setDisplay("block");
         } else if (element.isInline()) {
@@ -101,149 +331,93 @@ public class CssStyleAnalyzer {
         }
     }
 
-    // applies styles from stylesheet
-    private void applyAuthorStyles(HtmlElement element, CSSStyleSheet stylesheet, ComputedStyle result) {
-        List<StyleRule> matchingRules = getMatchingRules(element, stylesheet);
-        for (StyleRule rule : matchingRules) {
-            CSSStyleDeclaration declaration = rule.getDeclaration();
-            for (int i = 0; i < declaration.getLength(); i++) {
-                String property = declaration.item(i);
-                String value = declaration.getPropertyValue(property);
-                applyStyleProperty(result, property, value);
-            }
-        }
+    // copies inherited CSS properties from the parent style
+    private void inheritStyles(ComputedStyleView parentStyle, ComputedStyle result) {
+        result.setFontFamily(parentStyle.getFontFamily());
+        result.setFontSize(parentStyle.getFontSize());
+        result.setFontWeight(parentStyle.getFontWeight());
+        result.setFontStyle(parentStyle.getFontStyle());
+        result.setColorArgb(parentStyle.getColorArgb());
+        result.setTextAlign(parentStyle.getTextAlign());
+        result.setLineHeight(parentStyle.getLineHeight());
     }
 
-    // applies inline styles from element
-    private void applyInlineStyles(HtmlElement element, ComputedStyle result) {
-        for (Map.Entry<String, String> entry : element.getInlineStyles().entrySet()) {
-            applyStyleProperty(result, entry.getKey(), entry.getValue());
+    /*
+     * Turns a relative font size (em, %) into the absolute size it stands for, so that
+     * children inherit the computed size: nested relative sizes then compound, as in CSS.
+     * The parent size is absolute already, or the default for a root element.
+     */
+    private void resolveFontSize(ComputedStyleView parentStyle, ComputedStyle result) {
+        CssLength fontSize = result.getFontSize();
+        if (fontSize == null) {
+            return;
         }
-    }
-
-    // applies a single style property
-    private void applyStyleProperty(ComputedStyle style, String property, String value) {
-        switch (property.toLowerCase()) {
-            case "font-family":
-                style.setFontFamily(value);
-                break;
-            case "font-size":
-                style.setFontSize(parseCssLength(value));
-                break;
-            case "color":
-                style.setColor(ColorUtils.parseColor(value));
-                break;
-            case "width":
-                style.setWidth(parseCssLength(value));
-                break;
-            case "height":
-                style.setHeight(parseCssLength(value));
-                break;
-            case "margin":
-                style.setMargin(parseBoxModel(value));
-                break;
-            case "padding":
-                style.setPadding(parsePadding(value));
-                break;
-            case "font-weight":
-                style.setFontWeight(parseFontWeight(value));
-                break;
-            case "text-align":
-                style.setTextAlign(TextAlign.fromString(value));
-                break;
-            // add more properties as needed
+        float factor;
+        if (fontSize.getUnit() == CssLength.Unit.EM) {
+            factor = fontSize.getValue();
+        } else if (fontSize.getUnit() == CssLength.Unit.PERCENT) {
+            factor = fontSize.getValue() / 100f;
+        } else {
+            return;
         }
+        CssLength parentSize = parentStyle != null && parentStyle.getFontSize() != null
+                ? parentStyle.getFontSize() : CssLength.DEFAULT_FONT_SIZE;
+        result.setFontSize(CssLength.of(parentSize.getValue() * factor, parentSize.getUnit()));
     }
 
-    private FontWeight parseFontWeight(String value) {
-        switch (value.toLowerCase()) {
-            case "bold":
-            case "bolder":
-                return FontWeight.BOLD;
-            case "lighter":
-                return FontWeight.LIGHTER;
-            default:
-                return FontWeight.NORMAL;
+    /*
+     * Applies matched rules and inline styles by cascade precedence, lowest first:
+     * normal author declarations, normal inline declarations, !important author
+     * declarations, then !important inline declarations. Rules come in cascade order
+     * with their declarations decoded at compile time.
+     */
+    private void applyAuthorAndInlineStyles(HtmlElement element, List<StyleRule> matchingRules, ComputedStyle result) {
+        boolean important = false;
+        for (StyleRule rule : matchingRules) {
+            important |= rule.hasImportant();
+            rule.getNormalBlock().applyTo(result);
         }
-    }
-
-    // parses CSS length (e.g., "12px" -> CssLength)
-    private CssLength parseCssLength(String value) {
-        try {
-            String cleaned = value.replaceAll("[^0-9.]", "");
-            float number = Float.parseFloat(cleaned);
-            if (value.contains("px")) {
-                return new CssLength(number, CssLength.Unit.PX);
-            } else if (value.contains("pt")) {
-                return new CssLength(number, CssLength.Unit.PT);
-            }
-            return new CssLength(number, CssLength.Unit.PX); // default to pixels
-        } catch (NumberFormatException e) {
-            return new CssLength(0, CssLength.Unit.PX);
+        Map<String, String> inlineStyles = element.hasInlineStyles() ? element.getInlineStyles() : null;
+        if (inlineStyles != null) {
+            DeclarationBlock.decodeInline(inlineStyles, false).applyTo(result);
         }
-    }
-
-    // parses box model values (e.g., "10px 5px" -> Margin)
-    private Margin parseBoxModel(String value) {
-        String[] parts = value.trim().split("\\s+");
-        float top = 0, right = 0, bottom = 0, left = 0;
-        if (parts.length == 1) {
-            top = right = bottom = left = parseCssLength(parts[0]).getValue();
-        } else if (parts.length == 2) {
-            top = bottom = parseCssLength(parts[0]).getValue();
-            right = left = parseCssLength(parts[1]).getValue();
-        } else if (parts.length == 4) {
-            top = parseCssLength(parts[0]).getValue();
-            right = parseCssLength(parts[1]).getValue();
-            bottom = parseCssLength(parts[2]).getValue();
-            left = parseCssLength(parts[3]).getValue();
+        if (important) {
+            for (StyleRule rule : matchingRules) {
+                rule.getImportantBlock().applyTo(result);
+            }
         }
-        return new Margin(top, right, bottom, left);
-    }
-
-    // parses padding values (e.g., "10px 5px" -> Padding)
-    private Padding parsePadding(String value) {
-        String[] parts = value.trim().split("\\s+");
-        float top = 0, right = 0, bottom = 0, left = 0;
-        if (parts.length == 1) {
-            top = right = bottom = left = parseCssLength(parts[0]).getValue();
-        } else if (parts.length == 2) {
-            top = bottom = parseCssLength(parts[0]).getValue();
-            right = left = parseCssLength(parts[1]).getValue();
-        } else if (parts.length == 4) {
-            top = parseCssLength(parts[0]).getValue();
-            right = parseCssLength(parts[1]).getValue();
-            bottom = parseCssLength(parts[2]).getValue();
-            left = parseCssLength(parts[3]).getValue();
+        if (inlineStyles != null) {
+            DeclarationBlock.decodeInline(inlineStyles, true).applyTo(result);
         }
-        return new Padding(top, right, bottom, left);
     }
-    
-    // gets matching CSS rules for an element
-    private List<StyleRule> getMatchingRules(HtmlElement element, CSSStyleSheet stylesheet) {
+
+    // gets matching CSS rules in cascade order, skipping selectors the ancestor filter rules out
+    private List<StyleRule> getMatchingRules(HtmlElement element, CompiledStylesheet stylesheet, AncestorFilter filter) {
         List<StyleRule> matchingRules = new ArrayList<>();
-        CSSRuleList ruleList = stylesheet.getCssRules();
-        for (int i = 0; i < ruleList.getLength(); i++) {
-            if (ruleList.item(i) instanceof CSSStyleRule) {
-                CSSStyleRule cssRule = (CSSStyleRule) ruleList.item(i);
-                String selector = cssRule.getSelectorText();
-                if (selectorMatcher.matches(element, selector)) {
-                    matchingRules.add(new StyleRule(selector, cssRule.getStyle()));
-                }
+        for (StyleRule rule : stylesheet.getCascadeCandidates(element)) {
+            CompiledSelector selector = rule.getCompiledSelector();
+            if (filter != null && !selector.mightMatchAncestors(filter)) {
+                continue;
+            }
+            if (selectorMatcher.matches(element, selector)) {
+                matchingRules.add(rule);
             }
         }
-        // sort by specificity (simplified)
-        matchingRules.sort((a, b) -> calculateSpecificity(b.getSelector()) - calculateSpecificity(a.getSelector()));
+        // candidates come in cascade order, so the matches need no sorting
         return matchingRules;
     }
+}
 
-    // calculates selector specificity (simplified)
-    private int calculateSpecificity(String selector) {
-        int specificity = 0;
-        if (selector.contains("#")) specificity += 100; // ID
-        if (selector.contains(".")) specificity += 10;  // Class
-        if (selector.matches("[a-zA-Z]+")) specificity += 1; // Element
-        return specificity;
+/**
+ * Remembers the last stylesheet compiled by an analyzer.
+ */
+class CompiledEntry {
+    final CSSStyleSheet source;
+    final CompiledStylesheet compiled;
+
+    CompiledEntry(CSSStyleSheet source, CompiledStylesheet compiled) {
+        this.source = source;
+        this.compiled = compiled;
     }
 }
 
@@ -251,19 +425,127 @@ public class CssStyleAnalyzer {
  * Represents a CSS style rule.
  */
 class StyleRule {
-    private final String selector;
-    private final CSSStyleDeclaration declaration;
+    private final CompiledSelector selector;
+    private final List<StyleDeclaration> declarations;
+    private final int specificity;
+    private final int sourceOrder;
+    private final DeclarationBlock normalBlock;
+    private final DeclarationBlock importantBlock;
+    private final int cascadeOrder;
 
-    public StyleRule(String selector, CSSStyleDeclaration declaration) {
+    public StyleRule(CompiledSelector selector, List<StyleDeclaration> declarations, int specificity, int sourceOrder,
+                     int cascadeOrder) {
         this.selector = selector;
-        this.declaration = declaration;
+        this.declarations = declarations;
+        this.specificity = specificity;
+        this.sourceOrder = sourceOrder;
+        this.cascadeOrder = cascadeOrder;
+        this.normalBlock = DeclarationBlock.decode(declarations, false);
+        this.importantBlock = DeclarationBlock.decode(declarations, true);
     }
 
     public String getSelector() {
+        return selector.getText();
+    }
+
+    public CompiledSelector getCompiledSelector() {
         return selector;
     }
 
-    public CSSStyleDeclaration getDeclaration() {
-        return declaration;
+    public List<StyleDeclaration> getDeclarations() {
+        return declarations;
+    }
+
+    public int getSpecificity() {
+        return specificity;
+    }
+
+    public int getSourceOrder() {
+        return sourceOrder;
+    }
+
+    // gets the position of the rule in the cascade: specificity, then source order
+    public int getCascadeOrder() {
+        return cascadeOrder;
+    }
+
+    public boolean hasImportant() {
+        return !importantBlock.isEmpty();
+    }
+
+    // gets the decoded normal declarations
+    DeclarationBlock getNormalBlock() {
+        return normalBlock;
+    }
+
+    // gets the decoded !important declarations
+    DeclarationBlock getImportantBlock() {
+        return importantBlock;
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Immutable copy of a single CSS declaration, detached from the parser DOM.
+ */
+class StyleDeclaration {
+    private final String property;
+    private final String value;
+    private final boolean important;
+
+    public StyleDeclaration(String property, String value, boolean important) {
+        this.property = property;
+        this.value = value;
+        this.important = important;
+    }
+
+    // copies the declarations of a parsed rule
+    static List<StyleDeclaration> copyOf(CSSStyleDeclaration declaration) {
+        List<StyleDeclaration> declarations = new ArrayList<>(declaration.getLength());
+        for (int i = 0; i < declaration.getLength(); i++) {
+            String property = declaration.item(i);
+            declarations.add(new StyleDeclaration(property, declaration.getPropertyValue(property),
+                    "important".equalsIgnoreCase(declaration.getPropertyPriority(property))));
+        }
+        return Collections.unmodifiableList(declarations);
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isImportant() {
+        return important;
+    }
+
+    // checks if an inline style value ends with an !important priority
+    static boolean isImportantValue(String value) {
+        return importantStart(value) >= 0;
+    }
+
+    // strips the !important priority from an inline style value
+    static String stripImportant(String value) {
+        int start = importantStart(value);
+        return start < 0 ? value : value.substring(0, start).trim();
+    }
+
+    // finds the '!' of a trailing "!important", allowing whitespace after the '!'
+    private static int importantStart(String value) {
+        int end = value.length();
+        while (end > 0 && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        int keyword = end - "important".length();
+        if (keyword < 1 || !value.regionMatches(true, keyword, "important", 0, "important".length())) {
+            return -1;
+        }
+        int bang = keyword - 1;
+        while (bang > 0 && Character.isWhitespace(value.charAt(bang))) {
+            bang--;
+        }
+        return value.charAt(bang) == '!' ? bang : -1;
+    }
+}
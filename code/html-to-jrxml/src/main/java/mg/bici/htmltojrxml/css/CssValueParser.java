@@ -0,0 +1,263 @@
+package mg.bici.htmltojrxml.css;
+
+import mg.bici.htmltojrxml.utils.NumberScanner;
+
+
+/**
+ * Hand-written parser for CSS lengths and 1-4 value box shorthands (margin, padding,
+ * border-width). Values are read in a single character scan without regular expressions
+ * or intermediate strings, and common results are shared instances.
+ * <p>
+ * Unitless numbers are read as pixels and invalid values as zero. The sides of the box
+ * shorthands keep {@code em} and percentages for the layout to resolve, and convert the
+ * absolute units to pixels, the unit of {@link Margin}, {@link Padding} and {@link Border}.
+ */
+final class CssValueParser {
+    private static final int COMMON_LENGTHS = 64;
+    private static final float PX_PER_INCH = 96f;
+    // only used to pick the widest border side among sides in different units
+    private static final float PX_PER_EM_ESTIMATE = 16f;
+    private static final CssLength[] COMMON_PX = new CssLength[COMMON_LENGTHS];
+    private static final CssLength[] COMMON_PT = new CssLength[COMMON_LENGTHS];
+
+    // box shorthands are scanned into a long holding 4 token offsets of 15 bits and the token count
+    private static final long INVALID_SIDES = -1L;
+    private static final int OFFSET_BITS = 15;
+    private static final int MAX_OFFSET = (1 << OFFSET_BITS) - 1;
+
+    static {
+        for (int i = 0; i < COMMON_LENGTHS; i++) {
+            COMMON_PX[i] = i == 0 ? CssLength.ZERO : CssLength.of(i, CssLength.Unit.PX);
+            COMMON_PT[i] = CssLength.of(i, CssLength.Unit.PT);
+        }
+    }
+
+    private CssValueParser() {
+    }
+
+    /**
+     * Parses a length such as {@code 12px}, {@code -1.5em}, {@code 50%} or {@code 0}.
+     *
+     * @param value the CSS value
+     * @return the length, {@link CssLength#ZERO} if the value is zero or invalid
+     */
+    static CssLength parseLength(CharSequence value) {
+        int length = value.length();
+        int start = skipWhitespace(value, 0, length);
+        int end = trimEnd(value, start, length);
+        return lengthOf(value, start, end);
+    }
+
+    /**
+     * Parses a margin shorthand of 1 to 4 lengths.
+     *
+     * @param value the CSS value
+     * @return the margin, {@link Margin#NONE} if the value is zero or invalid
+     */
+    static Margin parseMargin(CharSequence value) {
+        long sides = parseSides(value);
+        if (sides == INVALID_SIDES) {
+            return Margin.NONE;
+        }
+        CssLength top = side(value, sides, 0);
+        CssLength right = side(value, sides, 1);
+        CssLength bottom = side(value, sides, 2);
+        CssLength left = side(value, sides, 3);
+        if (isZero(top) && isZero(right) && isZero(bottom) && isZero(left)) {
+            return Margin.NONE;
+        }
+        return Margin.of(top, right, bottom, left);
+    }
+
+    /**
+     * Parses a padding shorthand of 1 to 4 lengths.
+     *
+     * @param value the CSS value
+     * @return the padding, {@link Padding#NONE} if the value is zero or invalid
+     */
+    static Padding parsePadding(CharSequence value) {
+        long sides = parseSides(value);
+        if (sides == INVALID_SIDES) {
+            return Padding.NONE;
+        }
+        CssLength top = side(value, sides, 0);
+        CssLength right = side(value, sides, 1);
+        CssLength bottom = side(value, sides, 2);
+        CssLength left = side(value, sides, 3);
+        if (isZero(top) && isZero(right) && isZero(bottom) && isZero(left)) {
+            return Padding.NONE;
+        }
+        return Padding.of(top, right, bottom, left);
+    }
+
+    /**
+     * Parses a border-width shorthand of 1 to 4 lengths. {@link Border} holds a single
+     * width, so the widest side is returned; an {@code em} side counts as 16px when
+     * compared with a side in pixels. Percentages are not valid border widths.
+     *
+     * @param value the CSS value
+     * @return the widest side in pixels or {@code em}, {@link CssLength#ZERO} if the value
+     *         is invalid
+     */
+    static CssLength parseBorderWidth(CharSequence value) {
+        long sides = parseSides(value);
+        if (sides == INVALID_SIDES) {
+            return CssLength.ZERO;
+        }
+        CssLength widest = CssLength.ZERO;
+        float widestPx = 0;
+        for (int i = 0; i < 4; i++) {
+            CssLength side = side(value, sides, i);
+            if (side.getUnit() == CssLength.Unit.PERCENT) {
+                continue;
+            }
+            float px = side.getUnit() == CssLength.Unit.EM ? side.getValue() * PX_PER_EM_ESTIMATE : side.getValue();
+            if (px > widestPx) {
+                widest = side;
+                widestPx = px;
+            }
+        }
+        return widest;
+    }
+
+    // finds the start offsets of 1 to 4 tokens, or INVALID_SIDES
+    private static long parseSides(CharSequence value) {
+        int length = value.length();
+        long packed = 0;
+        int count = 0;
+        int i = skipWhitespace(value, 0, length);
+        while (i < length) {
+            if (count == 4 || i > MAX_OFFSET) {
+                return INVALID_SIDES;
+            }
+            packed |= (long) i << (count * OFFSET_BITS);
+            count++;
+            i = skipWhitespace(value, tokenEnd(value, i, length), length);
+        }
+        if (count == 0) {
+            return INVALID_SIDES;
+        }
+        return packed | ((long) count << (4 * OFFSET_BITS));
+    }
+
+    // gets a side (0 top, 1 right, 2 bottom, 3 left) following CSS expansion rules, in
+    // pixels unless it is relative
+    private static CssLength side(CharSequence value, long sides, int side) {
+        int count = (int) (sides >>> (4 * OFFSET_BITS));
+        int token;
+        if (count == 1) {
+            token = 0;
+        } else if (count == 2) {
+            token = side % 2;
+        } else if (count == 3) {
+            token = side == 3 ? 1 : side;
+        } else {
+            token = side;
+        }
+        int start = (int) (sides >>> (token * OFFSET_BITS)) & MAX_OFFSET;
+        return toPixels(lengthOf(value, start, tokenEnd(value, start, value.length())));
+    }
+
+    // converts an absolute length to pixels; em and percentages are returned as they are
+    private static CssLength toPixels(CssLength length) {
+        float value = length.getValue();
+        switch (length.getUnit()) {
+            case PT:
+                return pixels(value * PX_PER_INCH / 72f);
+            case CM:
+                return pixels(value * PX_PER_INCH / 2.54f);
+            case MM:
+                return pixels(value * PX_PER_INCH / 25.4f);
+            case INCH:
+                return pixels(value * PX_PER_INCH);
+            default:
+                return length;
+        }
+    }
+
+    private static CssLength pixels(float value) {
+        int whole = (int) value;
+        return whole == value && whole >= 0 && whole < COMMON_LENGTHS ? COMMON_PX[whole]
+                : CssLength.of(value, CssLength.Unit.PX);
+    }
+
+    private static boolean isZero(CssLength length) {
+        return length.getValue() == 0;
+    }
+
+    // parses the length in value[start, end)
+    private static CssLength lengthOf(CharSequence value, int start, int end) {
+        int numberEnd = NumberScanner.numberEnd(value, start, end);
+        float number = NumberScanner.parseNumber(value, start, numberEnd);
+        if (Float.isNaN(number)) {
+            return CssLength.ZERO;
+        }
+        CssLength.Unit unit = parseUnit(value, numberEnd, end);
+        if (unit == null || number == 0) {
+            return CssLength.ZERO;
+        }
+        int whole = (int) number;
+        if (whole == number && whole > 0 && whole < COMMON_LENGTHS) {
+            if (unit == CssLength.Unit.PX) {
+                return COMMON_PX[whole];
+            } else if (unit == CssLength.Unit.PT) {
+                return COMMON_PT[whole];
+            }
+        }
+        return CssLength.of(number, unit);
+    }
+
+    // parses a unit suffix, case-insensitive; an empty suffix means pixels
+    private static CssLength.Unit parseUnit(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return CssLength.Unit.PX;
+        }
+        if (length == 1) {
+            return value.charAt(start) == '%' ? CssLength.Unit.PERCENT : null;
+        }
+        if (length != 2) {
+            return null;
+        }
+        char first = NumberScanner.toLowerAscii(value.charAt(start));
+        char second = NumberScanner.toLowerAscii(value.charAt(start + 1));
+        switch (first) {
+            case 'p':
+                return second == 'x' ? CssLength.Unit.PX : second == 't' ? CssLength.Unit.PT : null;
+            case 'e':
+                return second == 'm' ? CssLength.Unit.EM : null;
+            case 'c':
+                return second == 'm' ? CssLength.Unit.CM : null;
+            case 'm':
+                return second == 'm' ? CssLength.Unit.MM : null;
+            case 'i':
+                return second == 'n' ? CssLength.Unit.INCH : null;
+            default:
+                return null;
+        }
+    }
+
+    private static int skipWhitespace(CharSequence value, int from, int end) {
+        int i = from;
+        while (i < end && NumberScanner.isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(CharSequence value, int start, int end) {
+        int i = end;
+        while (i > start && NumberScanner.isWhitespace(value.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int tokenEnd(CharSequence value, int from, int end) {
+        int i = from;
+        while (i < end && !NumberScanner.isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,273 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.utils.ColorUtils;
+
+/**
+ * Declarations decoded into (property id, parsed value) slots. Blocks of stylesheet rules
+ * are built once at compile time, so applying a rule is a loop over int ids that copies
+ * ready values into the style, without string handling. Properties the cascade does not
+ * understand are dropped while decoding.
+ * <p>
+ * Colors are stored in {@code ints} and every other value (lengths, boxes, enums,
+ * strings) in {@code values}. Blocks are immutable.
+ */
+final class DeclarationBlock {
+    static final DeclarationBlock EMPTY = new DeclarationBlock(new int[0], new int[0], new Object[0]);
+
+    private final int[] propertyIds;
+    private final int[] ints;
+    private final Object[] values;
+
+    private DeclarationBlock(int[] propertyIds, int[] ints, Object[] values) {
+        this.propertyIds = propertyIds;
+        this.ints = ints;
+        this.values = values;
+    }
+
+    /**
+     * Decodes the declarations of a rule that have the given priority.
+     *
+     * @param declarations the rule declarations
+     * @param important    true for the !important declarations, false for the others
+     * @return decoded block, EMPTY if nothing applies
+     */
+    static DeclarationBlock decode(List<StyleDeclaration> declarations, boolean important) {
+        Builder builder = new Builder(declarations.size());
+        for (StyleDeclaration declaration : declarations) {
+            if (declaration.isImportant() == important) {
+                builder.add(declaration.getProperty(), declaration.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes inline style declarations that have the given priority.
+     *
+     * @param inlineStyles the inline styles of an element
+     * @param important    true for values ending with !important, false for the others
+     * @return decoded block, EMPTY if nothing applies
+     */
+    static DeclarationBlock decodeInline(Map<String, String> inlineStyles, boolean important) {
+        Builder builder = new Builder(inlineStyles.size());
+        for (Map.Entry<String, String> entry : inlineStyles.entrySet()) {
+            String value = entry.getValue();
+            if (StyleDeclaration.isImportantValue(value) == important) {
+                builder.add(entry.getKey(), important ? StyleDeclaration.stripImportant(value) : value);
+            }
+        }
+        return builder.build();
+    }
+
+    int size() {
+        return propertyIds.length;
+    }
+
+    boolean isEmpty() {
+        return propertyIds.length == 0;
+    }
+
+    // copies the decoded values into a style, in declaration order
+    void applyTo(ComputedStyle style) {
+        for (int i = 0; i < propertyIds.length; i++) {
+            switch (propertyIds[i]) {
+                case StyleProperty.FONT_FAMILY:
+                    style.setFontFamily((String) values[i]);
+                    break;
+                case StyleProperty.FONT_SIZE:
+                    style.setFontSize((CssLength) values[i]);
+                    break;
+                case StyleProperty.FONT_WEIGHT:
+                    style.setFontWeight((FontWeight) values[i]);
+                    break;
+                case StyleProperty.FONT_STYLE:
+                    style.setFontStyle((FontStyle) values[i]);
+                    break;
+                case StyleProperty.COLOR:
+                    style.setColorArgb(ints[i]);
+                    break;
+                case StyleProperty.WIDTH:
+                    style.setWidth((CssLength) values[i]);
+                    break;
+                case StyleProperty.HEIGHT:
+                    style.setHeight((CssLength) values[i]);
+                    break;
+                case StyleProperty.MIN_WIDTH:
+                    style.setMinWidth((CssLength) values[i]);
+                    break;
+                case StyleProperty.MAX_WIDTH:
+                    style.setMaxWidth((CssLength) values[i]);
+                    break;
+                case StyleProperty.MARGIN:
+                    style.setMargin((Margin) values[i]);
+                    break;
+                case StyleProperty.PADDING:
+                    style.setPadding((Padding) values[i]);
+                    break;
+                case StyleProperty.BORDER:
+                    style.setBorder((Border) values[i]);
+                    break;
+                case StyleProperty.BORDER_WIDTH: {
+                    Border border = style.getBorder();
+                    CssLength width = (CssLength) values[i];
+                    style.setBorder(Border.of(width.getValue(), width.getUnit(), border.getStyle(),
+                            border.getColorArgb()));
+                    break;
+                }
+                case StyleProperty.BORDER_STYLE: {
+                    Border border = style.getBorder();
+                    style.setBorder(Border.of(border.getWidth(), border.getWidthUnit(), (String) values[i],
+                            border.getColorArgb()));
+                    break;
+                }
+                case StyleProperty.BORDER_COLOR: {
+                    Border border = style.getBorder();
+                    style.setBorder(Border.of(border.getWidth(), border.getWidthUnit(), border.getStyle(), ints[i]));
+                    break;
+                }
+                case StyleProperty.BACKGROUND_COLOR:
+                    style.setBackgroundColorArgb(ints[i]);
+                    break;
+                case StyleProperty.TEXT_ALIGN:
+                    style.setTextAlign((TextAlign) values[i]);
+                    break;
+                case StyleProperty.TEXT_DECORATION:
+                    style.setTextDecoration((TextDecoration) values[i]);
+                    break;
+                case StyleProperty.LINE_HEIGHT:
+                    style.setLineHeight((CssLength) values[i]);
+                    break;
+                case StyleProperty.POSITION:
+                    style.setPosition((PositionType) values[i]);
+                    break;
+                case StyleProperty.TOP:
+                    style.setTop((CssLength) values[i]);
+                    break;
+                case StyleProperty.RIGHT:
+                    style.setRight((CssLength) values[i]);
+                    break;
+                case StyleProperty.BOTTOM:
+                    style.setBottom((CssLength) values[i]);
+                    break;
+                case StyleProperty.LEFT:
+                    style.setLeft((CssLength) values[i]);
+                    break;
+                case StyleProperty.DISPLAY:
+                    style.setDisplay((String) values[i]);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Decodes declarations one at a time.
+     */
+    static final class Builder {
+        private int[] propertyIds;
+        private int[] ints;
+        private Object[] values;
+        private int size;
+
+        Builder(int capacity) {
+            int initial = Math.max(1, capacity);
+            propertyIds = new int[initial];
+            ints = new int[initial];
+            values = new Object[initial];
+        }
+
+        // decodes a declaration, returns false if the property is not supported
+        boolean add(String property, String value) {
+            int id = StyleProperty.idOf(property);
+            if (id == StyleProperty.UNKNOWN || value == null) {
+                return false;
+            }
+            if (size == propertyIds.length) {
+                propertyIds = Arrays.copyOf(propertyIds, size * 2);
+                ints = Arrays.copyOf(ints, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            propertyIds[size] = id;
+            switch (id) {
+                case StyleProperty.FONT_FAMILY:
+                    values[size] = value;
+                    break;
+                case StyleProperty.FONT_SIZE:
+                case StyleProperty.WIDTH:
+                case StyleProperty.HEIGHT:
+                case StyleProperty.MIN_WIDTH:
+                case StyleProperty.MAX_WIDTH:
+                    values[size] = CssValueParser.parseLength(value);
+                    break;
+                case StyleProperty.FONT_WEIGHT:
+                    values[size] = StyleProperty.parseFontWeight(value);
+                    break;
+                case StyleProperty.FONT_STYLE:
+                    values[size] = StyleProperty.parseFontStyle(value);
+                    break;
+                case StyleProperty.COLOR:
+                case StyleProperty.BACKGROUND_COLOR:
+                case StyleProperty.BORDER_COLOR:
+                    ints[size] = ColorUtils.parseArgb(value);
+                    break;
+                case StyleProperty.MARGIN:
+                    values[size] = CssValueParser.parseMargin(value);
+                    break;
+                case StyleProperty.PADDING:
+                    values[size] = CssValueParser.parsePadding(value);
+                    break;
+                case StyleProperty.BORDER:
+                    values[size] = StyleProperty.parseBorder(value);
+                    break;
+                case StyleProperty.BORDER_WIDTH:
+                    values[size] = StyleProperty.parseBorderWidth(value);
+                    break;
+                case StyleProperty.BORDER_STYLE:
+                    if (!StyleProperty.isBorderStyle(value.trim())) {
+                        return false;
+                    }
+                    values[size] = value.trim().toLowerCase(Locale.ROOT);
+                    break;
+                case StyleProperty.TEXT_ALIGN:
+                    values[size] = TextAlign.fromString(value.trim());
+                    break;
+                case StyleProperty.TEXT_DECORATION:
+                    values[size] = StyleProperty.parseTextDecoration(value);
+                    break;
+                case StyleProperty.LINE_HEIGHT:
+                    values[size] = StyleProperty.parseLineHeight(value);
+                    break;
+                case StyleProperty.POSITION:
+                    values[size] = StyleProperty.parsePosition(value);
+                    break;
+                case StyleProperty.TOP:
+                case StyleProperty.RIGHT:
+                case StyleProperty.BOTTOM:
+                case StyleProperty.LEFT:
+                    values[size] = StyleProperty.parseOffset(value);
+                    break;
+                case StyleProperty.DISPLAY:
+                    values[size] = value.trim().toLowerCase(Locale.ROOT);
+                    break;
+                default:
+                    return false;
+            }
+            size++;
+            return true;
+        }
+
+        DeclarationBlock build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new DeclarationBlock(Arrays.copyOf(propertyIds, size), Arrays.copyOf(ints, size),
+                    Arrays.copyOf(values, size));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package mg.bici.htmltojrxml.css;
+
+/**
+ * Represents font style.
+ */
+public enum FontStyle {
+    NORMAL, ITALIC, OBLIQUE
+}
@@ -0,0 +1,8 @@
+package mg.bici.htmltojrxml.css;
+
+/**
+ * Represents font weight.
+ */
+public enum FontWeight {
+    NORMAL, BOLD, LIGHTER, BOLDER
+}
@@ -0,0 +1,95 @@
+package mg.bici.htmltojrxml.css;
+
+import mg.bici.htmltojrxml.utils.Color;
+import mg.bici.htmltojrxml.utils.LruInternPool;
+
+/**
+ * Read-only computed style, safe to share across elements and threads. Equality is
+ * by value.
+ * <p>
+ * Instances are interned in a bounded pool that evicts the least recently used styles,
+ * so equal styles are usually the same object and {@code ==} is a fast path for
+ * {@link #equals(Object)}. A style evicted while still referenced stays valid, but an
+ * equal style built later is another object: code comparing styles must fall back to
+ * {@code equals}, and may only rely on identity as a shortcut.
+ */
+public final class ImmutableComputedStyle implements ComputedStyleView {
+    private static final LruInternPool<ImmutableComputedStyle> POOL = new LruInternPool<>(16384);
+
+    private final ComputedStyle values; // private copy, never modified
+    private final int hash;
+
+    private ImmutableComputedStyle(ComputedStyle source) {
+        this.values = new ComputedStyle(source);
+        this.hash = values.valuesHash();
+    }
+
+    // gets the canonical immutable style with the values of source
+    static ImmutableComputedStyle intern(ComputedStyle source) {
+        return POOL.intern(new ImmutableComputedStyle(source));
+    }
+
+    /**
+     * Tells whether two styles have the same values, comparing by identity first.
+     *
+     * @param a a style, may be null
+     * @param b another style, may be null
+     * @return true if both are null or equal
+     */
+    public static boolean same(ImmutableComputedStyle a, ImmutableComputedStyle b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    /**
+     * Creates a builder pre-filled with the values of this style.
+     *
+     * @return style builder
+     */
+    public ComputedStyle.Builder toBuilder() {
+        return new ComputedStyle.Builder(new ComputedStyle(values));
+    }
+
+    @Override
+    public ImmutableComputedStyle toImmutable() {
+        return this;
+    }
+
+    @Override public CssLength getWidth() { return values.getWidth(); }
+    @Override public CssLength getHeight() { return values.getHeight(); }
+    @Override public CssLength getMinWidth() { return values.getMinWidth(); }
+    @Override public CssLength getMaxWidth() { return values.getMaxWidth(); }
+    @Override public PositionType getPosition() { return values.getPosition(); }
+    @Override public CssLength getTop() { return values.getTop(); }
+    @Override public CssLength getRight() { return values.getRight(); }
+    @Override public CssLength getBottom() { return values.getBottom(); }
+    @Override public CssLength getLeft() { return values.getLeft(); }
+    @Override public CssLength getZIndex() { return values.getZIndex(); }
+    @Override public String getFontFamily() { return values.getFontFamily(); }
+    @Override public CssLength getFontSize() { return values.getFontSize(); }
+    @Override public FontWeight getFontWeight() { return values.getFontWeight(); }
+    @Override public FontStyle getFontStyle() { return values.getFontStyle(); }
+    @Override public Color getColor() { return values.getColor(); }
+    @Override public int getColorArgb() { return values.getColorArgb(); }
+    @Override public Padding getPadding() { return values.getPadding(); }
+    @Override public Margin getMargin() { return values.getMargin(); }
+    @Override public Border getBorder() { return values.getBorder(); }
+    @Override public Color getBackgroundColor() { return values.getBackgroundColor(); }
+    @Override public int getBackgroundColorArgb() { return values.getBackgroundColorArgb(); }
+    @Override public TextAlign getTextAlign() { return values.getTextAlign(); }
+    @Override public TextDecoration getTextDecoration() { return values.getTextDecoration(); }
+    @Override public CssLength getLineHeight() { return values.getLineHeight(); }
+    @Override public String getDisplay() { return values.getDisplay(); }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImmutableComputedStyle)) return false;
+        ImmutableComputedStyle other = (ImmutableComputedStyle) o;
+        return hash == other.hash && values.hasSameValues(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,75 @@
+package mg.bici.htmltojrxml.css;
+
+import mg.bici.htmltojrxml.utils.InternPool;
+
+/**
+ * Represents margin box model. Each side keeps its unit: pixels, or {@code em} and
+ * percentages, which only the layout can resolve against the font size and the width
+ * of the containing block. Absolute units are converted to pixels when parsed.
+ */
+public class Margin {
+    private static final InternPool<Margin> POOL = new InternPool<>(1024);
+
+    static final Margin NONE = of(0, 0, 0, 0);
+
+    private final float top, right, bottom, left;
+    private final CssLength.Unit topUnit, rightUnit, bottomUnit, leftUnit;
+
+    public Margin(float top, float right, float bottom, float left) {
+        this(top, CssLength.Unit.PX, right, CssLength.Unit.PX, bottom, CssLength.Unit.PX,
+                left, CssLength.Unit.PX);
+    }
+
+    private Margin(float top, CssLength.Unit topUnit, float right, CssLength.Unit rightUnit,
+                   float bottom, CssLength.Unit bottomUnit, float left, CssLength.Unit leftUnit) {
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.left = left;
+        this.topUnit = topUnit;
+        this.rightUnit = rightUnit;
+        this.bottomUnit = bottomUnit;
+        this.leftUnit = leftUnit;
+    }
+
+    // gets the canonical instance for the given sides in pixels
+    static Margin of(float top, float right, float bottom, float left) {
+        return POOL.intern(new Margin(top, right, bottom, left));
+    }
+
+    // gets the canonical instance for the given sides
+    static Margin of(CssLength top, CssLength right, CssLength bottom, CssLength left) {
+        return POOL.intern(new Margin(top.getValue(), top.getUnit(), right.getValue(), right.getUnit(),
+                bottom.getValue(), bottom.getUnit(), left.getValue(), left.getUnit()));
+    }
+
+    public float getTop() { return top; }
+    public float getRight() { return right; }
+    public float getBottom() { return bottom; }
+    public float getLeft() { return left; }
+    public CssLength.Unit getTopUnit() { return topUnit; }
+    public CssLength.Unit getRightUnit() { return rightUnit; }
+    public CssLength.Unit getBottomUnit() { return bottomUnit; }
+    public CssLength.Unit getLeftUnit() { return leftUnit; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Margin other = (Margin) o;
+        return Float.compare(top, other.top) == 0 && Float.compare(right, other.right) == 0
+                && Float.compare(bottom, other.bottom) == 0 && Float.compare(left, other.left) == 0
+                && topUnit == other.topUnit && rightUnit == other.rightUnit
+                && bottomUnit == other.bottomUnit && leftUnit == other.leftUnit;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Float.floatToIntBits(top);
+        h = 31 * h + Float.floatToIntBits(right);
+        h = 31 * h + Float.floatToIntBits(bottom);
+        h = 31 * h + Float.floatToIntBits(left);
+        return 31 * h + ((topUnit.ordinal() << 12) | (rightUnit.ordinal() << 8)
+                | (bottomUnit.ordinal() << 4) | leftUnit.ordinal());
+    }
+}
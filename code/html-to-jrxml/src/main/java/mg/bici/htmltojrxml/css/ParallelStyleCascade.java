@@ -0,0 +1,176 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+/**
+ * Runs the style cascade over element trees on a fork/join pool.
+ * Siblings are split into tasks by subtree size; a task at or below the threshold
+ * runs the sequential cascade with its own style sharing cache. Styles are immutable
+ * values, so the result equals the one of the sequential cascade whatever the task split.
+ */
+class ParallelStyleCascade {
+    private final CssStyleAnalyzer analyzer;
+    private final CompiledStylesheet stylesheet;
+    private final int threshold;
+    private final Map<HtmlElement, ImmutableComputedStyle> styles;
+    private Map<HtmlElement, Integer> subtreeSizes;
+
+    ParallelStyleCascade(CssStyleAnalyzer analyzer, CompiledStylesheet stylesheet, int threshold) {
+        this.analyzer = analyzer;
+        this.stylesheet = stylesheet;
+        this.threshold = Math.max(1, threshold);
+        this.styles = new ConcurrentHashMap<>();
+    }
+
+    // computes styles of all trees and waits for completion
+    Map<HtmlElement, ImmutableComputedStyle> run(List<HtmlElement> roots, ForkJoinPool pool) {
+        subtreeSizes = computeSubtreeSizes(roots);
+        pool.invoke(new CascadeTask(roots, 0, roots.size(), AncestorFilter.forStylesheet(stylesheet)));
+        return styles;
+    }
+
+    // counts the elements of every subtree with an iterative post-order walk
+    private static Map<HtmlElement, Integer> computeSubtreeSizes(List<HtmlElement> roots) {
+        Map<HtmlElement, Integer> sizes = new IdentityHashMap<>();
+        Deque<HtmlElement> pending = new ArrayDeque<>(roots);
+        Deque<HtmlElement> postOrder = new ArrayDeque<>();
+        while (!pending.isEmpty()) {
+            HtmlElement element = pending.pop();
+            postOrder.push(element);
+            if (element.hasChildren()) {
+                for (HtmlElement child : element.getChildren()) {
+                    pending.push(child);
+                }
+            }
+        }
+        while (!postOrder.isEmpty()) {
+            HtmlElement element = postOrder.pop();
+            int size = 1;
+            if (element.hasChildren()) {
+                for (HtmlElement child : element.getChildren()) {
+                    size += sizes.get(child);
+                }
+            }
+            sizes.put(element, size);
+        }
+        return sizes;
+    }
+
+    // counts the elements of a range of siblings and their subtrees
+    private long sizeOf(List<HtmlElement> siblings, int from, int to) {
+        long size = 0;
+        for (int i = from; i < to; i++) {
+            size += subtreeSizes.get(siblings.get(i));
+        }
+        return size;
+    }
+
+    // finds the sibling index splitting a range into two halves of similar size
+    private int splitIndex(List<HtmlElement> siblings, int from, int to, long size) {
+        long half = 0;
+        for (int i = from; i < to - 1; i++) {
+            half += subtreeSizes.get(siblings.get(i));
+            if (half * 2 >= size) {
+                return i + 1;
+            }
+        }
+        return to - 1;
+    }
+
+    /**
+     * Computes styles for a range of siblings and their subtrees.
+     * <p>
+     * A task loops rather than recursing: it forks the smaller half of an oversized
+     * range and keeps the larger one, and walks down a single oversized subtree itself.
+     * A deep chain of elements thus costs no stack, and since every forked task is at
+     * most half the size of its parent range, joins nest only logarithmically.
+     */
+    private class CascadeTask extends RecursiveAction {
+        private final List<HtmlElement> siblings;
+        private final int from;
+        private final int to;
+        private final AncestorFilter filter; // null, or holds the ancestors of the siblings
+
+        CascadeTask(List<HtmlElement> siblings, int from, int to, AncestorFilter filter) {
+            this.siblings = siblings;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            List<CascadeTask> forked = new ArrayList<>();
+            StyleSharingCache sharingCache = new StyleSharingCache(stylesheet);
+            List<HtmlElement> siblings = this.siblings;
+            int from = this.from;
+            int to = this.to;
+            while (from < to) {
+                long size = sizeOf(siblings, from, to);
+                if (size <= threshold) {
+                    cascade(siblings, from, to, sharingCache);
+                    break;
+                }
+                if (to - from > 1) {
+                    int middle = splitIndex(siblings, from, to, size);
+                    boolean keepFirst = sizeOf(siblings, from, middle) * 2 >= size;
+                    int otherFrom = keepFirst ? middle : from;
+                    int otherTo = keepFirst ? to : middle;
+                    if (sizeOf(siblings, otherFrom, otherTo) <= threshold) {
+                        // not worth a task
+                        cascade(siblings, otherFrom, otherTo, sharingCache);
+                    } else {
+                        CascadeTask task = new CascadeTask(siblings, otherFrom, otherTo,
+                                filter == null ? null : filter.copy());
+                        task.fork();
+                        forked.add(task);
+                    }
+                    if (keepFirst) {
+                        to = middle;
+                    } else {
+                        from = middle;
+                    }
+                    continue;
+                }
+                // one large subtree: style its root, then continue with its children
+                HtmlElement element = siblings.get(from);
+                ImmutableComputedStyle parentStyle = element.getParent() == null ? null
+                        : styles.get(element.getParent());
+                styles.put(element, analyzer.computeSharedStyle(element, parentStyle, stylesheet,
+                        sharingCache, filter));
+                if (!element.hasChildren()) {
+                    break;
+                }
+                if (filter != null) {
+                    filter.push(element);
+                }
+                siblings = element.getChildren();
+                from = 0;
+                to = siblings.size();
+            }
+            for (CascadeTask task : forked) {
+                task.join();
+            }
+        }
+
+        // styles a range of siblings sequentially, leaving the filter on their parent
+        private void cascade(List<HtmlElement> siblings, int from, int to, StyleSharingCache sharingCache) {
+            for (int i = from; i < to; i++) {
+                analyzer.cascadeSubtree(siblings.get(i), stylesheet, sharingCache, styles, filter);
+            }
+            if (filter != null) {
+                filter.moveTo(siblings.get(from).getParent());
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package mg.bici.htmltojrxml.css;
+
+/**
+ * Represents a position type.
+ */
+public enum PositionType {
+    STATIC, RELATIVE, ABSOLUTE, FIXED
+}
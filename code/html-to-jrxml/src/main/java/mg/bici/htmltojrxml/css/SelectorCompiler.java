@@ -0,0 +1,229 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles CSS selector text into immutable matcher trees.
+ * Supports type, universal, id, class and attribute ([name], [name=value]) selectors
+ * combined with descendant and child combinators.
+ */
+public class SelectorCompiler {
+    private static final String[] NO_STRINGS = new String[0];
+
+    /**
+     * Compiles a selector group (e.g., "h1, h2 > span") into one matcher per selector.
+     *
+     * @param selectorText the selector group
+     * @return compiled selectors in source order
+     */
+    public List<CompiledSelector> compileList(String selectorText) {
+        List<CompiledSelector> selectors = new ArrayList<>();
+        int start = 0;
+        int depth = 0;
+        for (int i = 0; i < selectorText.length(); i++) {
+            char c = selectorText.charAt(i);
+            if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                addIfNotBlank(selectors, selectorText.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addIfNotBlank(selectors, selectorText.substring(start));
+        return selectors;
+    }
+
+    /**
+     * Compiles a single selector (e.g., "div > p span").
+     *
+     * @param selector the selector text
+     * @return compiled selector, flagged as unsupported if it uses unknown syntax
+     */
+    public CompiledSelector compile(String selector) {
+        String text = selector.trim();
+        List<CompoundSelector> compounds = new ArrayList<>();
+        List<Combinator> combinators = new ArrayList<>();
+        Scanner scanner = new Scanner(text);
+        boolean supported = !text.isEmpty();
+        while (supported && scanner.hasMore()) {
+            CompoundSelector compound = parseCompound(scanner);
+            if (compound == null) {
+                supported = false;
+                break;
+            }
+            compounds.add(compound);
+            boolean whitespace = scanner.skipWhitespace();
+            if (!scanner.hasMore()) {
+                break;
+            }
+            char c = scanner.peek();
+            if (c == '>') {
+                scanner.next();
+                scanner.skipWhitespace();
+                combinators.add(Combinator.CHILD);
+            } else if (c == '+' || c == '~' || c == ',') {
+                supported = false;
+            } else if (whitespace) {
+                combinators.add(Combinator.DESCENDANT);
+            } else {
+                supported = false;
+            }
+        }
+        if (!supported || compounds.isEmpty() || combinators.size() != compounds.size() - 1) {
+            return unsupported(text);
+        }
+        // store right to left so matching starts with the subject element
+        int count = compounds.size();
+        CompoundSelector[] compoundArray = new CompoundSelector[count];
+        Combinator[] combinatorArray = new Combinator[count - 1];
+        for (int i = 0; i < count; i++) {
+            compoundArray[i] = compounds.get(count - 1 - i);
+        }
+        for (int i = 0; i < count - 1; i++) {
+            combinatorArray[i] = combinators.get(count - 2 - i);
+        }
+        return new CompiledSelector(text, compoundArray, combinatorArray, true);
+    }
+
+    private void addIfNotBlank(List<CompiledSelector> selectors, String selector) {
+        if (!selector.trim().isEmpty()) {
+            selectors.add(compile(selector));
+        }
+    }
+
+    // parses one compound selector, returns null on unsupported syntax
+    private CompoundSelector parseCompound(Scanner scanner) {
+        String tag = null;
+        String id = null;
+        List<String> classes = null;
+        List<String> attributeNames = null;
+        List<String> attributeValues = null;
+        boolean empty = true;
+
+        char first = scanner.peek();
+        if (first == '*') {
+            scanner.next();
+            empty = false;
+        } else if (isNameChar(first)) {
+            tag = scanner.readName().toLowerCase(Locale.ROOT);
+            empty = false;
+        }
+        while (scanner.hasMore()) {
+            char c = scanner.peek();
+            if (c == '#') {
+                scanner.next();
+                id = scanner.readName();
+                if (id.isEmpty()) return null;
+            } else if (c == '.') {
+                scanner.next();
+                String className = scanner.readName();
+                if (className.isEmpty()) return null;
+                if (classes == null) classes = new ArrayList<>();
+                classes.add(className);
+            } else if (c == '[') {
+                scanner.next();
+                scanner.skipWhitespace();
+                String name = scanner.readName().toLowerCase(Locale.ROOT);
+                scanner.skipWhitespace();
+                String value = null;
+                if (name.isEmpty() || !scanner.hasMore()) return null;
+                if (scanner.peek() == '=') {
+                    scanner.next();
+                    scanner.skipWhitespace();
+                    value = scanner.readValue();
+                    if (value == null) return null;
+                    scanner.skipWhitespace();
+                }
+                if (!scanner.hasMore() || scanner.next() != ']') return null;
+                if (attributeNames == null) {
+                    attributeNames = new ArrayList<>();
+                    attributeValues = new ArrayList<>();
+                }
+                attributeNames.add(name);
+                attributeValues.add(value);
+            } else {
+                break;
+            }
+            empty = false;
+        }
+        if (empty) {
+            return null;
+        }
+        return new CompoundSelector(tag, id, toArray(classes), toArray(attributeNames), toArray(attributeValues));
+    }
+
+    private static String[] toArray(List<String> values) {
+        return values == null ? NO_STRINGS : values.toArray(new String[0]);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    private CompiledSelector unsupported(String text) {
+        return new CompiledSelector(text, new CompoundSelector[0], new Combinator[0], false);
+    }
+
+    /**
+     * Cursor over selector text.
+     */
+    private static class Scanner {
+        private final String text;
+        private int position;
+
+        Scanner(String text) {
+            this.text = text;
+        }
+
+        boolean hasMore() {
+            return position < text.length();
+        }
+
+        char peek() {
+            return text.charAt(position);
+        }
+
+        char next() {
+            return text.charAt(position++);
+        }
+
+        boolean skipWhitespace() {
+            int start = position;
+            while (hasMore() && Character.isWhitespace(peek())) {
+                position++;
+            }
+            return position > start;
+        }
+
+        String readName() {
+            int start = position;
+            while (hasMore() && isNameChar(peek())) {
+                position++;
+            }
+            return text.substring(start, position);
+        }
+
+        // reads a quoted or bare attribute value
+        String readValue() {
+            if (!hasMore()) {
+                return null;
+            }
+            char quote = peek();
+            if (quote == '"' || quote == '\'') {
+                int end = text.indexOf(quote, position + 1);
+                if (end < 0) {
+                    return null;
+                }
+                String value = text.substring(position + 1, end);
+                position = end + 1;
+                return value;
+            }
+            String value = readName();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package mg.bici.htmltojrxml.css;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import mg.bici.htmltojrxml.html.HtmlElement;
 
 /**
  * Matches CSS selectors to HTML elements.
  */
 public class SelectorMatcher {
+    private static final int MAX_CACHED_SELECTORS = 4096;
+
+    private final SelectorCompiler compiler;
+    private final Map<String, CompiledSelector> compiledSelectors;
+
+    public SelectorMatcher() {
+        this.compiler = new SelectorCompiler();
+        this.compiledSelectors = new ConcurrentHashMap<>();
+    }
+
     /**
      * Checks if an element matches a selector.
      *
@@ -14,15 +27,35 @@ public class SelectorMatcher {
      * @return true if matches
      */
     public boolean matches(HtmlElement element, String selector) {
-        if (selector.contains(">")) {
-            return matchesChildSelector(element, selector);
-        }
-        String[] parts = selector.trim().split("\\s+");
-        if (parts.length > 1) {
-            // handle descendant selector
-            return matchesDescendantSelector(element, selector);
+        return compile(selector).matches(element);
+    }
+
+    /**
+     * Checks if an element matches a pre-compiled selector.
+     *
+     * @param element  the HTML element
+     * @param selector the compiled selector
+     * @return true if matches
+     */
+    public boolean matches(HtmlElement element, CompiledSelector selector) {
+        return selector.matches(element);
+    }
+
+    /**
+     * Compiles a selector, reusing previously compiled selectors.
+     *
+     * @param selector the CSS selector
+     * @return compiled selector
+     */
+    public CompiledSelector compile(String selector) {
+        CompiledSelector compiled = compiledSelectors.get(selector);
+        if (compiled == null) {
+            compiled = compiler.compile(selector);
+            if (compiledSelectors.size() < MAX_CACHED_SELECTORS) {
+                compiledSelectors.put(selector, compiled);
+            }
         }
-        return matchesSimpleSelector(element, parts[0]);
+        return compiled;
     }
 
     /**
@@ -33,15 +66,7 @@ public class SelectorMatcher {
      * @return true if matches
      */
     public boolean matchesSimpleSelector(HtmlElement element, String selector) {
-        if (selector.startsWith("#")) {
-            return matchesIdSelector(element, selector.substring(1));
-        } else if (selector.startsWith(".")) {
-            return matchesClassSelector(element, selector.substring(1));
-        } else if (selector.contains("[")) {
-            return matchesAttributeSelector(element, selector);
-        } else {
-            return element.getTagName().equalsIgnoreCase(selector);
-        }
+        return compile(selector).matches(element);
     }
 
     /**
@@ -52,18 +77,7 @@ public class SelectorMatcher {
      * @return true if matches
      */
     public boolean matchesDescendantSelector(HtmlElement element, String selector) {
-        String[] parts = selector.trim().split("\\s+");
-        HtmlElement current = element;
-        for (int i = parts.length - 1; i >= 0; i--) {
-            if (!matchesSimpleSelector(current, parts[i])) {
-                return false;
-            }
-            current = current.getParent();
-            if (current == null && i > 0) {
-                return false;
-            }
-        }
-        return true;
+        return compile(selector).matches(element);
     }
 
     /**
@@ -74,11 +88,7 @@ public class SelectorMatcher {
      * @return true if matches
      */
     public boolean matchesChildSelector(HtmlElement element, String selector) {
-        String[] parts = selector.trim().split("\\s*>\\s*");
-        if (parts.length != 2) return false;
-        if (!matchesSimpleSelector(element, parts[1].trim())) return false;
-        HtmlElement parent = element.getParent();
-        return parent != null && matchesSimpleSelector(parent, parts[0].trim());
+        return compile(selector).matches(element);
     }
 
     /**
@@ -111,7 +121,6 @@ public class SelectorMatcher {
      * @return true if matches
      */
     public boolean matchesAttributeSelector(HtmlElement element, String selector) {
-        String attribute = selector.replaceAll("\\[|\\]", "");
-        return element.getAttributes().containsKey(attribute);
+        return compile(selector).matches(element);
     }
 }
\ No newline at end of file
@@ -0,0 +1,254 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.utils.ColorUtils;
+import mg.bici.htmltojrxml.utils.NumberScanner;
+
+/**
+ * Ids of the CSS properties the cascade understands, and the decoding of their values.
+ * Values are decoded once, when a stylesheet is compiled, into the slots of a
+ * {@link DeclarationBlock}; applying a block then switches on the int id only.
+ */
+final class StyleProperty {
+    static final int UNKNOWN = -1;
+
+    static final int FONT_FAMILY = 0;
+    static final int FONT_SIZE = 1;
+    static final int FONT_WEIGHT = 2;
+    static final int FONT_STYLE = 3;
+    static final int COLOR = 4;
+    static final int WIDTH = 5;
+    static final int HEIGHT = 6;
+    static final int MIN_WIDTH = 7;
+    static final int MAX_WIDTH = 8;
+    static final int MARGIN = 9;
+    static final int PADDING = 10;
+    static final int BORDER = 11;
+    static final int BORDER_WIDTH = 12;
+    static final int BORDER_STYLE = 13;
+    static final int BORDER_COLOR = 14;
+    static final int BACKGROUND_COLOR = 15;
+    static final int TEXT_ALIGN = 16;
+    static final int TEXT_DECORATION = 17;
+    static final int LINE_HEIGHT = 18;
+    static final int POSITION = 19;
+    static final int TOP = 20;
+    static final int RIGHT = 21;
+    static final int BOTTOM = 22;
+    static final int LEFT = 23;
+    static final int DISPLAY = 24;
+
+    private static final CssLength THIN_BORDER_WIDTH = CssLength.of(1, CssLength.Unit.PX);
+    private static final CssLength MEDIUM_BORDER_WIDTH = CssLength.of(3, CssLength.Unit.PX);
+    private static final CssLength THICK_BORDER_WIDTH = CssLength.of(5, CssLength.Unit.PX);
+
+    private static final Map<String, Integer> IDS = new HashMap<>();
+
+    static {
+        IDS.put("font-family", FONT_FAMILY);
+        IDS.put("font-size", FONT_SIZE);
+        IDS.put("font-weight", FONT_WEIGHT);
+        IDS.put("font-style", FONT_STYLE);
+        IDS.put("color", COLOR);
+        IDS.put("width", WIDTH);
+        IDS.put("height", HEIGHT);
+        IDS.put("min-width", MIN_WIDTH);
+        IDS.put("max-width", MAX_WIDTH);
+        IDS.put("margin", MARGIN);
+        IDS.put("padding", PADDING);
+        IDS.put("border", BORDER);
+        IDS.put("border-width", BORDER_WIDTH);
+        IDS.put("border-style", BORDER_STYLE);
+        IDS.put("border-color", BORDER_COLOR);
+        IDS.put("background-color", BACKGROUND_COLOR);
+        IDS.put("text-align", TEXT_ALIGN);
+        IDS.put("text-decoration", TEXT_DECORATION);
+        IDS.put("line-height", LINE_HEIGHT);
+        IDS.put("position", POSITION);
+        IDS.put("top", TOP);
+        IDS.put("right", RIGHT);
+        IDS.put("bottom", BOTTOM);
+        IDS.put("left", LEFT);
+        IDS.put("display", DISPLAY);
+    }
+
+    private StyleProperty() {
+    }
+
+    /**
+     * Gets the id of a property name.
+     *
+     * @param property the property name, in any case
+     * @return property id, or UNKNOWN if the cascade ignores the property
+     */
+    static int idOf(String property) {
+        Integer id = IDS.get(property);
+        if (id == null) {
+            id = IDS.get(property.trim().toLowerCase(Locale.ROOT));
+        }
+        return id != null ? id : UNKNOWN;
+    }
+
+    // parses a font-weight keyword or number, numeric weights from 600 are bold
+    static FontWeight parseFontWeight(String value) {
+        String keyword = value.trim().toLowerCase(Locale.ROOT);
+        switch (keyword) {
+            case "bold":
+            case "bolder":
+                return FontWeight.BOLD;
+            case "lighter":
+                return FontWeight.LIGHTER;
+            default:
+                float weight = NumberScanner.parseNumber(keyword, 0, keyword.length());
+                return !Float.isNaN(weight) && weight >= 600 ? FontWeight.BOLD : FontWeight.NORMAL;
+        }
+    }
+
+    static FontStyle parseFontStyle(String value) {
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "italic":
+                return FontStyle.ITALIC;
+            case "oblique":
+                return FontStyle.OBLIQUE;
+            default:
+                return FontStyle.NORMAL;
+        }
+    }
+
+    // reads the first decoration line keyword, other parts (color, style) are ignored
+    static TextDecoration parseTextDecoration(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        if (lower.contains("underline")) {
+            return TextDecoration.UNDERLINE;
+        }
+        if (lower.contains("line-through")) {
+            return TextDecoration.LINE_THROUGH;
+        }
+        if (lower.contains("overline")) {
+            return TextDecoration.OVERLINE;
+        }
+        return TextDecoration.NONE;
+    }
+
+    static PositionType parsePosition(String value) {
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "relative":
+                return PositionType.RELATIVE;
+            case "absolute":
+                return PositionType.ABSOLUTE;
+            case "fixed":
+                return PositionType.FIXED;
+            default:
+                return PositionType.STATIC;
+        }
+    }
+
+    // parses line-height; unitless numbers are multiples of the font size
+    static CssLength parseLineHeight(String value) {
+        String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("normal")) {
+            return CssLength.DEFAULT_LINE_HEIGHT;
+        }
+        if (NumberScanner.numberEnd(trimmed, 0, trimmed.length()) == trimmed.length()) {
+            float number = NumberScanner.parseNumber(trimmed, 0, trimmed.length());
+            if (!Float.isNaN(number)) {
+                return CssLength.of(number, CssLength.Unit.EM);
+            }
+        }
+        return CssValueParser.parseLength(trimmed);
+    }
+
+    // parses an offset (top, right, bottom, left), auto is null
+    static CssLength parseOffset(String value) {
+        return value.trim().equalsIgnoreCase("auto") ? null : CssValueParser.parseLength(value);
+    }
+
+    /**
+     * Parses the border shorthand ({@code 1px solid #ccc}) into a border. Missing parts
+     * take their initial value: medium width, style none, black.
+     *
+     * @param value the CSS value
+     * @return canonical border
+     */
+    static Border parseBorder(String value) {
+        CssLength width = MEDIUM_BORDER_WIDTH;
+        String style = "none";
+        int color = Border.NONE.getColorArgb();
+        int end = value.length();
+        int i = 0;
+        while (i < end) {
+            while (i < end && NumberScanner.isWhitespace(value.charAt(i))) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            int tokenEnd = i;
+            int depth = 0;
+            while (tokenEnd < end && (depth > 0 || !NumberScanner.isWhitespace(value.charAt(tokenEnd)))) {
+                char c = value.charAt(tokenEnd++);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                }
+            }
+            String token = value.substring(i, tokenEnd);
+            CssLength keywordWidth = borderWidthKeyword(token);
+            if (keywordWidth != null) {
+                width = keywordWidth;
+            } else if (isBorderStyle(token)) {
+                style = token.toLowerCase(Locale.ROOT);
+            } else if (startsNumber(token.charAt(0))) {
+                width = CssValueParser.parseBorderWidth(token);
+            } else {
+                color = ColorUtils.parseArgb(token);
+            }
+            i = tokenEnd;
+        }
+        return Border.of(width.getValue(), width.getUnit(), style, color);
+    }
+
+    static CssLength parseBorderWidth(String value) {
+        CssLength keywordWidth = borderWidthKeyword(value.trim());
+        return keywordWidth == null ? CssValueParser.parseBorderWidth(value) : keywordWidth;
+    }
+
+    static boolean isBorderStyle(String token) {
+        switch (token.toLowerCase(Locale.ROOT)) {
+            case "none":
+            case "hidden":
+            case "solid":
+            case "dashed":
+            case "dotted":
+            case "double":
+            case "groove":
+            case "ridge":
+            case "inset":
+            case "outset":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static CssLength borderWidthKeyword(String token) {
+        switch (token.toLowerCase(Locale.ROOT)) {
+            case "thin":
+                return THIN_BORDER_WIDTH;
+            case "medium":
+                return MEDIUM_BORDER_WIDTH;
+            case "thick":
+                return THICK_BORDER_WIDTH;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean startsNumber(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+';
+    }
+}
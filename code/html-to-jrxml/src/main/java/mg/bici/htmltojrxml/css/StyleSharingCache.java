@@ -0,0 +1,145 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.html.SymbolTable;
+
+/**
+ * Lets elements that are styled identically reuse one computed style, the way browsers
+ * share styles between table cells. Two elements share a style when they have the same
+ * tag, class set, inline styles, values for the attributes used by selectors, and the
+ * same parent style (or the same parent element when the stylesheet uses combinators,
+ * since ancestors then affect matching).
+ * <p>
+ * A cache is meant for a single cascade pass and is not thread-safe.
+ */
+public class StyleSharingCache {
+    private final CompiledStylesheet stylesheet;
+    private final Map<SharingKey, ImmutableComputedStyle> styles;
+    private int hitCount;
+    private int missCount;
+
+    public StyleSharingCache(CompiledStylesheet stylesheet) {
+        this.stylesheet = stylesheet;
+        this.styles = new HashMap<>();
+    }
+
+    /**
+     * Builds the sharing key of an element.
+     *
+     * @param element     the HTML element
+     * @param parentStyle the computed style of the parent, or null for a root
+     * @return sharing key, or null if the element cannot share its style
+     */
+    SharingKey keyFor(HtmlElement element, ImmutableComputedStyle parentStyle) {
+        String id = element.getId();
+        if (id != null && !id.isEmpty() && stylesheet.hasIdRule(id)) {
+            return null;
+        }
+        String[] attributeNames = stylesheet.getAttributeDependencies();
+        String[] attributeValues = new String[attributeNames.length];
+        for (int i = 0; i < attributeNames.length; i++) {
+            attributeValues[i] = element.getAttribute(attributeNames[i], null);
+        }
+        Object parentToken = stylesheet.hasCombinators() ? element.getParent() : parentStyle;
+        Set<String> classes = element.hasClasses() ? new HashSet<>(element.getClasses()) : Collections.emptySet();
+        Map<String, String> inlineStyles = element.hasInlineStyles() ? element.getInlineStyles() : Collections.emptyMap();
+        return new SharingKey(element.getTagSymbol(), element.getTagName(), classes, inlineStyles,
+                attributeValues, parentToken);
+    }
+
+    /**
+     * Gets the shared style for a key.
+     *
+     * @param key the sharing key, may be null
+     * @return shared style, or null on a miss
+     */
+    ImmutableComputedStyle get(SharingKey key) {
+        if (key == null) {
+            return null;
+        }
+        ImmutableComputedStyle style = styles.get(key);
+        if (style != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return style;
+    }
+
+    // stores a computed style so later elements with the same key can reuse it
+    void put(SharingKey key, ImmutableComputedStyle style) {
+        if (key != null) {
+            styles.put(key, style);
+        }
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    public int size() {
+        return styles.size();
+    }
+}
+
+/**
+ * Key identifying elements that resolve to the same computed style.
+ */
+final class SharingKey {
+    private final int tagSymbol;
+    private final String tagName; // only kept for tags without a symbol
+    private final Set<String> classes;
+    private final Map<String, String> inlineStyles;
+    private final String[] attributeValues;
+    private final Object parentToken;
+    private final int hash;
+
+    SharingKey(int tagSymbol, String tagName, Set<String> classes, Map<String, String> inlineStyles,
+               String[] attributeValues, Object parentToken) {
+        this.tagSymbol = tagSymbol;
+        this.tagName = tagSymbol != SymbolTable.NO_SYMBOL || tagName == null ? null
+                : tagName.toLowerCase(Locale.ROOT);
+        this.classes = classes;
+        this.inlineStyles = inlineStyles;
+        this.attributeValues = attributeValues;
+        this.parentToken = parentToken;
+        int h = this.tagName == null ? tagSymbol : this.tagName.hashCode();
+        h = 31 * h + classes.hashCode();
+        h = 31 * h + inlineStyles.hashCode();
+        h = 31 * h + Arrays.hashCode(attributeValues);
+        h = 31 * h + System.identityHashCode(parentToken);
+        this.hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SharingKey)) return false;
+        SharingKey other = (SharingKey) o;
+        // parent identity, not equality, decides sharing
+        return hash == other.hash
+                && parentToken == other.parentToken
+                && tagSymbol == other.tagSymbol
+                && (tagName == null ? other.tagName == null : tagName.equals(other.tagName))
+                && classes.equals(other.classes)
+                && inlineStyles.equals(other.inlineStyles)
+                && Arrays.equals(attributeValues, other.attributeValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
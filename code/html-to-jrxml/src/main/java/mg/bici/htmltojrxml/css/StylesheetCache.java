@@ -0,0 +1,113 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import mg.bici.htmltojrxml.utils.HashUtils;
+
+/**
+ * Bounded LRU cache of compiled stylesheets keyed by a SHA-256 hash of the CSS content.
+ * Cached stylesheets are immutable and can be shared by concurrent requests.
+ */
+public class StylesheetCache {
+    public static final int DEFAULT_MAX_ENTRIES = 32;
+
+    private static final StylesheetCache SHARED = new StylesheetCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final Map<String, CompiledStylesheet> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public StylesheetCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        // access-ordered map gives LRU eviction
+        this.entries = new LinkedHashMap<String, CompiledStylesheet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledStylesheet> eldest) {
+                if (size() > StylesheetCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the cache shared by analyzers created without an explicit cache.
+     *
+     * @return shared cache
+     */
+    public static StylesheetCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the compiled stylesheet for some CSS content, compiling it on a miss.
+     * Compilation runs outside the cache lock; if two threads miss on the same
+     * content, the first stored result wins.
+     *
+     * @param cssContent the CSS content
+     * @param compiler   compiles CSS content on a cache miss
+     * @return compiled stylesheet
+     */
+    public CompiledStylesheet get(String cssContent, Function<String, CompiledStylesheet> compiler) {
+        String key = HashUtils.sha256Hex(cssContent);
+        CompiledStylesheet compiled;
+        synchronized (entries) {
+            compiled = entries.get(key);
+        }
+        if (compiled != null) {
+            hits.incrementAndGet();
+            return compiled;
+        }
+        misses.incrementAndGet();
+        CompiledStylesheet created = compiler.apply(cssContent);
+        synchronized (entries) {
+            compiled = entries.get(key);
+            if (compiled == null) {
+                entries.put(key, created);
+                compiled = created;
+            }
+        }
+        return compiled;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all cached stylesheets. Counters are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
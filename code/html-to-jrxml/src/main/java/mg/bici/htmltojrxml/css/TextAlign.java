@@ -0,0 +1,18 @@
+package mg.bici.htmltojrxml.css;
+
+import java.util.Locale;
+
+/**
+ * Represents text alignment.
+ */
+public enum TextAlign {
+    LEFT, RIGHT, CENTER, JUSTIFY;
+
+    public static TextAlign fromString(String value) {
+        try {
+            return TextAlign.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return LEFT; // default
+        }
+    }
+}
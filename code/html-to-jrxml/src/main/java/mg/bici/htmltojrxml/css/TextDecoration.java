@@ -0,0 +1,8 @@
+package mg.bici.htmltojrxml.css;
+
+/**
+ * Represents text decoration.
+ */
+public enum TextDecoration {
+    NONE, UNDERLINE, OVERLINE, LINE_THROUGH
+}
@@ -0,0 +1,349 @@
+package mg.bici.htmltojrxml.html;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memory-compact element tree for large documents. Nodes are indices into parallel
+ * arrays (parent, first child, next sibling, tag), names are symbol ids shared through
+ * one {@link SymbolTable}, and the classes, attributes and inline styles of all nodes
+ * are packed into a few flat arrays. A node costs a few dozen bytes instead of the five
+ * or more objects of an {@link HtmlElement}.
+ * <p>
+ * {@link #getElement(int)} exposes a node as a read-only {@link HtmlElement} view. Views
+ * are created on first access and canonical, so they can be used as identity keys.
+ * A built document is immutable and can be read by several threads.
+ */
+public final class CompactDocument {
+    public static final int NO_NODE = -1;
+
+    private final SymbolTable symbols;
+    private final int size;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] tag;
+    private final String[] ids;
+    private final String[] texts;
+    private final int firstRoot;
+
+    // per node ranges into the packed arrays: node i owns [offsets[i], offsets[i + 1])
+    private final int[] classOffsets;
+    private final int[] classSymbols;
+    private final int[] attributeOffsets;
+    private final int[] attributeNames;
+    private final String[] attributeValues;
+    private final int[] styleOffsets;
+    private final int[] styleNames;
+    private final String[] styleValues;
+
+    // document symbol id -> HtmlSymbols id of the lower-cased tag name; only set for
+    // symbols used as tags, so class and attribute names stay out of the global table
+    private final int[] sharedTagSymbols;
+
+    private final AtomicReferenceArray<CompactHtmlElement> views;
+
+    private CompactDocument(Builder builder) {
+        int n = builder.size;
+        this.symbols = builder.symbols;
+        this.size = n;
+        this.parent = Arrays.copyOf(builder.parent, n);
+        this.firstChild = Arrays.copyOf(builder.firstChild, n);
+        this.nextSibling = Arrays.copyOf(builder.nextSibling, n);
+        this.tag = Arrays.copyOf(builder.tag, n);
+        this.ids = Arrays.copyOf(builder.ids, n);
+        this.texts = Arrays.copyOf(builder.texts, n);
+        this.firstRoot = builder.firstRoot;
+        this.classOffsets = Arrays.copyOf(builder.classOffsets, n + 1);
+        this.classSymbols = Arrays.copyOf(builder.classSymbols, builder.classCount);
+        this.attributeOffsets = Arrays.copyOf(builder.attributeOffsets, n + 1);
+        this.attributeNames = Arrays.copyOf(builder.attributeNames, builder.attributeCount);
+        this.attributeValues = Arrays.copyOf(builder.attributeValues, builder.attributeCount);
+        this.styleOffsets = Arrays.copyOf(builder.styleOffsets, n + 1);
+        this.styleNames = Arrays.copyOf(builder.styleNames, builder.styleCount);
+        this.styleValues = Arrays.copyOf(builder.styleValues, builder.styleCount);
+        this.sharedTagSymbols = new int[symbols.size()];
+        Arrays.fill(sharedTagSymbols, SymbolTable.NO_SYMBOL);
+        for (int node = 0; node < n; node++) {
+            int symbol = tag[node];
+            if (symbol != SymbolTable.NO_SYMBOL && sharedTagSymbols[symbol] == SymbolTable.NO_SYMBOL) {
+                sharedTagSymbols[symbol] = HtmlSymbols.internTag(symbols.nameOf(symbol));
+            }
+        }
+        this.views = new AtomicReferenceArray<>(n);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the top-level elements as views.
+     *
+     * @return root elements in document order
+     */
+    public List<HtmlElement> getRoots() {
+        List<HtmlElement> roots = new ArrayList<>();
+        for (int node = firstRoot; node != NO_NODE; node = nextSibling[node]) {
+            roots.add(getElement(node));
+        }
+        return roots;
+    }
+
+    /**
+     * Gets the canonical read-only view of a node.
+     *
+     * @param node the node index
+     * @return element view
+     */
+    public HtmlElement getElement(int node) {
+        CompactHtmlElement view = views.get(node);
+        if (view == null) {
+            view = new CompactHtmlElement(this, node);
+            if (!views.compareAndSet(node, null, view)) {
+                view = views.get(node);
+            }
+        }
+        return view;
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int getFirstRoot() {
+        return firstRoot;
+    }
+
+    public int getTagSymbol(int node) {
+        return tag[node];
+    }
+
+    public String getTagName(int node) {
+        return symbols.nameOf(tag[node]);
+    }
+
+    public String getId(int node) {
+        return ids[node];
+    }
+
+    public String getText(int node) {
+        return texts[node];
+    }
+
+    int sharedTagSymbol(int node) {
+        int symbol = tag[node];
+        return symbol == SymbolTable.NO_SYMBOL ? SymbolTable.NO_SYMBOL : sharedTagSymbols[symbol];
+    }
+
+    int classStart(int node) {
+        return classOffsets[node];
+    }
+
+    int classEnd(int node) {
+        return classOffsets[node + 1];
+    }
+
+    int classSymbol(int slot) {
+        return classSymbols[slot];
+    }
+
+    int attributeStart(int node) {
+        return attributeOffsets[node];
+    }
+
+    int attributeEnd(int node) {
+        return attributeOffsets[node + 1];
+    }
+
+    int attributeName(int slot) {
+        return attributeNames[slot];
+    }
+
+    String attributeValue(int slot) {
+        return attributeValues[slot];
+    }
+
+    int styleStart(int node) {
+        return styleOffsets[node];
+    }
+
+    int styleEnd(int node) {
+        return styleOffsets[node + 1];
+    }
+
+    int styleName(int slot) {
+        return styleNames[slot];
+    }
+
+    String styleValue(int slot) {
+        return styleValues[slot];
+    }
+
+    /**
+     * Appends nodes in document order. As an {@link HtmlElementVisitor} it can be fed
+     * directly by the streaming parser, so the full {@link HtmlElement} tree never exists.
+     * Not thread-safe.
+     */
+    public static class Builder implements HtmlElementVisitor {
+        private final SymbolTable symbols = new SymbolTable(Integer.MAX_VALUE);
+        private int size;
+        private int[] parent = new int[256];
+        private int[] firstChild = new int[256];
+        private int[] lastChild = new int[256];
+        private int[] nextSibling = new int[256];
+        private int[] tag = new int[256];
+        private String[] ids = new String[256];
+        private String[] texts = new String[256];
+        private int firstRoot = NO_NODE;
+        private int lastRoot = NO_NODE;
+
+        private int[] classOffsets = new int[257];
+        private int[] classSymbols = new int[256];
+        private int classCount;
+        private int[] attributeOffsets = new int[257];
+        private int[] attributeNames = new int[256];
+        private String[] attributeValues = new String[256];
+        private int attributeCount;
+        private int[] styleOffsets = new int[257];
+        private int[] styleNames = new int[64];
+        private String[] styleValues = new String[64];
+        private int styleCount;
+
+        private int[] openNodes = new int[64];
+        private int depth;
+
+        /**
+         * Appends a node as the last child of a parent.
+         *
+         * @param parentNode   the parent index, or NO_NODE for a root
+         * @param tagName      the tag name
+         * @param id           the id, may be null
+         * @param classes      the class names
+         * @param attributes   the attributes
+         * @param inlineStyles the inline style declarations
+         * @param text         the own text, may be null
+         * @return index of the new node
+         */
+        public int add(int parentNode, String tagName, String id, List<String> classes,
+                       Map<String, String> attributes, Map<String, String> inlineStyles, String text) {
+            int node = size;
+            ensureNodeCapacity(node + 1);
+            parent[node] = parentNode;
+            firstChild[node] = NO_NODE;
+            lastChild[node] = NO_NODE;
+            nextSibling[node] = NO_NODE;
+            tag[node] = symbols.intern(tagName);
+            ids[node] = id == null || id.isEmpty() ? null : id;
+            texts[node] = text == null || text.isEmpty() ? null : text;
+
+            if (parentNode == NO_NODE) {
+                if (lastRoot == NO_NODE) {
+                    firstRoot = node;
+                } else {
+                    nextSibling[lastRoot] = node;
+                }
+                lastRoot = node;
+            } else {
+                if (lastChild[parentNode] == NO_NODE) {
+                    firstChild[parentNode] = node;
+                } else {
+                    nextSibling[lastChild[parentNode]] = node;
+                }
+                lastChild[parentNode] = node;
+            }
+
+            for (String className : classes) {
+                if (classCount == classSymbols.length) {
+                    classSymbols = Arrays.copyOf(classSymbols, classCount * 2);
+                }
+                classSymbols[classCount++] = symbols.intern(className);
+            }
+            classOffsets[node + 1] = classCount;
+
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                if (attributeCount == attributeNames.length) {
+                    attributeNames = Arrays.copyOf(attributeNames, attributeCount * 2);
+                    attributeValues = Arrays.copyOf(attributeValues, attributeCount * 2);
+                }
+                attributeNames[attributeCount] = symbols.intern(attribute.getKey());
+                attributeValues[attributeCount++] = attribute.getValue();
+            }
+            attributeOffsets[node + 1] = attributeCount;
+
+            for (Map.Entry<String, String> style : inlineStyles.entrySet()) {
+                if (styleCount == styleNames.length) {
+                    styleNames = Arrays.copyOf(styleNames, styleCount * 2);
+                    styleValues = Arrays.copyOf(styleValues, styleCount * 2);
+                }
+                styleNames[styleCount] = symbols.intern(style.getKey());
+                styleValues[styleCount++] = style.getValue();
+            }
+            styleOffsets[node + 1] = styleCount;
+
+            size++;
+            return node;
+        }
+
+        @Override
+        public void startElement(HtmlElement element) {
+            int parentNode = depth == 0 ? NO_NODE : openNodes[depth - 1];
+            int node = add(parentNode, element.getTagName(), element.getId(),
+                    element.hasClasses() ? element.getClasses() : Collections.<String>emptyList(),
+                    element.hasAttributes() ? element.getAttributes() : Collections.<String, String>emptyMap(),
+                    element.hasInlineStyles() ? element.getInlineStyles() : Collections.<String, String>emptyMap(),
+                    element.getText());
+            if (depth == openNodes.length) {
+                openNodes = Arrays.copyOf(openNodes, depth * 2);
+            }
+            openNodes[depth++] = node;
+        }
+
+        @Override
+        public void endElement(HtmlElement element) {
+            depth--;
+        }
+
+        /**
+         * Creates the document, trimming the arrays to their used length.
+         *
+         * @return compact document
+         */
+        public CompactDocument build() {
+            return new CompactDocument(this);
+        }
+
+        private void ensureNodeCapacity(int capacity) {
+            if (capacity <= parent.length) {
+                return;
+            }
+            int grown = Math.max(capacity, parent.length * 2);
+            parent = Arrays.copyOf(parent, grown);
+            firstChild = Arrays.copyOf(firstChild, grown);
+            lastChild = Arrays.copyOf(lastChild, grown);
+            nextSibling = Arrays.copyOf(nextSibling, grown);
+            tag = Arrays.copyOf(tag, grown);
+            ids = Arrays.copyOf(ids, grown);
+            texts = Arrays.copyOf(texts, grown);
+            classOffsets = Arrays.copyOf(classOffsets, grown + 1);
+            attributeOffsets = Arrays.copyOf(attributeOffsets, grown + 1);
+            styleOffsets = Arrays.copyOf(styleOffsets, grown + 1);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package mg.bici.htmltojrxml.html;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only {@link HtmlElement} view of one node of a {@link CompactDocument}.
+ * Scalar getters read the document arrays. Collections are built once, on first use,
+ * as unmodifiable views cached in the element, and absent collections are the shared
+ * empty ones. Setters and add/put methods throw {@link UnsupportedOperationException}
+ * ({@link #isReadOnly()} is true).
+ * <p>
+ * The document hands out one view per node, so the cache is built at most once per node.
+ * The cached fields are volatile: a view may be read by several cascade threads, and two
+ * threads racing on a first access only build equal collections.
+ */
+final class CompactHtmlElement extends HtmlElement {
+    private final CompactDocument document;
+    private final int node;
+    private volatile List<String> classes;
+    private volatile Map<String, String> attributes;
+    private volatile List<HtmlElement> children;
+    private volatile Map<String, String> inlineStyles;
+
+    CompactHtmlElement(CompactDocument document, int node) {
+        this.document = document;
+        this.node = node;
+    }
+
+    int getNode() {
+        return node;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean hasText() {
+        String text = document.getText(node);
+        return text != null && !text.trim().isEmpty();
+    }
+
+    @Override
+    public boolean hasChildren() {
+        return document.getFirstChild(node) != CompactDocument.NO_NODE;
+    }
+
+    @Override
+    public boolean hasClasses() {
+        return document.classEnd(node) > document.classStart(node);
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return document.attributeEnd(node) > document.attributeStart(node);
+    }
+
+    @Override
+    public boolean hasInlineStyles() {
+        return document.styleEnd(node) > document.styleStart(node);
+    }
+
+    @Override
+    public String getAttribute(String name, String defaultValue) {
+        int symbol = document.getSymbols().lookup(name);
+        if (symbol == SymbolTable.NO_SYMBOL) {
+            return defaultValue;
+        }
+        for (int slot = document.attributeStart(node); slot < document.attributeEnd(node); slot++) {
+            if (document.attributeName(slot) == symbol) {
+                return document.attributeValue(slot);
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public boolean hasClass(String className) {
+        int symbol = document.getSymbols().lookup(className);
+        if (symbol == SymbolTable.NO_SYMBOL) {
+            return false;
+        }
+        for (int slot = document.classStart(node); slot < document.classEnd(node); slot++) {
+            if (document.classSymbol(slot) == symbol) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getTagSymbol() {
+        return document.sharedTagSymbol(node);
+    }
+
+    @Override
+    public String getTagName() {
+        return document.getTagName(node);
+    }
+
+    @Override
+    public String getId() {
+        return document.getId(node);
+    }
+
+    @Override
+    public String getText() {
+        return document.getText(node);
+    }
+
+    @Override
+    public HtmlElement getParent() {
+        int parent = document.getParent(node);
+        return parent == CompactDocument.NO_NODE ? null : document.getElement(parent);
+    }
+
+    @Override
+    public List<String> getClasses() {
+        List<String> classes = this.classes;
+        if (classes == null) {
+            classes = buildClasses();
+            this.classes = classes;
+        }
+        return classes;
+    }
+
+    private List<String> buildClasses() {
+        int start = document.classStart(node);
+        int end = document.classEnd(node);
+        if (start == end) {
+            return Collections.emptyList();
+        }
+        List<String> classes = new ArrayList<>(end - start);
+        for (int slot = start; slot < end; slot++) {
+            classes.add(document.getSymbols().nameOf(document.classSymbol(slot)));
+        }
+        return Collections.unmodifiableList(classes);
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        Map<String, String> attributes = this.attributes;
+        if (attributes == null) {
+            attributes = buildAttributes();
+            this.attributes = attributes;
+        }
+        return attributes;
+    }
+
+    private Map<String, String> buildAttributes() {
+        int start = document.attributeStart(node);
+        int end = document.attributeEnd(node);
+        if (start == end) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> attributes = new HashMap<>();
+        for (int slot = start; slot < end; slot++) {
+            attributes.put(document.getSymbols().nameOf(document.attributeName(slot)), document.attributeValue(slot));
+        }
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    @Override
+    public List<HtmlElement> getChildren() {
+        List<HtmlElement> children = this.children;
+        if (children == null) {
+            children = buildChildren();
+            this.children = children;
+        }
+        return children;
+    }
+
+    private List<HtmlElement> buildChildren() {
+        int child = document.getFirstChild(node);
+        if (child == CompactDocument.NO_NODE) {
+            return Collections.emptyList();
+        }
+        List<HtmlElement> children = new ArrayList<>();
+        for (; child != CompactDocument.NO_NODE; child = document.getNextSibling(child)) {
+            children.add(document.getElement(child));
+        }
+        return Collections.unmodifiableList(children);
+    }
+
+    @Override
+    public Map<String, String> getInlineStyles() {
+        Map<String, String> inlineStyles = this.inlineStyles;
+        if (inlineStyles == null) {
+            inlineStyles = buildInlineStyles();
+            this.inlineStyles = inlineStyles;
+        }
+        return inlineStyles;
+    }
+
+    private Map<String, String> buildInlineStyles() {
+        int start = document.styleStart(node);
+        int end = document.styleEnd(node);
+        if (start == end) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> styles = new HashMap<>();
+        for (int slot = start; slot < end; slot++) {
+            styles.put(document.getSymbols().nameOf(document.styleName(slot)), document.styleValue(slot));
+        }
+        return Collections.unmodifiableMap(styles);
+    }
+
+    @Override
+    public void setTagName(String tagName) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setId(String id) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setClasses(List<String> classes) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setText(String text) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttributes(Map<String, String> attributes) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setChildren(List<HtmlElement> children) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setParent(HtmlElement parent) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setInlineStyles(Map<String, String> inlineStyles) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addClass(String className) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putAttribute(String name, String value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addChild(HtmlElement child) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putInlineStyle(String property, String value) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Elements of a CompactDocument are read-only");
+    }
+}
@@ -1,6 +1,10 @@
 package mg.bici.htmltojrxml.html;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,6 +12,9 @@ import java.util.Map;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
 import org.jsoup.select.Elements;
 
 import mg.bici.htmltojrxml.exceptions.ParsingException;
@@ -16,6 +23,8 @@ import mg.bici.htmltojrxml.exceptions.ParsingException;
  * Parses HTML content into a structured format for JRXML conversion.
  */
 public class HtmlDocumentParser {
+    private final HtmlTagBalanceValidator structureValidator = new HtmlTagBalanceValidator();
+
     /**
      * Parses HTML content into a ParsedDocument.
      *
@@ -24,12 +33,72 @@ public class HtmlDocumentParser {
      */
     public ParsedDocument parseHtml(String htmlContent) {
         try {
-            Document doc = Jsoup.parse(htmlContent);
             // basic validation for unclosed tags
-            validateHtmlStructure(doc, htmlContent);
+            structureValidator.validate(htmlContent);
+            Document doc = Jsoup.parse(htmlContent);
             Map<String, String> inlineStyles = extractInlineStyles(doc);
             List<HtmlElement> elements = extractElements(doc.body());
             return new ParsedDocument(elements, inlineStyles);
+        } catch (ParsingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ParsingException("Failed to parse HTML content", e);
+        }
+    }
+
+    /**
+     * Parses HTML from a reader and streams reportable elements to a visitor.
+     * Each top-level subtree is released from the parsed document once visited,
+     * and elements are not kept by the parser, so the visitor decides what stays in memory.
+     *
+     * @param reader  the HTML source
+     * @param visitor receives elements in document order
+     */
+    public void parseHtml(Reader reader, HtmlElementVisitor visitor) {
+        try {
+            Document doc = Parser.htmlParser().parseInput(reader, "");
+            streamElements(doc.body(), visitor);
+        } catch (ParsingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ParsingException("Failed to parse HTML content", e);
+        }
+    }
+
+    /**
+     * Parses HTML from a byte stream and streams reportable elements to a visitor.
+     *
+     * @param input       the HTML source
+     * @param charsetName the charset of the input, or null to detect it from the document
+     * @param visitor     receives elements in document order
+     */
+    public void parseHtml(InputStream input, String charsetName, HtmlElementVisitor visitor) {
+        try {
+            Document doc = Jsoup.parse(input, charsetName, "");
+            streamElements(doc.body(), visitor);
+        } catch (ParsingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ParsingException("Failed to parse HTML content", e);
+        }
+    }
+
+    /**
+     * Parses HTML content into a {@link CompactDocument}. Elements are streamed into the
+     * compact arrays, so the {@link HtmlElement} tree of {@link #parseHtml(String)} is never built.
+     *
+     * @param htmlContent the HTML content to parse
+     * @return compact document holding the reportable elements
+     */
+    public CompactDocument parseCompactHtml(String htmlContent) {
+        try {
+            structureValidator.validate(htmlContent);
+            Document doc = Jsoup.parse(htmlContent);
+            CompactDocument.Builder builder = new CompactDocument.Builder();
+            streamElements(doc.body(), builder);
+            return builder.build();
+        } catch (ParsingException e) {
+            throw e;
         } catch (Exception e) {
             throw new ParsingException("Failed to parse HTML content", e);
         }
@@ -42,13 +111,14 @@ public class HtmlDocumentParser {
      * @return list of HtmlElement objects
      */
     public List<HtmlElement> extractElements(Element body) {
-        List<HtmlElement> elements = new ArrayList<>();
-        for (Element element : body.children()) {
-            if (isReportableElement(element)) {
-                elements.add(createHtmlElement(element, 0));
+        TreeBuildingVisitor builder = new TreeBuildingVisitor();
+        for (int i = 0; i < body.childNodeSize(); i++) {
+            Node node = body.childNode(i);
+            if (node instanceof Element && isReportableElement((Element) node)) {
+                traverse((Element) node, builder, false);
             }
         }
-        return elements;
+        return builder.roots;
     }
 
     /**
@@ -77,26 +147,66 @@ public class HtmlDocumentParser {
      * @return true if reportable
      */
     public boolean isReportableElement(Element element) {
-        String tagName = element.tagName().toLowerCase();
+        String tagName = element.tagName();
         // exclude non-reportable tags
-        if (tagName.equals("script") || tagName.equals("style") || tagName.equals("meta") || tagName.equals("link")) {
+        if (tagName.equalsIgnoreCase("script") || tagName.equalsIgnoreCase("style")
+                || tagName.equalsIgnoreCase("meta") || tagName.equalsIgnoreCase("link")) {
             return false;
         }
-        // include elements with text, children, or non-block elements
-        return element.hasText() || element.children().size() > 0 || !element.isBlock();
+        // include elements with text, children, or non-block elements.
+        // any child element makes it reportable, so text only matters for leaves, where
+        // it is the element's own text: one scan of the direct child nodes is enough
+        boolean hasText = false;
+        for (int i = 0; i < element.childNodeSize(); i++) {
+            Node child = element.childNode(i);
+            if (child instanceof Element) {
+                return true;
+            }
+            if (!hasText && child instanceof TextNode && !((TextNode) child).isBlank()) {
+                hasText = true;
+            }
+        }
+        return hasText || !element.isBlock();
+    }
+
+    // visits body children one subtree at a time, dropping each from the document afterwards
+    private void streamElements(Element body, HtmlElementVisitor visitor) {
+        while (body.childNodeSize() > 0) {
+            Node node = body.childNode(0);
+            if (node instanceof Element && isReportableElement((Element) node)) {
+                traverse((Element) node, visitor, true);
+            }
+            node.remove();
+        }
     }
 
-    // creates HTML element with depth tracking
-    private HtmlElement createHtmlElement(Element element, int depth) {
-        HtmlElement htmlElement = HtmlElementFactory.createFromJsoupElement(element);
-        for (Element child : element.children()) {
-            if (isReportableElement(child)) {
-                HtmlElement childElement = createHtmlElement(child, depth + 1);
-                childElement.setParent(htmlElement);
-                htmlElement.getChildren().add(childElement);
+    // visits a subtree depth-first with an explicit stack, so nesting depth cannot overflow
+    // the call stack; when release is set, jsoup elements are emptied once they end
+    private void traverse(Element root, HtmlElementVisitor visitor, boolean release) {
+        Deque<TraversalFrame> stack = new ArrayDeque<>();
+        stack.push(startElement(root, null, visitor));
+        while (!stack.isEmpty()) {
+            TraversalFrame frame = stack.peek();
+            if (frame.nextChild < frame.source.childNodeSize()) {
+                Node child = frame.source.childNode(frame.nextChild++);
+                if (child instanceof Element && isReportableElement((Element) child)) {
+                    stack.push(startElement((Element) child, frame.element, visitor));
+                }
+            } else {
+                stack.pop();
+                visitor.endElement(frame.element);
+                if (release) {
+                    frame.source.empty();
+                }
             }
         }
-        return htmlElement;
+    }
+
+    private TraversalFrame startElement(Element source, HtmlElement parent, HtmlElementVisitor visitor) {
+        HtmlElement element = HtmlElementFactory.createFromJsoupElement(source);
+        element.setParent(parent);
+        visitor.startElement(element);
+        return new TraversalFrame(source, element);
     }
 
     // extracts text content
@@ -110,35 +220,38 @@ public class HtmlDocumentParser {
         element.attributes().forEach(attr -> attributes.put(attr.getKey(), attr.getValue()));
         return attributes;
     }
-
-    // validates HTML structure for unclosed tags
-    private void validateHtmlStructure(Document doc, String htmlContent) {
-        // count opening and closing tags in raw input
-        int openingTags = htmlContent.split("<[a-zA-Z]").length - 1;
-        int closingTags = htmlContent.split("</[a-zA-Z]").length - 1;
-        if (openingTags > closingTags) {
-            throw new ParsingException("Invalid HTML: Unclosed tags detected");
-        }
-    }
 }
 
 /**
- * Represents the parsed HTML document.
+ * Traversal state of one open element.
  */
-class ParsedDocument {
-    private final List<HtmlElement> elements;
-    private final Map<String, String> inlineStyles;
+class TraversalFrame {
+    final Element source;
+    final HtmlElement element;
+    int nextChild;
 
-    public ParsedDocument(List<HtmlElement> elements, Map<String, String> inlineStyles) {
-        this.elements = elements;
-        this.inlineStyles = inlineStyles;
+    TraversalFrame(Element source, HtmlElement element) {
+        this.source = source;
+        this.element = element;
     }
+}
 
-    public List<HtmlElement> getElements() {
-        return elements;
+/**
+ * Links visited elements into a tree and collects the roots.
+ */
+class TreeBuildingVisitor implements HtmlElementVisitor {
+    final List<HtmlElement> roots = new ArrayList<>();
+
+    @Override
+    public void startElement(HtmlElement element) {
+        if (element.getParent() == null) {
+            roots.add(element);
+        } else {
+            element.getParent().addChild(element);
+        }
     }
 
-    public Map<String, String> getInlineStyles() {
-        return inlineStyles;
+    @Override
+    public void endElement(HtmlElement element) {
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package mg.bici.htmltojrxml.html;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,10 +10,24 @@ import java.util.stream.Collectors;
 
 /**
  * Represents an HTML element with attributes, styles, and hierarchy.
+ * <p>
+ * Collections are allocated by the first {@code add}/{@code put} call or given to a
+ * setter, so elements without classes, attributes, children or inline styles carry none.
+ * Getters never allocate: an absent collection is returned as a shared empty, unmodifiable
+ * one, and elements are grown through the add/put methods below. A collection given to a
+ * setter is kept as is, and must be modifiable if add/put is called afterwards.
+ * <p>
+ * Setters and add/put methods are optional operations: read-only elements, such as the
+ * views of a {@link CompactDocument}, throw {@link UnsupportedOperationException} and
+ * answer true to {@link #isReadOnly()}.
+ * <p>
+ * The tag name is also kept as an {@link HtmlSymbols} id, which selector matching and the
+ * block/inline checks compare instead of strings.
  */
 public class HtmlElement {
-    
+
     private String tagName;
+    private int tagSymbol = SymbolTable.NO_SYMBOL;
     private String id;
     private List<String> classes;
     private String text;
@@ -22,10 +37,43 @@ public class HtmlElement {
     private Map<String, String> inlineStyles;
 
     public HtmlElement() {
-        classes = new ArrayList<>();
-        attributes = new HashMap<>();
-        children = new ArrayList<>();
-        inlineStyles = new HashMap<>();
+    }
+
+    // checks if setters and add/put methods are supported
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    // appends a class name
+    public void addClass(String className) {
+        if (classes == null) {
+            classes = new ArrayList<>();
+        }
+        classes.add(className);
+    }
+
+    // sets an attribute value
+    public void putAttribute(String name, String value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    // appends a child element; its parent is set separately
+    public void addChild(HtmlElement child) {
+        if (children == null) {
+            children = new ArrayList<>();
+        }
+        children.add(child);
+    }
+
+    // sets an inline style declaration
+    public void putInlineStyle(String property, String value) {
+        if (inlineStyles == null) {
+            inlineStyles = new HashMap<>();
+        }
+        inlineStyles.put(property, value);
     }
 
     // checks if element has text content
@@ -35,37 +83,58 @@ public class HtmlElement {
 
     // checks if element has children
     public boolean hasChildren() {
-        return !children.isEmpty();
+        return children != null && !children.isEmpty();
+    }
+
+    // checks if element has classes
+    public boolean hasClasses() {
+        return classes != null && !classes.isEmpty();
+    }
+
+    // checks if element has attributes
+    public boolean hasAttributes() {
+        return attributes != null && !attributes.isEmpty();
+    }
+
+    // checks if element has inline styles
+    public boolean hasInlineStyles() {
+        return inlineStyles != null && !inlineStyles.isEmpty();
     }
 
     // gets children by tag names
     public List<HtmlElement> getChildrenByTag(String... tags) {
+        if (!hasChildren()) {
+            return new ArrayList<>();
+        }
         List<String> tagList = Arrays.asList(tags);
-        return children.stream()
+        return getChildren().stream()
                 .filter(child -> tagList.contains(child.getTagName()))
                 .collect(Collectors.toList());
     }
 
     // gets attribute with default value
     public String getAttribute(String name, String defaultValue) {
-        return attributes.getOrDefault(name, defaultValue);
+        return attributes == null ? defaultValue : attributes.getOrDefault(name, defaultValue);
     }
 
     // checks if element has a specific class
     public boolean hasClass(String className) {
-        return classes.contains(className);
+        return classes != null && classes.contains(className);
     }
 
     // checks if element is a block element
     public boolean isBlock() {
-        String[] blockTags = {"div", "p", "h1", "h2", "h3", "h4", "h5", "h6", "ul", "ol", "li", "table"};
-        return Arrays.asList(blockTags).contains(tagName.toLowerCase());
+        return HtmlSymbols.isBlock(getTagSymbol());
     }
 
     // checks if element is an inline element
     public boolean isInline() {
-        String[] inlineTags = {"span", "a", "strong", "em", "b", "i", "img"};
-        return Arrays.asList(inlineTags).contains(tagName.toLowerCase());
+        return HtmlSymbols.isInline(getTagSymbol());
+    }
+
+    // gets the HtmlSymbols id of the lower-case tag name
+    public int getTagSymbol() {
+        return tagSymbol;
     }
 
     // getters and setters
@@ -75,6 +144,7 @@ public class HtmlElement {
 
     public void setTagName(String tagName) {
         this.tagName = tagName;
+        this.tagSymbol = HtmlSymbols.internTag(tagName);
     }
 
     public String getId() {
@@ -86,7 +156,7 @@ public class HtmlElement {
     }
 
     public List<String> getClasses() {
-        return classes;
+        return classes != null ? classes : Collections.emptyList();
     }
 
     public void setClasses(List<String> classes) {
@@ -102,7 +172,7 @@ public class HtmlElement {
     }
 
     public Map<String, String> getAttributes() {
-        return attributes;
+        return attributes != null ? attributes : Collections.emptyMap();
     }
 
     public void setAttributes(Map<String, String> attributes) {
@@ -110,7 +180,7 @@ public class HtmlElement {
     }
 
     public List<HtmlElement> getChildren() {
-        return children;
+        return children != null ? children : Collections.emptyList();
     }
 
     public void setChildren(List<HtmlElement> children) {
@@ -126,7 +196,7 @@ public class HtmlElement {
     }
 
     public Map<String, String> getInlineStyles() {
-        return inlineStyles;
+        return inlineStyles != null ? inlineStyles : Collections.emptyMap();
     }
 
     public void setInlineStyles(Map<String, String> inlineStyles) {
@@ -3,7 +3,9 @@ package mg.bici.htmltojrxml.html;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.jsoup.nodes.Element;
@@ -24,13 +26,24 @@ public class HtmlElementFactory {
         HtmlElement htmlElement = new HtmlElement();
         htmlElement.setTagName(element.tagName());
         htmlElement.setId(element.id());
-        htmlElement.setClasses(Arrays.asList(element.classNames().toArray(new String[0])));
+        // empty collections are left unset, HtmlElement allocates them on demand
+        Set<String> classNames = element.classNames();
+        if (!classNames.isEmpty()) {
+            String[] classes = new String[classNames.size()];
+            int i = 0;
+            for (String className : classNames) {
+                classes[i++] = className;
+            }
+            htmlElement.setClasses(Arrays.asList(classes));
+        }
         htmlElement.setText(element.ownText().trim());
         
         // extract attributes
-        Map<String, String> attributes = new HashMap<>();
-        element.attributes().forEach(attr -> attributes.put(attr.getKey(), attr.getValue()));
-        htmlElement.setAttributes(attributes);
+        if (element.attributes().size() > 0) {
+            Map<String, String> attributes = new HashMap<>();
+            element.attributes().forEach(attr -> attributes.put(attr.getKey(), attr.getValue()));
+            htmlElement.setAttributes(attributes);
+        }
         
         // extract inline styles
         String styleAttr = element.attr("style");
@@ -40,7 +53,7 @@ public class HtmlElementFactory {
             for (String pair : stylePairs) {
                 String[] parts = pair.split(":");
                 if (parts.length == 2) {
-                    inlineStyles.put(parts[0].trim().toLowerCase(), parts[1].trim());
+                    inlineStyles.put(parts[0].trim().toLowerCase(Locale.ROOT), parts[1].trim());
                 }
             }
             htmlElement.setInlineStyles(inlineStyles);
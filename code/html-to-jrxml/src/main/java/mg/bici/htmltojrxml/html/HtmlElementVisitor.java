@@ -0,0 +1,24 @@
+package mg.bici.htmltojrxml.html;
+
+/**
+ * Receives elements from the streaming parse mode of {@link HtmlDocumentParser}.
+ * Elements arrive in document order with their parent link set, but the parser
+ * does not add them to their parent's children: once {@link #endElement} returns,
+ * an element is only reachable if the visitor kept a reference to it.
+ */
+public interface HtmlElementVisitor {
+
+    /**
+     * Called when an element starts. Its ancestors are available through getParent().
+     *
+     * @param element the HTML element, without children
+     */
+    void startElement(HtmlElement element);
+
+    /**
+     * Called when an element and its whole subtree have been visited.
+     *
+     * @param element the HTML element
+     */
+    void endElement(HtmlElement element);
+}
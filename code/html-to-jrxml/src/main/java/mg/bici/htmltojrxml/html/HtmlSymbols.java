@@ -0,0 +1,63 @@
+package mg.bici.htmltojrxml.html;
+
+import java.util.Locale;
+
+/**
+ * Process-wide {@link SymbolTable} for tag names. Elements and compiled selectors intern
+ * their tag names here, so tag tests compare int ids and tag categories are bit tests.
+ * The block and inline tags are interned first, which keeps their ids below 64 and lets
+ * a single long hold each category.
+ * <p>
+ * Only tag names go here: the table lives as long as the process and never evicts, while
+ * class and attribute names are chosen by each document and would fill it. They are
+ * compared as strings (a {@link CompactDocument} keeps its own table for them). The table
+ * is bounded; tags arriving once it is full get {@link SymbolTable#NO_SYMBOL} and callers
+ * fall back to comparing strings.
+ */
+public final class HtmlSymbols {
+    static final int MAX_SYMBOLS = 1 << 16;
+
+    private static final String[] BLOCK_TAGS = {"div", "p", "h1", "h2", "h3", "h4", "h5", "h6", "ul", "ol", "li", "table"};
+    private static final String[] INLINE_TAGS = {"span", "a", "strong", "em", "b", "i", "img"};
+
+    private static final SymbolTable TABLE = new SymbolTable(MAX_SYMBOLS);
+    private static final long BLOCK_MASK = internAll(BLOCK_TAGS);
+    private static final long INLINE_MASK = internAll(INLINE_TAGS);
+
+    private HtmlSymbols() {
+    }
+
+    public static SymbolTable getTable() {
+        return TABLE;
+    }
+
+    /**
+     * Gets the id of a tag name, assigning one if needed. Tag names are case-insensitive.
+     *
+     * @param tagName the tag name
+     * @return symbol id of the lower-case name, or NO_SYMBOL if null or the table is full
+     */
+    public static int internTag(String tagName) {
+        return tagName == null ? SymbolTable.NO_SYMBOL : TABLE.intern(tagName.toLowerCase(Locale.ROOT));
+    }
+
+    public static boolean isBlock(int tagSymbol) {
+        return inMask(BLOCK_MASK, tagSymbol);
+    }
+
+    public static boolean isInline(int tagSymbol) {
+        return inMask(INLINE_MASK, tagSymbol);
+    }
+
+    private static boolean inMask(long mask, int symbol) {
+        return symbol >= 0 && symbol < 64 && (mask & (1L << symbol)) != 0;
+    }
+
+    private static long internAll(String[] tags) {
+        long mask = 0;
+        for (String tag : tags) {
+            mask |= 1L << TABLE.intern(tag);
+        }
+        return mask;
+    }
+}
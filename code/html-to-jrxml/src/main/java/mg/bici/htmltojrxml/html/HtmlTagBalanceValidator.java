@@ -0,0 +1,207 @@
+package mg.bici.htmltojrxml.html;
+
+import java.util.Arrays;
+
+import mg.bici.htmltojrxml.exceptions.ParsingException;
+
+/**
+ * Checks that every opened tag is closed, in a single linear scan of the raw HTML.
+ * Void elements (br, img, ...), self-closing tags, comments, CDATA sections,
+ * doctypes and the bodies of script and style elements are understood.
+ * <p>
+ * Closing tags are matched by name against the open tags. A closing tag matching an
+ * outer tag leaves the tags opened inside it unclosed; a closing tag matching no open
+ * tag is ignored, as the HTML parser does.
+ */
+public class HtmlTagBalanceValidator {
+    private static final String[] VOID_ELEMENTS = {
+        "area", "base", "br", "col", "embed", "hr", "img", "input",
+        "link", "meta", "param", "source", "track", "wbr"
+    };
+    private static final String[] RAW_TEXT_ELEMENTS = {"script", "style"};
+
+    /**
+     * Validates tag balance.
+     *
+     * @param html the raw HTML content
+     * @throws ParsingException with the line and column of the innermost unclosed tag
+     */
+    public void validate(CharSequence html) {
+        int length = html.length();
+        // stack of unclosed start tags: offset of the name and offset just past it
+        int[] nameStarts = new int[64];
+        int[] nameEnds = new int[64];
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c != '<' || i + 1 >= length) {
+                i++;
+                continue;
+            }
+            char next = html.charAt(i + 1);
+            if (startsWith(html, i, "<!--")) {
+                i = skipPast(html, i, i + 4, "-->", "comment");
+            } else if (startsWith(html, i, "<![CDATA[")) {
+                i = skipPast(html, i, i + 9, "]]>", "CDATA section");
+            } else if (next == '!' || next == '?') {
+                i = skipPast(html, i, i + 2, ">", "declaration");
+            } else if (next == '/' && i + 2 < length && isLetter(html.charAt(i + 2))) {
+                int nameStart = i + 2;
+                int nameEnd = nameEnd(html, nameStart);
+                int open = depth - 1;
+                while (open >= 0 && !sameName(html, nameStarts[open], nameEnds[open], nameStart, nameEnd)) {
+                    open--;
+                }
+                if (open >= 0 && open == depth - 1) {
+                    depth--;
+                } else if (open >= 0) {
+                    // closes an outer tag while the innermost one is still open
+                    throw unclosed(html, nameStarts[depth - 1]);
+                }
+                i = tagEnd(html, i, nameEnd);
+            } else if (isLetter(next)) {
+                int nameStart = i + 1;
+                int nameEnd = nameEnd(html, nameStart);
+                int end = tagEnd(html, i, nameEnd);
+                boolean selfClosing = html.charAt(end - 2) == '/';
+                if (!selfClosing && !isOneOf(html, nameStart, nameEnd, VOID_ELEMENTS)) {
+                    if (depth == nameStarts.length) {
+                        nameStarts = Arrays.copyOf(nameStarts, depth * 2);
+                        nameEnds = Arrays.copyOf(nameEnds, depth * 2);
+                    }
+                    nameStarts[depth] = nameStart;
+                    nameEnds[depth] = nameEnd;
+                    depth++;
+                    if (isOneOf(html, nameStart, nameEnd, RAW_TEXT_ELEMENTS)) {
+                        end = skipRawText(html, end, nameStart, nameEnd);
+                    }
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        if (depth > 0) {
+            throw unclosed(html, nameStarts[depth - 1]);
+        }
+    }
+
+    private static boolean sameName(CharSequence html, int start, int end, int otherStart, int otherEnd) {
+        return end - start == otherEnd - otherStart
+                && regionMatchesIgnoreCase(html, start, html, otherStart, end - start);
+    }
+
+    // returns the index just after the '>' ending a tag, honoring quoted attribute values
+    private int tagEnd(CharSequence html, int tagStart, int from) {
+        char quote = 0;
+        for (int i = from; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        throw error(html, tagStart, "Unterminated tag " + tagName(html, tagStart + 1));
+    }
+
+    // skips a script or style body up to (not including) its closing tag
+    private int skipRawText(CharSequence html, int from, int nameStart, int nameEnd) {
+        int nameLength = nameEnd - nameStart;
+        for (int i = from; i + 1 < html.length(); i++) {
+            if (html.charAt(i) == '<' && html.charAt(i + 1) == '/'
+                    && regionMatchesIgnoreCase(html, i + 2, html, nameStart, nameLength)) {
+                return i;
+            }
+        }
+        return html.length();
+    }
+
+    private int skipPast(CharSequence html, int start, int from, String terminator, String construct) {
+        for (int i = from; i <= html.length() - terminator.length(); i++) {
+            if (startsWith(html, i, terminator)) {
+                return i + terminator.length();
+            }
+        }
+        throw error(html, start, "Unterminated " + construct);
+    }
+
+    private static int nameEnd(CharSequence html, int from) {
+        int i = from;
+        while (i < html.length()) {
+            char c = html.charAt(i);
+            if (Character.isWhitespace(c) || c == '>' || c == '/') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isOneOf(CharSequence html, int start, int end, String[] names) {
+        int length = end - start;
+        for (String name : names) {
+            if (name.length() == length && regionMatchesIgnoreCase(html, start, name, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(CharSequence html, int offset, String prefix) {
+        if (offset + prefix.length() > html.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (html.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence a, int aStart, CharSequence b, int bStart, int length) {
+        if (aStart + length > a.length() || bStart + length > b.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(a.charAt(aStart + i)) != Character.toLowerCase(b.charAt(bStart + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // builds a "<name>" label for error messages (error path only)
+    private static String tagName(CharSequence html, int nameStart) {
+        return "<" + html.subSequence(nameStart, nameEnd(html, nameStart)) + ">";
+    }
+
+    private static ParsingException unclosed(CharSequence html, int nameStart) {
+        return error(html, nameStart - 1, "Unclosed tag " + tagName(html, nameStart));
+    }
+
+    // builds the exception, computing line and column of the offset (error path only)
+    private static ParsingException error(CharSequence html, int offset, String message) {
+        int line = 1;
+        int column = 1;
+        for (int i = 0; i < offset; i++) {
+            if (html.charAt(i) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        return new ParsingException("Invalid HTML: " + message + " at line " + line + ", column " + column);
+    }
+}
@@ -0,0 +1,25 @@
+package mg.bici.htmltojrxml.html;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the parsed HTML document.
+ */
+public class ParsedDocument {
+    private final List<HtmlElement> elements;
+    private final Map<String, String> inlineStyles;
+
+    public ParsedDocument(List<HtmlElement> elements, Map<String, String> inlineStyles) {
+        this.elements = elements;
+        this.inlineStyles = inlineStyles;
+    }
+
+    public List<HtmlElement> getElements() {
+        return elements;
+    }
+
+    public Map<String, String> getInlineStyles() {
+        return inlineStyles;
+    }
+}
\ No newline at end of file
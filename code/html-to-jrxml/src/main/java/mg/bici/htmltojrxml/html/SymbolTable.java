@@ -0,0 +1,92 @@
+package mg.bici.htmltojrxml.html;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe table assigning small int ids to names (tags, classes, attribute names),
+ * so they can be stored in int arrays and compared by id. Ids are dense and start at 0.
+ * Once the table holds {@code maxSize} names, unknown names get {@link #NO_SYMBOL}.
+ */
+public final class SymbolTable {
+    public static final int NO_SYMBOL = -1;
+
+    private final int maxSize;
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size; // guarded by this
+
+    public SymbolTable(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the id of a name, assigning one if the name is new.
+     *
+     * @param name the name
+     * @return symbol id, or NO_SYMBOL if the name is null or the table is full
+     */
+    public int intern(String name) {
+        if (name == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == maxSize) {
+                return NO_SYMBOL;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, Math.min(maxSize, current.length * 2));
+            }
+            current[size] = name;
+            // publish the name before its id so nameOf never sees a missing entry
+            names = current;
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Gets the id of a name without assigning one.
+     *
+     * @param name the name
+     * @return symbol id, or NO_SYMBOL if the name is unknown
+     */
+    public int lookup(String name) {
+        if (name == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : NO_SYMBOL;
+    }
+
+    /**
+     * Gets the name of an id.
+     *
+     * @param id the symbol id
+     * @return the name, or null for NO_SYMBOL
+     */
+    public String nameOf(int id) {
+        return id == NO_SYMBOL ? null : names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,134 @@
+package mg.bici.htmltojrxml.jrxml;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.layout.LayoutBox;
+
+/**
+ * Keeps the XML of the bands written for the previous version of a report, so that
+ * writing the next version copies the bands that come out the same instead of writing
+ * them again. Two bands are the same when they have the same height and the same
+ * elements: style name, position in the band, size and content. Style names are only
+ * comparable between reports written with one {@link JrxmlStyleRegistry}.
+ * <p>
+ * Only the bands of the last completed report are kept. Not thread-safe.
+ */
+public class JrxmlBandCache {
+    private Map<BandKey, byte[]> previous = new HashMap<>();
+    private Map<BandKey, byte[]> current = new HashMap<>();
+    private int reusedCount;
+    private int writtenCount;
+
+    /**
+     * Gets the number of bands copied from the previous report by the last report.
+     */
+    public int getReusedBandCount() {
+        return reusedCount;
+    }
+
+    /**
+     * Gets the number of bands the last report had to write.
+     */
+    public int getWrittenBandCount() {
+        return writtenCount;
+    }
+
+    public int size() {
+        return previous.size();
+    }
+
+    public void clear() {
+        previous.clear();
+        current.clear();
+    }
+
+    void startReport() {
+        current = new HashMap<>();
+        reusedCount = 0;
+        writtenCount = 0;
+    }
+
+    // the bands of a completed report replace those of the previous one
+    void endReport() {
+        previous = current;
+        current = new HashMap<>();
+    }
+
+    byte[] get(BandKey key) {
+        byte[] fragment = previous.get(key);
+        if (fragment != null) {
+            current.put(key, fragment);
+            reusedCount++;
+        }
+        return fragment;
+    }
+
+    void put(BandKey key, byte[] fragment) {
+        current.put(key, fragment);
+        writtenCount++;
+    }
+}
+
+/**
+ * Everything that goes into the XML of a band: its height and, for each element, the
+ * style name, the rounded edges relative to the band and the text or image source.
+ */
+final class BandKey {
+    private static final int TEXT = 0;
+    private static final int IMAGE = 1;
+    private static final int SHAPE = 2;
+
+    private final int height;
+    private final String[] styleNames;
+    private final String[] contents;
+    private final int[] shape; // kind, left, top, right, bottom of each element
+    private final int hash;
+
+    BandKey(int height, int bandTop, List<LayoutBox> boxes, JrxmlStyleRegistry styleRegistry) {
+        this.height = height;
+        this.styleNames = new String[boxes.size()];
+        this.contents = new String[boxes.size()];
+        this.shape = new int[boxes.size() * 5];
+        for (int i = 0; i < boxes.size(); i++) {
+            LayoutBox box = boxes.get(i);
+            HtmlElement element = box.getElement();
+            int kind;
+            if ("img".equalsIgnoreCase(element.getTagName())) {
+                kind = IMAGE;
+                contents[i] = element.getAttribute("src", "");
+            } else if (element.hasText()) {
+                kind = TEXT;
+                contents[i] = element.getText();
+            } else {
+                kind = SHAPE;
+            }
+            styleNames[i] = styleRegistry.nameOf(box);
+            shape[i * 5] = kind;
+            shape[i * 5 + 1] = Math.round(box.getX());
+            shape[i * 5 + 2] = Math.round(box.getY()) - bandTop;
+            shape[i * 5 + 3] = Math.round(box.getX() + box.getWidth());
+            shape[i * 5 + 4] = Math.round(box.getY() + box.getHeight()) - bandTop;
+        }
+        int h = 31 * height + Arrays.hashCode(shape);
+        h = 31 * h + Arrays.hashCode(styleNames);
+        this.hash = 31 * h + Arrays.hashCode(contents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BandKey other = (BandKey) o;
+        return hash == other.hash && height == other.height && Arrays.equals(shape, other.shape)
+                && Arrays.equals(styleNames, other.styleNames) && Arrays.equals(contents, other.contents);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,490 @@
+package mg.bici.htmltojrxml.jrxml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+import mg.bici.htmltojrxml.layout.LayoutBox;
+import mg.bici.htmltojrxml.layout.LayoutResult;
+import mg.bici.htmltojrxml.utils.ColorUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes a JRXML report straight to an output stream with StAX, band by band, as
+ * positioned boxes arrive. The writer only holds the boxes of the band being filled and
+ * never builds the XML in memory, so its own memory use does not grow with the report.
+ * The boxes themselves come from a {@link LayoutResult} of the whole document, and the
+ * styles are registered from all of them before the first band, since JRXML declares
+ * styles at the head of the report.
+ * <p>
+ * Boxes must arrive in document order. They fill {@code <band>}s of the detail section;
+ * a band is closed at the first box that starts below all of its boxes, or when it
+ * reaches the page content height. A background or border box that goes on below its
+ * band is split: the rest is drawn again from the top of the following bands. Text and
+ * images are clipped to their band. A box that starts above the band being filled (e.g.
+ * shifted up by relative positioning) loses the part above the band, and is dropped if
+ * nothing is left; this is logged. Boxes with text become {@code staticText}, images
+ * become {@code image}, and boxes with only a background or a border become
+ * {@code rectangle}; boxes that draw nothing are skipped. Fonts, colors, borders and
+ * padding are not repeated on elements: they refer to shared {@code <style>}s written
+ * at the head of the report (see {@link JrxmlStyleRegistry}).
+ * <p>
+ * With a {@link JrxmlBandCache}, each band is first rendered to a buffer and kept for
+ * the next version of the report, and bands found in the cache are copied as they are.
+ * <p>
+ * Not thread-safe. The output stream is flushed but not closed.
+ */
+public class JrxmlStreamWriter implements Closeable {
+    private static final String JASPER_NAMESPACE = "http://jasperreports.sourceforge.net/jasperreports";
+    private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final String SCHEMA_LOCATION = JASPER_NAMESPACE
+            + " http://jasperreports.sourceforge.net/xsd/jasperreport.xsd";
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final Logger LOGGER = Logger.getLogger(JrxmlStreamWriter.class);
+
+    private final OutputStream out;
+    private final XMLStreamWriter xml;
+    private final FontMappingConfig fontMappings;
+    private final List<LayoutBox> band = new ArrayList<>();
+    private JrxmlStyleRegistry styleRegistry;
+    private JrxmlBandCache bandCache;
+    private ByteArrayOutputStream fragment;
+    private int maxBandHeight;
+    private int bandTop;
+    private int bandBottom;
+    private int clippedBoxes;
+    private int droppedBoxes;
+    private boolean started;
+
+    public JrxmlStreamWriter(OutputStream out, FontMappingConfig fontMappings) {
+        this.out = out;
+        this.fontMappings = fontMappings;
+        try {
+            this.xml = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        } catch (XMLStreamException e) {
+            throw generationError("Failed to open the JRXML output", e);
+        }
+    }
+
+    /**
+     * Writes a whole layout as one report.
+     *
+     * @param name   the report name
+     * @param layout the laid out document
+     */
+    public void writeReport(String name, LayoutResult layout) {
+        writeReport(name, layout, new JrxmlStyleRegistry(fontMappings));
+    }
+
+    /**
+     * Writes a whole layout as one report, adding its styles to a registry that may
+     * already hold styles of earlier versions of the report, so that a style keeps its
+     * name from one version to the next. Styles this version does not use are removed
+     * from the registry before the styles are written.
+     *
+     * @param name          the report name
+     * @param layout        the laid out document
+     * @param styleRegistry the registry naming the styles
+     */
+    public void writeReport(String name, LayoutResult layout, JrxmlStyleRegistry styleRegistry) {
+        // styles go at the head of the report, so they are collected in a first pass
+        for (LayoutBox box : layout.getBoxes()) {
+            if (drawsSomething(box)) {
+                styleRegistry.register(box);
+            }
+        }
+        styleRegistry.removeUnused();
+        startReport(name, layout.getPageWidth(), layout.getPageHeight(), layout.getMargins(), styleRegistry);
+        for (LayoutBox box : layout.getBoxes()) {
+            writeBox(box);
+        }
+        endReport();
+    }
+
+    /**
+     * Sets the cache bands are copied from and kept in. Must be called before the report
+     * is started.
+     *
+     * @param bandCache the band cache, or null to write every band
+     */
+    public void setBandCache(JrxmlBandCache bandCache) {
+        if (started) {
+            throw new IllegalStateException("The report has already been started");
+        }
+        this.bandCache = bandCache;
+    }
+
+    /**
+     * Writes the XML declaration, the {@code jasperReport} element and the shared styles,
+     * then opens the detail section. Every box written afterwards must have its style in
+     * the registry.
+     *
+     * @param name          the report name
+     * @param pageWidth     the page width in points
+     * @param pageHeight    the page height in points
+     * @param margins       the page margins in points (top, right, bottom, left)
+     * @param styleRegistry the styles of the boxes to come
+     */
+    public void startReport(String name, int pageWidth, int pageHeight, int[] margins,
+                            JrxmlStyleRegistry styleRegistry) {
+        if (started) {
+            throw new IllegalStateException("The report has already been started");
+        }
+        started = true;
+        this.styleRegistry = styleRegistry;
+        maxBandHeight = Math.max(1, pageHeight - margins[0] - margins[2]);
+        bandTop = 0;
+        bandBottom = 0;
+        clippedBoxes = 0;
+        droppedBoxes = 0;
+        if (bandCache != null) {
+            bandCache.startReport();
+        }
+        try {
+            xml.writeStartDocument("UTF-8", "1.0");
+            newLine(0);
+            xml.writeStartElement("jasperReport");
+            xml.writeDefaultNamespace(JASPER_NAMESPACE);
+            xml.writeNamespace("xsi", XSI_NAMESPACE);
+            xml.writeAttribute("xsi", XSI_NAMESPACE, "schemaLocation", SCHEMA_LOCATION);
+            xml.writeAttribute("name", name);
+            xml.writeAttribute("pageWidth", Integer.toString(pageWidth));
+            xml.writeAttribute("pageHeight", Integer.toString(pageHeight));
+            xml.writeAttribute("columnWidth", Integer.toString(Math.max(1, pageWidth - margins[1] - margins[3])));
+            xml.writeAttribute("leftMargin", Integer.toString(margins[3]));
+            xml.writeAttribute("rightMargin", Integer.toString(margins[1]));
+            xml.writeAttribute("topMargin", Integer.toString(margins[0]));
+            xml.writeAttribute("bottomMargin", Integer.toString(margins[2]));
+            writeStyles();
+            newLine(1);
+            xml.writeStartElement("detail");
+        } catch (XMLStreamException e) {
+            throw generationError("Failed to write the report header", e);
+        }
+    }
+
+    /**
+     * Adds a box to the current band, writing out the band first if the box starts below it.
+     *
+     * @param box the positioned box, in document order
+     */
+    public void writeBox(LayoutBox box) {
+        if (!started) {
+            throw new IllegalStateException("startReport must be called first");
+        }
+        if (!drawsSomething(box)) {
+            return;
+        }
+        int top = Math.round(box.getY());
+        while (!band.isEmpty() && (top >= bandBottom || top - bandTop >= maxBandHeight)) {
+            flushBand();
+        }
+        if (band.isEmpty()) {
+            // a gap taller than a page becomes empty bands, so positions stay right
+            while (top - bandTop >= maxBandHeight) {
+                writeEmptyBand(maxBandHeight);
+                bandTop += maxBandHeight;
+            }
+            bandBottom = bandTop;
+        }
+        int bottom = Math.round(box.getY() + box.getHeight());
+        if (top < bandTop) {
+            // the bands above are written already
+            if (bottom <= bandTop) {
+                droppedBoxes++;
+                return;
+            }
+            clippedBoxes++;
+        }
+        band.add(box);
+        bandBottom = Math.max(bandBottom, bottom);
+    }
+
+    /**
+     * Writes the last band and closes the report.
+     */
+    public void endReport() {
+        // split boxes keep the band open until they end
+        while (!band.isEmpty()) {
+            flushBand();
+        }
+        if (clippedBoxes > 0 || droppedBoxes > 0) {
+            LOGGER.warn(clippedBoxes + " boxes were clipped and " + droppedBoxes
+                    + " dropped because they started above a band that was already written");
+        }
+        try {
+            newLine(1);
+            xml.writeEndElement();
+            newLine(0);
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw generationError("Failed to close the report", e);
+        }
+        if (bandCache != null) {
+            bandCache.endReport();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw generationError("Failed to close the JRXML output", e);
+        }
+    }
+
+    // writes the pending boxes as one band, the next band starts where it ends and takes
+    // over the shapes that go on below it
+    private void flushBand() {
+        int height = Math.min(Math.max(1, bandBottom - bandTop), maxBandHeight);
+        try {
+            newLine(xml, 2);
+            if (bandCache == null) {
+                writeBand(xml, height);
+            } else {
+                writeCachedBand(height);
+            }
+            // boxes are written as they come, so the buffer only ever holds one band
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw generationError("Failed to write a band", e);
+        }
+        int bandEnd = bandTop + height;
+        int kept = 0;
+        bandBottom = bandEnd;
+        for (LayoutBox box : band) {
+            int bottom = Math.round(box.getY() + box.getHeight());
+            if (bottom > bandEnd && isShape(box)) {
+                band.set(kept++, box);
+                bandBottom = Math.max(bandBottom, bottom);
+            }
+        }
+        band.subList(kept, band.size()).clear();
+        bandTop = bandEnd;
+    }
+
+    // writes the pending boxes to the report or to a band buffer
+    private void writeBand(XMLStreamWriter xml, int height) throws XMLStreamException {
+        xml.writeStartElement("band");
+        xml.writeAttribute("height", Integer.toString(height));
+        xml.writeAttribute("splitType", "Stretch");
+        for (LayoutBox box : band) {
+            writeElement(xml, box, height);
+        }
+        newLine(xml, 2);
+        xml.writeEndElement();
+    }
+
+    // copies the band from the cache, or renders it to a buffer kept in the cache
+    private void writeCachedBand(int height) throws XMLStreamException {
+        BandKey key = new BandKey(height, bandTop, band, styleRegistry);
+        byte[] bytes = bandCache.get(key);
+        if (bytes == null) {
+            if (fragment == null) {
+                fragment = new ByteArrayOutputStream();
+            }
+            fragment.reset();
+            XMLStreamWriter fragmentXml = OUTPUT_FACTORY.createXMLStreamWriter(fragment, "UTF-8");
+            writeBand(fragmentXml, height);
+            fragmentXml.flush();
+            fragmentXml.close();
+            bytes = fragment.toByteArray();
+            bandCache.put(key, bytes);
+        }
+        // the line break written before closes the detail start tag, so raw bytes can follow
+        xml.flush();
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new ConversionException("Failed to write a band", ConversionException.ErrorCode.GENERATION_ERROR, e);
+        }
+    }
+
+    private void writeEmptyBand(int height) {
+        try {
+            newLine(2);
+            xml.writeEmptyElement("band");
+            xml.writeAttribute("height", Integer.toString(height));
+            xml.writeAttribute("splitType", "Stretch");
+        } catch (XMLStreamException e) {
+            throw generationError("Failed to write a band", e);
+        }
+    }
+
+    private void writeElement(XMLStreamWriter xml, LayoutBox box, int bandHeight) throws XMLStreamException {
+        String styleName = styleRegistry.nameOf(box);
+        if (styleName == null) {
+            throw new IllegalStateException("The style of <" + box.getElement().getTagName()
+                    + "> was not registered before the report was started");
+        }
+        newLine(xml, 3);
+        if (isImage(box)) {
+            xml.writeStartElement("image");
+            xml.writeAttribute("scaleImage", "RetainShape");
+            writeReportElement(xml, box, bandHeight, styleName);
+            newLine(xml, 4);
+            xml.writeStartElement("imageExpression");
+            xml.writeCData(javaStringLiteral(box.getElement().getAttribute("src", "")));
+            xml.writeEndElement();
+        } else if (box.getElement().hasText()) {
+            xml.writeStartElement("staticText");
+            writeReportElement(xml, box, bandHeight, styleName);
+            newLine(xml, 4);
+            xml.writeStartElement("text");
+            xml.writeCharacters(collapseWhitespace(box.getElement().getText()));
+            xml.writeEndElement();
+        } else {
+            xml.writeStartElement("rectangle");
+            writeReportElement(xml, box, bandHeight, styleName);
+        }
+        newLine(xml, 3);
+        xml.writeEndElement();
+    }
+
+    private void writeReportElement(XMLStreamWriter xml, LayoutBox box, int bandHeight, String styleName)
+            throws XMLStreamException {
+        int x = Math.max(0, Math.round(box.getX()));
+        int width = Math.max(1, Math.round(box.getX() + box.getWidth()) - x);
+        int y = Math.min(Math.max(0, Math.round(box.getY()) - bandTop), bandHeight - 1);
+        int height = Math.max(1, Math.min(Math.round(box.getY() + box.getHeight()) - bandTop, bandHeight) - y);
+        newLine(xml, 4);
+        xml.writeEmptyElement("reportElement");
+        xml.writeAttribute("style", styleName);
+        xml.writeAttribute("x", Integer.toString(x));
+        xml.writeAttribute("y", Integer.toString(y));
+        xml.writeAttribute("width", Integer.toString(width));
+        xml.writeAttribute("height", Integer.toString(height));
+    }
+
+    // writes the shared styles; the pen is the border of shapes, the box one of text
+    private void writeStyles() throws XMLStreamException {
+        for (Map.Entry<JrxmlStyle, String> named : styleRegistry.getNamedStyles().entrySet()) {
+            JrxmlStyle style = named.getKey();
+            newLine(1);
+            xml.writeStartElement("style");
+            xml.writeAttribute("name", named.getValue());
+            if (style.backcolor != 0) {
+                xml.writeAttribute("mode", "Opaque");
+                xml.writeAttribute("backcolor", ColorUtils.toHex(style.backcolor));
+            }
+            if (style.forecolor != 0) {
+                xml.writeAttribute("forecolor", ColorUtils.toHex(style.forecolor));
+            }
+            xml.writeAttribute("hTextAlign", style.horizontalAlignment);
+            xml.writeAttribute("fontName", style.fontName);
+            xml.writeAttribute("fontSize", Float.toString(style.fontSize));
+            if ((style.fontFlags & JrxmlStyle.BOLD) != 0) {
+                xml.writeAttribute("isBold", "true");
+            }
+            if ((style.fontFlags & JrxmlStyle.ITALIC) != 0) {
+                xml.writeAttribute("isItalic", "true");
+            }
+            if ((style.fontFlags & JrxmlStyle.UNDERLINE) != 0) {
+                xml.writeAttribute("isUnderline", "true");
+            }
+            if ((style.fontFlags & JrxmlStyle.STRIKE_THROUGH) != 0) {
+                xml.writeAttribute("isStrikeThrough", "true");
+            }
+            newLine(2);
+            writePen(style);
+            if (style.hasPadding() || style.hasPen()) {
+                newLine(2);
+                xml.writeStartElement("box");
+                if (style.hasPadding()) {
+                    xml.writeAttribute("topPadding", Integer.toString(style.topPadding));
+                    xml.writeAttribute("leftPadding", Integer.toString(style.leftPadding));
+                    xml.writeAttribute("bottomPadding", Integer.toString(style.bottomPadding));
+                    xml.writeAttribute("rightPadding", Integer.toString(style.rightPadding));
+                }
+                newLine(3);
+                writePen(style);
+                newLine(2);
+                xml.writeEndElement();
+            }
+            newLine(1);
+            xml.writeEndElement();
+        }
+    }
+
+    private void writePen(JrxmlStyle style) throws XMLStreamException {
+        xml.writeEmptyElement("pen");
+        xml.writeAttribute("lineWidth", Float.toString(style.penWidth));
+        if (style.hasPen()) {
+            xml.writeAttribute("lineStyle", style.penStyle);
+            xml.writeAttribute("lineColor", ColorUtils.toHex(style.penColor));
+        }
+    }
+
+    private void newLine(int depth) throws XMLStreamException {
+        newLine(xml, depth);
+    }
+
+    private static void newLine(XMLStreamWriter xml, int depth) throws XMLStreamException {
+        xml.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) {
+            xml.writeCharacters("\t");
+        }
+    }
+
+    private static boolean drawsSomething(LayoutBox box) {
+        return box.getElement().hasText() || isImage(box)
+                || JrxmlStyle.hasBackground(box.getStyle()) || JrxmlStyle.hasBorder(box.getStyle().getBorder());
+    }
+
+    // a box drawn as a rectangle only, which can be split over bands
+    private static boolean isShape(LayoutBox box) {
+        return !box.getElement().hasText() && !isImage(box);
+    }
+
+    private static boolean isImage(LayoutBox box) {
+        return "img".equalsIgnoreCase(box.getElement().getTagName());
+    }
+
+    private static String collapseWhitespace(String text) {
+        StringBuilder collapsed = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = collapsed.length() > 0;
+            } else {
+                if (space) {
+                    collapsed.append(' ');
+                    space = false;
+                }
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+
+    // quotes a value as a Java string literal for a JRXML expression
+    private static String javaStringLiteral(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+        return literal.append('"').toString();
+    }
+
+    private static ConversionException generationError(String message, XMLStreamException cause) {
+        return new ConversionException(message, ConversionException.ErrorCode.GENERATION_ERROR, cause);
+    }
+}
@@ -0,0 +1,186 @@
+package mg.bici.htmltojrxml.jrxml;
+
+import java.util.Objects;
+
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.css.Border;
+import mg.bici.htmltojrxml.css.ComputedStyleView;
+import mg.bici.htmltojrxml.css.FontStyle;
+import mg.bici.htmltojrxml.css.FontWeight;
+import mg.bici.htmltojrxml.css.TextDecoration;
+import mg.bici.htmltojrxml.layout.LayoutBox;
+import mg.bici.htmltojrxml.utils.Color;
+
+/**
+ * The JRXML appearance of a box, already in JRXML terms: mapped font name, font size in
+ * points, colors, alignment, pen and padding. Two boxes that would be written with the
+ * same attributes have equal styles, which makes this the key of {@link JrxmlStyleRegistry}.
+ */
+final class JrxmlStyle {
+    static final int BOLD = 1;
+    static final int ITALIC = 1 << 1;
+    static final int UNDERLINE = 1 << 2;
+    static final int STRIKE_THROUGH = 1 << 3;
+
+    // 0 means not set: no forecolor for black text, no backcolor for transparent or white
+    final int forecolor;
+    final int backcolor;
+    final String fontName;
+    final float fontSize;
+    final int fontFlags;
+    final String horizontalAlignment;
+    final float penWidth;
+    final String penStyle;
+    final int penColor;
+    final int topPadding, rightPadding, bottomPadding, leftPadding;
+    private final int hash;
+
+    private JrxmlStyle(int forecolor, int backcolor, String fontName, float fontSize, int fontFlags,
+                       String horizontalAlignment, float penWidth, String penStyle, int penColor,
+                       int topPadding, int rightPadding, int bottomPadding, int leftPadding) {
+        this.forecolor = forecolor;
+        this.backcolor = backcolor;
+        this.fontName = fontName;
+        this.fontSize = fontSize;
+        this.fontFlags = fontFlags;
+        this.horizontalAlignment = horizontalAlignment;
+        this.penWidth = penWidth;
+        this.penStyle = penStyle;
+        this.penColor = penColor;
+        this.topPadding = topPadding;
+        this.rightPadding = rightPadding;
+        this.bottomPadding = bottomPadding;
+        this.leftPadding = leftPadding;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Derives the style of a box.
+     *
+     * @param box          the positioned box
+     * @param fontMappings maps CSS font families to JasperReports fonts
+     * @return style of the box
+     */
+    static JrxmlStyle of(LayoutBox box, FontMappingConfig fontMappings) {
+        ComputedStyleView style = box.getStyle();
+        Border border = style.getBorder();
+        int flags = 0;
+        if (style.getFontWeight() == FontWeight.BOLD) {
+            flags |= BOLD;
+        }
+        if (style.getFontStyle() != FontStyle.NORMAL) {
+            flags |= ITALIC;
+        }
+        if (style.getTextDecoration() == TextDecoration.UNDERLINE) {
+            flags |= UNDERLINE;
+        } else if (style.getTextDecoration() == TextDecoration.LINE_THROUGH) {
+            flags |= STRIKE_THROUGH;
+        }
+        boolean bordered = hasBorder(border);
+        return new JrxmlStyle(
+                style.getColorArgb() == Color.OPAQUE_BLACK_ARGB ? 0 : style.getColorArgb() | 0xFF000000,
+                hasBackground(style) ? style.getBackgroundColorArgb() | 0xFF000000 : 0,
+                fontName(style.getFontFamily(), fontMappings),
+                box.getFontSize(),
+                flags,
+                horizontalAlignment(style),
+                bordered ? box.getBorderWidth() : 0,
+                bordered ? lineStyle(border.getStyle()) : null,
+                bordered ? border.getColorArgb() | 0xFF000000 : 0,
+                Math.round(box.getPaddingTop()), Math.round(box.getPaddingRight()),
+                Math.round(box.getPaddingBottom()), Math.round(box.getPaddingLeft()));
+    }
+
+    boolean hasPadding() {
+        return topPadding != 0 || rightPadding != 0 || bottomPadding != 0 || leftPadding != 0;
+    }
+
+    boolean hasPen() {
+        return penStyle != null;
+    }
+
+    // white is the page color, so only other visible backgrounds are painted
+    static boolean hasBackground(ComputedStyleView style) {
+        int argb = style.getBackgroundColorArgb();
+        return (argb >>> 24) != 0 && argb != Color.OPAQUE_WHITE_ARGB;
+    }
+
+    static boolean hasBorder(Border border) {
+        String style = border.getStyle();
+        return border.getWidth() > 0 && style != null && !"none".equals(style) && !"hidden".equals(style);
+    }
+
+    // maps the first family of a font-family list to a JasperReports font
+    private static String fontName(String fontFamily, FontMappingConfig fontMappings) {
+        if (fontFamily == null) {
+            return fontMappings.mapCssFontToJasper(null);
+        }
+        int comma = fontFamily.indexOf(',');
+        String first = (comma < 0 ? fontFamily : fontFamily.substring(0, comma)).trim();
+        if (first.length() > 1 && (first.charAt(0) == '"' || first.charAt(0) == '\'')) {
+            first = first.substring(1, first.length() - 1);
+        }
+        return fontMappings.mapCssFontToJasper(first);
+    }
+
+    private static String lineStyle(String borderStyle) {
+        switch (borderStyle) {
+            case "dashed":
+                return "Dashed";
+            case "dotted":
+                return "Dotted";
+            case "double":
+                return "Double";
+            default:
+                return "Solid";
+        }
+    }
+
+    private static String horizontalAlignment(ComputedStyleView style) {
+        switch (style.getTextAlign()) {
+            case RIGHT:
+                return "Right";
+            case CENTER:
+                return "Center";
+            case JUSTIFY:
+                return "Justified";
+            default:
+                return "Left";
+        }
+    }
+
+    private int computeHash() {
+        int h = forecolor;
+        h = 31 * h + backcolor;
+        h = 31 * h + fontName.hashCode();
+        h = 31 * h + Float.floatToIntBits(fontSize);
+        h = 31 * h + fontFlags;
+        h = 31 * h + horizontalAlignment.hashCode();
+        h = 31 * h + Float.floatToIntBits(penWidth);
+        h = 31 * h + Objects.hashCode(penStyle);
+        h = 31 * h + penColor;
+        h = 31 * h + topPadding;
+        h = 31 * h + rightPadding;
+        h = 31 * h + bottomPadding;
+        return 31 * h + leftPadding;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JrxmlStyle other = (JrxmlStyle) o;
+        return hash == other.hash && forecolor == other.forecolor && backcolor == other.backcolor
+                && fontFlags == other.fontFlags && Float.compare(fontSize, other.fontSize) == 0
+                && Float.compare(penWidth, other.penWidth) == 0 && penColor == other.penColor
+                && topPadding == other.topPadding && rightPadding == other.rightPadding
+                && bottomPadding == other.bottomPadding && leftPadding == other.leftPadding
+                && fontName.equals(other.fontName) && horizontalAlignment.equals(other.horizontalAlignment)
+                && Objects.equals(penStyle, other.penStyle);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,139 @@
+package mg.bici.htmltojrxml.jrxml;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.css.ComputedStyleView;
+import mg.bici.htmltojrxml.layout.LayoutBox;
+
+/**
+ * Collects the distinct JRXML styles of a report. Each box is reduced to its effective
+ * JRXML appearance (including the font chosen by {@link FontMappingConfig}), equal
+ * appearances share one named {@code <style>}, and elements refer to it by name instead
+ * of repeating font, box and color attributes.
+ * <p>
+ * Computed styles are usually interned instances, so the name found for a style and font
+ * size is remembered by identity and later boxes with the same style skip the key
+ * building; a style equal to a known one but not interned just builds its key again.
+ * <p>
+ * A registry may serve successive versions of one report, so that a style keeps its name
+ * from one version to the next. {@link #removeUnused()} ends a version: styles, and
+ * remembered computed styles, that no box registered since the previous call used are
+ * dropped, so the registry follows the current version instead of growing with every
+ * version. Not thread-safe.
+ */
+public class JrxmlStyleRegistry {
+    private static final String NAME_PREFIX = "Style";
+
+    private final FontMappingConfig fontMappings;
+    // in registration order, which is the order styles are written in
+    private final Map<JrxmlStyle, String> names = new LinkedHashMap<>();
+    private final Map<ComputedStyleView, Resolved> resolved = new IdentityHashMap<>();
+    private int lastNumber;
+    private int version;
+
+    public JrxmlStyleRegistry(FontMappingConfig fontMappings) {
+        this.fontMappings = fontMappings;
+    }
+
+    /**
+     * Registers the style of a box.
+     *
+     * @param box the positioned box
+     * @return name of the shared style
+     */
+    public String register(LayoutBox box) {
+        Resolved entry = lookup(box);
+        if (entry != null) {
+            entry.version = version;
+            return entry.name;
+        }
+        JrxmlStyle style = JrxmlStyle.of(box, fontMappings);
+        String name = names.get(style);
+        if (name == null) {
+            name = NAME_PREFIX + (++lastNumber);
+            names.put(style, name);
+        }
+        resolved.put(box.getStyle(), new Resolved(box.getFontSize(), name, version, resolved.get(box.getStyle())));
+        return name;
+    }
+
+    /**
+     * Gets the name of the style of a box registered earlier.
+     *
+     * @param box the positioned box
+     * @return style name, or null if no box with that style was registered
+     */
+    public String nameOf(LayoutBox box) {
+        Resolved entry = lookup(box);
+        return entry != null ? entry.name : names.get(JrxmlStyle.of(box, fontMappings));
+    }
+
+    /**
+     * Removes the styles that no box registered since the last call used, and forgets
+     * the computed styles seen before. Called once the boxes of a version are registered.
+     */
+    public void removeUnused() {
+        Set<String> used = new HashSet<>();
+        for (Iterator<Map.Entry<ComputedStyleView, Resolved>> it = resolved.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<ComputedStyleView, Resolved> entry = it.next();
+            Resolved kept = null;
+            for (Resolved r = entry.getValue(); r != null; r = r.next) {
+                if (r.version == version) {
+                    kept = new Resolved(r.fontSize, r.name, r.version, kept);
+                    used.add(r.name);
+                }
+            }
+            if (kept == null) {
+                it.remove();
+            } else {
+                entry.setValue(kept);
+            }
+        }
+        names.values().retainAll(used);
+        version++;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    // styles with their names, in registration order
+    Map<JrxmlStyle, String> getNamedStyles() {
+        return Collections.unmodifiableMap(names);
+    }
+
+    private Resolved lookup(LayoutBox box) {
+        for (Resolved entry = resolved.get(box.getStyle()); entry != null; entry = entry.next) {
+            if (Float.compare(entry.fontSize, box.getFontSize()) == 0) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Style name found for a computed style at one font size; relative font sizes can give
+     * one computed style several sizes, which are chained. The version is the last one
+     * a box was registered with the entry in.
+     */
+    private static final class Resolved {
+        final float fontSize;
+        final String name;
+        final Resolved next;
+        int version;
+
+        Resolved(float fontSize, String name, int version, Resolved next) {
+            this.fontSize = fontSize;
+            this.name = name;
+            this.version = version;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package mg.bici.htmltojrxml.layout;
+
+import mg.bici.htmltojrxml.css.ComputedStyleView;
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+/**
+ * The positioned border box of one element. Coordinates are in points from the top-left
+ * corner of the page content area (inside the page margins), like the elements of a JRXML
+ * band. Padding and border width are resolved to points as well. Boxes are owned and
+ * reused by the {@link LayoutCalculationEngine} that made them.
+ */
+public final class LayoutBox {
+
+    /**
+     * How a box takes part in the flow of its parent.
+     */
+    public enum Kind {
+        BLOCK,
+        INLINE,
+        ROW,
+        CELL
+    }
+
+    HtmlElement element;
+    ComputedStyleView style;
+    Kind kind;
+    LayoutBox parent;
+    int depth;
+    float x, y, width, height;
+    float fontSize;
+    float lineHeight;
+    float paddingTop, paddingRight, paddingBottom, paddingLeft;
+    float borderWidth;
+
+    LayoutBox() {
+    }
+
+    // resets the box for another element
+    void reset(HtmlElement element, ComputedStyleView style, Kind kind, LayoutBox parent, int depth) {
+        this.element = element;
+        this.style = style;
+        this.kind = kind;
+        this.parent = parent;
+        this.depth = depth;
+        x = 0;
+        y = 0;
+        width = 0;
+        height = 0;
+        fontSize = 0;
+        lineHeight = 0;
+        paddingTop = 0;
+        paddingRight = 0;
+        paddingBottom = 0;
+        paddingLeft = 0;
+        borderWidth = 0;
+    }
+
+    public HtmlElement getElement() { return element; }
+    public ComputedStyleView getStyle() { return style; }
+    public Kind getKind() { return kind; }
+    public LayoutBox getParent() { return parent; }
+    public int getDepth() { return depth; }
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public float getWidth() { return width; }
+    public float getHeight() { return height; }
+    public float getFontSize() { return fontSize; }
+    public float getLineHeight() { return lineHeight; }
+    public float getPaddingTop() { return paddingTop; }
+    public float getPaddingRight() { return paddingRight; }
+    public float getPaddingBottom() { return paddingBottom; }
+    public float getPaddingLeft() { return paddingLeft; }
+    public float getBorderWidth() { return borderWidth; }
+
+    @Override
+    public String toString() {
+        return element.getTagName() + " " + kind + " [" + x + ", " + y + ", " + width + " x " + height + "]";
+    }
+}
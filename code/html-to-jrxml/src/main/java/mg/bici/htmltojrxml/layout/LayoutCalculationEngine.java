@@ -0,0 +1,561 @@
+package mg.bici.htmltojrxml.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.css.Border;
+import mg.bici.htmltojrxml.css.ComputedStyleView;
+import mg.bici.htmltojrxml.css.CssLength;
+import mg.bici.htmltojrxml.css.FontWeight;
+import mg.bici.htmltojrxml.css.Margin;
+import mg.bici.htmltojrxml.css.Padding;
+import mg.bici.htmltojrxml.css.PositionType;
+import mg.bici.htmltojrxml.exceptions.LayoutException;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.html.HtmlSymbols;
+
+/**
+ * Turns styled element trees into positioned boxes on the page content area.
+ * <p>
+ * The tree is walked once, depth-first with an explicit stack: a box gets its position
+ * and width when it is entered, from the state of its parent, and its height when it is
+ * left, from the space its children used. No ancestor is laid out twice, so the cost is
+ * linear in the number of elements.
+ * <ul>
+ *   <li>block boxes stack vertically and take the width of their container unless a
+ *   width is set;</li>
+ *   <li>inline boxes and text flow on lines and wrap at the container edge; text width
+ *   is estimated from the character count and the font size;</li>
+ *   <li>the cells of a table row are placed side by side, with their set width or an
+ *   equal share of what is left;</li>
+ *   <li>relative boxes are shifted by their offsets, absolute and fixed boxes are placed
+ *   against their containing block and leave the flow; {@code display: none} drops the
+ *   subtree.</li>
+ * </ul>
+ * The engine reuses its boxes from one layout to the next, so a {@link LayoutResult} is
+ * only valid until the next call. Once the result has been consumed, {@link #release()}
+ * drops the references the pooled boxes keep to elements and styles, so a long-lived
+ * engine does not hold on to the last document. Not thread-safe; use one engine per
+ * thread.
+ */
+public class LayoutCalculationEngine {
+    // average glyph advance of a proportional font, in em
+    private static final float CHAR_WIDTH_EM = 0.5f;
+    private static final float BOLD_CHAR_WIDTH_EM = 0.55f;
+
+    // tags laid out as blocks although the cascade leaves them inline
+    private static final BitSet BLOCK_CONTAINER_TAGS = tagSet("html", "body", "section", "article", "header",
+            "footer", "nav", "main", "aside", "form", "blockquote", "pre", "hr", "dl", "dt", "dd", "figure",
+            "tbody", "thead", "tfoot", "caption");
+    private static final int TR = HtmlSymbols.internTag("tr");
+    private static final int BR = HtmlSymbols.internTag("br");
+
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int[] margins;
+    private final float defaultFontSize;
+
+    private final List<LayoutBox> boxes = new ArrayList<>();
+    private int boxCount;
+    private Frame[] frames = new Frame[32];
+    private int depth;
+    private float bottom;
+
+    public LayoutCalculationEngine(ConversionConfig config) {
+        int[] dimensions = config.getPageDimensions();
+        this.pageWidth = dimensions[0];
+        this.pageHeight = dimensions[1];
+        this.margins = config.getMargins();
+        this.defaultFontSize = config.getDefaultFontSize();
+    }
+
+    /**
+     * Lays out element trees on the page content area.
+     *
+     * @param roots  the root elements, in document order
+     * @param styles the computed style of every element
+     * @return the boxes, valid until the next layout with this engine
+     * @throws LayoutException if an element has no computed style
+     */
+    public LayoutResult calculateLayout(List<HtmlElement> roots, Map<HtmlElement, ? extends ComputedStyleView> styles) {
+        boxCount = 0;
+        bottom = 0;
+        float contentWidth = Math.max(0, pageWidth - margins[1] - margins[3]);
+        Frame page = push();
+        page.reset(null, null, null, roots, false);
+        page.setContent(0, 0, contentWidth);
+        page.container = page;
+        page.positioned = page;
+        page.fontSize = defaultFontSize;
+        try {
+            while (depth > 0) {
+                Frame frame = frames[depth - 1];
+                if (frame.next < frame.children.size()) {
+                    enter(frame.children.get(frame.next++), frame, styles);
+                } else if (frame == page) {
+                    endLine(page);
+                    bottom = Math.max(bottom, page.cursorY);
+                    depth--;
+                } else {
+                    depth--;
+                    leave(frame, frames[depth - 1]);
+                }
+            }
+        } finally {
+            clearFrames();
+            clearBoxes(boxCount);
+        }
+        return new LayoutResult(Collections.unmodifiableList(boxes.subList(0, boxCount)), pageWidth, pageHeight,
+                margins.clone(), contentWidth, bottom);
+    }
+
+    // positions an element box from the state of its parent and opens a frame for its content
+    private void enter(HtmlElement element, Frame parent, Map<HtmlElement, ? extends ComputedStyleView> styles) {
+        ComputedStyleView style = styles.get(element);
+        if (style == null) {
+            throw new LayoutException("No computed style for element <" + element.getTagName() + ">");
+        }
+        if ("none".equals(style.getDisplay())) {
+            return;
+        }
+        Frame container = parent.container;
+        PositionType position = style.getPosition();
+        boolean outOfFlow = position == PositionType.ABSOLUTE || position == PositionType.FIXED;
+        if (element.getTagSymbol() == BR && !outOfFlow) {
+            breakLine(container, lineHeight(style, fontSize(style, parent)));
+            return;
+        }
+
+        LayoutBox.Kind kind = kindOf(element, style, parent);
+        LayoutBox box = acquire();
+        box.reset(element, style, kind, parent.box, depth - 1);
+        box.fontSize = fontSize(style, parent);
+        box.lineHeight = lineHeight(style, box.fontSize);
+
+        Frame block = null;
+        float blockWidth = 0;
+        if (outOfFlow) {
+            block = position == PositionType.FIXED ? frames[0] : parent.positioned;
+            blockWidth = block.box == null ? block.contentWidth : block.box.width;
+        }
+        // percentages of every side refer to the width of the containing block
+        float containingWidth = outOfFlow ? blockWidth
+                : kind == LayoutBox.Kind.CELL ? parent.contentWidth : container.contentWidth;
+        Margin margin = style.getMargin();
+        Padding padding = style.getPadding();
+        float marginTop = toPoints(margin.getTop(), margin.getTopUnit(), box.fontSize, containingWidth);
+        float marginRight = toPoints(margin.getRight(), margin.getRightUnit(), box.fontSize, containingWidth);
+        float marginBottom = toPoints(margin.getBottom(), margin.getBottomUnit(), box.fontSize, containingWidth);
+        float marginLeft = toPoints(margin.getLeft(), margin.getLeftUnit(), box.fontSize, containingWidth);
+        box.paddingTop = toPoints(padding.getTop(), padding.getTopUnit(), box.fontSize, containingWidth);
+        box.paddingRight = toPoints(padding.getRight(), padding.getRightUnit(), box.fontSize, containingWidth);
+        box.paddingBottom = toPoints(padding.getBottom(), padding.getBottomUnit(), box.fontSize, containingWidth);
+        box.paddingLeft = toPoints(padding.getLeft(), padding.getLeftUnit(), box.fontSize, containingWidth);
+        box.borderWidth = borderWidth(style.getBorder(), box.fontSize);
+        float border = box.borderWidth;
+        float horizontalEdges = box.paddingLeft + box.paddingRight + 2 * border;
+        float verticalEdges = box.paddingTop + box.paddingBottom + 2 * border;
+        float textWidth = textWidth(element, style, box.fontSize);
+        boolean inlineFlow = kind == LayoutBox.Kind.INLINE && !outOfFlow;
+
+        if (outOfFlow) {
+            float blockX = block.box == null ? 0 : block.box.x;
+            float blockY = block.box == null ? 0 : block.box.y;
+            float width = lengthOrAuto(style.getWidth(), box.fontSize, blockWidth);
+            if (width > 0) {
+                width += horizontalEdges;
+            } else if (kind == LayoutBox.Kind.INLINE) {
+                width = Math.min(textWidth + horizontalEdges, blockWidth);
+            } else {
+                width = blockWidth - marginLeft - marginRight;
+            }
+            box.width = clampWidth(style, width, box.fontSize, blockWidth);
+            CssLength left = style.getLeft();
+            CssLength right = style.getRight();
+            if (left == null && right != null) {
+                box.x = blockX + blockWidth - LengthConverter.toPoints(right, box.fontSize, blockWidth)
+                        - box.width - marginRight;
+            } else {
+                box.x = blockX + LengthConverter.toPoints(left, box.fontSize, blockWidth) + marginLeft;
+            }
+            box.y = blockY + LengthConverter.toPoints(style.getTop(), box.fontSize, 0) + marginTop;
+        } else if (kind == LayoutBox.Kind.CELL) {
+            float width = lengthOrAuto(style.getWidth(), box.fontSize, parent.contentWidth);
+            box.width = width > 0 ? width + horizontalEdges : parent.autoCellWidth;
+            box.x = parent.cellX;
+            box.y = parent.contentY;
+            parent.cellX += box.width;
+            parent.addCell(boxCount - 1);
+        } else if (inlineFlow) {
+            float width = lengthOrAuto(style.getWidth(), box.fontSize, container.contentWidth);
+            float height = lengthOrAuto(style.getHeight(), box.fontSize, 0);
+            float runWidth = (width > 0 ? width : textWidth) + horizontalEdges + marginLeft + marginRight;
+            float runHeight = (height > 0 ? height : box.lineHeight) + verticalEdges;
+            placeRun(container, box, runWidth, runHeight, box.lineHeight);
+        } else {
+            endLine(container);
+            float width = lengthOrAuto(style.getWidth(), box.fontSize, container.contentWidth);
+            width = width > 0 ? width + horizontalEdges : container.contentWidth - marginLeft - marginRight;
+            box.width = clampWidth(style, width, box.fontSize, container.contentWidth);
+            box.x = container.contentX + marginLeft;
+            box.y = container.cursorY + marginTop;
+        }
+
+        float flowY = box.y;
+        if (position == PositionType.RELATIVE) {
+            CssLength left = style.getLeft();
+            CssLength right = style.getRight();
+            box.x += left == null && right != null
+                    ? -LengthConverter.toPoints(right, box.fontSize, container.contentWidth)
+                    : LengthConverter.toPoints(left, box.fontSize, container.contentWidth);
+            box.y += LengthConverter.toPoints(style.getTop(), box.fontSize, 0);
+        }
+
+        Frame frame = push();
+        frame.reset(box, style, kind, element.hasChildren() ? element.getChildren() : Collections.<HtmlElement>emptyList(),
+                outOfFlow);
+        frame.flowY = flowY;
+        frame.marginBottom = marginBottom;
+        frame.verticalEdges = verticalEdges;
+        frame.fontSize = box.fontSize;
+        frame.positioned = position != PositionType.STATIC ? frame : parent.positioned;
+        frame.setContent(box.x + border + box.paddingLeft, box.y + border + box.paddingTop,
+                Math.max(0, box.width - horizontalEdges));
+        if (inlineFlow) {
+            // the content of an inline box continues on the lines of its container
+            frame.container = container;
+        } else {
+            frame.container = frame;
+            if (kind == LayoutBox.Kind.ROW) {
+                frame.autoCellWidth = autoCellWidth(frame, styles);
+            } else if (textWidth > 0) {
+                placeRun(frame, null, textWidth, box.lineHeight, box.lineHeight);
+            }
+        }
+    }
+
+    // sets the height of a box from its content and advances the flow of its parent
+    private void leave(Frame frame, Frame parent) {
+        LayoutBox box = frame.box;
+        ComputedStyleView style = frame.style;
+        if (frame.container != frame) {
+            // inline box: stretch over the runs of its content
+            Frame container = frame.container;
+            if (container.cursorY == box.y) {
+                box.width = Math.max(box.width, container.lineX - box.x);
+            } else {
+                box.x = container.contentX;
+                box.width = container.contentWidth;
+                box.height = Math.max(box.height, container.cursorY + container.lineHeight - box.y);
+            }
+        } else {
+            float contentHeight;
+            if (frame.kind == LayoutBox.Kind.ROW) {
+                contentHeight = frame.rowHeight;
+            } else {
+                endLine(frame);
+                contentHeight = frame.cursorY - frame.contentY;
+            }
+            float height = lengthOrAuto(style.getHeight(), box.fontSize, 0);
+            box.height = (height > 0 ? height : contentHeight) + frame.verticalEdges;
+            if (frame.kind == LayoutBox.Kind.ROW) {
+                for (int i = 0; i < frame.cellCount; i++) {
+                    LayoutBox cell = boxes.get(frame.cells[i]);
+                    cell.height = Math.max(cell.height, box.height - frame.verticalEdges);
+                }
+            }
+            if (!frame.outOfFlow) {
+                if (frame.kind == LayoutBox.Kind.CELL) {
+                    parent.rowHeight = Math.max(parent.rowHeight, box.height);
+                } else {
+                    Frame container = parent.container;
+                    container.cursorY = frame.flowY + box.height + frame.marginBottom;
+                    container.lineX = container.contentX;
+                    container.lineHeight = 0;
+                }
+            }
+        }
+        bottom = Math.max(bottom, box.y + box.height);
+    }
+
+    // decides how a box takes part in the flow of its parent
+    private static LayoutBox.Kind kindOf(HtmlElement element, ComputedStyleView style, Frame parent) {
+        if (parent.kind == LayoutBox.Kind.ROW) {
+            return LayoutBox.Kind.CELL;
+        }
+        String display = style.getDisplay();
+        if (element.getTagSymbol() == TR || "table-row".equals(display)) {
+            return LayoutBox.Kind.ROW;
+        }
+        int tag = element.getTagSymbol();
+        if (display != null && display.startsWith("inline") && !(tag >= 0 && BLOCK_CONTAINER_TAGS.get(tag))) {
+            return LayoutBox.Kind.INLINE;
+        }
+        return LayoutBox.Kind.BLOCK;
+    }
+
+    // shares the width the cells of a row leave free between the cells with no width
+    private float autoCellWidth(Frame row, Map<HtmlElement, ? extends ComputedStyleView> styles) {
+        float used = 0;
+        int autoCells = 0;
+        for (HtmlElement child : row.children) {
+            ComputedStyleView style = styles.get(child);
+            if (style == null || "none".equals(style.getDisplay())) {
+                continue;
+            }
+            float width = lengthOrAuto(style.getWidth(), row.fontSize, row.contentWidth);
+            if (width > 0) {
+                // counted like enter() sizes the cell: the set width plus padding and border
+                used += width + horizontalEdges(style, fontSize(style, row), row.contentWidth);
+            } else {
+                autoCells++;
+            }
+        }
+        return autoCells == 0 ? 0 : Math.max(0, row.contentWidth - used) / autoCells;
+    }
+
+    // places a run of inline content on the current line, wrapping it over full lines if needed
+    private static void placeRun(Frame container, LayoutBox box, float runWidth, float runHeight, float lineHeight) {
+        float right = container.contentX + container.contentWidth;
+        if (container.lineX > container.contentX && container.lineX + runWidth > right) {
+            newLine(container);
+        }
+        if (box != null) {
+            box.x = container.lineX;
+            box.y = container.cursorY;
+        }
+        if (container.lineX + runWidth <= right || container.contentWidth <= 0) {
+            container.lineX += runWidth;
+            container.lineHeight = Math.max(container.lineHeight, runHeight);
+            if (box != null) {
+                box.width = runWidth;
+                box.height = runHeight;
+            }
+            return;
+        }
+        int lines = (int) Math.ceil(runWidth / container.contentWidth);
+        container.cursorY += (lines - 1) * lineHeight;
+        container.lineX = container.contentX + runWidth - (lines - 1) * container.contentWidth;
+        container.lineHeight = Math.max(lineHeight, runHeight - (lines - 1) * lineHeight);
+        if (box != null) {
+            box.width = container.contentWidth;
+            box.height = Math.max(runHeight, lines * lineHeight);
+        }
+    }
+
+    // ends the current line, if it holds anything, before a block
+    private static void endLine(Frame container) {
+        if (container.lineX > container.contentX || container.lineHeight > 0) {
+            newLine(container);
+        }
+    }
+
+    private static void newLine(Frame container) {
+        container.cursorY += container.lineHeight;
+        container.lineX = container.contentX;
+        container.lineHeight = 0;
+    }
+
+    // a line break: an empty line still takes its height
+    private static void breakLine(Frame container, float lineHeight) {
+        if (container.lineX == container.contentX) {
+            container.lineHeight = Math.max(container.lineHeight, lineHeight);
+        }
+        newLine(container);
+    }
+
+    // resolves the font size; the cascade makes it absolute, relative sizes only come from
+    // styles built by hand and are taken against the parent size
+    private static float fontSize(ComputedStyleView style, Frame parent) {
+        return LengthConverter.toPoints(style.getFontSize(), parent.fontSize, parent.fontSize);
+    }
+
+    private static float lineHeight(ComputedStyleView style, float fontSize) {
+        CssLength lineHeight = style.getLineHeight();
+        if (lineHeight == null) {
+            return fontSize * 1.2f;
+        }
+        return LengthConverter.toPoints(lineHeight, fontSize, fontSize);
+    }
+
+    // resolves a width or height, 0 for auto (unset lengths are stored as 0px)
+    private static float lengthOrAuto(CssLength length, float fontSize, float containerSize) {
+        return Math.max(0, LengthConverter.toPoints(length, fontSize, containerSize));
+    }
+
+    private static float clampWidth(ComputedStyleView style, float width, float fontSize, float containerWidth) {
+        float maxWidth = lengthOrAuto(style.getMaxWidth(), fontSize, containerWidth);
+        if (maxWidth > 0 && width > maxWidth) {
+            width = maxWidth;
+        }
+        return Math.max(width, lengthOrAuto(style.getMinWidth(), fontSize, containerWidth));
+    }
+
+    private static float horizontalEdges(ComputedStyleView style, float fontSize, float containingWidth) {
+        Padding padding = style.getPadding();
+        return toPoints(padding.getLeft(), padding.getLeftUnit(), fontSize, containingWidth)
+                + toPoints(padding.getRight(), padding.getRightUnit(), fontSize, containingWidth)
+                + 2 * borderWidth(style.getBorder(), fontSize);
+    }
+
+    private static float toPoints(float value, CssLength.Unit unit, float fontSize, float containingWidth) {
+        return LengthConverter.toPoints(value, unit, fontSize, containingWidth);
+    }
+
+    private static float borderWidth(Border border, float fontSize) {
+        String style = border.getStyle();
+        if (style == null || "none".equals(style) || "hidden".equals(style)) {
+            return 0;
+        }
+        return LengthConverter.toPoints(border.getWidth(), border.getWidthUnit(), fontSize, 0);
+    }
+
+    // estimates the width of the own text of an element, with collapsed white space
+    private static float textWidth(HtmlElement element, ComputedStyleView style, float fontSize) {
+        if (!element.hasText()) {
+            return 0;
+        }
+        String text = element.getText();
+        int characters = 0;
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                if (!space) {
+                    characters++;
+                    space = true;
+                }
+            } else {
+                characters++;
+                space = false;
+            }
+        }
+        if (space && characters > 0) {
+            characters--;
+        }
+        float em = style.getFontWeight() == FontWeight.BOLD ? BOLD_CHAR_WIDTH_EM : CHAR_WIDTH_EM;
+        return characters * em * fontSize;
+    }
+
+    /**
+     * Releases the elements and styles referenced by the last layout. The last
+     * {@link LayoutResult} must not be used afterwards.
+     */
+    public void release() {
+        clearBoxes(0);
+        boxCount = 0;
+    }
+
+    // drops the element and style references of the pooled boxes from index from on
+    private void clearBoxes(int from) {
+        for (int i = from; i < boxes.size(); i++) {
+            boxes.get(i).reset(null, null, null, null, 0);
+        }
+    }
+
+    private LayoutBox acquire() {
+        if (boxCount == boxes.size()) {
+            boxes.add(new LayoutBox());
+        }
+        return boxes.get(boxCount++);
+    }
+
+    private Frame push() {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frame = new Frame();
+            frames[depth] = frame;
+        }
+        depth++;
+        return frame;
+    }
+
+    // drops references to the laid out tree kept by pooled frames
+    private void clearFrames() {
+        depth = 0;
+        for (Frame frame : frames) {
+            if (frame == null) {
+                break;
+            }
+            frame.reset(null, null, null, null, false);
+        }
+    }
+
+    private static BitSet tagSet(String... tags) {
+        BitSet set = new BitSet();
+        for (String tag : tags) {
+            int symbol = HtmlSymbols.internTag(tag);
+            if (symbol >= 0) {
+                set.set(symbol);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Layout state of an open box: its content area, the line being filled and the
+     * vertical cursor of its flow, or the next cell position for a row.
+     */
+    private static final class Frame {
+        LayoutBox box;
+        ComputedStyleView style;
+        LayoutBox.Kind kind;
+        List<HtmlElement> children;
+        int next;
+        boolean outOfFlow;
+        // frame whose lines the content flows on, this frame unless it is an inline box
+        Frame container;
+        // containing block of absolute descendants
+        Frame positioned;
+        float fontSize;
+        float flowY;
+        float marginBottom;
+        float verticalEdges;
+
+        float contentX, contentY, contentWidth;
+        float cursorY, lineX, lineHeight;
+
+        float cellX, autoCellWidth, rowHeight;
+        int[] cells = new int[8];
+        int cellCount;
+
+        void reset(LayoutBox box, ComputedStyleView style, LayoutBox.Kind kind, List<HtmlElement> children,
+                   boolean outOfFlow) {
+            this.box = box;
+            this.style = style;
+            this.kind = kind;
+            this.children = children;
+            this.outOfFlow = outOfFlow;
+            next = 0;
+            container = null;
+            positioned = null;
+            rowHeight = 0;
+            autoCellWidth = 0;
+            cellCount = 0;
+        }
+
+        void setContent(float x, float y, float width) {
+            contentX = x;
+            contentY = y;
+            contentWidth = width;
+            cursorY = y;
+            lineX = x;
+            lineHeight = 0;
+            cellX = x;
+        }
+
+        void addCell(int boxIndex) {
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, cellCount * 2);
+            }
+            cells[cellCount++] = boxIndex;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package mg.bici.htmltojrxml.layout;
+
+import java.util.List;
+
+/**
+ * The boxes of a laid out document, in document order, and the page they were laid out on.
+ * The boxes belong to the engine and are only valid until its next layout.
+ */
+public class LayoutResult {
+    private final List<LayoutBox> boxes;
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int[] margins;
+    private final float contentWidth;
+    private final float contentHeight;
+
+    LayoutResult(List<LayoutBox> boxes, int pageWidth, int pageHeight, int[] margins,
+                 float contentWidth, float contentHeight) {
+        this.boxes = boxes;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.margins = margins;
+        this.contentWidth = contentWidth;
+        this.contentHeight = contentHeight;
+    }
+
+    public List<LayoutBox> getBoxes() {
+        return boxes;
+    }
+
+    public int getPageWidth() {
+        return pageWidth;
+    }
+
+    public int getPageHeight() {
+        return pageHeight;
+    }
+
+    /**
+     * Gets page margins in points (top, right, bottom, left).
+     */
+    public int[] getMargins() {
+        return margins.clone();
+    }
+
+    public float getContentWidth() {
+        return contentWidth;
+    }
+
+    /**
+     * Gets the height of the laid out content, from the top of the content area to
+     * the bottom of the lowest box.
+     */
+    public float getContentHeight() {
+        return contentHeight;
+    }
+
+    /**
+     * Gets the number of pages the content needs at the configured page height.
+     */
+    public int getPageCount() {
+        float pageContentHeight = pageHeight - margins[0] - margins[2];
+        if (pageContentHeight <= 0) {
+            return 1;
+        }
+        return Math.max(1, (int) Math.ceil(contentHeight / pageContentHeight));
+    }
+}
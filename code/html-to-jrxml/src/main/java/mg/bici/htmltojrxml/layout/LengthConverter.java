@@ -0,0 +1,72 @@
+package mg.bici.htmltojrxml.layout;
+
+import mg.bici.htmltojrxml.css.CssLength;
+
+/**
+ * Converts CSS lengths to points, the unit of JRXML coordinates (1pt = 1/72in).
+ * Pixels are CSS pixels, 96 per inch.
+ */
+public final class LengthConverter {
+    public static final float POINTS_PER_PX = 0.75f;
+    public static final float POINTS_PER_INCH = 72f;
+    public static final float POINTS_PER_CM = 28.3465f;
+    public static final float POINTS_PER_MM = 2.83465f;
+
+    private LengthConverter() {
+    }
+
+    /**
+     * Converts a length to points.
+     *
+     * @param length        the length, may be null
+     * @param fontSize      the font size in points, the base of em lengths
+     * @param containerSize the size in points percentages refer to
+     * @return length in points, 0 for a null length
+     */
+    public static float toPoints(CssLength length, float fontSize, float containerSize) {
+        if (length == null) {
+            return 0;
+        }
+        return toPoints(length.getValue(), length.getUnit(), fontSize, containerSize);
+    }
+
+    /**
+     * Converts a value in a unit to points, e.g. a side of a margin or a padding.
+     *
+     * @param value         the value
+     * @param unit          the unit of the value
+     * @param fontSize      the font size in points, the base of em lengths
+     * @param containerSize the size in points percentages refer to
+     * @return value in points
+     */
+    public static float toPoints(float value, CssLength.Unit unit, float fontSize, float containerSize) {
+        switch (unit) {
+            case PX:
+                return value * POINTS_PER_PX;
+            case PT:
+                return value;
+            case EM:
+                return value * fontSize;
+            case PERCENT:
+                return value * containerSize / 100f;
+            case CM:
+                return value * POINTS_PER_CM;
+            case MM:
+                return value * POINTS_PER_MM;
+            case INCH:
+                return value * POINTS_PER_INCH;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Converts CSS pixels to points.
+     *
+     * @param px the value in pixels
+     * @return value in points
+     */
+    public static float pxToPoints(float px) {
+        return px * POINTS_PER_PX;
+    }
+}
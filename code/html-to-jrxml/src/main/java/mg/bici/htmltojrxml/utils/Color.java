@@ -1,45 +1,128 @@
 package mg.bici.htmltojrxml.utils;
 
 /**
- * Represents an RGB color.
+ * Represents an ARGB color, stored as one packed int (0xAARRGGBB).
+ * The style pipeline works on the packed value; instances are cached views
+ * obtained from {@link #fromArgb(int)} or {@link #of(int, int, int)}.
  */
 public class Color {
-    
-    private final int red, green, blue;
+
+    private static final InternPool<Color> POOL = new InternPool<>(4096);
+    private static final int VIEW_CACHE_SIZE = 1024;
+    private static final Color[] VIEW_CACHE = new Color[VIEW_CACHE_SIZE];
+
+    public static final int OPAQUE_BLACK_ARGB = 0xFF000000;
+    public static final int OPAQUE_WHITE_ARGB = 0xFFFFFFFF;
+
+    public static final Color BLACK = fromArgb(OPAQUE_BLACK_ARGB);
+    public static final Color WHITE = fromArgb(OPAQUE_WHITE_ARGB);
+    public static final Color TRANSPARENT = fromArgb(0);
+
+    private final int argb;
 
     public Color(int red, int green, int blue) {
-        this.red = red;
-        this.green = green;
-        this.blue = blue;
+        this(red, green, blue, 255);
+    }
+
+    public Color(int red, int green, int blue, int alpha) {
+        this(pack(alpha, red, green, blue));
+    }
+
+    private Color(int argb) {
+        this.argb = argb;
+    }
+
+    /**
+     * Gets the canonical instance of an opaque color.
+     *
+     * @param red   red component (0-255)
+     * @param green green component (0-255)
+     * @param blue  blue component (0-255)
+     * @return shared color instance
+     */
+    public static Color of(int red, int green, int blue) {
+        return fromArgb(pack(255, red, green, blue));
+    }
+
+    /**
+     * Gets the canonical instance of a packed ARGB color. Recently used colors
+     * are returned without allocating.
+     *
+     * @param argb the color as 0xAARRGGBB
+     * @return shared color instance
+     */
+    public static Color fromArgb(int argb) {
+        int slot = mix(argb) & (VIEW_CACHE_SIZE - 1);
+        Color cached = VIEW_CACHE[slot];
+        if (cached != null && cached.argb == argb) {
+            return cached;
+        }
+        // racy writes are harmless: instances are immutable and canonical
+        Color color = POOL.intern(new Color(argb));
+        VIEW_CACHE[slot] = color;
+        return color;
+    }
+
+    /**
+     * Packs color components into an ARGB int. Components are masked to 8 bits.
+     *
+     * @param alpha alpha component (0 transparent - 255 opaque)
+     * @param red   red component (0-255)
+     * @param green green component (0-255)
+     * @param blue  blue component (0-255)
+     * @return the color as 0xAARRGGBB
+     */
+    public static int pack(int alpha, int red, int green, int blue) {
+        return (alpha & 0xFF) << 24 | (red & 0xFF) << 16 | (green & 0xFF) << 8 | (blue & 0xFF);
+    }
+
+    public int getArgb() {
+        return argb;
+    }
+
+    public int getAlpha() {
+        return argb >>> 24;
     }
 
     public int getRed() {
-        return red;
+        return (argb >> 16) & 0xFF;
     }
 
     public int getGreen() {
-        return green;
+        return (argb >> 8) & 0xFF;
     }
 
     public int getBlue() {
-        return blue;
+        return argb & 0xFF;
+    }
+
+    public boolean isOpaque() {
+        return getAlpha() == 255;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-        Color color = (Color) o;
-        return red == color.red && green == color.green && blue == color.blue;
+        return argb == ((Color) o).argb;
     }
 
     @Override
     public int hashCode() {
-        return 31 * red + 17 * green + blue;
+        return mix(argb);
     }
 
     @Override
     public String toString() {
-        return "Color(" + red + ", " + green + ", " + blue + ")";
+        if (isOpaque()) {
+            return "Color(" + getRed() + ", " + getGreen() + ", " + getBlue() + ")";
+        }
+        return "Color(" + getRed() + ", " + getGreen() + ", " + getBlue() + ", " + getAlpha() + ")";
+    }
+
+    // spreads all channels over the hash bits (Fibonacci hashing)
+    private static int mix(int argb) {
+        int h = argb * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
-}
\ No newline at end of file
+}
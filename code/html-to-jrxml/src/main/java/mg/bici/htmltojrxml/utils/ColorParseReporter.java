@@ -0,0 +1,21 @@
+package mg.bici.htmltojrxml.utils;
+
+/**
+ * Receives diagnostics for color values that could not be parsed.
+ * Implementations may be called concurrently from several threads.
+ */
+public interface ColorParseReporter {
+
+    /**
+     * Reporter that ignores all diagnostics.
+     */
+    ColorParseReporter SILENT = (value, reason) -> { };
+
+    /**
+     * Reports an unparseable color value.
+     *
+     * @param value  the color value as written, may be null
+     * @param reason why the value was rejected
+     */
+    void report(String value, String reason);
+}
@@ -1,79 +1,290 @@
 package mg.bici.htmltojrxml.utils;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.log4j.Logger;
+
+/**
+ * Parses CSS colors: hex notations (#rgb, #rgba, #rrggbb, #rrggbbaa), rgb()/rgba(),
+ * hsl()/hsla(), the CSS named colors and {@code transparent}. Parsing is a single scan
+ * of the input without regular expressions or intermediate strings, results are
+ * canonical {@link Color} instances, and recently parsed values are served from a
+ * bounded cache.
+ * <p>
+ * Invalid values resolve to black and are reported to the {@link ColorParseReporter},
+ * which logs at debug level by default.
+ */
 public class ColorUtils {
+    private static final Logger LOGGER = Logger.getLogger(ColorUtils.class);
+
+    private static final ColorParseReporter LOGGING_REPORTER = (value, reason) -> {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(reason + ": " + value + ", using black");
+        }
+    };
+
+    static final int MAX_CACHED_RESULTS = 1024;
+    private static final ConcurrentMap<String, Color> RESULTS = new ConcurrentHashMap<>();
 
-    private static final Pattern RGB_PATTERN = Pattern.compile("rgb\\s*\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*,\\s*(\\d+)\\s*\\)");
-    
+    private static volatile ColorParseReporter reporter = LOGGING_REPORTER;
+
+    /**
+     * Parses a CSS color value.
+     *
+     * @param colorString the color value
+     * @return canonical color, black if the value is null or invalid
+     */
     public static Color parseColor(String colorString) {
         if (colorString == null) {
-            System.err.println("Color string is null, returning black");
-            return new Color(0, 0, 0); // default black
-        }
-        
-        colorString = colorString.trim().toLowerCase();
-        
-        // Handle hex colors
-        if (colorString.startsWith("#")) {
-            try {
-                String hex = colorString.substring(1).replaceAll("\\s", "");
-                if (hex.length() == 3) {
-                    hex = "" + hex.charAt(0) + hex.charAt(0) +
-                          hex.charAt(1) + hex.charAt(1) +
-                          hex.charAt(2) + hex.charAt(2);
-                }
-                if (hex.length() != 6) {
-                    System.err.println("Invalid hex color: " + colorString);
-                    return new Color(0, 0, 0);
-                }
-                int rgb = Integer.parseInt(hex, 16);
-                return new Color((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
-            } catch (NumberFormatException e) {
-                System.err.println("Failed to parse hex color: " + colorString + ", " + e.getMessage());
-                return new Color(0, 0, 0); // fallback black
+            reporter.report(null, "Color string is null");
+            return Color.BLACK;
+        }
+        Color color = RESULTS.get(colorString);
+        if (color != null) {
+            return color;
+        }
+        color = parse(colorString);
+        if (color == null) {
+            return Color.BLACK;
+        }
+        // once full, the cache keeps its entries and new values are parsed each time
+        if (RESULTS.size() < MAX_CACHED_RESULTS) {
+            RESULTS.putIfAbsent(colorString, color);
+        }
+        return color;
+    }
+
+    /**
+     * Parses a CSS color value into a packed ARGB int.
+     *
+     * @param colorString the color value
+     * @return the color as 0xAARRGGBB, opaque black if the value is null or invalid
+     */
+    public static int parseArgb(String colorString) {
+        return parseColor(colorString).getArgb();
+    }
+
+    /**
+     * Formats the RGB channels of a packed color as {@code #RRGGBB}, the form JRXML expects.
+     *
+     * @param argb the color as 0xAARRGGBB
+     * @return hex color, alpha is dropped
+     */
+    public static String toHex(int argb) {
+        char[] hex = new char[7];
+        hex[0] = '#';
+        for (int i = 0; i < 6; i++) {
+            hex[6 - i] = Character.toUpperCase(Character.forDigit((argb >>> (i * 4)) & 0xF, 16));
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Sets where diagnostics for invalid colors go.
+     *
+     * @param colorParseReporter the reporter, or null to restore the default log4j reporter
+     */
+    public static void setReporter(ColorParseReporter colorParseReporter) {
+        reporter = colorParseReporter != null ? colorParseReporter : LOGGING_REPORTER;
+    }
+
+    static int cachedResultCount() {
+        return RESULTS.size();
+    }
+
+    // parses a color, reporting and returning null if it is invalid
+    private static Color parse(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && NumberScanner.isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && NumberScanner.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            reporter.report(value, "Empty color");
+            return null;
+        }
+        if (value.charAt(start) == '#') {
+            return parseHex(value, start + 1, end);
+        }
+        int open = start;
+        while (open < end && value.charAt(open) != '(') {
+            open++;
+        }
+        if (open < end) {
+            return parseFunction(value, start, open, end);
+        }
+        if (end - start == 11 && regionMatchesIgnoreCase(value, start, end, "transparent")) {
+            return Color.TRANSPARENT;
+        }
+        Color named = NamedColors.lookup(value, start, end);
+        if (named == null) {
+            reporter.report(value, "Unknown color name");
+        }
+        return named;
+    }
+
+    // parses the digits of a hex color (#rgb, #rgba, #rrggbb or #rrggbbaa)
+    private static Color parseHex(String value, int start, int end) {
+        int length = end - start;
+        if (length != 3 && length != 4 && length != 6 && length != 8) {
+            reporter.report(value, "Invalid hex color");
+            return null;
+        }
+        boolean shortForm = length <= 4;
+        int packed = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = hexDigit(value.charAt(start + i));
+            if (digit < 0) {
+                reporter.report(value, "Invalid hex color");
+                return null;
             }
+            packed = shortForm ? (packed << 8) | (digit * 17) : (packed << 4) | digit;
+        }
+        // hex puts alpha last, ARGB first
+        boolean hasAlpha = length == 4 || length == 8;
+        int argb = hasAlpha ? (packed >>> 8) | (packed << 24) : 0xFF000000 | packed;
+        return Color.fromArgb(argb);
+    }
+
+    /*
+     * Parses rgb(), rgba(), hsl() and hsla() with comma or space separated arguments and an
+     * optional alpha after a comma or '/'.
+     */
+    private static Color parseFunction(String value, int nameStart, int open, int end) {
+        boolean hsl;
+        if (nameMatches(value, nameStart, open, "rgb") || nameMatches(value, nameStart, open, "rgba")) {
+            hsl = false;
+        } else if (nameMatches(value, nameStart, open, "hsl") || nameMatches(value, nameStart, open, "hsla")) {
+            hsl = true;
+        } else {
+            reporter.report(value, "Unknown color function");
+            return null;
         }
-        
-        // Handle RGB functional notation
-        if (colorString.startsWith("rgb(")) {
-            Matcher matcher = RGB_PATTERN.matcher(colorString);
-            if (matcher.matches()) {
-                try {
-                    int r = Integer.parseInt(matcher.group(1));
-                    int g = Integer.parseInt(matcher.group(2));
-                    int b = Integer.parseInt(matcher.group(3));
-                    
-                    // Clamp values to 0-255 range
-                    r = Math.max(0, Math.min(255, r));
-                    g = Math.max(0, Math.min(255, g));
-                    b = Math.max(0, Math.min(255, b));
-                    
-                    return new Color(r, g, b);
-                } catch (NumberFormatException e) {
-                    System.err.println("Failed to parse RGB values: " + colorString + ", " + e.getMessage());
-                    return new Color(0, 0, 0);
-                }
+        if (value.charAt(end - 1) != ')') {
+            reporter.report(value, "Unterminated color function");
+            return null;
+        }
+        float first = 0;
+        float second = 0;
+        float third = 0;
+        float alpha = 1;
+        int percentages = 0; // bit i set when argument i is a percentage
+        int count = 0;
+        int i = skipWhitespace(value, open + 1, end - 1);
+        while (i < end - 1) {
+            if (count == 4) {
+                reporter.report(value, "Too many color arguments");
+                return null;
+            }
+            int numberEnd = NumberScanner.numberEnd(value, i, end - 1);
+            float number = NumberScanner.parseNumber(value, i, numberEnd);
+            if (Float.isNaN(number)) {
+                reporter.report(value, "Invalid color argument");
+                return null;
+            }
+            i = numberEnd;
+            if (i < end - 1 && value.charAt(i) == '%') {
+                percentages |= 1 << count;
+                i++;
+            } else if (hsl && count == 0 && regionMatchesIgnoreCase(value, i, end - 1, "deg")) {
+                i += 3;
+            }
+            if (count == 0) {
+                first = number;
+            } else if (count == 1) {
+                second = number;
+            } else if (count == 2) {
+                third = number;
             } else {
-                System.err.println("Invalid RGB format: " + colorString);
-                return new Color(0, 0, 0);
+                alpha = (percentages & 8) != 0 ? number / 100f : number;
             }
+            count++;
+            int next = skipWhitespace(value, i, end - 1);
+            if (next < end - 1 && (value.charAt(next) == ',' || value.charAt(next) == '/')) {
+                next = skipWhitespace(value, next + 1, end - 1);
+            } else if (next == i && next < end - 1) {
+                reporter.report(value, "Invalid color argument");
+                return null;
+            }
+            i = next;
+        }
+        if (count < 3) {
+            reporter.report(value, "Missing color arguments");
+            return null;
         }
-        
-        // Handle named colors
-        switch (colorString) {
-            case "red":
-                return new Color(255, 0, 0);
-            case "blue":
-                return new Color(0, 0, 255);
-            case "black":
-                return new Color(0, 0, 0);
-            case "white":
-                return new Color(255, 255, 255);
-            default:
-                System.err.println("Unknown color name: " + colorString);
-                return new Color(0, 0, 0); // fallback black
+        int alphaChannel = Math.round(Math.max(0, Math.min(1, alpha)) * 255);
+        if (hsl) {
+            return fromHsl(first, second, third, alphaChannel);
+        }
+        return Color.fromArgb(Color.pack(alphaChannel, channel(first, (percentages & 1) != 0),
+                channel(second, (percentages & 2) != 0),
+                channel(third, (percentages & 4) != 0)));
+    }
+
+    // converts an rgb() argument to a 0-255 channel, clamping out-of-range values
+    private static int channel(float number, boolean percentage) {
+        float scaled = percentage ? number * 255f / 100f : number;
+        return Math.max(0, Math.min(255, Math.round(scaled)));
+    }
+
+    // converts hue in degrees and saturation/lightness in percent to RGB
+    private static Color fromHsl(float hue, float saturation, float lightness, int alpha) {
+        float h = ((hue % 360) + 360) % 360 / 360f;
+        float s = Math.max(0, Math.min(100, saturation)) / 100f;
+        float l = Math.max(0, Math.min(100, lightness)) / 100f;
+        float q = l < 0.5f ? l * (1 + s) : l + s - l * s;
+        float p = 2 * l - q;
+        return Color.fromArgb(Color.pack(alpha, Math.round(hueToRgb(p, q, h + 1f / 3) * 255),
+                Math.round(hueToRgb(p, q, h) * 255),
+                Math.round(hueToRgb(p, q, h - 1f / 3) * 255)));
+    }
+
+    private static float hueToRgb(float p, float q, float t) {
+        if (t < 0) t += 1;
+        if (t > 1) t -= 1;
+        if (t < 1f / 6) return p + (q - p) * 6 * t;
+        if (t < 1f / 2) return q;
+        if (t < 2f / 3) return p + (q - p) * (2f / 3 - t) * 6;
+        return p;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static boolean nameMatches(String value, int start, int end, String name) {
+        // whitespace is allowed between the function name and its parenthesis
+        int nameEnd = end;
+        while (nameEnd > start && NumberScanner.isWhitespace(value.charAt(nameEnd - 1))) {
+            nameEnd--;
+        }
+        return nameEnd - start == name.length() && regionMatchesIgnoreCase(value, start, nameEnd, name);
+    }
+
+    private static boolean regionMatchesIgnoreCase(String value, int start, int end, String expected) {
+        if (end - start < expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (NumberScanner.toLowerAscii(value.charAt(start + i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(String value, int from, int end) {
+        int i = from;
+        while (i < end && NumberScanner.isWhitespace(value.charAt(i))) {
+            i++;
         }
+        return i;
     }
-}
\ No newline at end of file
+}
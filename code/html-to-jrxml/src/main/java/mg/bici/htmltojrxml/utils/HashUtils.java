@@ -0,0 +1,50 @@
+package mg.bici.htmltojrxml.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content hashing helpers used to build cache keys.
+ */
+public class HashUtils {
+
+    /**
+     * Computes the SHA-256 hash of some text.
+     *
+     * @param content the text content
+     * @return hex encoded hash
+     */
+    public static String sha256Hex(String content) {
+        MessageDigest digest = newSha256();
+        return toHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return message digest
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Encodes bytes as lowercase hexadecimal.
+     *
+     * @param bytes the bytes
+     * @return hex string
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
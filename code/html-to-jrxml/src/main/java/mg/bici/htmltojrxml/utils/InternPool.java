@@ -0,0 +1,43 @@
+package mg.bici.htmltojrxml.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe pool of canonical instances for immutable value objects.
+ * Once the pool is full, new values are returned as-is instead of being cached,
+ * so memory stays bounded whatever the input.
+ *
+ * @param <T> value type, must implement equals and hashCode
+ */
+public class InternPool<T> {
+    private final int maxSize;
+    private final ConcurrentMap<T, T> values;
+
+    public InternPool(int maxSize) {
+        this.maxSize = maxSize;
+        this.values = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the canonical instance equal to a value.
+     *
+     * @param value the value
+     * @return canonical instance, or the value itself if the pool is full
+     */
+    public T intern(T value) {
+        T canonical = values.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        canonical = values.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
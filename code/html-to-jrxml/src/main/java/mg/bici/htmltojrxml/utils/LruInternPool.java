@@ -0,0 +1,85 @@
+package mg.bici.htmltojrxml.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe pool of canonical instances that evicts the least recently used value
+ * when full, unlike {@link InternPool} which stops caching. It suits values whose
+ * variety grows with the input, so that a long-running process keeps interning the
+ * values in current use.
+ * <p>
+ * The pool is split into segments chosen by hash, each with its own lock and LRU order,
+ * so eviction is least recently used per segment. An evicted value stays valid, but a
+ * later equal value becomes a new canonical instance.
+ *
+ * @param <T> value type, must implement equals and hashCode
+ */
+public class LruInternPool<T> {
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final Map<T, T>[] segments;
+    private final int mask;
+
+    public LruInternPool(int maxSize) {
+        this(maxSize, Math.min(DEFAULT_SEGMENTS, Integer.highestOneBit(Math.max(1, maxSize))));
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxSize      the maximum number of values
+     * @param segmentCount the number of segments, a power of two not above maxSize
+     */
+    @SuppressWarnings("unchecked")
+    public LruInternPool(int maxSize, int segmentCount) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1 || segmentCount > maxSize) {
+            throw new IllegalArgumentException("Invalid segment count: " + segmentCount);
+        }
+        int segmentSize = maxSize / segmentCount;
+        segments = new Map[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // access-ordered map gives LRU eviction
+            segments[i] = new LinkedHashMap<T, T>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<T, T> eldest) {
+                    return size() > segmentSize;
+                }
+            };
+        }
+        mask = segmentCount - 1;
+    }
+
+    /**
+     * Gets the canonical instance equal to a value, making the value canonical if the
+     * pool holds none.
+     *
+     * @param value the value
+     * @return canonical instance
+     */
+    public T intern(T value) {
+        int h = value.hashCode();
+        Map<T, T> segment = segments[(h ^ (h >>> 16)) & mask];
+        synchronized (segment) {
+            T canonical = segment.get(value);
+            if (canonical != null) {
+                return canonical;
+            }
+            segment.put(value, value);
+            return value;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<T, T> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+}
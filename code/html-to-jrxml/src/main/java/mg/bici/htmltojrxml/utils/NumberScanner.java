@@ -0,0 +1,112 @@
+package mg.bici.htmltojrxml.utils;
+
+/**
+ * Reads decimal numbers out of a character range without creating strings,
+ * for the hand-written CSS value parsers.
+ */
+public final class NumberScanner {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+        1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+
+    private NumberScanner() {
+    }
+
+    /**
+     * Finds the end of the number starting at an offset: an optional sign, then digits
+     * and decimal points.
+     *
+     * @param value the characters
+     * @param start the start offset
+     * @param end   the end offset (exclusive)
+     * @return the offset just after the number
+     */
+    public static int numberEnd(CharSequence value, int start, int end) {
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        while (i < end) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Parses the decimal number in a range, as found by {@link #numberEnd}.
+     *
+     * @param value the characters
+     * @param start the start offset
+     * @param end   the end offset (exclusive)
+     * @return the number, or NaN if the range is not a number
+     */
+    public static float parseNumber(CharSequence value, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (fraction) {
+                    return Float.NaN;
+                }
+                fraction = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return Float.NaN;
+            }
+            digits++;
+            if (significant < MAX_SIGNIFICANT_DIGITS && scale < MAX_SIGNIFICANT_DIGITS) {
+                if (mantissa != 0 || c != '0') {
+                    significant++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if (!fraction) {
+                scale--; // integer digits beyond the mantissa precision
+            }
+        }
+        if (digits == 0) {
+            return Float.NaN;
+        }
+        double number = scale >= 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa * Math.pow(10, -scale);
+        return (float) (negative ? -number : number);
+    }
+
+    /**
+     * Lowercases an ASCII letter, leaving other characters unchanged.
+     *
+     * @param c the character
+     * @return lowercase character
+     */
+    public static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Checks for CSS whitespace.
+     *
+     * @param c the character
+     * @return true for space, tab, line feed, carriage return or form feed
+     */
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+}
@@ -0,0 +1,137 @@
+package mg.bici.htmltojrxml.web;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import mg.bici.htmltojrxml.exceptions.ValidationException;
+
+/**
+ * The fields of a conversion request, decoded from an
+ * {@code application/x-www-form-urlencoded} body and the query string. Body fields win
+ * over query fields of the same name.
+ */
+final class ConversionRequest {
+    static final String DEFAULT_NAME = "report";
+
+    enum Format {
+        JRXML("application/xml", ".jrxml"),
+        PDF("application/pdf", ".pdf");
+
+        final String contentType;
+        final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    private final String name;
+    private final String html;
+    private final String css;
+    private final Format format;
+
+    private ConversionRequest(String name, String html, String css, Format format) {
+        this.name = name;
+        this.html = html;
+        this.css = css;
+        this.format = format;
+    }
+
+    /**
+     * Decodes a request.
+     *
+     * @param queryString the query string, or null
+     * @param body        the form encoded body
+     * @return decoded request
+     * @throws ValidationException if the html field is missing, the format is unknown or
+     *                             a field is badly encoded
+     */
+    static ConversionRequest parse(String queryString, byte[] body) {
+        Map<String, String> fields = new HashMap<>();
+        decodeForm(queryString, fields);
+        decodeForm(new String(body, StandardCharsets.ISO_8859_1), fields);
+        String html = fields.get("html");
+        if (html == null || html.trim().isEmpty()) {
+            throw new ValidationException("The html field is required");
+        }
+        String css = fields.get("css");
+        return new ConversionRequest(safeName(fields.get("name")), html, css == null ? "" : css,
+                format(fields.get("format")));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getHtml() {
+        return html;
+    }
+
+    String getCss() {
+        return css;
+    }
+
+    Format getFormat() {
+        return format;
+    }
+
+    // the form is ASCII once percent encoded, so decoding ISO-8859-1 keeps every byte
+    private static void decodeForm(String form, Map<String, String> fields) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        while (start <= form.length()) {
+            int end = form.indexOf('&', start);
+            if (end < 0) {
+                end = form.length();
+            }
+            int equals = form.indexOf('=', start);
+            if (end > start) {
+                if (equals < 0 || equals > end) {
+                    fields.put(decode(form.substring(start, end)), "");
+                } else {
+                    fields.put(decode(form.substring(start, equals)), decode(form.substring(equals + 1, end)));
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new ValidationException("Badly encoded form field", e);
+        }
+    }
+
+    private static Format format(String value) {
+        if (value == null || value.isEmpty()) {
+            return Format.JRXML;
+        }
+        for (Format format : Format.values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new ValidationException("Unknown format: " + value);
+    }
+
+    // the name ends up in a file name, so only letters, digits, '-' and '_' are kept
+    private static String safeName(String value) {
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_NAME;
+        }
+        StringBuilder name = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            name.append(c < 128 && (Character.isLetterOrDigit(c) || c == '-' || c == '_') ? c : '_');
+        }
+        return name.toString();
+    }
+}
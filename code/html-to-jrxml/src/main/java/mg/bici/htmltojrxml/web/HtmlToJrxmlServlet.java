@@ -0,0 +1,391 @@
+package mg.bici.htmltojrxml.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+
+import mg.bici.htmltojrxml.core.CompiledReport;
+import mg.bici.htmltojrxml.core.ConversionCache;
+import mg.bici.htmltojrxml.core.HtmlToJrxmlConverter;
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+
+/**
+ * Converts an HTML mockup to JRXML or PDF without holding a container thread. The
+ * request body is read with a {@link ReadListener}, the conversion runs on a dedicated
+ * bounded pool, and the output is written with a {@link javax.servlet.WriteListener}
+ * as it is produced (see {@link StreamingResponse}).
+ * <p>
+ * Requests are {@code POST}s of an {@code application/x-www-form-urlencoded} form with
+ * the fields {@code html}, and optionally {@code css}, {@code name} and {@code format}
+ * ({@code jrxml}, the default, or {@code pdf}); {@code name} and {@code format} may also
+ * be passed in the query string. Errors are answered as {@code {"error": "..."}}: 400
+ * for a bad request or document, 413 for a body over the limit, 415 for another content
+ * type, 503 when the conversion queue is full or the servlet is shutting down and 500
+ * otherwise. A failure once the output has started aborts the response, as do a timeout
+ * and a connection error, which also cancel the conversion.
+ * <p>
+ * Init parameters: {@code threads} (default: one per processor), {@code queueCapacity}
+ * (conversions waiting for a thread), {@code maxRequestBytes} and {@code timeoutMillis}.
+ */
+@WebServlet(urlPatterns = "/html-to-jrxml", asyncSupported = true)
+public class HtmlToJrxmlServlet extends HttpServlet {
+    public static final int DEFAULT_QUEUE_CAPACITY = 32;
+    public static final long DEFAULT_MAX_REQUEST_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 120000L;
+
+    private static final Logger LOGGER = Logger.getLogger(HtmlToJrxmlServlet.class);
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    private HtmlToJrxmlConverter converter;
+    private ThreadPoolExecutor executor;
+    private long maxRequestBytes;
+    private long timeoutMillis;
+    private final Set<Exchange> exchanges = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void init() throws ServletException {
+        int threads = (int) longParameter("threads", Runtime.getRuntime().availableProcessors());
+        int queueCapacity = (int) longParameter("queueCapacity", DEFAULT_QUEUE_CAPACITY);
+        maxRequestBytes = longParameter("maxRequestBytes", DEFAULT_MAX_REQUEST_BYTES);
+        timeoutMillis = longParameter("timeoutMillis", DEFAULT_TIMEOUT_MILLIS);
+        if (threads <= 0 || queueCapacity <= 0 || maxRequestBytes <= 0) {
+            throw new ServletException("threads, queueCapacity and maxRequestBytes must be positive");
+        }
+        try {
+            converter = new HtmlToJrxmlConverter(new ConversionCache(ConversionCache.DEFAULT_MAX_ENTRIES, null));
+        } catch (IOException e) {
+            throw new ServletException("Failed to create the conversion cache", e);
+        }
+        // a full queue rejects new conversions instead of piling them up
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ConversionThreadFactory());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        // requests still reading or queued are answered; running conversions were interrupted
+        for (Exchange exchange : exchanges) {
+            exchange.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    new IllegalStateException("The service is shutting down, retry later"));
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String contentType = request.getContentType();
+        if (contentType == null
+                || !contentType.regionMatches(true, 0, FORM_CONTENT_TYPE, 0, FORM_CONTENT_TYPE.length())) {
+            sendError(response, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Expected " + FORM_CONTENT_TYPE);
+            return;
+        }
+        if (request.getContentLengthLong() > maxRequestBytes) {
+            sendError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body too large");
+            return;
+        }
+        AsyncContext context = request.startAsync();
+        context.setTimeout(timeoutMillis);
+        Exchange exchange = new Exchange(response, context);
+        exchanges.add(exchange);
+        context.addListener(new AbortListener(exchange));
+        response.getOutputStream().setWriteListener(exchange.output);
+        ServletInputStream input = request.getInputStream();
+        input.setReadListener(new RequestReader(input, request.getQueryString(), exchange));
+    }
+
+    // converts on a pool thread; runs once the whole body has been read
+    private void convert(ConversionRequest request, Exchange exchange) {
+        HttpServletResponse response = exchange.response;
+        StreamingResponse output = exchange.output;
+        try {
+            output.setHeaders(() -> {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType(request.getFormat().contentType);
+                response.setHeader("Content-Disposition",
+                        "attachment; filename=\"" + request.getName() + request.getFormat().extension + "\"");
+            });
+            if (request.getFormat() == ConversionRequest.Format.PDF) {
+                CompiledReport report = converter.compile(request.getName(), request.getHtml(), request.getCss());
+                JasperPrint print = JasperFillManager.fillReport(report.getJasperReport(), new HashMap<>(),
+                        new JREmptyDataSource());
+                JasperExportManager.exportReportToPdfStream(print, output);
+            } else {
+                converter.convert(request.getName(), request.getHtml(), request.getCss(), output);
+            }
+            output.close();
+        } catch (ConversionException e) {
+            fail(exchange, statusOf(e), e);
+        } catch (JRException | IOException | RuntimeException e) {
+            fail(exchange, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+        }
+    }
+
+    // answers with an error status, or aborts the response if the output has started
+    private void fail(Exchange exchange, int status, Exception e) {
+        HttpServletResponse response = exchange.response;
+        StreamingResponse output = exchange.output;
+        if (output.isStarted()) {
+            LOGGER.error("Conversion failed after the response started", e);
+            output.abort();
+            return;
+        }
+        if (status == HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            LOGGER.error("Conversion failed", e);
+        }
+        String message = status == HttpServletResponse.SC_INTERNAL_SERVER_ERROR ? "Conversion failed" : e.getMessage();
+        output.resetBuffer();
+        output.setHeaders(() -> {
+            response.setStatus(status);
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+        });
+        try {
+            output.write(errorJson(message).getBytes(StandardCharsets.UTF_8));
+            output.close();
+        } catch (IOException writeError) {
+            LOGGER.warn("Failed to send the error response", writeError);
+            output.abort();
+        }
+    }
+
+    private void submit(ConversionRequest request, Exchange exchange) {
+        try {
+            exchange.setConversion(executor.submit(() -> {
+                if (exchange.claim()) {
+                    convert(request, exchange);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            exchange.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    new IllegalStateException("Too many conversions in progress, retry later"));
+        }
+    }
+
+    private static int statusOf(ConversionException e) {
+        switch (e.getErrorCode()) {
+            case PARSING_ERROR:
+            case VALIDATION_ERROR:
+                return HttpServletResponse.SC_BAD_REQUEST;
+            default:
+                return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+    }
+
+    // errors found before going async are small, so they are written directly
+    private static void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getOutputStream().write(errorJson(message).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String errorJson(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        String text = message == null ? "" : message;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString();
+    }
+
+    private long longParameter(String name, long defaultValue) throws ServletException {
+        String value = getInitParameter(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ServletException("Invalid init parameter " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * A request between {@code startAsync} and its completion. Whoever claims it first
+     * writes the response: the conversion, or a rejection such as a full queue or the
+     * servlet shutting down. Anyone coming later can only abort it.
+     */
+    private class Exchange {
+        final HttpServletResponse response;
+        final StreamingResponse output;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile Future<?> conversion;
+        private volatile boolean cancelled;
+
+        Exchange(HttpServletResponse response, AsyncContext context) throws IOException {
+            this.response = response;
+            this.output = new StreamingResponse(response.getOutputStream(), () -> {
+                exchanges.remove(this);
+                context.complete();
+            });
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        // answers with an error unless someone else owns the response, which is then aborted
+        void reject(int status, Exception e) {
+            if (claim()) {
+                fail(this, status, e);
+            } else {
+                output.abort();
+            }
+        }
+
+        void setConversion(Future<?> conversion) {
+            this.conversion = conversion;
+            if (cancelled) {
+                conversion.cancel(true);
+            }
+        }
+
+        // stops the conversion, queued or running, and completes the response
+        void cancel() {
+            cancelled = true;
+            Future<?> current = conversion;
+            if (current != null) {
+                current.cancel(true);
+            }
+            output.abort();
+        }
+    }
+
+    /**
+     * Reads the request body without blocking and submits the conversion once it is all in.
+     */
+    private class RequestReader implements ReadListener {
+        private final ServletInputStream input;
+        private final String queryString;
+        private final Exchange exchange;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final byte[] buffer = new byte[8192];
+        private boolean rejected;
+
+        RequestReader(ServletInputStream input, String queryString, Exchange exchange) {
+            this.input = input;
+            this.queryString = queryString;
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            while (!rejected && input.isReady()) {
+                int n = input.read(buffer);
+                if (n < 0) {
+                    return;
+                }
+                if (body.size() + n > maxRequestBytes) {
+                    // the length header may be missing or wrong with chunked bodies
+                    rejected = true;
+                    exchange.reject(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                            new IllegalStateException("Request body too large"));
+                    return;
+                }
+                body.write(buffer, 0, n);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (rejected) {
+                return;
+            }
+            ConversionRequest request;
+            try {
+                request = ConversionRequest.parse(queryString, body.toByteArray());
+            } catch (ConversionException e) {
+                exchange.reject(HttpServletResponse.SC_BAD_REQUEST, e);
+                return;
+            }
+            submit(request, exchange);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.warn("Failed to read the request", t);
+            exchange.cancel();
+        }
+    }
+
+    /**
+     * Cancels the conversion and stops streaming when the request times out or the
+     * connection fails.
+     */
+    private static class AbortListener implements AsyncListener {
+        private final Exchange exchange;
+
+        AbortListener(Exchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            LOGGER.warn("Conversion timed out");
+            exchange.cancel();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            exchange.cancel();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Creates named daemon conversion threads.
+     */
+    private static class ConversionThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "html-to-jrxml-web-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package mg.bici.htmltojrxml.web;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Output stream handing what a conversion writes to a response in non-blocking mode.
+ * The converting thread fills chunks and queues them; queued chunks are written to the
+ * response whenever it is ready, right after queueing or from {@link #onWritePossible()}.
+ * At most {@code maxPendingChunks} chunks wait, so a client slower than the conversion
+ * blocks the converting thread, never a container thread, and memory stays bounded.
+ * <p>
+ * Headers are set by a callback when the first chunk is queued, so until then an error
+ * can still change the status. The completion callback runs once, after {@link #close()}
+ * when the last chunk is written, or on {@link #abort()}.
+ */
+final class StreamingResponse extends OutputStream implements WriteListener {
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+    static final int DEFAULT_MAX_PENDING_CHUNKS = 64;
+
+    private static final Logger LOGGER = Logger.getLogger(StreamingResponse.class);
+
+    private final ServletOutputStream out;
+    private final Runnable onComplete;
+    private final BlockingQueue<byte[]> pending;
+    private final byte[] chunk;
+    private final Object writeLock = new Object();
+    private int count;
+    private volatile Runnable headers;
+    private volatile boolean started;
+    private volatile boolean closed;
+    private volatile boolean aborted;
+    private boolean completed; // guarded by writeLock
+
+    StreamingResponse(ServletOutputStream out, Runnable onComplete) {
+        this(out, onComplete, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PENDING_CHUNKS);
+    }
+
+    StreamingResponse(ServletOutputStream out, Runnable onComplete, int chunkSize, int maxPendingChunks) {
+        this.out = out;
+        this.onComplete = onComplete;
+        this.pending = new ArrayBlockingQueue<>(maxPendingChunks);
+        this.chunk = new byte[chunkSize];
+    }
+
+    /**
+     * Sets the callback setting status and headers, run before the first chunk is
+     * queued. Has no effect once the response has started.
+     */
+    void setHeaders(Runnable headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Tells whether bytes were handed to the response, after which the status and the
+     * headers can no longer change.
+     */
+    boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Drops the bytes not handed to the response yet, e.g. the start of a report whose
+     * conversion failed before the first chunk was full.
+     */
+    void resetBuffer() {
+        count = 0;
+    }
+
+    /**
+     * Drops what is still queued, makes further writes fail and completes the response
+     * unless it was already, e.g. when the client is gone or the request timed out.
+     */
+    void abort() {
+        aborted = true;
+        pending.clear(); // wakes a producer waiting for room
+        boolean wasCompleted;
+        synchronized (writeLock) {
+            wasCompleted = completed;
+            completed = true;
+        }
+        if (!wasCompleted) {
+            onComplete.run();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == chunk.length) {
+            queueChunk();
+        }
+        chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (count == chunk.length) {
+                queueChunk();
+            }
+            int n = Math.min(length, chunk.length - count);
+            System.arraycopy(bytes, offset, chunk, count, n);
+            count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Does nothing: the writers below flush after every band, and bytes are sent
+     * chunk by chunk rather than in many small writes.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (count > 0 || !started) {
+            queueChunk();
+        }
+        closed = true;
+        drain();
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        LOGGER.warn("Failed to write the response", t);
+        abort();
+    }
+
+    // hands the filled part of the chunk to the response, waiting for room in the queue
+    private void queueChunk() throws IOException {
+        if (aborted) {
+            throw new IOException("The response was aborted");
+        }
+        if (!started) {
+            if (headers != null) {
+                headers.run();
+            }
+            started = true;
+        }
+        try {
+            pending.put(Arrays.copyOf(chunk, count));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the client");
+        }
+        count = 0;
+        drain();
+    }
+
+    // writes queued chunks while the response accepts them; when it stops, the container
+    // calls onWritePossible once it is ready again
+    private void drain() throws IOException {
+        synchronized (writeLock) {
+            while (!completed && out.isReady()) {
+                byte[] next = pending.poll();
+                if (next == null) {
+                    if (closed) {
+                        completed = true;
+                        onComplete.run();
+                    }
+                    return;
+                }
+                out.write(next);
+            }
+        }
+    }
+}
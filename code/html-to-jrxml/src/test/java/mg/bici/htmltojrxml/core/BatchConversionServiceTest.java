@@ -0,0 +1,81 @@
+package mg.bici.htmltojrxml.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.exceptions.ConversionException;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.utils.Color;
+
+public class BatchConversionServiceTest {
+    private BatchConversionService service;
+
+    @Before
+    public void setUp() {
+        service = new BatchConversionService(4, 2);
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void testConvertAll_ConvertsEveryDocument() {
+        List<ConversionInput> inputs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            inputs.add(new ConversionInput("slip-" + i, "<div class=\"total\">" + i + "</div>"));
+        }
+
+        List<BatchResult> results = service.convertAll(inputs.iterator(), ".total { color: red; }");
+
+        assertEquals(20, results.size());
+        for (BatchResult result : results) {
+            assertTrue(result.isSuccess());
+            HtmlElement div = result.getDocument().getDocument().getElements().get(0);
+            ImmutableComputedStyle style = result.getDocument().getStyle(div);
+            assertNotNull(style);
+            assertEquals(Color.of(255, 0, 0), style.getColor());
+        }
+    }
+
+    @Test
+    public void testConvertAll_FailureDoesNotAffectOtherDocuments() {
+        List<ConversionInput> inputs = new ArrayList<>();
+        inputs.add(new ConversionInput("ok-1", "<p>first</p>"));
+        inputs.add(new ConversionInput("broken", "<div><p>unclosed</div>"));
+        inputs.add(new ConversionInput("ok-2", "<p>second</p>"));
+
+        Map<String, ConversionException> failures = new HashMap<>();
+        List<String> successes = new ArrayList<>();
+        service.convertAll(inputs.iterator(), "p { color: red; }", new BatchCallback() {
+            @Override
+            public synchronized void onSuccess(String id, StyledDocument document) {
+                successes.add(id);
+            }
+
+            @Override
+            public synchronized void onFailure(String id, ConversionException error) {
+                failures.put(id, error);
+            }
+        });
+
+        assertEquals(2, successes.size());
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey("broken"));
+        assertFalse(successes.contains("broken"));
+        assertEquals(ConversionException.ErrorCode.PARSING_ERROR, failures.get("broken").getErrorCode());
+    }
+}
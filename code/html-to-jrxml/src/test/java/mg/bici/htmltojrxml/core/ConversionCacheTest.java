@@ -0,0 +1,130 @@
+package mg.bici.htmltojrxml.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+
+public class ConversionCacheTest {
+    private static final String HTML = "<html><body><h1>Invoice</h1><p>Total</p></body></html>";
+    private static final String CSS = "h1 { font-size: 16pt; }";
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("conversion-cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testCompile_RepeatedInputIsServedFromMemory() throws Exception {
+        ConversionCache cache = new ConversionCache(4, null);
+        HtmlToJrxmlConverter converter = new HtmlToJrxmlConverter(cache);
+
+        CompiledReport first = converter.compile("invoice", HTML, CSS);
+        CompiledReport second = converter.compile("invoice", HTML, CSS);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getMemoryHitCount());
+    }
+
+    @Test
+    public void testGet_ReadsDirectoryTierOfAnotherInstance() throws Exception {
+        CompiledReport stored = new HtmlToJrxmlConverter(new ConversionCache(4, directory))
+                .compile("invoice", HTML, CSS);
+
+        ConversionCache restarted = new ConversionCache(4, directory);
+        CompiledReport loaded = restarted.get(stored.getKey());
+
+        assertNotNull(loaded);
+        assertNotNull(loaded.getJasperReport());
+        assertArrayEquals(stored.getJrxml(), loaded.getJrxml());
+        assertEquals(1, restarted.getDiskHitCount());
+        assertSame(loaded, restarted.get(stored.getKey()));
+        assertEquals(1, restarted.getMemoryHitCount());
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsed() throws Exception {
+        ConversionCache cache = new ConversionCache(2, null);
+        cache.put(new CompiledReport("a", new byte[0], null));
+        cache.put(new CompiledReport("b", new byte[0], null));
+        cache.get("a"); // a becomes most recent
+        cache.put(new CompiledReport("c", new byte[0], null)); // evicts b
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void testGet_UnreadableEntryIsAMiss() throws Exception {
+        Files.write(directory.resolve("broken.jrxml"), new byte[]{'<'});
+        Files.write(directory.resolve("broken.jasper"), new byte[]{1, 2, 3});
+        ConversionCache cache = new ConversionCache(4, directory);
+
+        assertNull(cache.get("broken"));
+        assertEquals(1, cache.getMissCount());
+        assertFalse(Files.exists(directory.resolve("broken.jasper")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testConstructor_RefusesDirectoryWritableByOthers() throws Exception {
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+        new ConversionCache(4, directory);
+    }
+
+    @Test
+    public void testGet_EntryWritableByOthersIsAMiss() throws Exception {
+        CompiledReport stored = new HtmlToJrxmlConverter(new ConversionCache(4, directory))
+                .compile("invoice", HTML, CSS);
+        Path jasper = directory.resolve(stored.getKey() + ".jasper");
+        Files.setPosixFilePermissions(jasper, PosixFilePermissions.fromString("rw-rw-rw-"));
+        ConversionCache cache = new ConversionCache(4, directory);
+
+        assertNull(cache.get(stored.getKey()));
+        assertEquals(1, cache.getMissCount());
+        assertFalse(Files.exists(jasper));
+    }
+
+    @Test
+    public void testKey_DependsOnEveryInput() {
+        ConversionConfig config = new ConversionConfig();
+        FontMappingConfig fonts = new FontMappingConfig();
+        Properties properties = new Properties();
+        properties.setProperty("font.default.size", "12");
+        String key = ConversionCache.key("invoice", HTML, CSS, config, fonts);
+
+        assertEquals(key, ConversionCache.key("invoice", HTML, CSS, new ConversionConfig(), fonts));
+        assertNotEquals(key, ConversionCache.key("invoice", HTML, CSS + " ", config, fonts));
+        assertNotEquals(key, ConversionCache.key("invoice", HTML, CSS, new ConversionConfig(properties), fonts));
+        assertNotEquals(ConversionCache.key("ab", "c", CSS, config, fonts),
+                ConversionCache.key("a", "bc", CSS, config, fonts));
+    }
+}
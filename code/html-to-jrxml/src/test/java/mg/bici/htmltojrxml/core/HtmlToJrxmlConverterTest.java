@@ -0,0 +1,27 @@
+package mg.bici.htmltojrxml.core;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class HtmlToJrxmlConverterTest {
+
+    @Test
+    public void testConvert_WritesJrxmlReport() {
+        HtmlToJrxmlConverter converter = new HtmlToJrxmlConverter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        converter.convert("payslip", "<html><body><h1>Payslip</h1><table><tr><td>Salary</td><td class=\"amount\">1 000,00</td></tr></table></body></html>",
+                "h1 { font-size: 16pt; } .amount { text-align: right; }", out);
+
+        String jrxml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(jrxml.startsWith("<?xml"));
+        assertTrue(jrxml.contains("name=\"payslip\""));
+        assertTrue(jrxml.contains("<text>Payslip</text>"));
+        assertTrue(jrxml.contains("hTextAlign=\"Right\""));
+        assertTrue(jrxml.trim().endsWith("</jasperReport>"));
+    }
+}
@@ -0,0 +1,104 @@
+package mg.bici.htmltojrxml.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalConverterTest {
+    private static final String CSS = "h1 { font-size: 16pt; } .total { font-weight: bold; } .alert { color: #FF0000; }";
+
+    private IncrementalConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new IncrementalConverter();
+    }
+
+    @Test
+    public void testConvert_SameVersionReusesEveryBand() {
+        String html = invoice("1 000,00", "total");
+        String first = convert(html);
+        String second = convert(html);
+
+        assertEquals(first, second);
+        assertEquals(0, converter.getChangedElementCount());
+        assertEquals(0, converter.getWrittenBandCount());
+        assertEquals(4, converter.getReusedBandCount());
+    }
+
+    @Test
+    public void testConvert_TextEditRewritesOnlyItsBand() {
+        convert(invoice("1 000,00", "total"));
+        String edited = convert(invoice("2 000,00", "total"));
+
+        assertEquals(0, converter.getChangedElementCount());
+        assertEquals(1, converter.getWrittenBandCount());
+        assertEquals(3, converter.getReusedBandCount());
+        // styles are unchanged, so the output is the one of a full conversion
+        assertEquals(fullConversion(invoice("2 000,00", "total")), edited);
+    }
+
+    @Test
+    public void testConvert_ClassChangeRestylesSubtree() {
+        convert(invoice("1 000,00", "total"));
+        String edited = convert(invoice("1 000,00", "alert"));
+
+        // the div and its span, whose selectors may now match differently
+        assertEquals(2, converter.getChangedElementCount());
+        assertEquals(3, converter.getCarriedElementCount());
+        assertTrue(edited.contains("forecolor=\"#FF0000\""));
+        assertEquals(1, converter.getWrittenBandCount());
+    }
+
+    @Test
+    public void testConvert_InsertedElementKeepsTheOthersPaired() {
+        convert(invoice("1 000,00", "total"));
+        convert("<html><body><h1>Invoice</h1><p>Inserted</p><p>Client</p><p>Items</p>"
+                + "<div class=\"total\"><span>1 000,00</span></div></body></html>");
+
+        assertEquals(1, converter.getChangedElementCount());
+        assertEquals(5, converter.getCarriedElementCount());
+    }
+
+    @Test
+    public void testConvert_StylesheetChangeRestylesEverything() {
+        String html = invoice("1 000,00", "total");
+        convert(html);
+        converter.convert("invoice", html, CSS + " p { color: #0000FF; }", new ByteArrayOutputStream());
+
+        assertEquals(0, converter.getCarriedElementCount());
+    }
+
+    @Test
+    public void testReset_ConvertsFromScratch() {
+        String html = invoice("1 000,00", "total");
+        convert(html);
+        converter.reset();
+        String output = convert(html);
+
+        assertEquals(0, converter.getReusedBandCount());
+        assertEquals(fullConversion(html), output);
+    }
+
+    private static String invoice(String total, String totalClass) {
+        return "<html><body><h1>Invoice</h1><p>Client</p><p>Items</p>"
+                + "<div class=\"" + totalClass + "\"><span>" + total + "</span></div></body></html>";
+    }
+
+    private String convert(String html) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.convert("invoice", html, CSS, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String fullConversion(String html) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new HtmlToJrxmlConverter().convert("invoice", html, CSS, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
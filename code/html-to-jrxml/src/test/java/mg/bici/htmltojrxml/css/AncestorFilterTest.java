@@ -0,0 +1,91 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+public class AncestorFilterTest {
+    private final SelectorCompiler compiler = new SelectorCompiler();
+
+    @Test
+    public void testMightMatchAncestors_RejectsMissingNames() {
+        HtmlElement table = element("table", null, "report");
+        HtmlElement row = element("tr", table, "odd");
+        AncestorFilter filter = new AncestorFilter();
+        filter.push(table);
+        filter.push(row);
+
+        assertTrue(compiler.compile("table.report tr.odd td").mightMatchAncestors(filter));
+        assertTrue(compiler.compile("tr > td").mightMatchAncestors(filter));
+        assertFalse(compiler.compile("ul li td").mightMatchAncestors(filter));
+        assertFalse(compiler.compile(".summary td").mightMatchAncestors(filter));
+        assertFalse(compiler.compile("#totals td").mightMatchAncestors(filter));
+
+        filter.pop();
+        assertFalse(compiler.compile("tr.odd td").mightMatchAncestors(filter));
+        assertTrue(compiler.compile("table td").mightMatchAncestors(filter));
+    }
+
+    @Test
+    public void testMoveTo_SeedsAncestorChainAndPopsSiblings() {
+        HtmlElement section = element("section", null, "invoice");
+        HtmlElement table = element("table", section);
+        HtmlElement row = element("tr", table, "odd");
+        HtmlElement list = element("ul", section);
+        AncestorFilter filter = new AncestorFilter();
+
+        filter.moveTo(row);
+        assertEquals(3, filter.getDepth());
+        assertTrue(compiler.compile(".invoice table tr td").mightMatchAncestors(filter));
+
+        // the list follows the table: its parent stays, the table and row go
+        filter.moveTo(section);
+        assertEquals(1, filter.getDepth());
+        filter.push(list);
+        assertFalse(compiler.compile("tr.odd li").mightMatchAncestors(filter));
+        assertTrue(compiler.compile(".invoice ul li").mightMatchAncestors(filter));
+
+        filter.moveTo(null);
+        assertEquals(0, filter.getDepth());
+    }
+
+    @Test
+    public void testComputeStyles_MatchesUnfilteredCascade() {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                "div.page p { color: #112233; } .missing span { color: red; } " +
+                "div > p > span { font-weight: bold; } #main .note span { font-size: 14px; }");
+        List<HtmlElement> roots = new HtmlDocumentParser().parseHtml(
+                "<div id=\"main\" class=\"page\"><p>a <span>b</span></p>" +
+                "<div class=\"note\"><p><span>c</span></p></div></div><p><span>d</span></p>").getElements();
+
+        Map<HtmlElement, ImmutableComputedStyle> styles = analyzer.computeStyles(roots, stylesheet);
+
+        for (Map.Entry<HtmlElement, ImmutableComputedStyle> entry : styles.entrySet()) {
+            HtmlElement element = entry.getKey();
+            ImmutableComputedStyle parentStyle = element.getParent() == null ? null : styles.get(element.getParent());
+            ImmutableComputedStyle expected = analyzer.computeStyle(element, parentStyle, stylesheet).toImmutable();
+            assertEquals(expected, entry.getValue());
+        }
+    }
+
+    private HtmlElement element(String tag, HtmlElement parent, String... classes) {
+        HtmlElement element = new HtmlElement();
+        element.setTagName(tag);
+        element.setClasses(Arrays.asList(classes));
+        if (parent != null) {
+            element.setParent(parent);
+            parent.addChild(element);
+        }
+        return element;
+    }
+}
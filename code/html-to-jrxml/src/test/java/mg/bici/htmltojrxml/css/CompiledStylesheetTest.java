@@ -0,0 +1,78 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+public class CompiledStylesheetTest {
+    private CompiledStylesheet compiled;
+
+    @Before
+    public void setUp() {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        String css = "td { padding: 2px; }\n" +
+                     ".amount { text-align: right; }\n" +
+                     "#total { font-weight: bold; }\n" +
+                     "table td.amount { color: red; }\n" +
+                     "[data-test] { padding: 5px; }\n" +
+                     "h1, h2 { font-size: 14px; }";
+        compiled = CompiledStylesheet.compile(analyzer.parseStylesheet(css));
+    }
+
+    @Test
+    public void testCompile_SplitsSelectorGroups() {
+        assertEquals(7, compiled.getRuleCount());
+        assertEquals("h1", compiled.getRules().get(5).getSelector());
+        assertEquals("h2", compiled.getRules().get(6).getSelector());
+    }
+
+    @Test
+    public void testGetCascadeCandidates_OnlyReturnsRelevantBuckets() {
+        HtmlElement cell = new HtmlElement();
+        cell.setTagName("td");
+        cell.setClasses(Arrays.asList("amount"));
+
+        List<StyleRule> candidates = compiled.getCascadeCandidates(cell);
+
+        assertEquals(4, candidates.size());
+        assertEquals("td", candidates.get(0).getSelector());
+        assertEquals(".amount", candidates.get(1).getSelector());
+        assertEquals("[data-test]", candidates.get(2).getSelector());
+        assertEquals("table td.amount", candidates.get(3).getSelector());
+    }
+
+    @Test
+    public void testGetCascadeCandidates_TagBucketIgnoresCase() {
+        HtmlElement heading = new HtmlElement();
+        heading.setTagName("H2");
+
+        List<StyleRule> candidates = compiled.getCascadeCandidates(heading);
+
+        assertEquals(2, candidates.size());
+        assertEquals("h2", candidates.get(0).getSelector());
+        assertEquals("[data-test]", candidates.get(1).getSelector());
+    }
+
+    @Test
+    public void testGetCascadeCandidates_OrdersBySpecificityThenSource() {
+        HtmlElement cell = new HtmlElement();
+        cell.setTagName("td");
+        cell.setId("total");
+        cell.setClasses(Arrays.asList("amount", "amount"));
+
+        List<StyleRule> candidates = compiled.getCascadeCandidates(cell);
+
+        assertEquals(5, candidates.size());
+        assertEquals("td", candidates.get(0).getSelector());
+        assertEquals(".amount", candidates.get(1).getSelector());
+        assertEquals("[data-test]", candidates.get(2).getSelector());
+        assertEquals("table td.amount", candidates.get(3).getSelector());
+        assertEquals("#total", candidates.get(4).getSelector());
+    }
+}
@@ -1,6 +1,8 @@
 package mg.bici.htmltojrxml.css;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -80,4 +82,22 @@ public class ComputedStyleTest {
         assertEquals(TextDecoration.UNDERLINE, style.getTextDecoration());
         assertEquals(1.5f, style.getLineHeight().getValue(), 0.01);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testColorsAreStoredAsArgb() {
+        style.setColorArgb(0x80FF0000);
+        assertEquals(0x80FF0000, style.getColorArgb());
+        assertEquals(new Color(255, 0, 0, 128), style.getColor());
+        assertEquals(0xFFFFFFFF, style.getBackgroundColorArgb());
+    }
+
+    @Test
+    public void testLengthViewsAreShared() {
+        style.setWidth(new CssLength(42, CssLength.Unit.MM));
+        assertSame(style.getWidth(), style.getWidth());
+        assertEquals(CssLength.Unit.MM, style.getWidth().getUnit());
+
+        style.setHeight(null);
+        assertNull(style.getHeight());
+    }
+}
@@ -2,9 +2,15 @@ package mg.bici.htmltojrxml.css;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -53,7 +59,7 @@ public class CssStyleAnalyzerTest {
         title.setClasses(Arrays.asList("title"));
         title.setParent(container);
         title.setInlineStyles(new HashMap<>());
-        container.getChildren().add(title);
+        container.addChild(title);
 
         span = new HtmlElement();
         span.setTagName("span");
@@ -64,9 +70,9 @@ public class CssStyleAnalyzerTest {
         p.setAttributes(new HashMap<String, String>() {{ put("data-test", "value"); }});
         p.setParent(container);
         p.setInlineStyles(new HashMap<>());
-        p.getChildren().add(span);
+        p.addChild(span);
         span.setParent(p);
-        container.getChildren().add(p);
+        container.addChild(p);
     }
 
     @Test
@@ -121,7 +127,7 @@ public class CssStyleAnalyzerTest {
 
     @Test
     public void testApplyCascade_OverridesInlineStyles() {
-        container.getInlineStyles().put("color", "blue");
+        container.putInlineStyle("color", "blue");
         CSSStyleSheet stylesheet = analyzer.parseStylesheet(testCss);
         ComputedStyle style = new ComputedStyle();
         analyzer.applyCascade(container, stylesheet, style);
@@ -139,4 +145,123 @@ public class CssStyleAnalyzerTest {
         assertEquals(10f, style.getFontSize().getValue(), 0.01);
         assertEquals("block", style.getDisplay());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testComputeStyles_SharesStyleBetweenIdenticalCells() {
+        HtmlElement row = new HtmlElement();
+        row.setTagName("tr");
+        HtmlElement first = cell(row, "amount");
+        HtmlElement second = cell(row, "amount");
+        HtmlElement label = cell(row, "label");
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                "tr { color: blue; } .amount { text-align: right; }");
+
+        Map<HtmlElement, ImmutableComputedStyle> styles = analyzer.computeStyles(Arrays.asList(row), stylesheet);
+
+        assertEquals(4, styles.size());
+        assertSame(styles.get(first), styles.get(second));
+        assertNotSame(styles.get(first), styles.get(label));
+        assertEquals(TextAlign.RIGHT, styles.get(first).getTextAlign());
+        assertEquals(TextAlign.LEFT, styles.get(label).getTextAlign());
+    }
+
+    @Test
+    public void testComputeStyles_InheritsFromParent() {
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(testCss);
+
+        Map<HtmlElement, ImmutableComputedStyle> styles = analyzer.computeStyles(Arrays.asList(container), stylesheet);
+
+        // span inherits the container font size through p
+        assertEquals(12f, styles.get(span).getFontSize().getValue(), 0.01);
+        assertEquals(new Color(0, 0, 0), styles.get(span).getColor());
+        assertEquals(new Color(255, 0, 0), styles.get(span.getParent()).getColor());
+    }
+
+    @Test
+    public void testComputeStyles_KeepsPreviousStyleUnlessParentStyleChanged() {
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(testCss);
+        CascadeCountingElement div = counting("div", null);
+        CascadeCountingElement p = counting("p", div);
+        CascadeCountingElement child = counting("span", p);
+        Map<HtmlElement, ImmutableComputedStyle> styles = analyzer.computeStyles(Arrays.asList(div), stylesheet);
+        List<CascadeCountingElement> elements = Arrays.asList(div, p, child);
+        elements.forEach(element -> element.cascades = 0);
+
+        // nothing changed, every element keeps its previous style without a cascade
+        Map<HtmlElement, ImmutableComputedStyle> kept = analyzer.computeStyles(Arrays.asList(div), stylesheet,
+                new IdentityHashMap<>(styles));
+        for (CascadeCountingElement element : elements) {
+            assertSame(styles.get(element), kept.get(element));
+            assertEquals(0, element.cascades);
+        }
+
+        // the p has no previous style, so it and the span below it are cascaded again
+        Map<HtmlElement, ImmutableComputedStyle> previous = new IdentityHashMap<>(styles);
+        previous.remove(p);
+        Map<HtmlElement, ImmutableComputedStyle> restyled = analyzer.computeStyles(Arrays.asList(div), stylesheet, previous);
+        assertEquals(0, div.cascades);
+        assertTrue(p.cascades > 0);
+        assertTrue(child.cascades > 0);
+        assertEquals(styles.get(child), restyled.get(child));
+    }
+
+    @Test
+    public void testComputeStyle_MoreSpecificRuleWinsRegardlessOfOrder() {
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                "#container { color: red; } div.main { color: green; } div { color: blue; }");
+
+        assertEquals(new Color(255, 0, 0), analyzer.computeStyle(container, stylesheet).getColor());
+    }
+
+    @Test
+    public void testComputeStyle_LaterRuleWinsOnEqualSpecificity() {
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                ".main { color: red; } div { font-size: 20px; } .main { color: blue; }");
+
+        assertEquals(new Color(0, 0, 255), analyzer.computeStyle(container, stylesheet).getColor());
+    }
+
+    @Test
+    public void testComputeStyle_ImportantDeclarationsOrder() {
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                "div { color: green !important; font-size: 20px !important; } #container { color: red; }");
+        container.putInlineStyle("color", "blue");
+        container.putInlineStyle("font-size", "8px !important");
+
+        ComputedStyle style = analyzer.computeStyle(container, stylesheet);
+
+        // author !important beats inline, inline !important beats author !important
+        assertEquals(new Color(0, 128, 0), style.getColor());
+        assertEquals(8f, style.getFontSize().getValue(), 0.01);
+    }
+
+    private CascadeCountingElement counting(String tag, HtmlElement parent) {
+        CascadeCountingElement element = new CascadeCountingElement();
+        element.setTagName(tag);
+        if (parent != null) {
+            element.setParent(parent);
+            parent.addChild(element);
+        }
+        return element;
+    }
+
+    private HtmlElement cell(HtmlElement row, String className) {
+        HtmlElement cell = new HtmlElement();
+        cell.setTagName("td");
+        cell.setClasses(Arrays.asList(className));
+        cell.setParent(row);
+        row.addChild(cell);
+        return cell;
+    }
+
+    // counts the cascades of an element: applying inline styles is the last step of every one
+    private static final class CascadeCountingElement extends HtmlElement {
+        int cascades;
+
+        @Override
+        public boolean hasInlineStyles() {
+            cascades++;
+            return super.hasInlineStyles();
+        }
+    }
+}
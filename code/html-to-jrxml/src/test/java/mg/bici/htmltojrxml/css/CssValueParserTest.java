@@ -0,0 +1,110 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CssValueParserTest {
+
+    @Test
+    public void testParseLength_AllUnits() {
+        assertLength(12, CssLength.Unit.PX, CssValueParser.parseLength("12px"));
+        assertLength(10.5f, CssLength.Unit.PT, CssValueParser.parseLength("10.5pt"));
+        assertLength(1.2f, CssLength.Unit.EM, CssValueParser.parseLength("1.2em"));
+        assertLength(50, CssLength.Unit.PERCENT, CssValueParser.parseLength("50%"));
+        assertLength(2.5f, CssLength.Unit.CM, CssValueParser.parseLength("2.5cm"));
+        assertLength(15, CssLength.Unit.MM, CssValueParser.parseLength("15mm"));
+        assertLength(1, CssLength.Unit.INCH, CssValueParser.parseLength("1in"));
+    }
+
+    @Test
+    public void testParseLength_SignsCaseAndWhitespace() {
+        assertLength(-4, CssLength.Unit.PX, CssValueParser.parseLength("-4px"));
+        assertLength(0.5f, CssLength.Unit.EM, CssValueParser.parseLength(" .5EM "));
+        assertLength(7, CssLength.Unit.PX, CssValueParser.parseLength("7"));
+    }
+
+    @Test
+    public void testParseLength_CommonValuesAreShared() {
+        assertSame(CssLength.ZERO, CssValueParser.parseLength("0"));
+        assertSame(CssLength.ZERO, CssValueParser.parseLength("0pt"));
+        assertSame(CssValueParser.parseLength("12px"), CssValueParser.parseLength("12px"));
+        assertSame(CssValueParser.parseLength("3.75mm"), CssValueParser.parseLength("3.75mm"));
+    }
+
+    @Test
+    public void testParseLength_InvalidIsZero() {
+        assertSame(CssLength.ZERO, CssValueParser.parseLength("auto"));
+        assertSame(CssLength.ZERO, CssValueParser.parseLength("12vh"));
+        assertSame(CssLength.ZERO, CssValueParser.parseLength("1.2.3px"));
+        assertSame(CssLength.ZERO, CssValueParser.parseLength(""));
+    }
+
+    @Test
+    public void testParseMargin_ExpandsOneToFourValues() {
+        assertSides(Margin.of(5, 5, 5, 5), CssValueParser.parseMargin("5px"));
+        assertSides(Margin.of(1, 2, 1, 2), CssValueParser.parseMargin("1px 2px"));
+        assertSides(Margin.of(1, 2, 3, 2), CssValueParser.parseMargin("1px 2px 3px"));
+        assertSides(Margin.of(1, 2, 3, 4), CssValueParser.parseMargin("1px  2px\t3px 4px"));
+    }
+
+    @Test
+    public void testParseMargin_ZeroAndInvalidAreNone() {
+        assertSame(Margin.NONE, CssValueParser.parseMargin("0"));
+        assertSame(Margin.NONE, CssValueParser.parseMargin("0 0 0 0"));
+        assertSame(Margin.NONE, CssValueParser.parseMargin("1px 2px 3px 4px 5px"));
+        assertSame(Margin.NONE, CssValueParser.parseMargin("   "));
+    }
+
+    @Test
+    public void testParsePadding_ThreeValuesInPoints() {
+        Padding padding = CssValueParser.parsePadding("3pt 6pt 9pt");
+        assertEquals(4, padding.getTop(), 0.001);
+        assertEquals(8, padding.getRight(), 0.001);
+        assertEquals(12, padding.getBottom(), 0.001);
+        assertEquals(8, padding.getLeft(), 0.001);
+        assertEquals(CssLength.Unit.PX, padding.getTopUnit());
+        assertSame(Padding.NONE, CssValueParser.parsePadding("0px"));
+    }
+
+    @Test
+    public void testParsePadding_AbsoluteUnitsBecomePixels() {
+        Padding padding = CssValueParser.parsePadding("1cm 10mm 0.5in 1in");
+        assertEquals(37.795f, padding.getTop(), 0.001);
+        assertEquals(37.795f, padding.getRight(), 0.001);
+        assertEquals(48, padding.getBottom(), 0.001);
+        assertEquals(96, padding.getLeft(), 0.001);
+        assertEquals(CssLength.Unit.PX, padding.getBottomUnit());
+    }
+
+    @Test
+    public void testParseMargin_KeepsRelativeUnits() {
+        Margin margin = CssValueParser.parseMargin("2em 10%");
+        assertEquals(2, margin.getTop(), 0.001);
+        assertEquals(CssLength.Unit.EM, margin.getTopUnit());
+        assertEquals(10, margin.getRight(), 0.001);
+        assertEquals(CssLength.Unit.PERCENT, margin.getRightUnit());
+        assertEquals(CssLength.Unit.EM, margin.getBottomUnit());
+        assertEquals(CssLength.Unit.PERCENT, margin.getLeftUnit());
+        assertSame(margin, CssValueParser.parseMargin("2EM 10%"));
+    }
+
+    @Test
+    public void testParseBorderWidth_KeepsWidestSide() {
+        assertLength(3, CssLength.Unit.PX, CssValueParser.parseBorderWidth("1px 3px 2px"));
+        assertLength(4, CssLength.Unit.PX, CssValueParser.parseBorderWidth("1px 3pt"));
+        assertLength(0.5f, CssLength.Unit.EM, CssValueParser.parseBorderWidth("1px 0.5em"));
+        assertSame(CssLength.ZERO, CssValueParser.parseBorderWidth("10%"));
+        assertSame(CssLength.ZERO, CssValueParser.parseBorderWidth("thin"));
+    }
+
+    private void assertLength(float value, CssLength.Unit unit, CssLength length) {
+        assertEquals(value, length.getValue(), 0.0001);
+        assertEquals(unit, length.getUnit());
+    }
+
+    private void assertSides(Margin expected, Margin actual) {
+        assertSame(expected, actual);
+    }
+}
@@ -0,0 +1,125 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.utils.Color;
+
+public class DeclarationBlockTest {
+
+    @Test
+    public void testDecode_DropsUnknownPropertiesAndOtherPriority() {
+        DeclarationBlock block = DeclarationBlock.decode(Arrays.asList(
+                new StyleDeclaration("color", "red", false),
+                new StyleDeclaration("cursor", "pointer", false),
+                new StyleDeclaration("font-size", "14px", true)), false);
+
+        assertEquals(1, block.size());
+        assertSame(DeclarationBlock.EMPTY, DeclarationBlock.decode(Arrays.asList(
+                new StyleDeclaration("cursor", "pointer", true)), true));
+    }
+
+    @Test
+    public void testApplyTo_BoxAndPositionProperties() {
+        ComputedStyle style = apply(
+                "border", "2px dashed rgb(0, 0, 255)",
+                "background-color", "#eeeeee",
+                "position", "absolute",
+                "top", "10px",
+                "left", "auto",
+                "display", "Block",
+                "min-width", "5pt");
+
+        assertEquals(2f, style.getBorder().getWidth(), 0.01);
+        assertEquals("dashed", style.getBorder().getStyle());
+        assertEquals(Color.of(0, 0, 255), style.getBorder().getColor());
+        assertEquals(Color.of(0xEE, 0xEE, 0xEE), style.getBackgroundColor());
+        assertEquals(PositionType.ABSOLUTE, style.getPosition());
+        assertEquals(CssLength.of(10, CssLength.Unit.PX), style.getTop());
+        assertNull(style.getLeft());
+        assertEquals("block", style.getDisplay());
+        assertEquals(CssLength.of(5, CssLength.Unit.PT), style.getMinWidth());
+    }
+
+    @Test
+    public void testApplyTo_BorderLonghandsUpdateShorthand() {
+        ComputedStyle style = apply(
+                "border", "thin solid black",
+                "border-color", "red",
+                "border-width", "thick",
+                "border-style", "dotted");
+
+        assertEquals(Border.of(5, "dotted", Color.of(255, 0, 0)), style.getBorder());
+    }
+
+    @Test
+    public void testApplyTo_KeywordsDoNotDependOnDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        // Turkish maps i to a dotted capital I and I to a dotless small i
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            ComputedStyle style = apply(
+                    "text-align", "right",
+                    "display", "INLINE",
+                    "border-style", "SOLID",
+                    "position", "fixed");
+
+            assertEquals(TextAlign.RIGHT, style.getTextAlign());
+            assertEquals("inline", style.getDisplay());
+            assertEquals("solid", style.getBorder().getStyle());
+            assertEquals(PositionType.FIXED, style.getPosition());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testApplyTo_TextProperties() {
+        ComputedStyle style = apply(
+                "line-height", "1.5",
+                "text-decoration", "underline dotted",
+                "font-style", "italic",
+                "font-weight", "700",
+                "TEXT-ALIGN", "right");
+
+        assertEquals(CssLength.of(1.5f, CssLength.Unit.EM), style.getLineHeight());
+        assertEquals(TextDecoration.UNDERLINE, style.getTextDecoration());
+        assertEquals(FontStyle.ITALIC, style.getFontStyle());
+        assertEquals(FontWeight.BOLD, style.getFontWeight());
+        assertEquals(TextAlign.RIGHT, style.getTextAlign());
+        assertEquals(CssLength.of(14, CssLength.Unit.PX), apply("line-height", "14px").getLineHeight());
+        assertEquals(CssLength.DEFAULT_LINE_HEIGHT, apply("line-height", "normal").getLineHeight());
+    }
+
+    @Test
+    public void testDecodeInline_SplitsImportantValues() {
+        Map<String, String> inline = new LinkedHashMap<>();
+        inline.put("color", "red ! important");
+        inline.put("font-size", "9pt");
+
+        ComputedStyle style = new ComputedStyle();
+        DeclarationBlock.decodeInline(inline, true).applyTo(style);
+
+        assertEquals(Color.of(255, 0, 0), style.getColor());
+        assertEquals(CssLength.DEFAULT_FONT_SIZE, style.getFontSize());
+        assertEquals(1, DeclarationBlock.decodeInline(inline, false).size());
+    }
+
+    private static ComputedStyle apply(String... propertiesAndValues) {
+        DeclarationBlock.Builder builder = new DeclarationBlock.Builder(propertiesAndValues.length / 2);
+        for (int i = 0; i < propertiesAndValues.length; i += 2) {
+            builder.add(propertiesAndValues[i], propertiesAndValues[i + 1]);
+        }
+        ComputedStyle style = new ComputedStyle();
+        builder.build().applyTo(style);
+        return style;
+    }
+}
@@ -0,0 +1,64 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.utils.Color;
+
+public class ImmutableComputedStyleTest {
+
+    @Test
+    public void testBuild_IdenticalValuesShareInstance() {
+        ImmutableComputedStyle first = ComputedStyle.builder()
+                .fontSize(new CssLength(12, CssLength.Unit.PX))
+                .color(new Color(255, 0, 0))
+                .build();
+        ImmutableComputedStyle second = ComputedStyle.builder()
+                .fontSize(new CssLength(12, CssLength.Unit.PX))
+                .color(new Color(255, 0, 0))
+                .build();
+
+        assertSame(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void testBuild_DifferentValuesAreDistinct() {
+        ImmutableComputedStyle bold = ComputedStyle.builder().fontWeight(FontWeight.BOLD).build();
+        ImmutableComputedStyle normal = ComputedStyle.builder().build();
+
+        assertNotSame(bold, normal);
+        assertSame(normal, new ComputedStyle().toImmutable());
+    }
+
+    @Test
+    public void testToBuilder_CopiesValues() {
+        ImmutableComputedStyle base = ComputedStyle.builder().textAlign(TextAlign.RIGHT).build();
+        ImmutableComputedStyle derived = base.toBuilder().fontWeight(FontWeight.BOLD).build();
+
+        assertEquals(TextAlign.RIGHT, derived.getTextAlign());
+        assertEquals(FontWeight.BOLD, derived.getFontWeight());
+        assertEquals(FontWeight.NORMAL, base.getFontWeight());
+    }
+
+    @Test
+    public void testValueObjects_AreInterned() {
+        assertSame(CssLength.of(0, CssLength.Unit.PX), CssLength.ZERO);
+        assertSame(Padding.of(0, 0, 0, 0), Padding.NONE);
+        assertSame(Color.of(0, 0, 0), Color.BLACK);
+    }
+
+    @Test
+    public void testToImmutable_IsDetachedFromSource() {
+        ComputedStyle source = new ComputedStyle();
+        source.setDisplay("table-cell");
+        ImmutableComputedStyle style = source.toImmutable();
+        source.setDisplay("block");
+
+        assertEquals("table-cell", style.getDisplay());
+        assertSame(style, style.toImmutable());
+    }
+}
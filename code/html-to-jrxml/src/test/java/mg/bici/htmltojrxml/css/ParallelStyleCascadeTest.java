@@ -0,0 +1,90 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+public class ParallelStyleCascadeTest {
+
+    @Test
+    public void testComputeStylesParallel_MatchesSequentialCascade() {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                "table { font-size: 9px; } tr.odd td { color: #336699; } " +
+                "td.amount { text-align: right; } .total td { font-weight: bold; }");
+        List<HtmlElement> roots = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            roots.add(table(200, 6));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        Map<HtmlElement, ImmutableComputedStyle> sequential = analyzer.computeStyles(roots, stylesheet);
+        Map<HtmlElement, ImmutableComputedStyle> parallel = analyzer.computeStylesParallel(roots, stylesheet, pool, 50);
+        pool.shutdown();
+
+        assertSameStyles(sequential, parallel);
+    }
+
+    @Test
+    public void testComputeStylesParallel_DeepChainDoesNotOverflowStack() {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        CompiledStylesheet stylesheet = analyzer.compileStylesheet(
+                "section div { color: #336699; } .leaf { font-weight: bold; }");
+        HtmlElement root = element("section", null);
+        HtmlElement parent = root;
+        for (int i = 0; i < 20000; i++) {
+            parent = element("div", parent);
+        }
+        element("span", parent, "leaf");
+        List<HtmlElement> roots = Arrays.asList(root);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        Map<HtmlElement, ImmutableComputedStyle> sequential = analyzer.computeStyles(roots, stylesheet);
+        Map<HtmlElement, ImmutableComputedStyle> parallel = analyzer.computeStylesParallel(roots, stylesheet, pool, 16);
+        pool.shutdown();
+
+        assertEquals(20002, parallel.size());
+        assertSameStyles(sequential, parallel);
+    }
+
+    private void assertSameStyles(Map<HtmlElement, ImmutableComputedStyle> expected,
+                                  Map<HtmlElement, ImmutableComputedStyle> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (Map.Entry<HtmlElement, ImmutableComputedStyle> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    private HtmlElement table(int rows, int columns) {
+        HtmlElement table = element("table", null);
+        for (int r = 0; r < rows; r++) {
+            HtmlElement row = element("tr", table, r % 2 == 0 ? "even" : "odd");
+            if (r == rows - 1) {
+                row.setClasses(Arrays.asList("total"));
+            }
+            for (int c = 0; c < columns; c++) {
+                element("td", row, c == columns - 1 ? "amount" : "label");
+            }
+        }
+        return table;
+    }
+
+    private HtmlElement element(String tag, HtmlElement parent, String... classes) {
+        HtmlElement element = new HtmlElement();
+        element.setTagName(tag);
+        element.setClasses(Arrays.asList(classes));
+        if (parent != null) {
+            element.setParent(parent);
+            parent.addChild(element);
+        }
+        return element;
+    }
+}
@@ -0,0 +1,88 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SelectorCompilerTest {
+    private SelectorCompiler compiler;
+
+    @Before
+    public void setUp() {
+        compiler = new SelectorCompiler();
+    }
+
+    @Test
+    public void testCompile_StoresCompoundsRightToLeft() {
+        CompiledSelector selector = compiler.compile("div > p span.amount");
+
+        assertTrue(selector.isSupported());
+        CompoundSelector[] compounds = selector.getCompounds();
+        assertEquals(3, compounds.length);
+        assertEquals("span", compounds[0].getTag());
+        assertArrayEquals(new Object[]{"amount"}, compounds[0].getClasses());
+        assertEquals("p", compounds[1].getTag());
+        assertEquals("div", compounds[2].getTag());
+        assertEquals(Combinator.DESCENDANT, selector.getCombinators()[0]);
+        assertEquals(Combinator.CHILD, selector.getCombinators()[1]);
+    }
+
+    @Test
+    public void testCompile_UniversalAndAttributeSelectors() {
+        CompiledSelector selector = compiler.compile("*[data-test]");
+
+        assertTrue(selector.isSupported());
+        assertNull(selector.getRightmost().getTag());
+        assertArrayEquals(new Object[]{"data-test"}, selector.getRightmost().getAttributeNames());
+    }
+
+    @Test
+    public void testCompile_LowerCasesNamesIndependentlyOfDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            CompiledSelector selector = compiler.compile("LI[TITLE]");
+
+            assertEquals("li", selector.getRightmost().getTag());
+            assertArrayEquals(new Object[]{"title"}, selector.getRightmost().getAttributeNames());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testCompile_ComputesSpecificity() {
+        assertEquals(CompiledSelector.packSpecificity(0, 0, 1), compiler.compile("td").getSpecificity());
+        assertEquals(CompiledSelector.packSpecificity(0, 2, 2), compiler.compile("table.report td[data-x]").getSpecificity());
+        assertEquals(CompiledSelector.packSpecificity(1, 1, 1), compiler.compile("#total > span.amount").getSpecificity());
+        assertEquals(0, compiler.compile("*").getSpecificity());
+        // eleven classes still lose to one id
+        assertTrue(compiler.compile(".a.b.c.d.e.f.g.h.i.j.k").getSpecificity()
+                < compiler.compile("#x").getSpecificity());
+    }
+
+    @Test
+    public void testCompile_UnsupportedSyntax() {
+        assertFalse(compiler.compile("a:hover").isSupported());
+        assertFalse(compiler.compile("h1 + p").isSupported());
+        assertFalse(compiler.compile("div >").isSupported());
+    }
+
+    @Test
+    public void testCompileList_SplitsSelectorGroup() {
+        List<CompiledSelector> selectors = compiler.compileList("h1, h2 > span, [title='a,b']");
+
+        assertEquals(3, selectors.size());
+        assertEquals("h1", selectors.get(0).getText());
+        assertEquals("h2 > span", selectors.get(1).getText());
+        assertEquals("[title='a,b']", selectors.get(2).getText());
+    }
+}
@@ -9,6 +9,8 @@ import java.util.HashMap;
 import org.junit.Before;
 import org.junit.Test;
 
+import mg.bici.htmltojrxml.html.CompactDocument;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
 import mg.bici.htmltojrxml.html.HtmlElement;
 
 public class SelectorMatcherTest {
@@ -33,7 +35,7 @@ public class SelectorMatcherTest {
         title.setClasses(Arrays.asList("title"));
         title.setParent(container);
         title.setInlineStyles(new HashMap<>());
-        container.getChildren().add(title);
+        container.addChild(title);
 
         span = new HtmlElement();
         span.setTagName("span");
@@ -44,9 +46,9 @@ public class SelectorMatcherTest {
         p.setAttributes(new HashMap<String, String>() {{ put("data-test", "value"); }});
         p.setParent(container);
         p.setInlineStyles(new HashMap<>());
-        p.getChildren().add(span);
+        p.addChild(span);
         span.setParent(p);
-        container.getChildren().add(p);
+        container.addChild(p);
     }
 
     @Test
@@ -85,4 +87,37 @@ public class SelectorMatcherTest {
         assertTrue(matcher.matches(span.getParent(), "[data-test]"));
         assertFalse(matcher.matches(title, "[data-test]"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMatches_MixedCombinatorChain() {
+        assertTrue(matcher.matches(span, "div > p span"));
+        assertTrue(matcher.matches(span, "div p > span"));
+        assertFalse(matcher.matches(span, "div > span"));
+        assertFalse(matcher.matches(span, "h1 > p span"));
+    }
+
+    @Test
+    public void testMatches_CompoundSelector() {
+        assertTrue(matcher.matches(container, "div#container.main"));
+        assertTrue(matcher.matches(span.getParent(), "p[data-test=value]"));
+        assertFalse(matcher.matches(span.getParent(), "p[data-test=other]"));
+        assertFalse(matcher.matches(container, "div.title"));
+    }
+
+    @Test
+    public void testMatches_UnsupportedSelectorNeverMatches() {
+        assertFalse(matcher.matches(title, "h1:hover"));
+        assertFalse(matcher.matches(title, "div + h1"));
+    }
+
+    @Test
+    public void testMatches_CaseInsensitiveTagAndCompactElements() {
+        assertTrue(matcher.matches(title, "DIV > H1.title"));
+
+        CompactDocument document = new HtmlDocumentParser()
+                .parseCompactHtml("<div class=\"main\"><p data-test=\"value\"><span class=\"x\">a</span></p></div>");
+        HtmlElement compactSpan = document.getRoots().get(0).getChildren().get(0).getChildren().get(0);
+        assertTrue(matcher.matches(compactSpan, "div.main p[data-test=value] > span.x"));
+        assertFalse(matcher.matches(compactSpan, "div.other span"));
+    }
+}
@@ -0,0 +1,49 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+public class StyleSharingCacheTest {
+    private StyleSharingCache cache;
+
+    @Before
+    public void setUp() {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        cache = new StyleSharingCache(CompiledStylesheet.compile(
+                analyzer.parseStylesheet("li { color: red; } #total { font-weight: bold; }")));
+    }
+
+    @Test
+    public void testKeyFor_TagCaseDoesNotDependOnDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(cache.keyFor(element("li", null), null), cache.keyFor(element("LI", null), null));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testKeyFor_DifferentTagsOrIdRulesDoNotShare() {
+        assertNotEquals(cache.keyFor(element("li", null), null), cache.keyFor(element("td", null), null));
+        assertNull(cache.keyFor(element("td", "total"), null));
+    }
+
+    private static HtmlElement element(String tagName, String id) {
+        HtmlElement element = new HtmlElement();
+        element.setTagName(tagName);
+        element.setId(id);
+        element.setClasses(Arrays.asList("item"));
+        return element;
+    }
+}
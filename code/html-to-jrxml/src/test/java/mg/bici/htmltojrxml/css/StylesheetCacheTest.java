@@ -0,0 +1,43 @@
+package mg.bici.htmltojrxml.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StylesheetCacheTest {
+    private StylesheetCache cache;
+    private CssStyleAnalyzer analyzer;
+
+    @Before
+    public void setUp() {
+        cache = new StylesheetCache(2);
+        analyzer = new CssStyleAnalyzer(cache);
+    }
+
+    @Test
+    public void testCompileStylesheet_SameContentIsCompiledOnce() {
+        CompiledStylesheet first = analyzer.compileStylesheet("td { padding: 2px; }");
+        CompiledStylesheet second = analyzer.compileStylesheet("td { padding: 2px; }");
+
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testCompileStylesheet_EvictsLeastRecentlyUsed() {
+        CompiledStylesheet a = analyzer.compileStylesheet("a { color: red; }");
+        analyzer.compileStylesheet("b { color: red; }");
+        analyzer.compileStylesheet("a { color: red; }"); // a becomes most recent
+        analyzer.compileStylesheet("c { color: red; }"); // evicts b
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, analyzer.compileStylesheet("a { color: red; }"));
+        assertNotNull(analyzer.compileStylesheet("b { color: red; }"));
+        assertEquals(4, cache.getMissCount());
+    }
+}
@@ -0,0 +1,115 @@
+package mg.bici.htmltojrxml.html;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactDocumentTest {
+    private HtmlDocumentParser parser;
+    private String testHtml;
+
+    @Before
+    public void setUp() {
+        parser = new HtmlDocumentParser();
+        testHtml = "<div id=\"container\" class=\"main wide\" style=\"font-size: 12px; color: red;\">" +
+                   "<h1 class=\"title\">Payslip</h1>" +
+                   "<p style=\"margin: 10px;\">Employee: <span id=\"name\">John Doe</span></p>" +
+                   "<table class=\"data\"><tbody><tr><th>Item</th><td>Salary</td></tr></tbody></table>" +
+                   "</div>" +
+                   "<p class=\"note\">End</p>";
+    }
+
+    @Test
+    public void testParseCompactHtml_MatchesElementTree() {
+        List<HtmlElement> expected = parser.parseHtml(testHtml).getElements();
+        CompactDocument document = parser.parseCompactHtml(testHtml);
+
+        List<HtmlElement> roots = document.getRoots();
+        assertEquals(expected.size(), roots.size());
+        for (int i = 0; i < roots.size(); i++) {
+            assertSameTree(expected.get(i), roots.get(i));
+        }
+    }
+
+    @Test
+    public void testElementViews_AreCanonical() {
+        CompactDocument document = parser.parseCompactHtml(testHtml);
+        HtmlElement container = document.getRoots().get(0);
+
+        assertSame(container, document.getElement(0));
+        HtmlElement heading = container.getChildren().get(0);
+        assertSame(heading, container.getChildren().get(0));
+        assertSame(container, heading.getParent());
+        assertNull(container.getParent());
+    }
+
+    @Test
+    public void testElementViews_ReadWithoutAllocatingEmptyCollections() {
+        CompactDocument document = parser.parseCompactHtml(testHtml);
+        HtmlElement heading = document.getRoots().get(0).getChildren().get(0);
+
+        assertSame(Collections.emptyMap(), heading.getInlineStyles());
+        assertSame(Collections.emptyList(), heading.getChildren());
+        assertFalse(heading.hasInlineStyles());
+        assertTrue(heading.hasClass("title"));
+        assertFalse(heading.hasClass("unknown"));
+        assertEquals("fallback", heading.getAttribute("href", "fallback"));
+        assertEquals("title", heading.getAttribute("class", null));
+    }
+
+    @Test
+    public void testElementViews_ReturnCachedCollections() {
+        CompactDocument document = parser.parseCompactHtml(testHtml);
+        HtmlElement container = document.getElement(0);
+
+        assertTrue(container.isReadOnly());
+        assertSame(container.getChildren(), container.getChildren());
+        assertSame(container.getClasses(), container.getClasses());
+        assertSame(container.getAttributes(), container.getAttributes());
+        assertSame(container.getInlineStyles(), container.getInlineStyles());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testElementViews_AreReadOnly() {
+        CompactDocument document = parser.parseCompactHtml(testHtml);
+        document.getElement(0).setText("changed");
+    }
+
+    @Test
+    public void testSymbols_AreSharedAcrossNodes() {
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            html.append("<div class=\"row\"><span class=\"cell\">").append(i).append("</span></div>");
+        }
+        CompactDocument document = parser.parseCompactHtml(html.toString());
+
+        assertEquals(1000, document.size());
+        // div, span, row, cell and the class attribute name
+        assertEquals(5, document.getSymbols().size());
+        int second = document.getNextSibling(document.getFirstRoot());
+        assertEquals("div", document.getTagName(second));
+        assertEquals("span", document.getTagName(document.getFirstChild(second)));
+        assertEquals("1", document.getText(document.getFirstChild(second)));
+    }
+
+    private void assertSameTree(HtmlElement expected, HtmlElement actual) {
+        assertEquals(expected.getTagName(), actual.getTagName());
+        assertEquals(emptyToNull(expected.getId()), actual.getId());
+        assertEquals(emptyToNull(expected.getText()), actual.getText());
+        assertEquals(expected.getClasses(), actual.getClasses());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        assertEquals(expected.getInlineStyles(), actual.getInlineStyles());
+        assertEquals(expected.getChildren().size(), actual.getChildren().size());
+        for (int i = 0; i < expected.getChildren().size(); i++) {
+            assertSameTree(expected.getChildren().get(i), actual.getChildren().get(i));
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
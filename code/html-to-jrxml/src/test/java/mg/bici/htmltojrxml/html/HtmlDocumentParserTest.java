@@ -4,6 +4,11 @@ import mg.bici.htmltojrxml.exceptions.ParsingException;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -96,4 +101,87 @@ public class HtmlDocumentParserTest {
         assertEquals("span", p.getChildren().get(0).getTagName());
         assertEquals("John Doe", p.getChildren().get(0).getText());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParseHtml_StreamingVisitsElementsInDocumentOrder() {
+        List<String> events = new ArrayList<>();
+        List<HtmlElement> started = new ArrayList<>();
+        parser.parseHtml(new StringReader(testHtml), new HtmlElementVisitor() {
+            @Override
+            public void startElement(HtmlElement element) {
+                events.add("+" + element.getTagName());
+                started.add(element);
+            }
+
+            @Override
+            public void endElement(HtmlElement element) {
+                events.add("-" + element.getTagName());
+            }
+        });
+
+        assertEquals("+div", events.get(0));
+        assertEquals("-div", events.get(events.size() - 1));
+        assertFalse(events.contains("+script"));
+        assertTrue(events.indexOf("+span") > events.indexOf("+p"));
+        assertTrue(events.indexOf("-span") < events.indexOf("-p"));
+
+        // parent links are set but children are not retained
+        HtmlElement span = started.stream().filter(e -> "span".equals(e.getTagName())).findFirst().get();
+        assertEquals("p", span.getParent().getTagName());
+        assertEquals("div", span.getParent().getParent().getTagName());
+        assertTrue(span.getParent().getChildren().isEmpty());
+    }
+
+    @Test
+    public void testParseHtml_StreamingFromInputStream() {
+        List<String> tags = new ArrayList<>();
+        byte[] bytes = "<p>Net: <b>1 200</b></p><p>Gross</p>".getBytes(StandardCharsets.UTF_8);
+        parser.parseHtml(new ByteArrayInputStream(bytes), "UTF-8", new HtmlElementVisitor() {
+            @Override
+            public void startElement(HtmlElement element) {
+                tags.add(element.getTagName());
+            }
+
+            @Override
+            public void endElement(HtmlElement element) {
+            }
+        });
+
+        assertEquals(Arrays.asList("p", "b", "p"), tags);
+    }
+
+    @Test
+    public void testParseHtml_DeeplyNestedHtmlDoesNotOverflow() {
+        int depth = 20000;
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            html.append("<div>");
+        }
+        html.append("deep");
+        for (int i = 0; i < depth; i++) {
+            html.append("</div>");
+        }
+
+        ParsedDocument result = parser.parseHtml(html.toString());
+
+        HtmlElement current = result.getElements().get(0);
+        int levels = 1;
+        while (current.hasChildren()) {
+            current = current.getChildren().get(0);
+            levels++;
+        }
+        assertEquals(depth, levels);
+        assertEquals("deep", current.getText());
+    }
+
+    @Test
+    public void testIsReportableElement_EmptyBlockIsSkipped() {
+        org.jsoup.nodes.Element emptyDiv = new org.jsoup.nodes.Element("div");
+        org.jsoup.nodes.Element blankDiv = new org.jsoup.nodes.Element("div").appendText("   ");
+        org.jsoup.nodes.Element emptySpan = new org.jsoup.nodes.Element("span");
+
+        assertFalse(parser.isReportableElement(emptyDiv));
+        assertFalse(parser.isReportableElement(blankDiv));
+        assertTrue(parser.isReportableElement(emptySpan));
+    }
+}
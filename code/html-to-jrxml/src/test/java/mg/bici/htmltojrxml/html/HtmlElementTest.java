@@ -3,6 +3,7 @@ package mg.bici.htmltojrxml.html;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,7 +31,7 @@ public class HtmlElementTest {
         HtmlElement child = new HtmlElement();
         child.setTagName("span");
         child.setParent(element);
-        element.getChildren().add(child);
+        element.addChild(child);
     }
 
     @Test
@@ -53,7 +54,7 @@ public class HtmlElementTest {
     public void testGetChildrenByTag_FiltersByTagName() {
         HtmlElement child2 = new HtmlElement();
         child2.setTagName("p");
-        element.getChildren().add(child2);
+        element.addChild(child2);
 
         assertEquals(1, element.getChildrenByTag("span").size());
         assertEquals(1, element.getChildrenByTag("p").size());
@@ -61,6 +62,21 @@ public class HtmlElementTest {
         assertEquals(0, element.getChildrenByTag("div").size());
     }
 
+    @Test
+    public void testGetters_DoNotAllocateAbsentCollections() {
+        HtmlElement empty = new HtmlElement();
+
+        assertTrue(empty.getChildren().isEmpty());
+        assertTrue(empty.getInlineStyles().isEmpty());
+        assertFalse(empty.hasChildren());
+        assertFalse(empty.hasInlineStyles());
+
+        empty.addChild(element);
+        empty.putInlineStyle("color", "red");
+        assertTrue(empty.hasChildren());
+        assertEquals("red", empty.getInlineStyles().get("color"));
+    }
+
     @Test
     public void testGetAttribute_ReturnsCorrectValue() {
         assertEquals("value", element.getAttribute("data-test", "default"));
@@ -94,6 +110,23 @@ public class HtmlElementTest {
         assertFalse(element.isInline());
     }
 
+    @Test
+    public void testIsBlock_UpperCaseTag_UsesLowerCaseSymbol() {
+        element.setTagName("TABLE");
+        assertTrue(element.isBlock());
+        assertEquals(HtmlSymbols.internTag("table"), element.getTagSymbol());
+    }
+
+    @Test
+    public void testHasClass_TracksClassChanges() {
+        element.setClasses(new ArrayList<>(Arrays.asList("class3")));
+        assertTrue(element.hasClass("class3"));
+        assertFalse(element.hasClass("class1"));
+
+        element.addClass("class4");
+        assertTrue(element.hasClass("class4"));
+    }
+
     @Test
     public void testGettersAndSetters() {
         assertEquals("div", element.getTagName());
@@ -0,0 +1,36 @@
+package mg.bici.htmltojrxml.html;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HtmlSymbolsTest {
+
+    @Test
+    public void testTagCategories() {
+        assertTrue(HtmlSymbols.isBlock(HtmlSymbols.internTag("div")));
+        assertTrue(HtmlSymbols.isBlock(HtmlSymbols.internTag("H3")));
+        assertTrue(HtmlSymbols.isInline(HtmlSymbols.internTag("img")));
+        assertFalse(HtmlSymbols.isInline(HtmlSymbols.internTag("table")));
+        assertFalse(HtmlSymbols.isBlock(HtmlSymbols.internTag("section")));
+        assertFalse(HtmlSymbols.isBlock(SymbolTable.NO_SYMBOL));
+    }
+
+    @Test
+    public void testInternTag_IsCaseInsensitive() {
+        assertEquals(HtmlSymbols.internTag("td"), HtmlSymbols.internTag("TD"));
+        assertEquals(SymbolTable.NO_SYMBOL, HtmlSymbols.internTag(null));
+    }
+
+    @Test
+    public void testParsing_KeepsClassAndAttributeNamesOutOfTable() {
+        String html = "<div class=\"symbols-test-class\" data-symbols-test=\"1\">x</div>";
+        HtmlElement element = new HtmlDocumentParser().parseHtml(html).getElements().get(0);
+        new HtmlDocumentParser().parseCompactHtml(html);
+
+        assertTrue(element.hasClass("symbols-test-class"));
+        assertEquals("1", element.getAttribute("data-symbols-test", null));
+        assertEquals(SymbolTable.NO_SYMBOL, HtmlSymbols.getTable().lookup("symbols-test-class"));
+        assertEquals(SymbolTable.NO_SYMBOL, HtmlSymbols.getTable().lookup("data-symbols-test"));
+    }
+}
@@ -0,0 +1,59 @@
+package mg.bici.htmltojrxml.html;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.exceptions.ParsingException;
+
+public class HtmlTagBalanceValidatorTest {
+    private HtmlTagBalanceValidator validator;
+
+    @Before
+    public void setUp() {
+        validator = new HtmlTagBalanceValidator();
+    }
+
+    @Test
+    public void testValidate_AcceptsVoidAndSelfClosingElements() {
+        validator.validate("<div>Line<br>next<img src=\"logo.png\"><hr/><span/></div>");
+    }
+
+    @Test
+    public void testValidate_IgnoresCommentsCdataAndScriptBodies() {
+        validator.validate("<!DOCTYPE html><div><!-- <p> --><![CDATA[<td>]]>" +
+                "<script>if (a < b) { document.write('<div>'); }</script>" +
+                "<p title=\"a > b\">x</p></div>");
+    }
+
+    @Test
+    public void testValidate_ReportsLineAndColumnOfUnclosedTag() {
+        assertErrorContains("<div>\n  <p>ok</p>\n  <table>\n</div>", "Unclosed tag <table> at line 3, column 3");
+    }
+
+    @Test
+    public void testValidate_ReportsInnermostUnclosedTagAtEnd() {
+        assertErrorContains("<div><p>ok</p><span>", "Unclosed tag <span> at line 1, column 15");
+    }
+
+    @Test
+    public void testValidate_IgnoresStrayClosingTag() {
+        validator.validate("<p>ok</p>\n</div><DIV>x</div>");
+    }
+
+    @Test
+    public void testValidate_ReportsUnterminatedComment() {
+        assertErrorContains("<div><!-- open</div>", "Unterminated comment at line 1, column 6");
+    }
+
+    private void assertErrorContains(String html, String expected) {
+        try {
+            validator.validate(html);
+            fail("Expected ParsingException");
+        } catch (ParsingException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expected));
+        }
+    }
+}
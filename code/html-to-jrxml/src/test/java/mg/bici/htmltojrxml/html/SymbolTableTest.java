@@ -0,0 +1,76 @@
+package mg.bici.htmltojrxml.html;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+    @Test
+    public void testIntern_SameNameReturnsSameId() {
+        SymbolTable table = new SymbolTable(16);
+        int div = table.intern("div");
+        int span = table.intern("span");
+
+        assertEquals(div, table.intern("div"));
+        assertNotEquals(div, span);
+        assertEquals("div", table.nameOf(div));
+        assertEquals("span", table.nameOf(span));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testLookup_DoesNotAssignIds() {
+        SymbolTable table = new SymbolTable(16);
+        assertEquals(SymbolTable.NO_SYMBOL, table.lookup("div"));
+        assertEquals(0, table.size());
+        assertEquals(SymbolTable.NO_SYMBOL, table.intern(null));
+        assertNull(table.nameOf(SymbolTable.NO_SYMBOL));
+    }
+
+    @Test
+    public void testIntern_FullTableReturnsNoSymbolForNewNames() {
+        SymbolTable table = new SymbolTable(2);
+        int a = table.intern("a");
+        table.intern("b");
+
+        assertEquals(SymbolTable.NO_SYMBOL, table.intern("c"));
+        assertEquals(a, table.intern("a"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testIntern_ConcurrentCallersAgreeOnIds() throws Exception {
+        SymbolTable table = new SymbolTable(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit((Callable<int[]>) () -> {
+                    int[] ids = new int[200];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = table.intern("name" + i);
+                    }
+                    return ids;
+                }));
+            }
+            int[] expected = futures.get(0).get();
+            for (Future<int[]> future : futures) {
+                assertArrayEquals(expected, future.get());
+            }
+            assertEquals(200, table.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("name" + i, table.nameOf(expected[i]));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
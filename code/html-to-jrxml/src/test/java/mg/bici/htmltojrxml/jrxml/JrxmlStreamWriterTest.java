@@ -0,0 +1,155 @@
+package mg.bici.htmltojrxml.jrxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.layout.LayoutCalculationEngine;
+
+public class JrxmlStreamWriterTest {
+    private LayoutCalculationEngine engine;
+
+    @Before
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("page.width", "500");
+        properties.setProperty("page.height", "300");
+        properties.setProperty("page.margin.top", "50");
+        properties.setProperty("page.margin.right", "50");
+        properties.setProperty("page.margin.bottom", "50");
+        properties.setProperty("page.margin.left", "50");
+        engine = new LayoutCalculationEngine(new ConversionConfig(properties));
+    }
+
+    @Test
+    public void testWriteReport_PageSetupAndDetailBands() throws Exception {
+        Document jrxml = convert("<p style=\"height: 20pt\">one</p><p style=\"height: 30pt\">two</p>", "");
+
+        Element report = jrxml.getDocumentElement();
+        assertEquals("jasperReport", report.getLocalName());
+        assertEquals("http://jasperreports.sourceforge.net/jasperreports", report.getNamespaceURI());
+        assertEquals("500", report.getAttribute("pageWidth"));
+        assertEquals("400", report.getAttribute("columnWidth"));
+        assertEquals("50", report.getAttribute("leftMargin"));
+
+        NodeList bands = jrxml.getElementsByTagName("band");
+        assertEquals(2, bands.getLength());
+        assertEquals("20", ((Element) bands.item(0)).getAttribute("height"));
+        assertEquals("30", ((Element) bands.item(1)).getAttribute("height"));
+        // positions are relative to their band
+        Element second = (Element) ((Element) bands.item(1)).getElementsByTagName("reportElement").item(0);
+        assertEquals("0", second.getAttribute("y"));
+        assertEquals("two", jrxml.getElementsByTagName("text").item(1).getTextContent());
+    }
+
+    @Test
+    public void testWriteReport_StylesTextElements() throws Exception {
+        Document jrxml = convert("<p class=\"total\">Total &amp; tax</p>",
+                ".total { font-family: 'Times New Roman', serif; font-weight: bold; color: #336699; "
+                        + "text-align: right; background-color: #eeeeee; border: 1px dashed #000; }");
+
+        Element style = (Element) jrxml.getElementsByTagName("style").item(0);
+        assertEquals("Opaque", style.getAttribute("mode"));
+        assertEquals("#336699", style.getAttribute("forecolor"));
+        assertEquals("#EEEEEE", style.getAttribute("backcolor"));
+        assertEquals("Times-Roman", style.getAttribute("fontName"));
+        assertEquals("true", style.getAttribute("isBold"));
+        assertEquals("Right", style.getAttribute("hTextAlign"));
+        assertEquals("Dashed", ((Element) style.getElementsByTagName("pen").item(0)).getAttribute("lineStyle"));
+        Element reportElement = (Element) jrxml.getElementsByTagName("reportElement").item(0);
+        assertEquals(style.getAttribute("name"), reportElement.getAttribute("style"));
+        assertEquals("Total & tax", jrxml.getElementsByTagName("text").item(0).getTextContent());
+    }
+
+    @Test
+    public void testWriteReport_SharesOneStylePerDistinctAppearance() throws Exception {
+        StringBuilder html = new StringBuilder("<table>");
+        for (int i = 0; i < 20; i++) {
+            html.append("<tr><td>label</td><td class=\"amount\">").append(i).append("</td></tr>");
+        }
+        html.append("</table>");
+        Document jrxml = convert(html.toString(), ".amount { text-align: right; font-weight: bold; }");
+
+        assertEquals(2, jrxml.getElementsByTagName("style").getLength());
+        assertEquals(40, jrxml.getElementsByTagName("staticText").getLength());
+        assertEquals(0, jrxml.getElementsByTagName("font").getLength());
+    }
+
+    @Test
+    public void testWriteReport_SplitsTallContentIntoPageHighBands() throws Exception {
+        StringBuilder html = new StringBuilder("<div style=\"background-color: #ff0000\">");
+        for (int i = 0; i < 30; i++) {
+            html.append("<p style=\"height: 20pt\">line ").append(i).append("</p>");
+        }
+        html.append("</div>");
+        Document jrxml = convert(html.toString(), "");
+
+        NodeList bands = jrxml.getElementsByTagName("band");
+        int total = 0;
+        for (int i = 0; i < bands.getLength(); i++) {
+            int height = Integer.parseInt(((Element) bands.item(i)).getAttribute("height"));
+            assertTrue(height <= 200);
+            total += height;
+        }
+        assertEquals(600, total);
+        assertEquals(30, jrxml.getElementsByTagName("staticText").getLength());
+        // the background goes on in every band it covers
+        NodeList rectangles = jrxml.getElementsByTagName("rectangle");
+        assertEquals(3, rectangles.getLength());
+        for (int i = 0; i < rectangles.getLength(); i++) {
+            Element element = (Element) ((Element) rectangles.item(i)).getElementsByTagName("reportElement").item(0);
+            assertEquals("0", element.getAttribute("y"));
+            assertEquals("200", element.getAttribute("height"));
+        }
+    }
+
+    @Test
+    public void testWriteReport_DropsBoxesAboveWrittenBands() throws Exception {
+        Document jrxml = convert("<p style=\"height: 20pt\">one</p><p style=\"height: 20pt\">two</p>"
+                + "<p style=\"position: relative; top: -45pt; height: 20pt\">three</p>", "");
+
+        NodeList texts = jrxml.getElementsByTagName("text");
+        assertEquals(2, texts.getLength());
+        assertEquals("two", texts.item(1).getTextContent());
+    }
+
+    @Test
+    public void testWriteReport_SkipsBoxesThatDrawNothing() throws Exception {
+        Document jrxml = convert("<div><div><p>text</p></div></div>", "");
+
+        assertEquals(1, jrxml.getElementsByTagName("staticText").getLength());
+        assertEquals(0, jrxml.getElementsByTagName("rectangle").getLength());
+    }
+
+    private Document convert(String body, String css) throws Exception {
+        List<HtmlElement> roots = new HtmlDocumentParser().parseHtml("<html><body>" + body + "</body></html>").getElements();
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        Map<HtmlElement, ImmutableComputedStyle> styles = analyzer.computeStyles(roots, analyzer.compileStylesheet(css));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JrxmlStreamWriter writer = new JrxmlStreamWriter(out, new FontMappingConfig())) {
+            writer.writeReport("test", engine.calculateLayout(roots, styles));
+        }
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
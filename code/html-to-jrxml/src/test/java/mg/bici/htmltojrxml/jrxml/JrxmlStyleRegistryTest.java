@@ -0,0 +1,80 @@
+package mg.bici.htmltojrxml.jrxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.config.FontMappingConfig;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+import mg.bici.htmltojrxml.layout.LayoutBox;
+import mg.bici.htmltojrxml.layout.LayoutCalculationEngine;
+
+public class JrxmlStyleRegistryTest {
+
+    @Test
+    public void testRegister_EqualAppearancesShareAName() {
+        List<LayoutBox> boxes = layout("<p class=\"a\">one</p><p class=\"b\">two</p><p class=\"c\">three</p>",
+                ".a { font-family: Verdana; } .b { font-family: Tahoma; } .c { font-family: Courier New; }");
+        JrxmlStyleRegistry registry = new JrxmlStyleRegistry(new FontMappingConfig());
+
+        String a = registry.register(boxes.get(0));
+        String b = registry.register(boxes.get(1));
+        String c = registry.register(boxes.get(2));
+
+        // Verdana and Tahoma both map to Arial, so the mapped font makes them one style
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertEquals(2, registry.size());
+        assertEquals(a, registry.nameOf(boxes.get(1)));
+    }
+
+    @Test
+    public void testRegister_FontSizeIsPartOfTheKey() {
+        List<LayoutBox> boxes = layout("<p>one</p><p style=\"font-size: 14pt\">two</p>", "");
+        JrxmlStyleRegistry registry = new JrxmlStyleRegistry(new FontMappingConfig());
+
+        assertNotEquals(registry.register(boxes.get(0)), registry.register(boxes.get(1)));
+    }
+
+    @Test
+    public void testRemoveUnused_KeepsNamesOfStylesStillInUse() {
+        List<LayoutBox> boxes = layout("<p class=\"a\">one</p><p class=\"c\">two</p>",
+                ".a { font-family: Verdana; } .c { font-family: Courier New; }");
+        JrxmlStyleRegistry registry = new JrxmlStyleRegistry(new FontMappingConfig());
+        registry.register(boxes.get(0));
+        String c = registry.register(boxes.get(1));
+        registry.removeUnused();
+        assertEquals(2, registry.size());
+
+        // the next version only has the second paragraph
+        assertEquals(c, registry.register(boxes.get(1)));
+        registry.removeUnused();
+
+        assertEquals(1, registry.size());
+        assertEquals(c, registry.nameOf(boxes.get(1)));
+        assertNull(registry.nameOf(boxes.get(0)));
+    }
+
+    @Test
+    public void testNameOf_UnregisteredStyle() {
+        List<LayoutBox> boxes = layout("<p>one</p>", "");
+
+        assertNull(new JrxmlStyleRegistry(new FontMappingConfig()).nameOf(boxes.get(0)));
+    }
+
+    private List<LayoutBox> layout(String body, String css) {
+        List<HtmlElement> roots = new HtmlDocumentParser().parseHtml("<html><body>" + body + "</body></html>").getElements();
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        Map<HtmlElement, ImmutableComputedStyle> styles = analyzer.computeStyles(roots, analyzer.compileStylesheet(css));
+        return new LayoutCalculationEngine(new ConversionConfig()).calculateLayout(roots, styles).getBoxes();
+    }
+}
@@ -0,0 +1,266 @@
+package mg.bici.htmltojrxml.layout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.config.ConversionConfig;
+import mg.bici.htmltojrxml.css.ComputedStyle;
+import mg.bici.htmltojrxml.css.CssLength;
+import mg.bici.htmltojrxml.css.CssStyleAnalyzer;
+import mg.bici.htmltojrxml.css.ImmutableComputedStyle;
+import mg.bici.htmltojrxml.exceptions.LayoutException;
+import mg.bici.htmltojrxml.html.HtmlDocumentParser;
+import mg.bici.htmltojrxml.html.HtmlElement;
+
+public class LayoutCalculationEngineTest {
+    private static final float DELTA = 0.01f;
+
+    private LayoutCalculationEngine engine;
+
+    @Before
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("page.width", "500");
+        properties.setProperty("page.height", "400");
+        properties.setProperty("page.margin.top", "50");
+        properties.setProperty("page.margin.right", "50");
+        properties.setProperty("page.margin.bottom", "50");
+        properties.setProperty("page.margin.left", "50");
+        engine = new LayoutCalculationEngine(new ConversionConfig(properties));
+    }
+
+    @Test
+    public void testBlocks_StackVerticallyAcrossContentWidth() {
+        LayoutResult result = layout("<div id=\"a\" style=\"height: 20pt\">x</div><div id=\"b\" style=\"height: 30pt\">x</div>", "");
+
+        LayoutBox a = box(result, "a");
+        LayoutBox b = box(result, "b");
+        assertEquals(400, result.getContentWidth(), DELTA);
+        assertEquals(0, a.getX(), DELTA);
+        assertEquals(0, a.getY(), DELTA);
+        assertEquals(400, a.getWidth(), DELTA);
+        assertEquals(20, a.getHeight(), DELTA);
+        assertEquals(20, b.getY(), DELTA);
+        assertEquals(50, result.getContentHeight(), DELTA);
+    }
+
+    @Test
+    public void testBlock_HeightGrowsWithWrappedText() {
+        // 100 characters of 0.5em at 10pt are 500pt, two lines of the 400pt content width
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append('x');
+        }
+        LayoutResult result = layout("<p id=\"p\" style=\"font-size: 10pt; line-height: 12pt\">" + text + "</p>", "");
+
+        assertEquals(24, box(result, "p").getHeight(), DELTA);
+    }
+
+    @Test
+    public void testBoxModel_MarginsPaddingAndBorderInPixels() {
+        LayoutResult result = layout("<div id=\"outer\" style=\"margin: 8px; padding: 4px; border: 4px solid black\">"
+                + "<div id=\"inner\" style=\"height: 10pt\">x</div></div>", "");
+
+        LayoutBox outer = box(result, "outer");
+        LayoutBox inner = box(result, "inner");
+        assertEquals(6, outer.getX(), DELTA);
+        assertEquals(6, outer.getY(), DELTA);
+        assertEquals(388, outer.getWidth(), DELTA);
+        assertEquals(22, outer.getHeight(), DELTA);
+        assertEquals(12, inner.getX(), DELTA);
+        assertEquals(12, inner.getY(), DELTA);
+        assertEquals(376, inner.getWidth(), DELTA);
+        assertSame(outer, inner.getParent());
+    }
+
+    @Test
+    public void testBoxModel_ResolvesUnitsOfSides() {
+        // 2em of 12pt, 10% of the 400pt content width, 1cm and 0.25em of 12pt
+        LayoutResult result = layout("<div id=\"outer\" style=\"font-size: 12pt; margin: 2em 10%; padding: 1cm;"
+                + " border: 0.25em solid black\"><div id=\"inner\" style=\"height: 10pt\">x</div></div>", "");
+
+        LayoutBox outer = box(result, "outer");
+        LayoutBox inner = box(result, "inner");
+        assertEquals(40, outer.getX(), DELTA);
+        assertEquals(24, outer.getY(), DELTA);
+        assertEquals(320, outer.getWidth(), DELTA);
+        assertEquals(28.35f, outer.getPaddingTop(), DELTA);
+        assertEquals(28.35f, outer.getPaddingLeft(), DELTA);
+        assertEquals(3, outer.getBorderWidth(), DELTA);
+        assertEquals(71.35f, inner.getX(), DELTA);
+        assertEquals(55.35f, inner.getY(), DELTA);
+        assertEquals(257.3f, inner.getWidth(), DELTA);
+    }
+
+    @Test
+    public void testTableRow_SplitsFreeWidthBetweenAutoCells() {
+        LayoutResult result = layout("<table><tbody><tr id=\"row\">"
+                + "<td id=\"c1\" style=\"width: 100pt\">a</td><td id=\"c2\">b</td><td id=\"c3\">c</td>"
+                + "</tr></tbody></table>", "");
+
+        LayoutBox row = box(result, "row");
+        assertEquals(LayoutBox.Kind.ROW, row.getKind());
+        assertEquals(LayoutBox.Kind.CELL, box(result, "c1").getKind());
+        assertEquals(0, box(result, "c1").getX(), DELTA);
+        assertEquals(100, box(result, "c1").getWidth(), DELTA);
+        assertEquals(100, box(result, "c2").getX(), DELTA);
+        assertEquals(150, box(result, "c2").getWidth(), DELTA);
+        assertEquals(250, box(result, "c3").getX(), DELTA);
+        assertEquals(box(result, "c1").getY(), box(result, "c3").getY(), DELTA);
+        assertEquals(row.getHeight(), box(result, "c2").getHeight(), DELTA);
+    }
+
+    @Test
+    public void testTableRow_SizedCellEdgesAreNotSharedOut() {
+        // 10px of padding on each side adds 15pt to the 100pt cell
+        LayoutResult result = layout("<table><tbody><tr>"
+                + "<td id=\"c1\" style=\"width: 100pt; padding: 0 10px\">a</td><td id=\"c2\">b</td><td id=\"c3\">c</td>"
+                + "</tr></tbody></table>", "");
+
+        assertEquals(115, box(result, "c1").getWidth(), DELTA);
+        assertEquals(142.5f, box(result, "c2").getWidth(), DELTA);
+        assertEquals(400, box(result, "c3").getX() + box(result, "c3").getWidth(), DELTA);
+    }
+
+    @Test
+    public void testInlineBoxes_FlowOnOneLine() {
+        LayoutResult result = layout("<p><span id=\"s1\">abcd</span><span id=\"s2\">ef</span></p>",
+                "p { font-size: 10pt; }");
+
+        LayoutBox s1 = box(result, "s1");
+        LayoutBox s2 = box(result, "s2");
+        assertEquals(LayoutBox.Kind.INLINE, s1.getKind());
+        assertEquals(20, s1.getWidth(), DELTA);
+        assertEquals(20, s2.getX(), DELTA);
+        assertEquals(s1.getY(), s2.getY(), DELTA);
+    }
+
+    @Test
+    public void testLengthUnits_ResolveToPoints() {
+        LayoutResult result = layout("<div id=\"px\" style=\"width: 100px\">x</div><div id=\"in\" style=\"width: 1in\">x</div>"
+                + "<div id=\"pct\" style=\"width: 50%\">x</div><div id=\"em\" style=\"font-size: 12pt; width: 2em\">x</div>", "");
+
+        assertEquals(75, box(result, "px").getWidth(), DELTA);
+        assertEquals(72, box(result, "in").getWidth(), DELTA);
+        assertEquals(200, box(result, "pct").getWidth(), DELTA);
+        assertEquals(24, box(result, "em").getWidth(), DELTA);
+    }
+
+    @Test
+    public void testFontSize_NestedRelativeSizesCompound() {
+        LayoutResult result = layout("<div id=\"a\" style=\"font-size: 10pt\"><div id=\"b\" style=\"font-size: 1.5em\">"
+                + "<div id=\"c\" style=\"font-size: 1.5em\"><p id=\"d\">x</p></div></div></div>", "");
+
+        assertEquals(10, box(result, "a").getFontSize(), DELTA);
+        assertEquals(15, box(result, "b").getFontSize(), DELTA);
+        assertEquals(22.5f, box(result, "c").getFontSize(), DELTA);
+        assertEquals(22.5f, box(result, "d").getFontSize(), DELTA);
+    }
+
+    @Test
+    public void testPositioning_RelativeShiftsAndAbsoluteLeavesFlow() {
+        LayoutResult result = layout("<div id=\"rel\" style=\"position: relative; top: 5pt; left: 10pt; height: 20pt\">"
+                + "<div id=\"abs\" style=\"position: absolute; top: 2pt; left: 3pt; width: 50pt; height: 40pt\">x</div>"
+                + "</div><div id=\"next\" style=\"height: 10pt\">x</div>", "");
+
+        LayoutBox rel = box(result, "rel");
+        LayoutBox abs = box(result, "abs");
+        assertEquals(10, rel.getX(), DELTA);
+        assertEquals(5, rel.getY(), DELTA);
+        assertEquals(13, abs.getX(), DELTA);
+        assertEquals(7, abs.getY(), DELTA);
+        assertEquals(50, abs.getWidth(), DELTA);
+        // neither the shift nor the absolute child move the next block
+        assertEquals(20, rel.getHeight(), DELTA);
+        assertEquals(20, box(result, "next").getY(), DELTA);
+    }
+
+    @Test
+    public void testDisplayNone_DropsSubtree() {
+        LayoutResult result = layout("<div id=\"hidden\" style=\"display: none\"><p id=\"child\">x</p></div>"
+                + "<div id=\"shown\" style=\"height: 10pt\">x</div>", "");
+
+        assertNull(box(result, "hidden"));
+        assertNull(box(result, "child"));
+        assertEquals(0, box(result, "shown").getY(), DELTA);
+    }
+
+    @Test
+    public void testPageCount_FollowsContentHeight() {
+        LayoutResult result = layout("<div style=\"height: 700pt\">x</div>", "");
+
+        assertEquals(3, result.getPageCount());
+    }
+
+    @Test
+    public void testCalculateLayout_ReusesBoxes() {
+        List<HtmlElement> roots = parse("<div><p>one</p><p>two</p></div>");
+        Map<HtmlElement, ImmutableComputedStyle> styles = styles(roots, "");
+
+        LayoutResult first = engine.calculateLayout(roots, styles);
+        LayoutBox firstBox = first.getBoxes().get(0);
+        int boxCount = first.getBoxes().size();
+        LayoutResult second = engine.calculateLayout(roots, styles);
+
+        assertSame(firstBox, second.getBoxes().get(0));
+        assertEquals(boxCount, second.getBoxes().size());
+    }
+
+    @Test
+    public void testRelease_DropsElementAndStyleReferences() {
+        LayoutResult result = layout("<div><p>one</p></div>", "");
+        LayoutBox box = result.getBoxes().get(0);
+
+        engine.release();
+
+        assertNull(box.getElement());
+        assertNull(box.getStyle());
+    }
+
+    @Test(expected = LayoutException.class)
+    public void testCalculateLayout_MissingStyle() {
+        List<HtmlElement> roots = parse("<div>x</div>");
+        engine.calculateLayout(roots, new HashMap<HtmlElement, ComputedStyle>());
+    }
+
+    @Test
+    public void testLengthConverter() {
+        assertEquals(28.3465f, LengthConverter.toPoints(new CssLength(1, CssLength.Unit.CM), 10, 0), DELTA);
+        assertEquals(2.83465f, LengthConverter.toPoints(new CssLength(1, CssLength.Unit.MM), 10, 0), DELTA);
+        assertEquals(15, LengthConverter.toPoints(new CssLength(1.5f, CssLength.Unit.EM), 10, 0), DELTA);
+        assertEquals(0, LengthConverter.toPoints(null, 10, 0), DELTA);
+    }
+
+    private LayoutResult layout(String body, String css) {
+        List<HtmlElement> roots = parse(body);
+        return engine.calculateLayout(roots, styles(roots, css));
+    }
+
+    // the parser drops empty elements, so fixtures give every element some text
+    private List<HtmlElement> parse(String body) {
+        return new HtmlDocumentParser().parseHtml("<html><body>" + body + "</body></html>").getElements();
+    }
+
+    private Map<HtmlElement, ImmutableComputedStyle> styles(List<HtmlElement> roots, String css) {
+        CssStyleAnalyzer analyzer = new CssStyleAnalyzer();
+        return analyzer.computeStyles(roots, analyzer.compileStylesheet(css));
+    }
+
+    private LayoutBox box(LayoutResult result, String id) {
+        for (LayoutBox box : result.getBoxes()) {
+            if (id.equals(box.getElement().getId())) {
+                return box;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package mg.bici.htmltojrxml.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ColorTest {
+
+    @Test
+    public void testPackedComponents() {
+        Color color = new Color(0x12, 0x34, 0x56, 0x78);
+        assertEquals(0x78123456, color.getArgb());
+        assertEquals(0x12, color.getRed());
+        assertEquals(0x34, color.getGreen());
+        assertEquals(0x56, color.getBlue());
+        assertEquals(0x78, color.getAlpha());
+        assertFalse(color.isOpaque());
+        assertTrue(Color.of(1, 2, 3).isOpaque());
+    }
+
+    @Test
+    public void testFromArgb_ReturnsCanonicalInstance() {
+        assertSame(Color.fromArgb(0xFF102030), Color.of(0x10, 0x20, 0x30));
+        assertSame(Color.BLACK, Color.fromArgb(Color.OPAQUE_BLACK_ARGB));
+        assertEquals(new Color(1, 2, 3), Color.fromArgb(0xFF010203));
+        assertNotEquals(Color.of(1, 2, 3), new Color(1, 2, 3, 0));
+    }
+
+    @Test
+    public void testHashCode_SpreadsSimilarColors() {
+        // the former 31*r + 17*g + b hash collided heavily on these
+        Set<Integer> hashes = new HashSet<>();
+        for (int r = 0; r < 32; r++) {
+            for (int g = 0; g < 32; g++) {
+                for (int b = 0; b < 32; b++) {
+                    hashes.add(new Color(r, g, b).hashCode());
+                }
+            }
+        }
+        assertEquals(32 * 32 * 32, hashes.size());
+    }
+}
@@ -0,0 +1,109 @@
+package mg.bici.htmltojrxml.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColorUtilsTest {
+    private List<String> reports;
+
+    @Before
+    public void setUp() {
+        reports = new ArrayList<>();
+        ColorUtils.setReporter((value, reason) -> reports.add(reason + ": " + value));
+    }
+
+    @After
+    public void tearDown() {
+        ColorUtils.setReporter(null);
+    }
+
+    @Test
+    public void testParseColor_HexNotations() {
+        assertEquals(Color.of(0x1a, 0x2b, 0x3c), ColorUtils.parseColor("#1a2b3c"));
+        assertEquals(Color.of(0xff, 0xaa, 0x00), ColorUtils.parseColor("#FA0"));
+        assertEquals(new Color(0x11, 0x22, 0x33, 0x44), ColorUtils.parseColor("#1234"));
+        assertEquals(new Color(0x11, 0x22, 0x33, 0x80), ColorUtils.parseColor(" #11223380 "));
+    }
+
+    @Test
+    public void testParseColor_RgbFunctions() {
+        assertEquals(Color.of(12, 34, 56), ColorUtils.parseColor("rgb(12, 34, 56)"));
+        assertEquals(new Color(12, 34, 56, 128), ColorUtils.parseColor("RGBA(12,34,56,0.5)"));
+        assertEquals(new Color(12, 34, 56, 128), ColorUtils.parseColor("rgb(12 34 56 / 50%)"));
+        assertEquals(Color.of(12, 34, 56), ColorUtils.parseColor("rgba(12, 34, 56, 1)"));
+        assertEquals(Color.of(255, 128, 0), ColorUtils.parseColor("rgb(100%, 50%, 0%)"));
+        assertEquals(Color.of(255, 0, 0), ColorUtils.parseColor("rgb(300, -5, 0)"));
+    }
+
+    @Test
+    public void testParseColor_HslFunctions() {
+        assertEquals(Color.of(255, 0, 0), ColorUtils.parseColor("hsl(0, 100%, 50%)"));
+        assertEquals(Color.of(0, 255, 0), ColorUtils.parseColor("hsl(120deg 100% 50%)"));
+        assertEquals(new Color(0, 0, 255, 77), ColorUtils.parseColor("hsla(240, 100%, 50%, 0.3)"));
+        assertEquals(Color.of(128, 128, 128), ColorUtils.parseColor("hsl(0, 0%, 50%)"));
+    }
+
+    @Test
+    public void testParseColor_NamedColorsIgnoreCase() {
+        assertEquals(148, NamedColors.size());
+        assertEquals(Color.of(0x2f, 0x4f, 0x4f), ColorUtils.parseColor("DarkSlateGray"));
+        assertEquals(Color.of(0x66, 0x33, 0x99), ColorUtils.parseColor("rebeccapurple"));
+        assertSame(Color.WHITE, ColorUtils.parseColor("white"));
+        assertNull(NamedColors.lookup("whitex", 0, 6));
+    }
+
+    @Test
+    public void testNamedColors_SeedGivesEveryNameItsOwnSlot() {
+        assertTrue(NamedColors.isCollisionFree(NamedColors.SEED));
+    }
+
+    @Test
+    public void testParseArgb_PacksAlphaFirst() {
+        assertEquals(0xFF1A2B3C, ColorUtils.parseArgb("#1a2b3c"));
+        assertEquals(0x801A2B3C, ColorUtils.parseArgb("#1a2b3c80"));
+        assertEquals(0, ColorUtils.parseArgb("transparent"));
+        assertSame(Color.TRANSPARENT, ColorUtils.parseColor("Transparent"));
+    }
+
+    @Test
+    public void testParseColor_ReturnsCanonicalInstances() {
+        assertSame(ColorUtils.parseColor("#ff0000"), ColorUtils.parseColor("red"));
+        assertSame(ColorUtils.parseColor("rgb(1, 2, 3)"), ColorUtils.parseColor("#010203"));
+    }
+
+    @Test
+    public void testParseColor_InvalidValuesAreBlackAndReported() {
+        assertSame(Color.BLACK, ColorUtils.parseColor("not-a-color"));
+        assertSame(Color.BLACK, ColorUtils.parseColor("#12"));
+        assertSame(Color.BLACK, ColorUtils.parseColor("rgb(1, 2)"));
+        assertSame(Color.BLACK, ColorUtils.parseColor("rgb(1, 2, x)"));
+        assertSame(Color.BLACK, ColorUtils.parseColor("cmyk(0, 0, 0, 0)"));
+        assertSame(Color.BLACK, ColorUtils.parseColor(null));
+
+        assertEquals(6, reports.size());
+        assertEquals("Unknown color name: not-a-color", reports.get(0));
+    }
+
+    @Test
+    public void testParseColor_ResultCacheIsBounded() {
+        for (int i = 0; i < ColorUtils.MAX_CACHED_RESULTS + 100; i++) {
+            ColorUtils.parseColor("rgb(" + (i % 256) + ", " + (i / 256) + ", 7)");
+        }
+        assertEquals(ColorUtils.MAX_CACHED_RESULTS, ColorUtils.cachedResultCount());
+    }
+
+    @Test
+    public void testToHex() {
+        assertEquals("#336699", ColorUtils.toHex(0xFF336699));
+        assertEquals("#00000A", ColorUtils.toHex(0x0000000A));
+    }
+}
@@ -0,0 +1,46 @@
+package mg.bici.htmltojrxml.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class LruInternPoolTest {
+
+    @Test
+    public void testIntern_ReturnsCanonicalInstance() {
+        LruInternPool<String> pool = new LruInternPool<>(64);
+        String first = new String("td");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(new String("td")));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testIntern_EvictsLeastRecentlyUsed() {
+        LruInternPool<String> pool = new LruInternPool<>(2, 1);
+        String a = pool.intern(new String("a"));
+        pool.intern(new String("b"));
+        pool.intern(new String("a")); // a becomes most recent
+        pool.intern(new String("c")); // evicts b
+
+        assertEquals(2, pool.size());
+        assertSame(a, pool.intern(new String("a")));
+        String b = new String("b");
+        assertSame(b, pool.intern(b));
+    }
+
+    @Test
+    public void testIntern_StaysBoundedWhenFull() {
+        LruInternPool<String> pool = new LruInternPool<>(32);
+        for (int i = 0; i < 10000; i++) {
+            pool.intern(String.valueOf(i));
+        }
+
+        assertEquals(32, pool.size());
+        String latest = new String("9999");
+        assertNotSame(latest, pool.intern(latest));
+    }
+}
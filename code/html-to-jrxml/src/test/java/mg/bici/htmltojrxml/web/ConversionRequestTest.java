@@ -0,0 +1,64 @@
+package mg.bici.htmltojrxml.web;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import mg.bici.htmltojrxml.exceptions.ValidationException;
+
+public class ConversionRequestTest {
+
+    @Test
+    public void testParse_DecodesFormFields() {
+        ConversionRequest request = ConversionRequest.parse(null,
+                body("html=%3Cp%3ESalaire+net%3C%2Fp%3E&css=p+%7B+color%3A+red%3B+%7D&name=payslip"));
+
+        assertEquals("<p>Salaire net</p>", request.getHtml());
+        assertEquals("p { color: red; }", request.getCss());
+        assertEquals("payslip", request.getName());
+        assertEquals(ConversionRequest.Format.JRXML, request.getFormat());
+    }
+
+    @Test
+    public void testParse_DecodesUtf8() {
+        ConversionRequest request = ConversionRequest.parse(null, body("html=%C3%A9t%C3%A9"));
+
+        assertEquals("\u00e9t\u00e9", request.getHtml());
+    }
+
+    @Test
+    public void testParse_ReadsFormatFromQueryString() {
+        ConversionRequest request = ConversionRequest.parse("format=PDF&name=x", body("html=a&name=invoice"));
+
+        assertEquals(ConversionRequest.Format.PDF, request.getFormat());
+        assertEquals("invoice", request.getName()); // body wins
+    }
+
+    @Test
+    public void testParse_SanitizesName() {
+        ConversionRequest request = ConversionRequest.parse(null, body("html=a&name=..%2Fetc+passwd%22"));
+
+        assertEquals("___etc_passwd_", request.getName());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testParse_MissingHtml_ThrowsValidationException() {
+        ConversionRequest.parse(null, body("css=p+%7B%7D"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testParse_UnknownFormat_ThrowsValidationException() {
+        ConversionRequest.parse("format=docx", body("html=a"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testParse_BadEncoding_ThrowsValidationException() {
+        ConversionRequest.parse(null, body("html=%ZZ"));
+    }
+
+    private static byte[] body(String form) {
+        return form.getBytes(StandardCharsets.US_ASCII);
+    }
+}
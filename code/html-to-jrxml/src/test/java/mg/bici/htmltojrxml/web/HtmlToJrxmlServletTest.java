@@ -0,0 +1,359 @@
+package mg.bici.htmltojrxml.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Proxy;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HtmlToJrxmlServletTest {
+    private static final String FORM = "application/x-www-form-urlencoded";
+    private static final String HTML = "<div><p>Invoice</p></div>";
+
+    private HtmlToJrxmlServlet servlet;
+
+    @Before
+    public void setUp() throws ServletException {
+        servlet = new HtmlToJrxmlServlet();
+        servlet.init(config("threads", "1", "queueCapacity", "1", "maxRequestBytes", "4096"));
+    }
+
+    @After
+    public void tearDown() {
+        servlet.destroy();
+    }
+
+    @Test
+    public void testPost_PdfFormatWritesPdf() throws Exception {
+        FakeExchange exchange = new FakeExchange(FORM, form("html", HTML, "format", "pdf", "name", "invoice"));
+        servlet.doPost(exchange.request(), exchange.response());
+
+        assertTrue(exchange.awaitCompletion());
+        assertEquals(HttpServletResponse.SC_OK, exchange.status);
+        assertEquals("application/pdf", exchange.responseContentType);
+        assertEquals("attachment; filename=\"invoice.pdf\"", exchange.headers.get("Content-Disposition"));
+        assertTrue(exchange.body().startsWith("%PDF"));
+    }
+
+    @Test
+    public void testPost_OtherContentTypeIs415() throws Exception {
+        FakeExchange exchange = new FakeExchange("application/json", "{}");
+        servlet.doPost(exchange.request(), exchange.response());
+
+        assertEquals(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, exchange.status);
+        assertFalse(exchange.async);
+        assertTrue(exchange.body().startsWith("{\"error\":"));
+    }
+
+    @Test
+    public void testPost_ChunkedBodyOverLimitIs413() throws Exception {
+        StringBuilder html = new StringBuilder();
+        while (html.length() < 5000) {
+            html.append("<p>line</p>");
+        }
+        FakeExchange exchange = new FakeExchange(FORM, form("html", html.toString()));
+        servlet.doPost(exchange.request(), exchange.response());
+
+        assertTrue(exchange.awaitCompletion());
+        assertEquals(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, exchange.status);
+        assertEquals("{\"error\":\"Request body too large\"}", exchange.body());
+    }
+
+    @Test
+    public void testPost_ConversionExceptionIs400() throws Exception {
+        FakeExchange exchange = new FakeExchange(FORM, form("html", HTML, "css", "div { color: red; /* unclosed"));
+        servlet.doPost(exchange.request(), exchange.response());
+
+        assertTrue(exchange.awaitCompletion());
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, exchange.status);
+        assertEquals("application/json", exchange.responseContentType);
+        assertTrue(exchange.body().startsWith("{\"error\":"));
+    }
+
+    @Test
+    public void testPost_FullQueueIs503() throws Exception {
+        FakeExchange running = blockingExchange();
+        FakeExchange queued = new FakeExchange(FORM, form("html", HTML));
+        FakeExchange rejected = new FakeExchange(FORM, form("html", HTML));
+        servlet.doPost(running.request(), running.response());
+        servlet.doPost(queued.request(), queued.response());
+        servlet.doPost(rejected.request(), rejected.response());
+
+        assertTrue(rejected.awaitCompletion());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rejected.status);
+        assertEquals("{\"error\":\"Too many conversions in progress, retry later\"}", rejected.body());
+
+        running.release.countDown();
+        assertTrue(running.awaitCompletion());
+        assertTrue(queued.awaitCompletion());
+        assertEquals(HttpServletResponse.SC_OK, queued.status);
+        assertTrue(queued.body().contains("<jasperReport"));
+    }
+
+    @Test
+    public void testDestroy_CompletesPendingRequests() throws Exception {
+        FakeExchange running = blockingExchange();
+        FakeExchange queued = new FakeExchange(FORM, form("html", HTML));
+        servlet.doPost(running.request(), running.response());
+        servlet.doPost(queued.request(), queued.response());
+        assertTrue(running.entered.await(5, TimeUnit.SECONDS));
+
+        servlet.destroy();
+
+        assertTrue(queued.awaitCompletion());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, queued.status);
+        assertTrue(running.awaitCompletion()); // aborted while converting
+        running.release.countDown();
+    }
+
+    // a request whose conversion holds the only thread until released
+    private FakeExchange blockingExchange() throws UnsupportedEncodingException {
+        FakeExchange exchange = new FakeExchange(FORM, form("html", HTML));
+        exchange.blockOnStatus = true;
+        return exchange;
+    }
+
+    private static ServletConfig config(String... parameters) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            values.put(parameters[i], parameters[i + 1]);
+        }
+        return (ServletConfig) Proxy.newProxyInstance(ServletConfig.class.getClassLoader(),
+                new Class<?>[] {ServletConfig.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getInitParameter":
+                            return values.get(args[0]);
+                        case "getInitParameterNames":
+                            return Collections.enumeration(values.keySet());
+                        case "getServletName":
+                            return "html-to-jrxml";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static String form(String... fields) throws UnsupportedEncodingException {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < fields.length; i += 2) {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(fields[i]).append('=').append(URLEncoder.encode(fields[i + 1], "UTF-8"));
+        }
+        return form.toString();
+    }
+
+    /**
+     * One request and its response as the container would see them; the body length
+     * is not announced, as with a chunked request.
+     */
+    private static final class FakeExchange {
+        final String contentType;
+        final byte[] requestBody;
+        final FakeOutputStream out = new FakeOutputStream();
+        final Map<String, String> headers = new HashMap<>();
+        final List<AsyncListener> listeners = new ArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean blockOnStatus;
+        volatile boolean async;
+        volatile int status;
+        volatile String responseContentType;
+
+        FakeExchange(String contentType, String requestBody) {
+            this.contentType = contentType;
+            this.requestBody = requestBody.getBytes(StandardCharsets.UTF_8);
+        }
+
+        boolean awaitCompletion() throws InterruptedException {
+            return completed.await(5, TimeUnit.SECONDS);
+        }
+
+        String body() {
+            return new String(out.bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        HttpServletRequest request() {
+            AsyncContext context = proxy(AsyncContext.class, (method, args) -> {
+                switch (method) {
+                    case "complete":
+                        completed.countDown();
+                        return null;
+                    case "addListener":
+                        listeners.add((AsyncListener) args[0]);
+                        return null;
+                    case "setTimeout":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+            FakeInputStream in = new FakeInputStream(requestBody);
+            return proxy(HttpServletRequest.class, (method, args) -> {
+                switch (method) {
+                    case "getContentType":
+                        return contentType;
+                    case "getContentLengthLong":
+                        return -1L;
+                    case "getQueryString":
+                        return null;
+                    case "getInputStream":
+                        return in;
+                    case "startAsync":
+                        async = true;
+                        return context;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+        }
+
+        HttpServletResponse response() {
+            return proxy(HttpServletResponse.class, (method, args) -> {
+                switch (method) {
+                    case "setStatus":
+                        status = (Integer) args[0];
+                        if (blockOnStatus) {
+                            entered.countDown();
+                            awaitRelease();
+                        }
+                        return null;
+                    case "setContentType":
+                        responseContentType = (String) args[0];
+                        return null;
+                    case "setHeader":
+                        headers.put((String) args[0], (String) args[1]);
+                        return null;
+                    case "setCharacterEncoding":
+                        return null;
+                    case "getOutputStream":
+                        return out;
+                    case "isCommitted":
+                        return out.bytes.size() > 0;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+        }
+
+        private void awaitRelease() {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == args[0]
+                                : method.getName().equals("hashCode") ? System.identityHashCode(proxy)
+                                : type.getSimpleName();
+                    }
+                    return handler.invoke(method.getName(), args);
+                }));
+    }
+
+    /**
+     * Request body that is entirely available, read as soon as the listener is set.
+     */
+    private static final class FakeInputStream extends ServletInputStream {
+        private final ByteArrayInputStream in;
+
+        FakeInputStream(byte[] body) {
+            this.in = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            try {
+                listener.onDataAvailable();
+                if (isFinished()) {
+                    listener.onAllDataRead();
+                }
+            } catch (IOException e) {
+                listener.onError(e);
+            }
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            return in.read(buffer, offset, length);
+        }
+    }
+
+    private static final class FakeOutputStream extends ServletOutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] buffer, int offset, int length) {
+            bytes.write(buffer, offset, length);
+        }
+    }
+}
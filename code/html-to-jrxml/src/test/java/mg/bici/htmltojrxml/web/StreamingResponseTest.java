@@ -0,0 +1,114 @@
+package mg.bici.htmltojrxml.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingResponseTest {
+    private FakeOutputStream out;
+    private int completions;
+    private StreamingResponse response;
+
+    @Before
+    public void setUp() {
+        out = new FakeOutputStream();
+        response = new StreamingResponse(out, () -> completions++, 4, 8);
+    }
+
+    @Test
+    public void testClose_WritesEverythingAndCompletesOnce() throws IOException {
+        response.write(bytes("<jasperReport/>"));
+        response.close();
+        response.close();
+
+        assertEquals("<jasperReport/>", out.text());
+        assertEquals(1, completions);
+    }
+
+    @Test
+    public void testWrite_WaitsUntilResponseIsReady() throws IOException {
+        out.ready = false;
+        response.write(bytes("abcdefgh"));
+        response.close();
+
+        assertEquals("", out.text());
+        assertEquals(0, completions);
+
+        out.ready = true;
+        response.onWritePossible();
+
+        assertEquals("abcdefgh", out.text());
+        assertEquals(1, completions);
+    }
+
+    @Test
+    public void testSetHeaders_RunsBeforeFirstChunk() throws IOException {
+        StringBuilder events = new StringBuilder();
+        response.setHeaders(() -> events.append("headers;").append(out.text()));
+        response.write(bytes("abc"));
+
+        assertFalse(response.isStarted()); // still within the first chunk
+        response.write(bytes("de"));
+
+        assertTrue(response.isStarted());
+        assertEquals("headers;", events.toString());
+        assertEquals("abcd", out.text());
+    }
+
+    @Test
+    public void testResetBuffer_DropsBytesNotSentYet() throws IOException {
+        response.write(bytes("<ja"));
+        response.resetBuffer();
+        response.write(bytes("{}"));
+        response.close();
+
+        assertEquals("{}", out.text());
+    }
+
+    @Test(expected = IOException.class)
+    public void testAbort_CompletesAndFailsLaterWrites() throws IOException {
+        response.write(bytes("abcd"));
+        response.abort();
+        response.abort();
+
+        assertEquals(1, completions);
+        response.write(bytes("efgh"));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class FakeOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        boolean ready = true;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+
+        String text() {
+            return new String(written.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}